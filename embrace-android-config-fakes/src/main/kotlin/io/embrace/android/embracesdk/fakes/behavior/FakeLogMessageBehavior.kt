@@ -1,5 +1,9 @@
 package io.embrace.android.embracesdk.fakes.behavior
 
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_LOG_BATCH_INACTIVITY_MS
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_LOG_BATCH_MAX_BYTES
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_LOG_BATCH_MAX_COUNT
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_LOG_BATCH_MAX_TIME_MS
 import io.embrace.android.embracesdk.internal.config.behavior.LogMessageBehavior
 
 class FakeLogMessageBehavior(
@@ -7,10 +11,20 @@ class FakeLogMessageBehavior(
     private val infoLogLimit: Int = 100,
     private val warnLogLimit: Int = 100,
     private val errorLogLimit: Int = 100,
+    private val logBatchMaxCount: Int = DEFAULT_LOG_BATCH_MAX_COUNT,
+    private val logBatchMaxBytes: Long = DEFAULT_LOG_BATCH_MAX_BYTES,
+    private val logBatchMaxTimeMs: Long = DEFAULT_LOG_BATCH_MAX_TIME_MS,
+    private val logBatchInactivityMs: Long = DEFAULT_LOG_BATCH_INACTIVITY_MS,
+    private val adaptiveLogBatchingEnabled: Boolean = false,
 ) : LogMessageBehavior {
 
     override fun getLogMessageMaximumAllowedLength(): Int = logMessageMaximumAllowedLength
     override fun getInfoLogLimit(): Int = infoLogLimit
     override fun getWarnLogLimit(): Int = warnLogLimit
     override fun getErrorLogLimit(): Int = errorLogLimit
+    override fun getLogBatchMaxCount(): Int = logBatchMaxCount
+    override fun getLogBatchMaxBytes(): Long = logBatchMaxBytes
+    override fun getLogBatchMaxTimeMs(): Long = logBatchMaxTimeMs
+    override fun getLogBatchInactivityMs(): Long = logBatchInactivityMs
+    override fun isAdaptiveLogBatchingEnabled(): Boolean = adaptiveLogBatchingEnabled
 }
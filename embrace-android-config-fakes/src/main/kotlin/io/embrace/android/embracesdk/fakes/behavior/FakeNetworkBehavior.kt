@@ -13,10 +13,12 @@ class FakeNetworkBehavior(
     private val okHttpResponseBodySizeCaptureEnabled: Boolean = false,
     private val hucLiteInstrumentationEnabled: Boolean = true,
     private val urlEnabled: Boolean = true,
+    private val asyncNetworkRecordingEnabled: Boolean = false,
     override val domainCountLimiter: DomainCountLimiter = FakeDomainCountLimiter(),
     val rules: Set<NetworkCaptureRuleRemoteConfig> = emptySet(),
     val captureBodyEncryptionEnabled: Boolean = false,
     val publicKey: String? = null,
+    val hybridBodyEncryptionEnabled: Boolean = false,
 ) : NetworkBehavior {
 
     override fun isRequestContentLengthCaptureEnabled(): Boolean = false
@@ -26,8 +28,12 @@ class FakeNetworkBehavior(
     override fun getLimitsByDomain(): Map<String, Int> = domains
     override fun getRequestLimitPerDomain(): Int = captureLimit
     override fun getRequestSpanTimeoutMs(): Long = requestSpanTimeoutMs
+    override fun isAsyncNetworkRecordingEnabled(): Boolean = asyncNetworkRecordingEnabled
     override fun isUrlEnabled(url: String): Boolean = urlEnabled
     override fun isCaptureBodyEncryptionEnabled(): Boolean = captureBodyEncryptionEnabled
+    override fun isHybridBodyEncryptionEnabled(): Boolean = hybridBodyEncryptionEnabled
     override fun getNetworkBodyCapturePublicKey(): String? = publicKey
     override fun getNetworkCaptureRules(): Set<NetworkCaptureRuleRemoteConfig> = rules
+    override fun getMatchingNetworkCaptureRules(url: String, method: String): List<NetworkCaptureRuleRemoteConfig> =
+        rules.filter { it.method.contains(method) && it.urlRegex.toRegex().containsMatchIn(url) && it.expiresIn > 0 }
 }
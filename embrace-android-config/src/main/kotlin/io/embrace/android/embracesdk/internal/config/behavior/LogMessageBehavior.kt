@@ -5,6 +5,43 @@ interface LogMessageBehavior {
     fun getInfoLogLimit(): Int
     fun getWarnLogLimit(): Int
     fun getErrorLogLimit(): Int
+
+    /**
+     * The maximum number of logs sent in a batch. In adaptive mode this is the size batches start at and shrink
+     * back to.
+     */
+    fun getLogBatchMaxCount(): Int
+
+    /**
+     * The maximum estimated size of a batch of logs in bytes.
+     */
+    fun getLogBatchMaxBytes(): Long
+
+    /**
+     * The longest a batch is held open after its first log was added, in milliseconds.
+     */
+    fun getLogBatchMaxTimeMs(): Long
+
+    /**
+     * How long without a new log before the batch is sent, in milliseconds.
+     */
+    fun getLogBatchInactivityMs(): Long
+
+    /**
+     * Whether the batch size should grow while logs arrive faster than batches fill, and shrink when idle.
+     */
+    fun isAdaptiveLogBatchingEnabled(): Boolean
 }
 
 const val LOG_MESSAGE_MAXIMUM_ALLOWED_LENGTH: Int = 128
+
+const val DEFAULT_LOG_BATCH_MAX_COUNT: Int = 50
+const val MAX_LOG_BATCH_COUNT: Int = 1000
+const val DEFAULT_LOG_BATCH_MAX_BYTES: Long = 1024 * 1024
+const val MIN_LOG_BATCH_BYTES: Long = 16 * 1024
+const val MAX_LOG_BATCH_BYTES: Long = 4 * 1024 * 1024
+const val DEFAULT_LOG_BATCH_MAX_TIME_MS: Long = 5000
+const val MIN_LOG_BATCH_TIME_MS: Long = 1000
+const val MAX_LOG_BATCH_TIME_MS: Long = 60_000
+const val DEFAULT_LOG_BATCH_INACTIVITY_MS: Long = 2000
+const val MIN_LOG_BATCH_INACTIVITY_MS: Long = 500
@@ -25,4 +25,21 @@ class LogMessageBehaviorImpl(
     override fun getInfoLogLimit(): Int = remote?.logInfoLimit ?: DEFAULT_LOG_INFO_LIMIT
     override fun getWarnLogLimit(): Int = remote?.logWarnLimit ?: DEFAULT_LOG_WARNING_LIMIT
     override fun getErrorLogLimit(): Int = remote?.logErrorLimit ?: DEFAULT_LOG_ERROR_LIMIT
+
+    override fun getLogBatchMaxCount(): Int =
+        remote?.batchMaxCount?.coerceIn(1, MAX_LOG_BATCH_COUNT) ?: DEFAULT_LOG_BATCH_MAX_COUNT
+
+    override fun getLogBatchMaxBytes(): Long =
+        remote?.batchMaxBytes?.coerceIn(MIN_LOG_BATCH_BYTES, MAX_LOG_BATCH_BYTES) ?: DEFAULT_LOG_BATCH_MAX_BYTES
+
+    override fun getLogBatchMaxTimeMs(): Long =
+        remote?.batchMaxTimeMs?.coerceIn(MIN_LOG_BATCH_TIME_MS, MAX_LOG_BATCH_TIME_MS) ?: DEFAULT_LOG_BATCH_MAX_TIME_MS
+
+    override fun getLogBatchInactivityMs(): Long {
+        val maxTimeMs = getLogBatchMaxTimeMs()
+        val inactivityMs = remote?.batchInactivityMs ?: DEFAULT_LOG_BATCH_INACTIVITY_MS
+        return inactivityMs.coerceIn(MIN_LOG_BATCH_INACTIVITY_MS, maxTimeMs)
+    }
+
+    override fun isAdaptiveLogBatchingEnabled(): Boolean = remote?.adaptiveBatchingEnabled ?: false
 }
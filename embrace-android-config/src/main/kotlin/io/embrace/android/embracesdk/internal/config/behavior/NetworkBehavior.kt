@@ -49,6 +49,12 @@ interface NetworkBehavior {
      */
     fun getRequestSpanTimeoutMs(): Long
 
+    /**
+     * Whether the spans for completed network requests should be created on a background thread, so that the
+     * thread making the request only snapshots the request data
+     */
+    fun isAsyncNetworkRecordingEnabled(): Boolean
+
     /**
      * Checks if the url is allowed to be reported based on the specified disabled pattern.
      *
@@ -62,6 +68,12 @@ interface NetworkBehavior {
      */
     fun isCaptureBodyEncryptionEnabled(): Boolean
 
+    /**
+     * Whether captured bodies should be encrypted with a per-body AES-GCM key wrapped by the public key, instead of
+     * RSA-encrypting the entire body
+     */
+    fun isHybridBodyEncryptionEnabled(): Boolean
+
     /**
      * Supplies the public key used for network capture
      */
@@ -72,6 +84,11 @@ interface NetworkBehavior {
      */
     fun getNetworkCaptureRules(): Set<NetworkCaptureRuleRemoteConfig>
 
+    /**
+     * Gets the unexpired rules for capturing network call bodies that match the given url and method
+     */
+    fun getMatchingNetworkCaptureRules(url: String, method: String): List<NetworkCaptureRuleRemoteConfig>
+
     /**
      * Domain count limiter for network requests
      */
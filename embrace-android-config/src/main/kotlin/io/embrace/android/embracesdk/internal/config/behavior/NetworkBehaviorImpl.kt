@@ -1,11 +1,11 @@
 package io.embrace.android.embracesdk.internal.config.behavior
 
-import io.embrace.android.embracesdk.internal.config.PatternCache
 import io.embrace.android.embracesdk.internal.config.instrumented.schema.InstrumentedConfig
 import io.embrace.android.embracesdk.internal.config.remote.NetworkCaptureRuleRemoteConfig
 import io.embrace.android.embracesdk.internal.config.remote.RemoteConfig
 import io.embrace.android.embracesdk.internal.network.logging.DomainCountLimiter
 import io.embrace.android.embracesdk.internal.network.logging.EmbraceDomainCountLimiter
+import io.embrace.android.embracesdk.internal.network.matching.UrlPatternMatcher
 import kotlin.math.min
 
 /**
@@ -34,7 +34,33 @@ class NetworkBehaviorImpl(
     }
 
     private val cfg = local.networkCapture
-    private val patternCache = PatternCache()
+
+    private val disabledUrlMatcher by lazy {
+        UrlPatternMatcher(
+            disabledUrlPatterns
+                ?: remote?.disabledUrlPatterns?.toList()
+                ?: cfg.getIgnoredRequestPatternList()
+        )
+    }
+
+    private val activeCaptureRules by lazy {
+        getNetworkCaptureRules().filter { it.expiresIn > 0 }
+    }
+
+    // the key text is fixed at build time, so it only needs cleaning once
+    private val networkBodyCapturePublicKey: String? by lazy {
+        var keyToClean = cfg.getNetworkBodyCapturePublicKey()
+        if (keyToClean != null) {
+            for (dirty in dirtyKeyList) {
+                keyToClean = keyToClean?.replace(dirty.toRegex(), "")
+            }
+        }
+        keyToClean
+    }
+
+    private val captureRuleMatcher by lazy {
+        UrlPatternMatcher(activeCaptureRules.map { it.urlRegex })
+    }
 
     override fun isRequestContentLengthCaptureEnabled(): Boolean =
         local.enabledFeatures.isRequestContentLengthCaptureEnabled()
@@ -73,26 +99,28 @@ class NetworkBehaviorImpl(
     override fun getRequestSpanTimeoutMs(): Long =
         remote?.dataConfig?.networkRequestSpanTimeoutMs ?: DEFAULT_REQUEST_SPAN_TIMEOUT_MS
 
-    override fun isUrlEnabled(url: String): Boolean {
-        val patterns = disabledUrlPatterns
-            ?: remote?.disabledUrlPatterns
-            ?: cfg.getIgnoredRequestPatternList()
-        return !patternCache.doesStringContainMatchInSet(url, patterns)
-    }
+    override fun isAsyncNetworkRecordingEnabled(): Boolean =
+        remote?.networkConfig?.asyncRecordingEnabled ?: false
+
+    override fun isUrlEnabled(url: String): Boolean = !disabledUrlMatcher.containsMatchIn(url)
 
     override fun isCaptureBodyEncryptionEnabled(): Boolean =
         getNetworkBodyCapturePublicKey() != null
 
-    override fun getNetworkBodyCapturePublicKey(): String? {
-        var keyToClean = cfg.getNetworkBodyCapturePublicKey()
-        if (keyToClean != null) {
-            for (dirty in dirtyKeyList) {
-                keyToClean = keyToClean?.replace(dirty.toRegex(), "")
-            }
-        }
-        return keyToClean
-    }
+    override fun isHybridBodyEncryptionEnabled(): Boolean =
+        remote?.networkConfig?.hybridBodyEncryption ?: false
+
+    override fun getNetworkBodyCapturePublicKey(): String? = networkBodyCapturePublicKey
 
     override fun getNetworkCaptureRules(): Set<NetworkCaptureRuleRemoteConfig> =
         remote?.networkCaptureRules ?: emptySet()
+
+    override fun getMatchingNetworkCaptureRules(url: String, method: String): List<NetworkCaptureRuleRemoteConfig> {
+        if (activeCaptureRules.isEmpty()) {
+            return emptyList()
+        }
+        return captureRuleMatcher.matchingIndices(url)
+            .map { activeCaptureRules[it] }
+            .filter { it.method.contains(method) }
+    }
 }
@@ -38,6 +38,70 @@ interface OtelBehavior {
      */
     fun getPeriodicCacheIntervalMs(): Long
 
+    /**
+     * The maximum number of payload uploads that can be in flight to each endpoint at the same time.
+     * A value of 0 means payloads are uploaded one at a time across all endpoints.
+     * This is clamped to the range 0..[MAX_CONCURRENT_REQUESTS_PER_ENDPOINT].
+     */
+    fun getMaxConcurrentRequestsPerEndpoint(): Int
+
+    /**
+     * The maximum number of stored log envelopes that can be merged into a single upload.
+     * A value of 1 means each log envelope is uploaded in its own request.
+     * This is clamped to the range 1..[MAX_LOG_ENVELOPES_PER_REQUEST].
+     */
+    fun getMaxLogEnvelopesPerRequest(): Int
+
+    /**
+     * Whether periodic session part snapshots should only write the changes made since the previous snapshot.
+     */
+    fun isSessionSnapshotJournalEnabled(): Boolean
+
+    /**
+     * The zlib compression level used when payloads are written to disk.
+     * This is clamped to the range [MIN_PAYLOAD_COMPRESSION_LEVEL]..[MAX_PAYLOAD_COMPRESSION_LEVEL].
+     */
+    fun getPayloadCompressionLevel(): Int
+
+    /**
+     * Whether cached session part snapshots should be compressed with a preset dictionary rather than gzipped.
+     */
+    fun isDictionaryCompressionEnabled(): Boolean
+
+    /**
+     * Whether payloads should be stored in append-only segment files rather than a file per payload.
+     */
+    fun isSegmentedPayloadStorageEnabled(): Boolean
+
+    /**
+     * Whether completed spans should be exported in batches on a background thread.
+     */
+    fun isSpanBatchingEnabled(): Boolean
+
+    /**
+     * The number of completed spans that triggers an immediate batch export.
+     * This is clamped to the range 1..[MAX_SPAN_BATCH_SIZE].
+     */
+    fun getSpanBatchMaxSize(): Int
+
+    /**
+     * The maximum time in milliseconds a completed span waits before it is exported in a batch.
+     * This is clamped to the range [MIN_SPAN_BATCH_LATENCY_MS]..[MAX_SPAN_BATCH_LATENCY_MS].
+     */
+    fun getSpanBatchMaxLatencyMs(): Long
+
+    /**
+     * The maximum number of telemetry items that can wait to be exported to customer-supplied OTel exporters.
+     * This is clamped to the range [MIN_EXTERNAL_EXPORT_QUEUE_CAPACITY]..[MAX_EXTERNAL_EXPORT_QUEUE_CAPACITY].
+     */
+    fun getExternalExportQueueCapacity(): Int
+
+    /**
+     * Whether new telemetry should be dropped instead of the oldest waiting telemetry when the queue of telemetry
+     * waiting for customer-supplied OTel exporters is full.
+     */
+    fun shouldDropNewestExternalExports(): Boolean
+
     companion object {
 
         /**
@@ -53,3 +117,16 @@ const val DEFAULT_MAX_NETWORK_SPANS_PER_SESSION_PART: Int = 2000
 const val DEFAULT_PERIODIC_CACHE_INTERVAL_MS: Long = 2000L
 const val MIN_PERIODIC_CACHE_INTERVAL_MS: Long = 2000L
 const val MAX_PERIODIC_CACHE_INTERVAL_MS: Long = 120000L
+const val MAX_CONCURRENT_REQUESTS_PER_ENDPOINT: Int = 3
+const val MAX_LOG_ENVELOPES_PER_REQUEST: Int = 50
+const val DEFAULT_PAYLOAD_COMPRESSION_LEVEL: Int = 6
+const val MIN_PAYLOAD_COMPRESSION_LEVEL: Int = 1
+const val MAX_PAYLOAD_COMPRESSION_LEVEL: Int = 9
+const val DEFAULT_SPAN_BATCH_SIZE: Int = 64
+const val MAX_SPAN_BATCH_SIZE: Int = 512
+const val DEFAULT_SPAN_BATCH_LATENCY_MS: Long = 200L
+const val MIN_SPAN_BATCH_LATENCY_MS: Long = 10L
+const val MAX_SPAN_BATCH_LATENCY_MS: Long = 5000L
+const val DEFAULT_EXTERNAL_EXPORT_QUEUE_CAPACITY: Int = 2048
+const val MIN_EXTERNAL_EXPORT_QUEUE_CAPACITY: Int = 64
+const val MAX_EXTERNAL_EXPORT_QUEUE_CAPACITY: Int = 16384
@@ -37,5 +37,37 @@ class OtelBehaviorImpl(
         dataRemote?.periodicCacheIntervalMs?.coerceIn(MIN_PERIODIC_CACHE_INTERVAL_MS, MAX_PERIODIC_CACHE_INTERVAL_MS)
             ?: DEFAULT_PERIODIC_CACHE_INTERVAL_MS
 
+    override fun getMaxConcurrentRequestsPerEndpoint(): Int =
+        dataRemote?.maxConcurrentRequestsPerEndpoint?.coerceIn(0, MAX_CONCURRENT_REQUESTS_PER_ENDPOINT) ?: 0
+
+    override fun getMaxLogEnvelopesPerRequest(): Int =
+        dataRemote?.maxLogEnvelopesPerRequest?.coerceIn(1, MAX_LOG_ENVELOPES_PER_REQUEST) ?: 1
+
+    override fun isSessionSnapshotJournalEnabled(): Boolean = dataRemote?.sessionSnapshotJournalEnabled ?: false
+
+    override fun getPayloadCompressionLevel(): Int =
+        dataRemote?.payloadCompressionLevel?.coerceIn(MIN_PAYLOAD_COMPRESSION_LEVEL, MAX_PAYLOAD_COMPRESSION_LEVEL)
+            ?: DEFAULT_PAYLOAD_COMPRESSION_LEVEL
+
+    override fun isDictionaryCompressionEnabled(): Boolean = dataRemote?.dictionaryCompressionEnabled ?: false
+
+    override fun isSegmentedPayloadStorageEnabled(): Boolean = dataRemote?.segmentedPayloadStorageEnabled ?: false
+
+    override fun isSpanBatchingEnabled(): Boolean = dataRemote?.spanBatchingEnabled ?: false
+
+    override fun getSpanBatchMaxSize(): Int =
+        dataRemote?.spanBatchMaxSize?.coerceIn(1, MAX_SPAN_BATCH_SIZE) ?: DEFAULT_SPAN_BATCH_SIZE
+
+    override fun getSpanBatchMaxLatencyMs(): Long =
+        dataRemote?.spanBatchMaxLatencyMs?.coerceIn(MIN_SPAN_BATCH_LATENCY_MS, MAX_SPAN_BATCH_LATENCY_MS)
+            ?: DEFAULT_SPAN_BATCH_LATENCY_MS
+
+    override fun getExternalExportQueueCapacity(): Int =
+        dataRemote?.externalExportQueueCapacity
+            ?.coerceIn(MIN_EXTERNAL_EXPORT_QUEUE_CAPACITY, MAX_EXTERNAL_EXPORT_QUEUE_CAPACITY)
+            ?: DEFAULT_EXTERNAL_EXPORT_QUEUE_CAPACITY
+
+    override fun shouldDropNewestExternalExports(): Boolean = dataRemote?.externalExportDropNewest ?: false
+
     private fun Int?.asSpanLimit(default: Int): Int = this?.coerceAtLeast(0) ?: default
 }
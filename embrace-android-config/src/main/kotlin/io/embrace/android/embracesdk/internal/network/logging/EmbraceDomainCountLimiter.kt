@@ -1,5 +1,6 @@
 package io.embrace.android.embracesdk.internal.network.logging
 
+import io.embrace.android.embracesdk.internal.network.matching.SuffixTrie
 import io.embrace.android.embracesdk.internal.utils.NetworkUtils
 import io.embrace.android.embracesdk.internal.utils.concurrent.LimitCounter
 import java.util.concurrent.ConcurrentHashMap
@@ -13,11 +14,9 @@ class EmbraceDomainCountLimiter(
     private val domainLimitsSupplier: () -> Map<String, Int>,
 ) : DomainCountLimiter {
 
-    private class SuffixLimit(val suffix: String, val counter: LimitCounter)
-
-    // configured suffixes with their own counters, ordered most-specific (longest) first
+    // configured suffixes with their own counters, looked up by the most-specific (longest) match
     @Volatile
-    private var suffixLimits: List<SuffixLimit> = buildSuffixLimits()
+    private var suffixLimits: SuffixTrie<LimitCounter> = buildSuffixLimits()
 
     @Volatile
     private var defaultLimit: Int = defaultLimitSupplier()
@@ -33,14 +32,10 @@ class EmbraceDomainCountLimiter(
             return ipLimit.increment()
         }
 
-        for (rule in suffixLimits) {
-            if (domain.endsWith(rule.suffix)) {
-                // Limit.increment() atomically claims a slot or reports the bucket full; on full we
-                // fall through to the next-broadest matching suffix.
-                return rule.counter.increment()
-            }
+        // Limit.increment() atomically claims a slot or reports the bucket full
+        suffixLimits.longestMatch(domain)?.let {
+            return it.increment()
         }
-
         return bucketForUnconfigured(domain).increment()
     }
 
@@ -67,8 +62,6 @@ class EmbraceDomainCountLimiter(
         unconfiguredCounts.clear()
     }
 
-    private fun buildSuffixLimits(): List<SuffixLimit> =
-        domainLimitsSupplier().entries
-            .sortedByDescending { it.key.length }
-            .map { SuffixLimit(it.key, LimitCounter(it.value)) }
+    private fun buildSuffixLimits(): SuffixTrie<LimitCounter> =
+        SuffixTrie(domainLimitsSupplier().mapValues { LimitCounter(it.value) })
 }
@@ -0,0 +1,69 @@
+package io.embrace.android.embracesdk.internal.network.matching
+
+/**
+ * An Aho-Corasick automaton over a fixed list of literal strings. A single pass over the input finds every literal
+ * that occurs in it, so the cost of a search depends on the length of the input rather than the number of literals.
+ */
+internal class LiteralAutomaton(literals: List<String>) {
+
+    private val children: Array<Map<Char, Int>>
+    private val fail: IntArray
+
+    // the indices of the literals that end at each node, including those reached by following failure links
+    private val outputs: Array<IntArray>
+
+    init {
+        val nodes = mutableListOf(HashMap<Char, Int>())
+        val terminals = mutableListOf(mutableListOf<Int>())
+        literals.forEachIndexed { index, literal ->
+            var node = 0
+            for (c in literal) {
+                node = nodes[node].getOrPut(c) {
+                    nodes.add(HashMap())
+                    terminals.add(mutableListOf())
+                    nodes.size - 1
+                }
+            }
+            terminals[node].add(index)
+        }
+
+        // breadth first, so a node's failure target is always complete before the node itself is visited
+        val failLinks = IntArray(nodes.size)
+        val queue = ArrayDeque(nodes[0].values)
+        while (queue.isNotEmpty()) {
+            val node = queue.removeFirst()
+            for ((c, child) in nodes[node]) {
+                var candidate = failLinks[node]
+                while (candidate != 0 && c !in nodes[candidate]) {
+                    candidate = failLinks[candidate]
+                }
+                val target = nodes[candidate][c]
+                failLinks[child] = if (target != null && target != child) target else 0
+                terminals[child].addAll(terminals[failLinks[child]])
+                queue.add(child)
+            }
+        }
+        children = nodes.toTypedArray()
+        fail = failLinks
+        outputs = Array(nodes.size) { terminals[it].toIntArray() }
+    }
+
+    /**
+     * Invokes [action] with the index of each literal found in [text], in the order the literals end. A literal
+     * that occurs more than once is reported each time. Searching stops early if [action] returns false.
+     */
+    fun forEachMatch(text: CharSequence, action: (index: Int) -> Boolean) {
+        var node = 0
+        for (c in text) {
+            while (node != 0 && c !in children[node]) {
+                node = fail[node]
+            }
+            node = children[node][c] ?: 0
+            for (index in outputs[node]) {
+                if (!action(index)) {
+                    return
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.embrace.android.embracesdk.internal.network.matching
+
+/**
+ * A run of characters that any match of a regex must contain. If [exact] is true, the regex is the literal itself,
+ * so finding the literal is the same as finding a match.
+ */
+internal class RequiredLiteral(val literal: String, val exact: Boolean) {
+
+    companion object {
+
+        private const val SIMPLE_ESCAPES = "dDsSwWbBAzZGhHvVRXtnrfae"
+
+        /**
+         * Returns the longest literal run that every match of [pattern] must contain, or null if none can be
+         * determined. Patterns that use groups or alternation are not analysed.
+         */
+        fun of(pattern: String): RequiredLiteral? {
+            var best = ""
+            val run = StringBuilder()
+            var exact = true
+
+            fun endRun() {
+                if (run.length > best.length) {
+                    best = run.toString()
+                }
+                run.setLength(0)
+            }
+
+            var k = 0
+            while (k < pattern.length) {
+                when (val c = pattern[k]) {
+                    '(', ')', '|' -> return null
+                    '\\' -> {
+                        val next = pattern.getOrNull(k + 1) ?: return null
+                        if (next.isLetterOrDigit()) {
+                            // escapes such as \x41 or \Q..\E consume the characters after them, so only accept
+                            // single character classes and boundaries
+                            if (next !in SIMPLE_ESCAPES) {
+                                return null
+                            }
+                            exact = false
+                            endRun()
+                        } else {
+                            run.append(next)
+                        }
+                        k++
+                    }
+
+                    '.', '^', '$' -> {
+                        exact = false
+                        endRun()
+                    }
+
+                    '[' -> {
+                        k = endOfCharacterClass(pattern, k) ?: return null
+                        exact = false
+                        endRun()
+                    }
+
+                    '*', '?', '{' -> {
+                        // the preceding character is optional or repeated a variable number of times
+                        if (c == '{') {
+                            k = pattern.indexOf('}', k).takeIf { it >= 0 } ?: return null
+                        }
+                        if (run.isNotEmpty()) {
+                            run.setLength(run.length - 1)
+                        }
+                        exact = false
+                        endRun()
+                    }
+
+                    '+' -> {
+                        exact = false
+                        endRun()
+                    }
+
+                    else -> run.append(c)
+                }
+                k++
+            }
+            endRun()
+            return if (best.isEmpty()) null else RequiredLiteral(best, exact && best.length == pattern.length)
+        }
+
+        private fun endOfCharacterClass(pattern: String, start: Int): Int? {
+            var k = start + 1
+            if (pattern.getOrNull(k) == '^') {
+                k++
+            }
+            if (pattern.getOrNull(k) == ']') {
+                k++
+            }
+            while (k < pattern.length) {
+                when (pattern[k]) {
+                    '\\' -> k++
+                    '[' -> return null
+                    ']' -> return k
+                }
+                k++
+            }
+            return null
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.embrace.android.embracesdk.internal.network.matching
+
+/**
+ * Finds the longest of a fixed set of suffixes that a string ends with, by walking a trie of the reversed suffixes
+ * from the end of the string. The cost of a lookup depends on the length of the string rather than the number of
+ * suffixes.
+ */
+internal class SuffixTrie<T : Any>(entries: Map<String, T>) {
+
+    private class Node<T : Any> {
+        val children = HashMap<Char, Node<T>>()
+        var value: T? = null
+    }
+
+    private val root = Node<T>()
+
+    init {
+        entries.forEach { (suffix, value) ->
+            var node = root
+            for (k in suffix.indices.reversed()) {
+                node = node.children.getOrPut(suffix[k]) { Node() }
+            }
+            node.value = value
+        }
+    }
+
+    /**
+     * Returns the value of the longest suffix that [text] ends with, or null if it ends with none of them.
+     */
+    fun longestMatch(text: String): T? {
+        var node = root
+        var match = root.value
+        for (k in text.indices.reversed()) {
+            node = node.children[text[k]] ?: break
+            node.value?.let { match = it }
+        }
+        return match
+    }
+}
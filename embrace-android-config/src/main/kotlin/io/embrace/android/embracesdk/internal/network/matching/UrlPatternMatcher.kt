@@ -0,0 +1,96 @@
+package io.embrace.android.embracesdk.internal.network.matching
+
+/**
+ * Matches URLs against a fixed list of regex patterns sourced from config. The patterns are compiled once up front.
+ *
+ * Most URL patterns contain a literal such as a host or path segment that any match must include. Those literals are
+ * searched for in a single pass over the URL, and only the patterns whose literal was found are evaluated. Patterns
+ * without a usable literal are folded into one combined regex. This keeps the cost of a lookup roughly flat as the
+ * number of patterns grows. Invalid patterns never match.
+ */
+class UrlPatternMatcher(patterns: List<String>) {
+
+    private companion object {
+        private val BACK_REFERENCE = Regex("\\\\[1-9]")
+    }
+
+    private class AnchoredPattern(val index: Int, val regex: Regex?)
+
+    private val anchored: List<AnchoredPattern>
+    private val automaton: LiteralAutomaton?
+    private val unanchored: List<Pair<Int, Regex>>
+    private val combined: Regex?
+
+    init {
+        val anchoredPatterns = mutableListOf<AnchoredPattern>()
+        val literals = mutableListOf<String>()
+        val others = mutableListOf<Pair<Int, Regex>>()
+
+        patterns.forEachIndexed { index, pattern ->
+            val regex = runCatching { pattern.toRegex() }.getOrNull() ?: return@forEachIndexed
+            val literal = RequiredLiteral.of(pattern)
+            if (literal != null) {
+                anchoredPatterns.add(AnchoredPattern(index, regex.takeUnless { literal.exact }))
+                literals.add(literal.literal)
+            } else {
+                others.add(index to regex)
+            }
+        }
+        anchored = anchoredPatterns
+        automaton = if (literals.isEmpty()) null else LiteralAutomaton(literals)
+        unanchored = others
+        combined = when {
+            others.size < 2 -> null
+            // group numbers shift when patterns are combined, which would break numbered back references
+            others.any { BACK_REFERENCE.containsMatchIn(it.second.pattern) } -> null
+            else -> runCatching {
+                others.joinToString("|") { "(?:${it.second.pattern})" }.toRegex()
+            }.getOrNull()
+        }
+    }
+
+    /**
+     * Returns true if any pattern finds a match in [url].
+     */
+    fun containsMatchIn(url: String): Boolean {
+        var found = false
+        automaton?.forEachMatch(url) { index ->
+            val regex = anchored[index].regex
+            found = regex == null || regex.containsMatchIn(url)
+            !found
+        }
+        if (found) {
+            return true
+        }
+        return when (combined) {
+            null -> unanchored.any { it.second.containsMatchIn(url) }
+            else -> combined.containsMatchIn(url)
+        }
+    }
+
+    /**
+     * Returns the indices of the patterns that find a match in [url], in ascending order.
+     */
+    fun matchingIndices(url: String): List<Int> {
+        val matches = sortedSetOf<Int>()
+        val checked = BooleanArray(anchored.size)
+        automaton?.forEachMatch(url) { index ->
+            if (!checked[index]) {
+                checked[index] = true
+                val pattern = anchored[index]
+                if (pattern.regex == null || pattern.regex.containsMatchIn(url)) {
+                    matches.add(pattern.index)
+                }
+            }
+            true
+        }
+        if (combined == null || combined.containsMatchIn(url)) {
+            unanchored.forEach { (index, regex) ->
+                if (regex.containsMatchIn(url)) {
+                    matches.add(index)
+                }
+            }
+        }
+        return matches.toList()
+    }
+}
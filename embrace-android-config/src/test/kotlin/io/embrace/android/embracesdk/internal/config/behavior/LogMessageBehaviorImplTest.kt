@@ -4,6 +4,8 @@ import io.embrace.android.embracesdk.fakes.createLogMessageBehavior
 import io.embrace.android.embracesdk.internal.config.remote.LogRemoteConfig
 import io.embrace.android.embracesdk.internal.config.remote.RemoteConfig
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
 import org.junit.Test
 
 internal class LogMessageBehaviorImplTest {
@@ -14,6 +16,11 @@ internal class LogMessageBehaviorImplTest {
             200,
             300,
             400,
+            200,
+            256 * 1024,
+            10_000,
+            1000,
+            true,
         ),
     )
 
@@ -24,6 +31,11 @@ internal class LogMessageBehaviorImplTest {
             assertEquals(100, getInfoLogLimit())
             assertEquals(200, getWarnLogLimit())
             assertEquals(500, getErrorLogLimit())
+            assertEquals(50, getLogBatchMaxCount())
+            assertEquals(1024 * 1024L, getLogBatchMaxBytes())
+            assertEquals(5000L, getLogBatchMaxTimeMs())
+            assertEquals(2000L, getLogBatchInactivityMs())
+            assertFalse(isAdaptiveLogBatchingEnabled())
         }
     }
 
@@ -34,6 +46,29 @@ internal class LogMessageBehaviorImplTest {
             assertEquals(200, getInfoLogLimit())
             assertEquals(300, getWarnLogLimit())
             assertEquals(400, getErrorLogLimit())
+            assertEquals(200, getLogBatchMaxCount())
+            assertEquals(256 * 1024L, getLogBatchMaxBytes())
+            assertEquals(10_000L, getLogBatchMaxTimeMs())
+            assertEquals(1000L, getLogBatchInactivityMs())
+            assertTrue(isAdaptiveLogBatchingEnabled())
+        }
+    }
+
+    @Test
+    fun testBatchLimitsAreClamped() {
+        val cfg = RemoteConfig(
+            logConfig = LogRemoteConfig(
+                batchMaxCount = 0,
+                batchMaxBytes = Long.MAX_VALUE,
+                batchMaxTimeMs = 3000,
+                batchInactivityMs = 10_000,
+            ),
+        )
+        with(createLogMessageBehavior(remoteCfg = cfg)) {
+            assertEquals(1, getLogBatchMaxCount())
+            assertEquals(4 * 1024 * 1024L, getLogBatchMaxBytes())
+            assertEquals(3000L, getLogBatchMaxTimeMs())
+            assertEquals(3000L, getLogBatchInactivityMs())
         }
     }
 }
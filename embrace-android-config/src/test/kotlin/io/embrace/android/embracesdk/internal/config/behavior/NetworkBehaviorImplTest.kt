@@ -22,6 +22,8 @@ internal class NetworkBehaviorImplTest {
             domainLimits = mapOf(
                 "google.com" to 50,
             ),
+            hybridBodyEncryption = true,
+            asyncRecordingEnabled = true,
         ),
         dataConfig = DataRemoteConfig(networkRequestSpanTimeoutMs = 120_000L),
         disabledUrlPatterns = setOf("example.com"),
@@ -46,6 +48,8 @@ internal class NetworkBehaviorImplTest {
             assertEquals(emptyMap<String, Int>(), getLimitsByDomain())
             assertTrue(isUrlEnabled("google.com"))
             assertFalse(isCaptureBodyEncryptionEnabled())
+            assertFalse(isHybridBodyEncryptionEnabled())
+            assertFalse(isAsyncNetworkRecordingEnabled())
             assertNull(getNetworkBodyCapturePublicKey())
             assertEquals(emptySet<NetworkCaptureRuleRemoteConfig>(), getNetworkCaptureRules())
             assertNotNull(domainCountLimiter)
@@ -60,6 +64,8 @@ internal class NetworkBehaviorImplTest {
             assertEquals(mapOf("google.com" to 50), getLimitsByDomain())
             assertTrue(isUrlEnabled("google.com"))
             assertFalse(isUrlEnabled("example.com"))
+            assertTrue(isHybridBodyEncryptionEnabled())
+            assertTrue(isAsyncNetworkRecordingEnabled())
             assertEquals(
                 NetworkCaptureRuleRemoteConfig(
                     "test",
@@ -87,6 +93,31 @@ internal class NetworkBehaviorImplTest {
         }
     }
 
+    @Test
+    fun testMatchingNetworkCaptureRules() {
+        val rules = setOf(
+            NetworkCaptureRuleRemoteConfig("a", null, "GET,POST", "api\\.example\\.com/v[0-9]+/users", expiresIn = 1000),
+            NetworkCaptureRuleRemoteConfig("b", null, "GET", "example.com", expiresIn = 1000),
+            NetworkCaptureRuleRemoteConfig("c", null, "GET", ".*", expiresIn = 1000),
+            NetworkCaptureRuleRemoteConfig("d", null, "GET", "example.com", expiresIn = 0),
+            NetworkCaptureRuleRemoteConfig("e", null, "GET", "invalid[}regex", expiresIn = 1000),
+        )
+        with(createNetworkBehavior(remoteCfg = RemoteConfig(networkCaptureRules = rules))) {
+            assertEquals(
+                listOf("a", "b", "c"),
+                getMatchingNetworkCaptureRules("https://api.example.com/v2/users", "GET").map { it.id },
+            )
+            assertEquals(
+                listOf("a"),
+                getMatchingNetworkCaptureRules("https://api.example.com/v2/users", "POST").map { it.id },
+            )
+            assertEquals(
+                listOf("c"),
+                getMatchingNetworkCaptureRules("https://google.com", "GET").map { it.id },
+            )
+        }
+    }
+
     @Test
     fun `only HUC Lite disabled when HUC is enabled`() {
         val networkBehavior = NetworkBehaviorImpl(
@@ -142,4 +142,97 @@ internal class OtelBehaviorImplTest {
             }
         }
     }
+
+    @Test
+    fun `max concurrent requests per endpoint`() {
+        assertEquals(0, createOtelBehavior().getMaxConcurrentRequestsPerEndpoint())
+        mapOf(-1 to 0, 0 to 0, 1 to 1, 2 to 2, 100 to MAX_CONCURRENT_REQUESTS_PER_ENDPOINT).forEach { (input, expected) ->
+            val remote = RemoteConfig(dataConfig = DataRemoteConfig(maxConcurrentRequestsPerEndpoint = input))
+            with(createOtelBehavior(remoteCfg = remote)) {
+                assertEquals(expected, getMaxConcurrentRequestsPerEndpoint())
+            }
+        }
+    }
+
+    @Test
+    fun `max log envelopes per request`() {
+        assertEquals(1, createOtelBehavior().getMaxLogEnvelopesPerRequest())
+        mapOf(-1 to 1, 0 to 1, 1 to 1, 20 to 20, 1000 to MAX_LOG_ENVELOPES_PER_REQUEST).forEach { (input, expected) ->
+            val remote = RemoteConfig(dataConfig = DataRemoteConfig(maxLogEnvelopesPerRequest = input))
+            with(createOtelBehavior(remoteCfg = remote)) {
+                assertEquals(expected, getMaxLogEnvelopesPerRequest())
+            }
+        }
+    }
+
+    @Test
+    fun `session snapshot journal`() {
+        assertFalse(createOtelBehavior().isSessionSnapshotJournalEnabled())
+        val remote = RemoteConfig(dataConfig = DataRemoteConfig(sessionSnapshotJournalEnabled = true))
+        assertTrue(createOtelBehavior(remoteCfg = remote).isSessionSnapshotJournalEnabled())
+    }
+
+    @Test
+    fun `payload compression level`() {
+        assertEquals(DEFAULT_PAYLOAD_COMPRESSION_LEVEL, createOtelBehavior().getPayloadCompressionLevel())
+        mapOf(0 to MIN_PAYLOAD_COMPRESSION_LEVEL, 4 to 4, 12 to MAX_PAYLOAD_COMPRESSION_LEVEL).forEach { (input, expected) ->
+            val remote = RemoteConfig(dataConfig = DataRemoteConfig(payloadCompressionLevel = input))
+            with(createOtelBehavior(remoteCfg = remote)) {
+                assertEquals(expected, getPayloadCompressionLevel())
+            }
+        }
+    }
+
+    @Test
+    fun `dictionary compression`() {
+        assertFalse(createOtelBehavior().isDictionaryCompressionEnabled())
+        val remote = RemoteConfig(dataConfig = DataRemoteConfig(dictionaryCompressionEnabled = true))
+        assertTrue(createOtelBehavior(remoteCfg = remote).isDictionaryCompressionEnabled())
+    }
+
+    @Test
+    fun `segmented payload storage`() {
+        assertFalse(createOtelBehavior().isSegmentedPayloadStorageEnabled())
+        val remote = RemoteConfig(dataConfig = DataRemoteConfig(segmentedPayloadStorageEnabled = true))
+        assertTrue(createOtelBehavior(remoteCfg = remote).isSegmentedPayloadStorageEnabled())
+    }
+
+    @Test
+    fun `span batching`() {
+        with(createOtelBehavior()) {
+            assertFalse(isSpanBatchingEnabled())
+            assertEquals(DEFAULT_SPAN_BATCH_SIZE, getSpanBatchMaxSize())
+            assertEquals(DEFAULT_SPAN_BATCH_LATENCY_MS, getSpanBatchMaxLatencyMs())
+        }
+        val remote = RemoteConfig(
+            dataConfig = DataRemoteConfig(spanBatchingEnabled = true, spanBatchMaxSize = 0, spanBatchMaxLatencyMs = 60_000)
+        )
+        with(createOtelBehavior(remoteCfg = remote)) {
+            assertTrue(isSpanBatchingEnabled())
+            assertEquals(1, getSpanBatchMaxSize())
+            assertEquals(MAX_SPAN_BATCH_LATENCY_MS, getSpanBatchMaxLatencyMs())
+        }
+        val inRange = RemoteConfig(dataConfig = DataRemoteConfig(spanBatchMaxSize = 1000, spanBatchMaxLatencyMs = 50))
+        with(createOtelBehavior(remoteCfg = inRange)) {
+            assertEquals(MAX_SPAN_BATCH_SIZE, getSpanBatchMaxSize())
+            assertEquals(50L, getSpanBatchMaxLatencyMs())
+        }
+    }
+
+    @Test
+    fun `external export queue`() {
+        with(createOtelBehavior()) {
+            assertEquals(DEFAULT_EXTERNAL_EXPORT_QUEUE_CAPACITY, getExternalExportQueueCapacity())
+            assertFalse(shouldDropNewestExternalExports())
+        }
+        val remote = RemoteConfig(
+            dataConfig = DataRemoteConfig(externalExportQueueCapacity = 1, externalExportDropNewest = true)
+        )
+        with(createOtelBehavior(remoteCfg = remote)) {
+            assertEquals(MIN_EXTERNAL_EXPORT_QUEUE_CAPACITY, getExternalExportQueueCapacity())
+            assertTrue(shouldDropNewestExternalExports())
+        }
+        val overMax = RemoteConfig(dataConfig = DataRemoteConfig(externalExportQueueCapacity = 1_000_000))
+        assertEquals(MAX_EXTERNAL_EXPORT_QUEUE_CAPACITY, createOtelBehavior(remoteCfg = overMax).getExternalExportQueueCapacity())
+    }
 }
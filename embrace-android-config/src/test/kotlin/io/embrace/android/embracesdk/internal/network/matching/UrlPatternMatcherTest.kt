@@ -0,0 +1,93 @@
+package io.embrace.android.embracesdk.internal.network.matching
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+internal class UrlPatternMatcherTest {
+
+    @Test
+    fun `literal patterns match substrings`() {
+        val matcher = UrlPatternMatcher(listOf("example.com", "/v1/users"))
+        assertTrue(matcher.containsMatchIn("https://example.com/path"))
+        assertTrue(matcher.containsMatchIn("https://google.com/v1/users?id=1"))
+        assertFalse(matcher.containsMatchIn("https://google.com/v2/users"))
+    }
+
+    @Test
+    fun `regex is still evaluated when the required literal is found`() {
+        val matcher = UrlPatternMatcher(listOf("^https://api\\.example\\.com/v[0-9]+/"))
+        assertTrue(matcher.containsMatchIn("https://api.example.com/v12/users"))
+        assertFalse(matcher.containsMatchIn("https://api.example.com/latest/users"))
+        assertFalse(matcher.containsMatchIn("http://api.example.com/v1/users"))
+    }
+
+    @Test
+    fun `optional characters are not required`() {
+        val matcher = UrlPatternMatcher(listOf("https?://example", "colou?r", "ab{0,2}c"))
+        assertTrue(matcher.containsMatchIn("http://example.com"))
+        assertTrue(matcher.containsMatchIn("https://x.com/color"))
+        assertTrue(matcher.containsMatchIn("https://x.com/ac"))
+        assertFalse(matcher.containsMatchIn("https://x.com/colouur"))
+    }
+
+    @Test
+    fun `patterns without a literal are matched`() {
+        val matcher = UrlPatternMatcher(listOf("(foo|bar)\\.com", "\\d{4}", "literal"))
+        assertTrue(matcher.containsMatchIn("https://bar.com"))
+        assertTrue(matcher.containsMatchIn("https://x.com/2024"))
+        assertTrue(matcher.containsMatchIn("https://x.com/literal"))
+        assertFalse(matcher.containsMatchIn("https://baz.com/1"))
+    }
+
+    @Test
+    fun `escapes that consume following characters are handled`() {
+        val matcher = UrlPatternMatcher(listOf("\\x41bc", "\\Q.*\\E"))
+        assertTrue(matcher.containsMatchIn("https://x.com/Abc"))
+        assertTrue(matcher.containsMatchIn("https://x.com/.*"))
+        assertFalse(matcher.containsMatchIn("https://x.com/41bc"))
+    }
+
+    @Test
+    fun `invalid patterns are ignored`() {
+        val matcher = UrlPatternMatcher(listOf("invalid[}regex", "example.com"))
+        assertFalse(matcher.containsMatchIn("invalid[}regex"))
+        assertTrue(matcher.containsMatchIn("example.com"))
+    }
+
+    @Test
+    fun `matching indices are returned in pattern order`() {
+        val matcher = UrlPatternMatcher(
+            listOf("users", "(a|b)pi", "example", "nomatch", "api.example", "example"),
+        )
+        assertEquals(listOf(0, 1, 2, 4, 5), matcher.matchingIndices("https://api.example.com/users/example"))
+        assertEquals(emptyList<Int>(), matcher.matchingIndices("https://google.com"))
+    }
+
+    @Test
+    fun `empty pattern list matches nothing`() {
+        val matcher = UrlPatternMatcher(emptyList())
+        assertFalse(matcher.containsMatchIn("https://example.com"))
+        assertEquals(emptyList<Int>(), matcher.matchingIndices("https://example.com"))
+    }
+
+    @Test
+    fun `results agree with a plain regex scan`() {
+        val patterns = (0 until 200).map { "host$it\\.example\\.com/[ab]?path$it" } + listOf("z+", "q.*r", "[0-9]{3}")
+        val matcher = UrlPatternMatcher(patterns)
+        val regexes = patterns.map { it.toRegex() }
+        listOf(
+            "https://host17.example.com/path17",
+            "https://host17.example.com/apath18",
+            "https://host199.example.com/bpath199?q=1&r=2",
+            "https://other.com/zz",
+            "https://other.com/123",
+            "https://other.com/",
+        ).forEach { url ->
+            val expected = regexes.indices.filter { regexes[it].containsMatchIn(url) }
+            assertEquals(expected, matcher.matchingIndices(url))
+            assertEquals(expected.isNotEmpty(), matcher.containsMatchIn(url))
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package io.embrace.android.embracesdk.internal.arch.destination
 
-import io.embrace.android.embracesdk.internal.arch.attrs.asPair
 import io.embrace.android.embracesdk.internal.arch.datasource.LogSeverity
 import io.embrace.android.embracesdk.internal.arch.datasource.SessionPartStateToken
 import io.embrace.android.embracesdk.internal.arch.datasource.SpanEvent
@@ -63,8 +62,8 @@ class TelemetryDestinationImpl(
 
             with(schemaType) {
                 setStringAttribute(telemetryType.key, telemetryType.value)
-                attributes().forEach {
-                    setStringAttribute(it.key, it.value)
+                forEachAttribute { key, value ->
+                    setStringAttribute(key, value)
                 }
             }
         }
@@ -102,8 +101,8 @@ class TelemetryDestinationImpl(
             private = private,
             type = schemaType.telemetryType,
         ).apply {
-            schemaType.attributes().forEach {
-                addAttribute(it.key, it.value)
+            schemaType.forEachAttribute { key, value ->
+                addAttribute(key, value)
             }
             sessionUpdateAction?.invoke()
         }
@@ -180,7 +179,10 @@ class TelemetryDestinationImpl(
         return currentSession.addSystemEvent(
             schemaType.fixedObjectName.toEmbraceObjectName(),
             startTimeMs,
-            schemaType.attributes() + schemaType.telemetryType.asPair(),
+            buildMap {
+                schemaType.forEachAttribute { key, value -> put(key, value) }
+                put(schemaType.telemetryType.key, schemaType.telemetryType.value)
+            },
         ).also {
             sessionUpdateAction?.invoke()
         }
@@ -6,6 +6,7 @@ import io.embrace.android.embracesdk.internal.delivery.intake.IntakeService
 import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingService
 import io.embrace.android.embracesdk.internal.delivery.storage.CachedLogEnvelopeStore
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournal
 import io.embrace.android.embracesdk.internal.session.orchestrator.PayloadStore
 
 /**
@@ -21,6 +22,7 @@ interface DeliveryModule {
     val payloadStorageService: PayloadStorageService
     val cacheStorageService: PayloadStorageService
     val cachedLogEnvelopeStore: CachedLogEnvelopeStore
+    val sessionSnapshotJournal: SessionSnapshotJournal?
     val schedulingService: SchedulingService
     val deliveryTracer: DeliveryTracer?
 }
@@ -11,12 +11,19 @@ import io.embrace.android.embracesdk.internal.delivery.execution.OkHttpRequestEx
 import io.embrace.android.embracesdk.internal.delivery.execution.RequestExecutionService
 import io.embrace.android.embracesdk.internal.delivery.intake.IntakeService
 import io.embrace.android.embracesdk.internal.delivery.intake.IntakeServiceImpl
+import io.embrace.android.embracesdk.internal.delivery.scheduling.DeliveryMode
+import io.embrace.android.embracesdk.internal.delivery.scheduling.LogEnvelopeBatcher
 import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingService
 import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingServiceImpl
 import io.embrace.android.embracesdk.internal.delivery.storage.CachedLogEnvelopeStore
 import io.embrace.android.embracesdk.internal.delivery.storage.CachedLogEnvelopeStoreImpl
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompression
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompressionDictionary
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageFormat
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageServiceImpl
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournal
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournalImpl
 import io.embrace.android.embracesdk.internal.delivery.storage.StorageLocation
 import io.embrace.android.embracesdk.internal.delivery.storage.asFile
 import io.embrace.android.embracesdk.internal.session.caching.PeriodicSessionPartCacher
@@ -47,6 +54,20 @@ class DeliveryModuleImpl(
     private val dataPersistenceWorker: PriorityWorker<StoredTelemetryMetadata> =
         workerThreadModule.priorityWorker(Worker.Priority.DataPersistenceWorker)
 
+    // payloads that are sent as-is are always gzipped, as that is the format the backend accepts. Cached snapshots are
+    // only read back on the device, so they can use the dictionary. It is supplied even when disabled so snapshots
+    // written while it was enabled can still be resurrected.
+    private val compressionLevel = configService.otelBehavior.getPayloadCompressionLevel()
+    private val cacheCompression = PayloadCompression(
+        level = compressionLevel,
+        dictionary = PayloadCompressionDictionary.bytes,
+        useDictionary = configService.otelBehavior.isDictionaryCompressionEnabled(),
+    )
+    private val storageFormat = when {
+        configService.otelBehavior.isSegmentedPayloadStorageEnabled() -> PayloadStorageFormat.SEGMENTED
+        else -> PayloadStorageFormat.FILE_PER_PAYLOAD
+    }
+
     override val payloadStorageService: PayloadStorageService =
         payloadStorageServiceProvider?.invoke() ?: PayloadStorageServiceImpl(
             StorageLocation.PAYLOAD.asFile(
@@ -59,6 +80,9 @@ class DeliveryModuleImpl(
             initModule.logger,
             initModule.clock,
             deliveryTracer,
+            storageFormat = storageFormat,
+            compression = PayloadCompression(compressionLevel),
+            telemetryService = initModule.telemetryService,
         )
 
     override val cacheStorageService: PayloadStorageService =
@@ -73,8 +97,30 @@ class DeliveryModuleImpl(
             initModule.logger,
             initModule.clock,
             deliveryTracer,
+            storageFormat = storageFormat,
+            compression = cacheCompression,
+            telemetryService = initModule.telemetryService,
         )
 
+    // created regardless of config so journals written while the feature was enabled can still be resurrected. Journals
+    // supplement the on-disk cache so they are not used when a different cache implementation is supplied.
+    override val sessionSnapshotJournal: SessionSnapshotJournal? =
+        if (cacheStorageServiceProvider == null) {
+            SessionSnapshotJournalImpl(
+                StorageLocation.SESSION_JOURNAL.asFile(
+                    logger = initModule.logger,
+                    rootDirSupplier = rootDirSupplier,
+                    fallbackDirSupplier = fallbackDirSupplier,
+                ),
+                initModule.jsonSerializer,
+                processIdProvider,
+                initModule.logger,
+                compression = cacheCompression,
+            )
+        } else {
+            null
+        }
+
     private val requestExecutionService: RequestExecutionService =
         requestExecutionServiceProvider?.invoke() ?: run {
             val appId = checkNotNull(configService.appId)
@@ -92,15 +138,37 @@ class DeliveryModuleImpl(
             )
         }
 
-    override val schedulingService: SchedulingService = SchedulingServiceImpl(
-        payloadStorageService,
-        requestExecutionService,
-        workerThreadModule.backgroundWorker(Worker.Background.DeliverySchedulingWorker),
-        workerThreadModule.backgroundWorker(Worker.Background.HttpRequestWorker),
-        initModule.clock,
-        initModule.logger,
-        deliveryTracer,
-    )
+    override val schedulingService: SchedulingService = run {
+        val maxConcurrentRequests = configService.otelBehavior.getMaxConcurrentRequestsPerEndpoint()
+        val deliveryMode = when {
+            maxConcurrentRequests > 0 -> DeliveryMode.PerEndpoint(maxConcurrentRequests)
+            else -> DeliveryMode.Serial
+        }
+        val deliveryWorker = when (deliveryMode) {
+            DeliveryMode.Serial -> Worker.Background.HttpRequestWorker
+            is DeliveryMode.PerEndpoint -> Worker.Background.ConcurrentHttpRequestWorker
+        }
+        val maxLogEnvelopesPerRequest = configService.otelBehavior.getMaxLogEnvelopesPerRequest()
+        val logEnvelopeBatcher = when {
+            maxLogEnvelopesPerRequest > 1 -> LogEnvelopeBatcher(
+                payloadStorageService,
+                initModule.jsonSerializer,
+                maxLogEnvelopesPerRequest,
+            )
+            else -> null
+        }
+        SchedulingServiceImpl(
+            payloadStorageService,
+            requestExecutionService,
+            workerThreadModule.backgroundWorker(Worker.Background.DeliverySchedulingWorker),
+            workerThreadModule.backgroundWorker(deliveryWorker),
+            initModule.clock,
+            initModule.logger,
+            deliveryTracer,
+            deliveryMode,
+            logEnvelopeBatcher,
+        )
+    }
 
     override val intakeService: IntakeService = IntakeServiceImpl(
         schedulingService,
@@ -110,6 +178,9 @@ class DeliveryModuleImpl(
         initModule.jsonSerializer,
         dataPersistenceWorker,
         deliveryTracer,
+        sessionSnapshotJournal = sessionSnapshotJournal?.takeIf {
+            configService.otelBehavior.isSessionSnapshotJournalEnabled()
+        },
     )
 
     override val payloadStore: PayloadStore = PayloadStoreImpl(
@@ -30,6 +30,8 @@ class LogModuleImpl(
         openTelemetryModule.logSink,
         deliveryModule?.payloadStore,
         payloadSourceModule.logEnvelopeSource,
+        configService.logMessageBehavior,
+        deliveryModule?.deliveryTracer,
     )
 
     override val attachmentService: AttachmentService = AttachmentService()
@@ -3,10 +3,14 @@ package io.embrace.android.embracesdk.internal.injection
 import io.embrace.android.embracesdk.core.BuildConfig
 import io.embrace.android.embracesdk.internal.config.behavior.BreadcrumbBehavior
 import io.embrace.android.embracesdk.internal.config.behavior.BreadcrumbBehavior.Companion.DEFAULT_BREADCRUMB_LIMIT
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_EXTERNAL_EXPORT_QUEUE_CAPACITY
 import io.embrace.android.embracesdk.internal.config.behavior.OtelBehavior
 import io.embrace.android.embracesdk.internal.config.behavior.REDACTED_LABEL
 import io.embrace.android.embracesdk.internal.config.behavior.SensitiveKeysBehavior
 import io.embrace.android.embracesdk.internal.otel.config.OtelSdkConfig
+import io.embrace.android.embracesdk.internal.otel.config.SpanBatchConfig
+import io.embrace.android.embracesdk.internal.otel.export.ExternalExportDispatcher
+import io.embrace.android.embracesdk.internal.otel.export.ExternalExportDispatcher.OverflowPolicy
 import io.embrace.android.embracesdk.internal.otel.impl.EmbClock
 import io.embrace.android.embracesdk.internal.otel.logs.LogSink
 import io.embrace.android.embracesdk.internal.otel.logs.LogSinkImpl
@@ -44,7 +48,7 @@ class OpenTelemetryModuleImpl(
     private var internalSpanStopCallback: ((spanId: String) -> Unit)? = null
     private var bypassLimitsValidation: Boolean = false
 
-    override val spanRepository: SpanRepository = SpanRepository()
+    override val spanRepository: SpanRepository = SpanRepository(telemetryService = initModule.telemetryService)
 
     override val logSink: LogSink = LogSinkImpl()
 
@@ -62,6 +66,24 @@ class OpenTelemetryModuleImpl(
             userIdProvider = { storedUserIdProvider?.invoke() },
             eventMetadataProvider = { storedEventMetadataProvider?.invoke() ?: emptyMap() },
             processIdentifierProvider = processIdentifierProvider,
+            externalExportDispatcher = ExternalExportDispatcher(
+                capacityProvider = {
+                    otelBehavior?.getExternalExportQueueCapacity() ?: DEFAULT_EXTERNAL_EXPORT_QUEUE_CAPACITY
+                },
+                overflowPolicyProvider = {
+                    if (otelBehavior?.shouldDropNewestExternalExports() == true) {
+                        OverflowPolicy.DROP_NEWEST
+                    } else {
+                        OverflowPolicy.DROP_OLDEST
+                    }
+                },
+                telemetryService = initModule.telemetryService,
+            ),
+            spanBatchConfigProvider = {
+                otelBehavior?.takeIf(OtelBehavior::isSpanBatchingEnabled)?.let {
+                    SpanBatchConfig(it.getSpanBatchMaxSize(), it.getSpanBatchMaxLatencyMs())
+                }
+            },
         )
     }
 
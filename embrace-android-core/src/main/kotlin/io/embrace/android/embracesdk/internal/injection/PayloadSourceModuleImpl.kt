@@ -128,6 +128,7 @@ class PayloadSourceModuleImpl(
             cachedLogEnvelopeStore = deliveryModule.cachedLogEnvelopeStore,
             logger = initModule.logger,
             serializer = initModule.jsonSerializer,
+            sessionSnapshotJournal = deliveryModule.sessionSnapshotJournal,
         )
     }
 }
@@ -1,5 +1,6 @@
 package io.embrace.android.embracesdk.internal.injection
 
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
 import io.embrace.android.embracesdk.internal.delivery.storedTelemetryRunnableComparator
 import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
 import io.embrace.android.embracesdk.internal.worker.PriorityThreadPoolExecutor
@@ -54,7 +55,12 @@ class WorkerThreadModuleImpl : WorkerThreadModule, RejectedExecutionHandler {
                     storedTelemetryRunnableComparator,
                 )
             } else {
-                ScheduledThreadPoolExecutor(1, threadFactory, this).apply {
+                // payloads of the same envelope type are never uploaded concurrently, so one thread per type is enough
+                val threadCount = when (worker) {
+                    Worker.Background.ConcurrentHttpRequestWorker -> SupportedEnvelopeType.entries.size
+                    else -> 1
+                }
+                ScheduledThreadPoolExecutor(threadCount, threadFactory, this).apply {
                     removeOnCancelPolicy = true
                 }
             }
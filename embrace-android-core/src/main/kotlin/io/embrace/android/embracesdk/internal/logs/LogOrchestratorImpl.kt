@@ -1,13 +1,18 @@
 package io.embrace.android.embracesdk.internal.logs
 
 import io.embrace.android.embracesdk.internal.clock.Clock
+import io.embrace.android.embracesdk.internal.config.behavior.LogMessageBehavior
+import io.embrace.android.embracesdk.internal.config.behavior.MAX_LOG_BATCH_COUNT
+import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.envelope.log.LogEnvelopeSource
 import io.embrace.android.embracesdk.internal.otel.logs.LogSink
+import io.embrace.android.embracesdk.internal.otel.logs.estimatedSize
 import io.embrace.android.embracesdk.internal.session.orchestrator.PayloadStore
 import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
 import java.lang.Long.min
 import java.util.concurrent.ScheduledFuture
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
 import java.util.concurrent.atomic.AtomicLong
 
 internal class LogOrchestratorImpl(
@@ -16,6 +21,8 @@ internal class LogOrchestratorImpl(
     private val sink: LogSink,
     private val payloadStore: PayloadStore?,
     private val logEnvelopeSource: LogEnvelopeSource,
+    private val behavior: LogMessageBehavior,
+    private val deliveryTracer: DeliveryTracer? = null,
 ) : LogOrchestrator {
 
     @Volatile
@@ -27,15 +34,41 @@ internal class LogOrchestratorImpl(
     @Volatile
     private var scheduledCheckFuture: ScheduledFuture<*>? = null
 
+    /**
+     * Whether a batch check is scheduled. Only one check is scheduled at a time: logs added while it is pending leave
+     * it alone, and it re-arms itself for the next deadline if the batch is not ready when it runs.
+     */
+    private val checkScheduled = AtomicBoolean(false)
+
+    /**
+     * The number of logs that fills a batch. This is the configured batch size unless adaptive batching is enabled, in
+     * which case it doubles each time a batch fills before its time window closes, and halves back towards the
+     * configured size each time a batch is sent because logging went quiet.
+     */
+    @Volatile
+    private var batchMaxCount: Int = behavior.getLogBatchMaxCount()
+
+    init {
+        sink.setBatchLimits(batchMaxCount, behavior.getLogBatchMaxBytes())
+    }
+
     override fun flush(saveOnly: Boolean) {
+        sendBatch(saveOnly, BatchTrigger.FLUSH)
+    }
+
+    private fun sendBatch(saveOnly: Boolean, trigger: BatchTrigger) {
         scheduledCheckFuture?.cancel(false)
         scheduledCheckFuture = null
+        checkScheduled.set(false)
         firstLogInBatchTime.set(0)
 
         val envelope = logEnvelopeSource.getBatchedLogEnvelope()
-        if (!envelope.data.logs.isNullOrEmpty()) {
+        val logs = envelope.data.logs
+        if (!logs.isNullOrEmpty()) {
             payloadStore?.storeLogPayload(envelope, !saveOnly)
+            deliveryTracer?.onLogBatchSent(logs.size, logs.sumOf { it.estimatedSize().toLong() }, batchMaxCount, trigger.name)
         }
+        adaptBatchSize(trigger)
     }
 
     override fun handleCrash(crashId: String) {
@@ -51,59 +84,107 @@ internal class LogOrchestratorImpl(
             }
         }
 
-        lastLogTime.set(clock.now())
-        firstLogInBatchTime.compareAndSet(0, lastLogTime.get())
-        if (!sendLogsIfNeeded()) {
-            // If [firstLogInBatchTime] was cleared by a concurrent call to [sendLogsIfNeeded]
-            // then update it to the time of this log
-            firstLogInBatchTime.compareAndSet(0, lastLogTime.get())
-            scheduleCheck()
-        }
+        val now = clock.now()
+        lastLogTime.set(now)
+        firstLogInBatchTime.compareAndSet(0, now)
+        sendLogsIfNeeded()
+        scheduleCheckIfLogsPending()
     }
 
     /**
-     * Returns true if logs were sent, false otherwise
+     * Sends a batch if it is full or one of its time windows has closed.
      */
     @Synchronized
-    private fun sendLogsIfNeeded(): Boolean {
+    private fun sendLogsIfNeeded() {
         val now = clock.now()
-        val shouldSendLogs = isMaxLogsPerBatchReached() ||
-            isMaxInactivityTimeReached(now) ||
-            isMaxBatchTimeReached(now)
+        val trigger = when {
+            isMaxLogsPerBatchReached() -> BatchTrigger.COUNT
+            isMaxBytesPerBatchReached() -> BatchTrigger.BYTES
+            isMaxInactivityTimeReached(now) -> BatchTrigger.INACTIVITY
+            isMaxBatchTimeReached(now) -> BatchTrigger.BATCH_TIME
+            else -> return
+        }
+        sendBatch(false, trigger)
+    }
+
+    private fun adaptBatchSize(trigger: BatchTrigger) {
+        val configuredCount = behavior.getLogBatchMaxCount()
+        val count = when {
+            !behavior.isAdaptiveLogBatchingEnabled() -> configuredCount
+            trigger == BatchTrigger.COUNT -> {
+                val ceiling = maxOf(configuredCount, minOf(configuredCount * ADAPTIVE_GROWTH_LIMIT, MAX_LOG_BATCH_COUNT))
+                (batchMaxCount * 2).coerceIn(configuredCount, ceiling)
+            }
 
-        if (!shouldSendLogs) {
-            return false
+            trigger == BatchTrigger.INACTIVITY -> (batchMaxCount / 2).coerceAtLeast(configuredCount)
+            else -> batchMaxCount
+        }
+        if (count != batchMaxCount) {
+            batchMaxCount = count
+            sink.setBatchLimits(count, behavior.getLogBatchMaxBytes())
         }
-        flush(false)
-        return true
     }
 
     private fun scheduleCheck() {
+        if (!checkScheduled.compareAndSet(false, true)) {
+            return
+        }
         val now = clock.now()
-        val nextBatchCheck = MAX_BATCH_TIME - (now - firstLogInBatchTime.get())
-        val nextInactivityCheck = MAX_INACTIVITY_TIME - (now - lastLogTime.get())
-        scheduledCheckFuture?.cancel(false)
+        val nextBatchCheck = behavior.getLogBatchMaxTimeMs() - (now - firstLogInBatchTime.get())
+        val nextInactivityCheck = behavior.getLogBatchInactivityMs() - (now - lastLogTime.get())
         scheduledCheckFuture = worker.schedule<Unit>(
-            ::sendLogsIfNeeded,
-            min(nextBatchCheck, nextInactivityCheck),
+            ::runScheduledCheck,
+            min(nextBatchCheck, nextInactivityCheck).coerceAtLeast(0),
             TimeUnit.MILLISECONDS,
         )
     }
 
+    private fun runScheduledCheck() {
+        checkScheduled.set(false)
+        sendLogsIfNeeded()
+        scheduleCheckIfLogsPending()
+    }
+
+    /**
+     * Schedules a check while logs are waiting, including logs left over after a full batch was sent.
+     */
+    private fun scheduleCheckIfLogsPending() {
+        if (sink.storedLogCount() > 0) {
+            // If [firstLogInBatchTime] was cleared by sending a batch then the waiting logs start a new one
+            firstLogInBatchTime.compareAndSet(0, clock.now())
+            scheduleCheck()
+        }
+    }
+
     private fun isMaxLogsPerBatchReached(): Boolean =
-        sink.storedLogCount() >= MAX_LOGS_PER_BATCH
+        sink.storedLogCount() >= batchMaxCount
+
+    private fun isMaxBytesPerBatchReached(): Boolean =
+        sink.storedLogBytes() >= behavior.getLogBatchMaxBytes()
 
     private fun isMaxInactivityTimeReached(now: Long): Boolean =
-        now - lastLogTime.get() >= MAX_INACTIVITY_TIME
+        now - lastLogTime.get() >= behavior.getLogBatchInactivityMs()
 
     private fun isMaxBatchTimeReached(now: Long): Boolean {
         val firstLogInBatchTime = firstLogInBatchTime.get()
-        return firstLogInBatchTime != 0L && now - firstLogInBatchTime >= MAX_BATCH_TIME
+        return firstLogInBatchTime != 0L && now - firstLogInBatchTime >= behavior.getLogBatchMaxTimeMs()
+    }
+
+    /**
+     * Why a batch of logs was sent.
+     */
+    private enum class BatchTrigger {
+        COUNT,
+        BYTES,
+        INACTIVITY,
+        BATCH_TIME,
+        FLUSH,
     }
 
-    companion object {
-        const val MAX_LOGS_PER_BATCH: Int = 50
-        private const val MAX_BATCH_TIME = 5000L // In milliseconds
-        private const val MAX_INACTIVITY_TIME = 2000L // In milliseconds
+    private companion object {
+        /**
+         * How many times larger than the configured batch size an adaptive batch can grow.
+         */
+        private const val ADAPTIVE_GROWTH_LIMIT = 8
     }
 }
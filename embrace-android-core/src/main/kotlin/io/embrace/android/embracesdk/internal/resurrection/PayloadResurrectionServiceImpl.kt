@@ -9,6 +9,7 @@ import io.embrace.android.embracesdk.internal.delivery.intake.IntakeService
 import io.embrace.android.embracesdk.internal.delivery.storage.CachedLogEnvelopeStore
 import io.embrace.android.embracesdk.internal.delivery.storage.CachedLogEnvelopeStore.Companion.createNativeCrashEnvelopeMetadata
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournal
 import io.embrace.android.embracesdk.internal.instrumentation.crash.ndk.NativeCrashService
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
@@ -34,7 +35,6 @@ import java.io.InputStream
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
-import java.util.zip.GZIPInputStream
 import java.util.zip.ZipException
 import kotlin.math.max
 
@@ -45,6 +45,7 @@ internal class PayloadResurrectionServiceImpl(
     private val cachedLogEnvelopeStore: CachedLogEnvelopeStore,
     private val logger: InternalLogger,
     private val serializer: PlatformSerializer,
+    private val sessionSnapshotJournal: SessionSnapshotJournal? = null,
 ) : PayloadResurrectionService {
 
     private val completionListeners = CopyOnWriteArrayList<() -> Unit>()
@@ -76,14 +77,23 @@ internal class PayloadResurrectionServiceImpl(
         restoreDecision: UserSessionRestoreDecision?,
     ) {
         val nativeCrashService = nativeCrashServiceProvider()
-        val undeliveredPayloads = cacheStorageService.getUndeliveredPayloads()
+        val journaledPayloads = sessionSnapshotJournal?.getUndeliveredSnapshots()?.toSet() ?: emptySet()
+        val undeliveredPayloads = cacheStorageService.getUndeliveredPayloads() + journaledPayloads
         val nonCrashPayloads = undeliveredPayloads.filterNot { it.isCrashEnvelope() }
         val (payloadsToResurrect, redundantPayloads) = dedupeSessionPayloads(nonCrashPayloads)
         val nativeCrashes = nativeCrashService?.getNativeCrashes()?.associateBy { it.sessionPartId } ?: emptyMap()
         val processedCrashes = mutableSetOf<NativeCrashData>()
 
+        val deleteCachedPayload: (StoredTelemetryMetadata) -> Unit = { payload ->
+            if (payload in journaledPayloads) {
+                sessionSnapshotJournal?.delete(payload)
+            } else {
+                cacheStorageService.delete(payload)
+            }
+        }
+
         // delete duplicate cached payloads as the surviving copy has already been stored in payloadStorageService
-        redundantPayloads.forEach { cacheStorageService.delete(it) }
+        redundantPayloads.forEach(deleteCachedPayload)
 
         // Only a terminated session has a final part to stamp
         val terminatedUserSession = restoreDecision as? UserSessionRestoreDecision.Terminated
@@ -116,7 +126,7 @@ internal class PayloadResurrectionServiceImpl(
 
             // Delete every processed. If there's a failure resurrecting a particular payload, assume it is not recoverable
             // and log the instance so we know it happened.
-            cacheStorageService.delete(payload)
+            deleteCachedPayload(payload)
         }
 
         if (nativeCrashService != null) {
@@ -274,9 +284,9 @@ internal class PayloadResurrectionServiceImpl(
     ) {
         val resurrectedPayload = when (envelopeType) {
             SupportedEnvelopeType.SESSION -> {
-                loadDecompressedPayload()?.let { payloadStream ->
+                loadSessionPart()?.let { deadPart ->
                     processUndeliveredPayloadImpl(
-                        payloadStream,
+                        deadPart,
                         nativeCrashService,
                         nativeCrashProvider,
                         postNativeCrashProcessingCallback,
@@ -305,14 +315,13 @@ internal class PayloadResurrectionServiceImpl(
     }
 
     private fun StoredTelemetryMetadata.processUndeliveredPayloadImpl(
-        payloadStream: InputStream,
+        deadPart: Envelope<SessionPartPayload>,
         nativeCrashService: NativeCrashService?,
         nativeCrashProvider: (String) -> NativeCrashData?,
         postNativeCrashProcessingCallback: (NativeCrashData) -> Unit,
         userSessionTerminationReason: String?,
         isBackgroundOnly: Boolean,
     ): Envelope<SessionPartPayload> {
-        val deadPart = serializer.fromJson(payloadStream, Envelope.serializer(SessionPartPayload.serializer()))
         val deadSessionPartSpan = deadPart.getSessionPartSpan()
         val sessionPartId = deadSessionPartSpan?.resolveSessionPartIdForCrashMatch()
         val appState = deadSessionPartSpan?.attributes?.findAttributeValue(EmbSessionAttributes.EMB_STATE)
@@ -446,13 +455,20 @@ internal class PayloadResurrectionServiceImpl(
     private fun Span.resolveSessionPartIdForCrashMatch(): String? =
         attributes?.findAttributeValue(EmbSessionAttributes.EMB_SESSION_PART_ID)
 
-    private fun StoredTelemetryMetadata.loadDecompressedPayload(): InputStream? =
-        cacheStorageService.loadPayloadAsStream(this)?.let {
-            try {
-                GZIPInputStream(it)
-            } catch (_: ZipException) {
-                null
+    /**
+     * Loads a session part from its cached snapshot, rebuilding it from the snapshot journal if it was journaled.
+     */
+    private fun StoredTelemetryMetadata.loadSessionPart(): Envelope<SessionPartPayload>? =
+        sessionSnapshotJournal?.loadSnapshot(this)
+            ?: loadDecompressedPayload()?.let { payloadStream ->
+                serializer.fromJson(payloadStream, Envelope.serializer(SessionPartPayload.serializer()))
             }
+
+    private fun StoredTelemetryMetadata.loadDecompressedPayload(): InputStream? =
+        try {
+            cacheStorageService.loadPayloadAsDecompressedStream(this)
+        } catch (_: ZipException) {
+            null
         }
 
     /**
@@ -5,6 +5,7 @@ import io.embrace.android.embracesdk.internal.isEmulator
 import io.embrace.android.embracesdk.internal.otel.sdk.toEmbraceUsageAttributeName
 import io.embrace.android.embracesdk.semconv.EmbTelemetryAttributes
 import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.atomic.AtomicInteger
 
 /**
@@ -17,6 +18,7 @@ internal class EmbraceTelemetryService(
     private val okHttpReflectionFacade: OkHttpReflectionFacade = OkHttpReflectionFacade()
     private val usageCountMap = ConcurrentHashMap<String, Int>()
     private val storageTelemetryMap = ConcurrentHashMap<String, String>()
+    private val storageTelemetrySources = CopyOnWriteArrayList<StorageTelemetrySource>()
     private val appliedLimitCountMap = ConcurrentHashMap<String, AtomicInteger>()
     private val appAttributes: Map<String, String> by lazy { computeAppAttributes() }
 
@@ -30,10 +32,14 @@ internal class EmbraceTelemetryService(
         this.storageTelemetryMap.putAll(storageTelemetry)
     }
 
-    override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType) {
+    override fun registerStorageTelemetrySource(source: StorageTelemetrySource) {
+        storageTelemetrySources.add(source)
+    }
+
+    override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int) {
         val id = "applied_limit.$telemetryType.${limitType.attributeName}"
         val key = "emb.private.$id"
-        appliedLimitCountMap.getOrPut(key) { AtomicInteger(0) }.incrementAndGet()
+        appliedLimitCountMap.getOrPut(key) { AtomicInteger(0) }.addAndGet(count)
     }
 
     override fun getAndClearTelemetryAttributes(): Map<String, String> {
@@ -54,8 +60,9 @@ internal class EmbraceTelemetryService(
     }
 
     private fun getAndClearStorageTelemetry(): Map<String, String> {
-        val result = storageTelemetryMap.toMap()
+        val result = storageTelemetryMap.toMutableMap()
         storageTelemetryMap.clear()
+        storageTelemetrySources.forEach { it.collectStorageTelemetry(result) }
         return result
     }
 
@@ -43,6 +43,7 @@ class DeliveryModuleImplTest {
         assertNotNull(module.payloadCachingService)
         assertNotNull(module.cacheStorageService)
         assertNotNull(module.cachedLogEnvelopeStore)
+        assertNotNull(module.sessionSnapshotJournal)
         assertNotNull(module.schedulingService)
         assertNotNull(module.payloadStore)
     }
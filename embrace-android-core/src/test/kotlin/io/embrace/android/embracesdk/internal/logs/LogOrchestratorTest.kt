@@ -4,12 +4,17 @@ import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorServic
 import io.embrace.android.embracesdk.concurrency.SingleThreadTestScheduledExecutor
 import io.embrace.android.embracesdk.fakes.FakeClock
 import io.embrace.android.embracesdk.fakes.FakePayloadStore
+import io.embrace.android.embracesdk.fakes.behavior.FakeLogMessageBehavior
 import io.embrace.android.embracesdk.fakes.injection.FakePayloadSourceModule
 import io.embrace.android.embracesdk.fixtures.deferredLog
 import io.embrace.android.embracesdk.fixtures.sendImmediatelyLog
+import io.embrace.android.embracesdk.internal.config.behavior.DEFAULT_LOG_BATCH_MAX_COUNT
+import io.embrace.android.embracesdk.internal.config.behavior.LogMessageBehavior
+import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.envelope.log.LogPayloadSourceImpl
 import io.embrace.android.embracesdk.internal.otel.logs.LogSink
 import io.embrace.android.embracesdk.internal.otel.logs.LogSinkImpl
+import io.embrace.android.embracesdk.internal.otel.logs.estimatedSize
 import io.embrace.android.embracesdk.internal.payload.Log
 import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
 import org.junit.Assert.assertEquals
@@ -35,6 +40,8 @@ internal class LogOrchestratorTest {
     private lateinit var store: FakePayloadStore
     private val clock = FakeClock()
 
+    private val deliveryTracer = DeliveryTracer()
+
     @Before
     fun setUp() {
         executorService = BlockingScheduledExecutorService()
@@ -43,6 +50,10 @@ internal class LogOrchestratorTest {
         logSink = LogSinkImpl()
         store = FakePayloadStore()
         clock.setCurrentTime(NOW)
+        createOrchestrator(FakeLogMessageBehavior())
+    }
+
+    private fun createOrchestrator(behavior: LogMessageBehavior) {
         logOrchestrator = LogOrchestratorImpl(
             worker,
             clock,
@@ -51,6 +62,8 @@ internal class LogOrchestratorTest {
             FakePayloadSourceModule(
                 logPayloadSource = LogPayloadSourceImpl(logSink),
             ).logEnvelopeSource,
+            behavior,
+            deliveryTracer,
         )
         logSink.registerLogStoredCallback(logOrchestrator::onLogsAdded)
     }
@@ -60,13 +73,13 @@ internal class LogOrchestratorTest {
         val logs = mutableListOf<Log>()
 
         // Fill the sink with max batch size - 1 logs
-        repeat(LogOrchestratorImpl.MAX_LOGS_PER_BATCH - 1) {
+        repeat(DEFAULT_LOG_BATCH_MAX_COUNT - 1) {
             logs.add(Log())
         }
         logSink.storeLogs(logs.toList())
 
         // Verify the logs are not sent
-        assertEquals(LogOrchestratorImpl.MAX_LOGS_PER_BATCH - 1, logSink.logsForNextBatch().size)
+        assertEquals(DEFAULT_LOG_BATCH_MAX_COUNT - 1, logSink.logsForNextBatch().size)
         verifyPayloadNotSent()
 
         // Add one more log to reach max batch size
@@ -74,7 +87,7 @@ internal class LogOrchestratorTest {
 
         // Verify the logs are sent
         assertTrue(logSink.logsForNextBatch().isEmpty())
-        verifyPayload(LogOrchestratorImpl.MAX_LOGS_PER_BATCH)
+        verifyPayload(DEFAULT_LOG_BATCH_MAX_COUNT)
     }
 
     @Test
@@ -108,6 +121,68 @@ internal class LogOrchestratorTest {
         verifyPayload(9)
     }
 
+    @Test
+    fun `a single batch check is scheduled for a burst of logs`() {
+        repeat(DEFAULT_LOG_BATCH_MAX_COUNT - 1) {
+            logSink.storeLogs(listOf(Log()))
+            moveTimeAhead(10)
+        }
+        assertEquals(1, executorService.scheduledTasksCount())
+        verifyPayloadNotSent()
+
+        // the check first runs at the inactivity deadline of the first log, then re-arms for the latest log
+        moveTimeAhead(2000L - 490L)
+        verifyPayloadNotSent()
+        assertEquals(1, executorService.scheduledTasksCount())
+
+        moveTimeAhead(490L)
+        verifyPayload(DEFAULT_LOG_BATCH_MAX_COUNT - 1)
+    }
+
+    @Test
+    fun `batch size and time windows come from config`() {
+        createOrchestrator(FakeLogMessageBehavior(logBatchMaxCount = 5, logBatchMaxTimeMs = 1000, logBatchInactivityMs = 500))
+        logSink.storeLogs(List(12) { Log() })
+        assertEquals(listOf(5), store.storedLogPayloads.map { it.first.data.logs?.size })
+
+        // logs left over after a full batch are checked again once the inactivity window passes
+        moveTimeAhead(500)
+        assertEquals(listOf(5, 5), store.storedLogPayloads.map { it.first.data.logs?.size })
+        executorService.runCurrentlyBlocked()
+        assertEquals(listOf(5, 5, 2), store.storedLogPayloads.map { it.first.data.logs?.size })
+    }
+
+    @Test
+    fun `logs are sent when the batch byte limit is reached`() {
+        val log = Log(body = "a".repeat(1000))
+        createOrchestrator(FakeLogMessageBehavior(logBatchMaxBytes = log.estimatedSize() * 3L))
+        logSink.storeLogs(listOf(log, log))
+        verifyPayloadNotSent()
+
+        logSink.storeLogs(listOf(log))
+        verifyPayload(3)
+        assertTrue(deliveryTracer.generateReport().contains("LogBatchSent, count=3"))
+        assertTrue(deliveryTracer.generateReport().contains("trigger=BYTES"))
+    }
+
+    @Test
+    fun `adaptive batches grow under load and shrink when idle`() {
+        createOrchestrator(FakeLogMessageBehavior(logBatchMaxCount = 10, adaptiveLogBatchingEnabled = true))
+        repeat(75) {
+            logSink.storeLogs(listOf(Log()))
+        }
+        // batches of 10, 20 and 40 fill in turn as the batch size doubles
+        assertEquals(listOf(10, 20, 40), store.storedLogPayloads.map { it.first.data.logs?.size })
+
+        // the remaining logs are sent once logging goes quiet, which halves the batch size from 80 to 40
+        moveTimeAhead(2000L)
+        assertEquals(listOf(10, 20, 40, 5), store.storedLogPayloads.map { it.first.data.logs?.size })
+        repeat(40) {
+            logSink.storeLogs(listOf(Log()))
+        }
+        assertEquals(listOf(10, 20, 40, 5, 40), store.storedLogPayloads.map { it.first.data.logs?.size })
+    }
+
     @Test
     fun `flushing logs`() {
         val timeStep = 1100L
@@ -67,6 +67,24 @@ internal class EmbraceTelemetryServiceTest {
         assertEquals("1231", telemetryAttributes[EmbTelemetryAttributes.EMB_STORAGE_USED])
     }
 
+    @Test
+    fun `registered storage telemetry sources are read on every collection`() {
+        // Given a source whose value changes between collections
+        var storageUsed = 10
+        embraceTelemetryService.registerStorageTelemetrySource { dst ->
+            dst[EmbTelemetryAttributes.EMB_STORAGE_USED] = storageUsed.toString()
+        }
+
+        // When getting telemetry attributes twice
+        val first = embraceTelemetryService.getAndClearTelemetryAttributes()
+        storageUsed = 20
+        val second = embraceTelemetryService.getAndClearTelemetryAttributes()
+
+        // Then the current value of the source is in each map
+        assertEquals("10", first[EmbTelemetryAttributes.EMB_STORAGE_USED])
+        assertEquals("20", second[EmbTelemetryAttributes.EMB_STORAGE_USED])
+    }
+
     @Test
     fun `getTelemetryAttributes clears the storage map`() {
         // Given a method is in the map
@@ -144,6 +162,17 @@ internal class EmbraceTelemetryServiceTest {
         )
     }
 
+    @Test
+    fun `trackAppliedLimit adds the count to the limit counter`() {
+        embraceTelemetryService.trackAppliedLimit("span", AppliedLimitType.DROP)
+        embraceTelemetryService.trackAppliedLimit("span", AppliedLimitType.DROP, 40)
+
+        assertEquals(
+            "41",
+            embraceTelemetryService.getAndClearTelemetryAttributes()["emb.private.applied_limit.span.drop"],
+        )
+    }
+
     @Test
     fun `trackAppliedLimit tracks multiple different limits`() {
         // Given multiple different limits are logged
@@ -6,6 +6,7 @@ import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
 import io.embrace.android.embracesdk.internal.delivery.storage.SerializationAction
+import io.embrace.android.embracesdk.internal.delivery.storage.StoredPayloadListener
 import io.embrace.android.embracesdk.internal.payload.Envelope
 import io.embrace.android.embracesdk.internal.payload.LogPayload
 import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
@@ -17,6 +18,7 @@ import java.io.IOException
 import java.io.InputStream
 import java.util.Collections
 import java.util.UUID
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.atomic.AtomicInteger
 import java.util.zip.GZIPInputStream
 import java.util.zip.GZIPOutputStream
@@ -28,6 +30,7 @@ class FakePayloadStorageService(
     private val processIdProvider: () -> String = { processIdentifier }
     private val serializer = TestPlatformSerializer()
     private val cachedPayloads = Collections.synchronizedMap(LinkedHashMap<StoredTelemetryMetadata, ByteArray>())
+    private val listeners = CopyOnWriteArrayList<StoredPayloadListener>()
 
     private val worker = if (workerExecutor != null) {
         PriorityWorker<StoredTelemetryMetadata>(workerExecutor)
@@ -58,6 +61,9 @@ class FakePayloadStorageService(
             action(baos)
         }
         cachedPayloads[metadata] = baos.toByteArray()
+        if (metadata.complete) {
+            listeners.forEach { it.onPayloadStored(metadata) }
+        }
     }
 
     override fun loadPayloadAsStream(metadata: StoredTelemetryMetadata): InputStream? {
@@ -91,6 +97,10 @@ class FakePayloadStorageService(
     override fun getUndeliveredPayloads(): List<StoredTelemetryMetadata> =
         cachedPayloads.filter { !it.key.complete && it.key.processIdentifier != processIdProvider() }.keys.toList()
 
+    override fun addStoredPayloadListener(listener: StoredPayloadListener) {
+        listeners.add(listener)
+    }
+
     fun addPayload(metadata: StoredTelemetryMetadata, data: Envelope<*>) {
         store(metadata) { stream ->
             serializer.toJson(data, metadata.envelopeType.requireEnvelopeSerializer(), stream)
@@ -112,11 +122,14 @@ class FakePayloadStorageService(
     fun storedPayloadCount() = cachedPayloads.size
 
     fun clearStorage() {
-        cachedPayloads.clear()
+        storedPayloadMetadata().forEach(::removePayload)
     }
 
+    /**
+     * Removes a payload without going through [delete], simulating the storage layer pruning it to enforce its limits.
+     */
     fun removePayloadSilently(metadata: StoredTelemetryMetadata) {
-        cachedPayloads.remove(metadata)
+        removePayload(metadata)
     }
 
     private fun createFakePayload(metadata: StoredTelemetryMetadata) =
@@ -130,11 +143,17 @@ class FakePayloadStorageService(
         }
 
     private fun deleteSynchronous(metadata: StoredTelemetryMetadata, callback: () -> Unit) {
-        cachedPayloads.remove(metadata)
+        removePayload(metadata)
         deleteCount.getAndIncrement()
         callback()
     }
 
+    private fun removePayload(metadata: StoredTelemetryMetadata) {
+        if (cachedPayloads.remove(metadata) != null) {
+            listeners.forEach { it.onPayloadRemoved(metadata) }
+        }
+    }
+
     fun getPersistedCrashLog(
         payloadType: PayloadType = PayloadType.JVM_CRASH,
     ): Envelope<LogPayload> {
@@ -3,9 +3,11 @@ package io.embrace.android.embracesdk.fakes
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
 import io.embrace.android.embracesdk.internal.delivery.execution.ExecutionResult
 import io.embrace.android.embracesdk.internal.delivery.execution.RequestExecutionService
+import io.embrace.android.embracesdk.internal.delivery.storage.SerializationAction
 import io.embrace.android.embracesdk.internal.payload.Envelope
 import io.embrace.android.embracesdk.internal.payload.LogPayload
 import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import java.io.ByteArrayOutputStream
 import java.io.InputStream
 import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.zip.GZIPInputStream
@@ -16,8 +18,18 @@ class FakeRequestExecutionService : RequestExecutionService {
     var constantResponse: ExecutionResult = ExecutionResult.Success
     var responseAction: (intake: Envelope<*>) -> ExecutionResult = { _ -> constantResponse }
     var exceptionOnExecution: Throwable? = null
+
+    /**
+     * Invoked on the delivery thread before a response is returned, e.g. to simulate a slow upload to an endpoint.
+     */
+    var requestLatencyAction: (envelopeType: SupportedEnvelopeType) -> Unit = {}
     val attemptedHttpRequests = ConcurrentLinkedQueue<Envelope<*>>()
 
+    /**
+     * The payload types header of each request made through [attemptBatchHttpRequest]
+     */
+    val batchRequestPayloadTypes = ConcurrentLinkedQueue<String>()
+
     @Suppress("UNCHECKED_CAST")
     inline fun <reified T : Any> getRequests(): List<Envelope<T>> {
         if (T::class != SessionPartPayload::class && T::class != LogPayload::class) {
@@ -34,6 +46,21 @@ class FakeRequestExecutionService : RequestExecutionService {
         exceptionOnExecution?.run { throw this }
         val bufferedStream = GZIPInputStream(payloadStream())
         val envelope: Envelope<*> = serializer.fromJson(bufferedStream, envelopeType.requireEnvelopeSerializer())
+        requestLatencyAction(envelopeType)
+        attemptedHttpRequests.add(envelope)
+        return responseAction(envelope)
+    }
+
+    override fun attemptBatchHttpRequest(
+        payloadWriter: SerializationAction,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult {
+        exceptionOnExecution?.run { throw this }
+        val bytes = ByteArrayOutputStream().also(payloadWriter).toByteArray()
+        val envelope: Envelope<*> = serializer.fromJson(bytes.inputStream(), envelopeType.requireEnvelopeSerializer())
+        requestLatencyAction(envelopeType)
+        batchRequestPayloadTypes.add(payloadType)
         attemptedHttpRequests.add(envelope)
         return responseAction(envelope)
     }
@@ -8,6 +8,7 @@ dependencies {
     implementation(project(":embrace-android-payload"))
     api(project(":embrace-android-telemetry-persistence"))
     implementation(project(":embrace-android-infra"))
+    implementation(project(":embrace-android-semconv"))
 
     testImplementation(project(":embrace-test-common"))
     testImplementation(project(":embrace-android-delivery-fakes"))
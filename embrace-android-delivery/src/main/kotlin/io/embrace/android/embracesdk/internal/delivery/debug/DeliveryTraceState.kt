@@ -133,6 +133,19 @@ internal sealed class DeliveryTraceState {
         }
     }
 
+    /**
+     * A batch of logs was handed to the payload store
+     */
+    class LogBatchSent(
+        private val logCount: Int,
+        private val estimatedBytes: Long,
+        private val batchMaxCount: Int,
+        private val trigger: String,
+    ) : DeliveryTraceState() {
+        override fun toString(): String =
+            "[$threadName] LogBatchSent, count=$logCount, bytes=$estimatedBytes, maxCount=$batchMaxCount, trigger=$trigger"
+    }
+
     /**
      * A HTTP request was started
      */
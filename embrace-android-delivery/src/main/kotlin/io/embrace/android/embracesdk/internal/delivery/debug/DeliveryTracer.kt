@@ -79,6 +79,10 @@ class DeliveryTracer {
         addWithThreadInfo(DeliveryTraceState.PayloadResult(payload, result))
     }
 
+    fun onLogBatchSent(logCount: Int, estimatedBytes: Long, batchMaxCount: Int, trigger: String) {
+        addWithThreadInfo(DeliveryTraceState.LogBatchSent(logCount, estimatedBytes, batchMaxCount, trigger))
+    }
+
     fun onServerReceivedRequest(endpoint: String) {
         addWithThreadInfo(DeliveryTraceState.ServerReceivedRequest(endpoint))
     }
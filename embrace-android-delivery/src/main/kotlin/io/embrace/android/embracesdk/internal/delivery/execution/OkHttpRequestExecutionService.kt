@@ -5,7 +5,12 @@ import io.embrace.android.embracesdk.internal.comms.api.Endpoint
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
 import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.delivery.execution.ExecutionResult.Companion.getResult
+import io.embrace.android.embracesdk.internal.delivery.storage.PooledGzipInputStream
+import io.embrace.android.embracesdk.internal.delivery.storage.SerializationAction
+import io.embrace.android.embracesdk.internal.delivery.storage.StoredAttachment
+import io.embrace.android.embracesdk.internal.delivery.storage.createFormPart
 import io.embrace.android.embracesdk.internal.delivery.storage.loadAttachment
+import io.embrace.android.embracesdk.internal.delivery.storage.readStoredAttachment
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
 import okhttp3.Headers.Companion.toHeaders
@@ -16,11 +21,14 @@ import okhttp3.Request
 import okhttp3.RequestBody
 import okhttp3.RequestBody.Companion.toRequestBody
 import okio.BufferedSink
+import okio.GzipSink
 import okio.buffer
 import okio.source
 import java.io.IOException
 import java.io.InputStream
-import java.util.zip.GZIPInputStream
+import java.nio.channels.Channels
+import java.nio.channels.FileChannel
+import java.nio.channels.ReadableByteChannel
 
 class OkHttpRequestExecutionService(
     private val okHttpClient: Lazy<OkHttpClient>,
@@ -44,10 +52,47 @@ class OkHttpRequestExecutionService(
         val multipart = envelopeType.endpoint == Endpoint.ATTACHMENTS
         val apiRequest = envelopeType.endpoint.getApiRequestFromEndpoint(multipart)
         val request = when {
-            multipart -> prepareMultipartRequest(payloadStream, apiRequest)
-            else -> prepareRequest(payloadStream, apiRequest, payloadType)
+            multipart -> payloadStream().let { stream ->
+                prepareMultipartRequest(stream, apiRequest) { ApiRequestBody { stream } }
+            }
+
+            else -> prepareRequest(ApiRequestBody(payloadStream), apiRequest, payloadType)
         }
+        return executeRequest(request, envelopeType, payloadType)
+    }
 
+    override fun attemptHttpRequest(
+        payloadChannel: ReadableByteChannel,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult {
+        val multipart = envelopeType.endpoint == Endpoint.ATTACHMENTS
+        val apiRequest = envelopeType.endpoint.getApiRequestFromEndpoint(multipart)
+        val request = when {
+            multipart -> prepareMultipartRequest(Channels.newInputStream(payloadChannel), apiRequest) {
+                ChannelRequestBody(payloadChannel)
+            }
+
+            else -> prepareRequest(ChannelRequestBody(payloadChannel), apiRequest, payloadType)
+        }
+        return executeRequest(request, envelopeType, payloadType)
+    }
+
+    override fun attemptBatchHttpRequest(
+        payloadWriter: SerializationAction,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult {
+        val apiRequest = envelopeType.endpoint.getApiRequestFromEndpoint(false)
+        val request = prepareRequest(GzipRequestBody(payloadWriter), apiRequest, payloadType)
+        return executeRequest(request, envelopeType, payloadType)
+    }
+
+    private fun executeRequest(
+        request: Request,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult {
         var executionError: Throwable? = null
         val httpCallResponse = try {
             okHttpClient.value.newCall(request).execute()
@@ -77,7 +122,7 @@ class OkHttpRequestExecutionService(
     }
 
     private fun prepareRequest(
-        payloadStream: () -> InputStream,
+        body: RequestBody,
         apiRequest: ApiRequestV2,
         payloadType: String,
     ): Request {
@@ -89,28 +134,50 @@ class OkHttpRequestExecutionService(
                     .plus("X-EM-PAYLOAD-TYPES" to payloadType)
                     .toHeaders(),
             )
-            .post(ApiRequestBody(payloadStream))
+            .post(body)
             .build()
         return request
     }
 
+    /**
+     * Attachments stored in the send-ready format are streamed into the request after the app_id part. Attachments that
+     * were stored gzipped by an older version of the SDK are decompressed and re-encoded.
+     */
     private fun prepareMultipartRequest(
-        payloadStream: () -> InputStream,
+        payloadStream: InputStream,
         apiRequest: ApiRequestV2,
+        storedPartsBody: () -> RequestBody,
     ): Request {
-        GZIPInputStream(payloadStream()).use {
+        val appId = checkNotNull(apiRequest.appId)
+        val body = try {
+            when (val attachment = readStoredAttachment(payloadStream)) {
+                is StoredAttachment.SendReady -> SendReadyMultipartBody(
+                    boundary = attachment.boundary,
+                    leadingPart = createFormPart(attachment.boundary, "app_id", appId),
+                    storedParts = storedPartsBody(),
+                )
+
+                is StoredAttachment.Gzipped -> createGzippedAttachmentBody(attachment.stream, appId)
+            }
+        } catch (exc: IOException) {
+            payloadStream.close()
+            throw exc
+        }
+        return Request.Builder()
+            .url(apiRequest.url)
+            .post(body)
+            .build()
+    }
+
+    private fun createGzippedAttachmentBody(stream: InputStream, appId: String): RequestBody {
+        PooledGzipInputStream(stream).use {
             val attachment = loadAttachment(it) ?: throw IOException("Failed to load attachment")
-            val builder = MultipartBody.Builder()
+            return MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
-                .addFormDataPart("app_id", checkNotNull(apiRequest.appId))
+                .addFormDataPart("app_id", appId)
                 .addFormDataPart("attachment_id", attachment.second)
                 .addFormDataPart("file", "file", attachment.first.toRequestBody())
-
-            val request = Request.Builder()
-                .url(apiRequest.url)
-                .post(builder.build())
                 .build()
-            return request
         }
     }
 
@@ -147,4 +214,93 @@ class OkHttpRequestExecutionService(
             }
         }
     }
+
+    /**
+     * A request body that moves the bytes of a stored payload from [payloadChannel] into the request. This is not
+     * zero-copy: the sink is an Okio buffer rather than a file or socket channel, so [FileChannel.transferTo] falls back
+     * to reading each chunk into a temporary buffer and writing it into the sink's heap segments. What a [FileChannel]
+     * does save is the per-payload source and buffer that [ApiRequestBody] allocates, and its size gives the request a
+     * content length instead of a chunked body.
+     */
+    class ChannelRequestBody(
+        private val payloadChannel: ReadableByteChannel,
+    ) : RequestBody() {
+        override fun contentType() = mediaType
+
+        /**
+         * The channel can only be read once, so the body must not be replayed.
+         */
+        override fun isOneShot(): Boolean = true
+
+        override fun contentLength(): Long = when (payloadChannel) {
+            is FileChannel -> payloadChannel.size() - payloadChannel.position()
+            else -> -1
+        }
+
+        override fun writeTo(sink: BufferedSink) {
+            if (payloadChannel is FileChannel) {
+                val size = payloadChannel.size()
+                var position = payloadChannel.position()
+                while (position < size) {
+                    val transferred = payloadChannel.transferTo(position, size - position, sink)
+                    if (transferred <= 0) {
+                        break
+                    }
+                    position += transferred
+                }
+            } else {
+                sink.writeAll(Channels.newInputStream(payloadChannel).source())
+            }
+        }
+    }
+
+    /**
+     * A multipart request body for an attachment stored in the send-ready format. The app_id part is written first and
+     * is followed by the stored parts, which are copied into the request without being decoded.
+     */
+    class SendReadyMultipartBody(
+        boundary: String,
+        private val leadingPart: ByteArray,
+        private val storedParts: RequestBody,
+    ) : RequestBody() {
+        private val contentType = "multipart/form-data; boundary=$boundary".toMediaType()
+
+        override fun contentType() = contentType
+
+        override fun contentLength(): Long = when (val length = storedParts.contentLength()) {
+            -1L -> -1L
+            else -> leadingPart.size + length
+        }
+
+        /**
+         * The stored parts can only be read once, so the body must not be replayed.
+         */
+        override fun isOneShot(): Boolean = true
+
+        override fun writeTo(sink: BufferedSink) {
+            sink.write(leadingPart)
+            storedParts.writeTo(sink)
+        }
+    }
+
+    /**
+     * A request body that is written by a [SerializationAction] and gzipped as it is streamed to the request, without
+     * buffering the whole payload in memory.
+     */
+    class GzipRequestBody(
+        private val payloadWriter: SerializationAction,
+    ) : RequestBody() {
+        override fun contentType() = mediaType
+
+        /**
+         * The payload is assembled from files that may be deleted at any time, so it must not be replayed.
+         */
+        override fun isOneShot(): Boolean = true
+
+        override fun writeTo(sink: BufferedSink) {
+            GzipSink(sink).buffer().use { gzipSink ->
+                payloadWriter(gzipSink.outputStream())
+            }
+        }
+    }
 }
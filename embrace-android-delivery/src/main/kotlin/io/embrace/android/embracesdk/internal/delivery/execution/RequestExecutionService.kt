@@ -1,7 +1,10 @@
 package io.embrace.android.embracesdk.internal.delivery.execution
 
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.SerializationAction
 import java.io.InputStream
+import java.nio.channels.Channels
+import java.nio.channels.ReadableByteChannel
 
 /**
  * This service executes HTTP requests & returns a result to the caller. It is not responsible for
@@ -17,4 +20,29 @@ interface RequestExecutionService {
         envelopeType: SupportedEnvelopeType,
         payloadType: String,
     ): ExecutionResult
+
+    /**
+     * Attempts an HTTP request to the Embrace backend whose gzipped body is read from [payloadChannel]. Implementations
+     * can override this to write the channel into the request without wrapping it in a stream first.
+     */
+    fun attemptHttpRequest(
+        payloadChannel: ReadableByteChannel,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult = attemptHttpRequest(
+        payloadStream = { Channels.newInputStream(payloadChannel) },
+        envelopeType = envelopeType,
+        payloadType = payloadType,
+    )
+
+    /**
+     * Attempts an HTTP request to the Embrace backend whose body is written by [payloadWriter] directly to the request.
+     * The bytes written are expected to be uncompressed and are gzipped as they are streamed. This is used for payloads
+     * that are assembled at delivery time, such as several stored envelopes that are batched into a single request.
+     */
+    fun attemptBatchHttpRequest(
+        payloadWriter: SerializationAction,
+        envelopeType: SupportedEnvelopeType,
+        payloadType: String,
+    ): ExecutionResult
 }
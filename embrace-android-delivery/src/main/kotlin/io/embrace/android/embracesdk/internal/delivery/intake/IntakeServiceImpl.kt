@@ -8,10 +8,12 @@ import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.SES
 import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingService
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournal
 import io.embrace.android.embracesdk.internal.delivery.storage.storeAttachment
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
 import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
 import io.embrace.android.embracesdk.internal.serialization.PlatformSerializer
 import io.embrace.android.embracesdk.internal.worker.PriorityWorker
 import java.util.concurrent.ConcurrentHashMap
@@ -28,6 +30,7 @@ class IntakeServiceImpl(
     private val worker: PriorityWorker<StoredTelemetryMetadata>,
     private val deliveryTracer: DeliveryTracer? = null,
     private val shutdownTimeoutMs: Long = 3000,
+    private val sessionSnapshotJournal: SessionSnapshotJournal? = null,
 ) : IntakeService {
 
     private val cachingTasks: MutableMap<SupportedEnvelopeType, Future<*>> = ConcurrentHashMap()
@@ -113,6 +116,10 @@ class IntakeServiceImpl(
         staleEntry: StoredTelemetryMetadata?,
     ) {
         try {
+            if (sessionSnapshotJournal != null && !metadata.complete && metadata.envelopeType == SESSION) {
+                sessionSnapshotJournal.append(metadata, intake as Envelope<SessionPartPayload>)
+                return
+            }
             val service = when {
                 metadata.complete -> payloadStorageService
                 else -> cacheStorageService
@@ -144,6 +151,9 @@ class IntakeServiceImpl(
                 }
 
             if (metadata.complete) {
+                if (metadata.envelopeType == SESSION) {
+                    sessionSnapshotJournal?.onSessionPartStored(metadata)
+                }
                 deliveryTracer?.onPayloadIntake(metadata)
                 if (state.get() == State.ACTIVE) {
                     schedulingService.onPayloadIntake()
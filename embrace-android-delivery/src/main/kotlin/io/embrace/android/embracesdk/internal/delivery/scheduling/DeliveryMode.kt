@@ -0,0 +1,28 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.internal.comms.api.Endpoint
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+
+/**
+ * Controls how many HTTP requests [SchedulingServiceImpl] can have in flight at the same time.
+ */
+sealed class DeliveryMode {
+
+    /**
+     * Payloads are handed to the delivery worker one at a time and are sent in the order they are scheduled, so a slow
+     * upload delays every payload queued behind it, regardless of its [Endpoint]. This is the default.
+     */
+    object Serial : DeliveryMode()
+
+    /**
+     * Each [Endpoint] can have up to [maxInFlightRequests] requests in flight, so a slow upload to one endpoint doesn't
+     * delay payloads bound for another, and each endpoint backs off independently when it is rate limited.
+     *
+     * Payloads of the same [SupportedEnvelopeType] are still delivered one at a time to preserve their ordering, so values
+     * greater than 1 only have an effect on endpoints that are shared by several envelope types. The delivery worker must
+     * have enough threads to run the requests concurrently.
+     */
+    class PerEndpoint(maxInFlightRequests: Int = 1) : DeliveryMode() {
+        val maxInFlightRequests: Int = maxInFlightRequests.coerceAtLeast(1)
+    }
+}
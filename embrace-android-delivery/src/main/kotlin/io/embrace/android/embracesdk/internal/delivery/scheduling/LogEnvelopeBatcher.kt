@@ -0,0 +1,82 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.LogPayload
+import io.embrace.android.embracesdk.internal.serialization.PlatformSerializer
+import java.io.OutputStream
+
+/**
+ * Coalesces stored [SupportedEnvelopeType.LOG] payloads into a single envelope so a backlog of logs can be delivered in
+ * fewer HTTP requests.
+ *
+ * Only payloads that share the resource and metadata of the first payload in a batch are merged, as those are sent once
+ * per envelope. Payloads that can't be loaded end the batch so they are handled by the regular single-payload path.
+ */
+class LogEnvelopeBatcher(
+    private val storageService: PayloadStorageService,
+    private val serializer: PlatformSerializer,
+    val maxBatchSize: Int,
+) {
+
+    /**
+     * Load the given payloads in order and merge as many of them as possible into a single envelope. Returns null if
+     * the first payload could not be loaded.
+     */
+    fun createBatch(payloads: List<StoredTelemetryMetadata>): LogBatch? {
+        val head = payloads.firstOrNull()?.let(::loadEnvelope) ?: return null
+        val included = mutableListOf(payloads.first())
+        val logs = head.data.logs.orEmpty().toMutableList()
+
+        for (payload in payloads.drop(1).take(maxBatchSize - 1)) {
+            val envelope = loadEnvelope(payload)
+            if (envelope == null || envelope.resource != head.resource || envelope.metadata != head.metadata) {
+                break
+            }
+            included.add(payload)
+            logs.addAll(envelope.data.logs.orEmpty())
+        }
+
+        return LogBatch(
+            payloads = included,
+            payloadTypesHeader = included
+                .flatMap { it.payloadTypesHeader.split(",") }
+                .distinct()
+                .joinToString(","),
+            envelope = head.copy(data = LogPayload(logs = logs)),
+            serializer = serializer,
+        )
+    }
+
+    private fun loadEnvelope(payload: StoredTelemetryMetadata): Envelope<LogPayload>? {
+        if (payload.envelopeType != SupportedEnvelopeType.LOG) {
+            return null
+        }
+        return try {
+            storageService.loadPayloadAsDecompressedStream(payload)?.use { stream ->
+                serializer.fromJson(stream, Envelope.logEnvelopeSerializer)
+            }
+        } catch (ignored: Exception) {
+            null
+        }
+    }
+
+    /**
+     * A set of stored payloads whose logs have been merged into a single envelope.
+     */
+    class LogBatch(
+        val payloads: List<StoredTelemetryMetadata>,
+        val payloadTypesHeader: String,
+        private val envelope: Envelope<LogPayload>,
+        private val serializer: PlatformSerializer,
+    ) {
+        /**
+         * Write the uncompressed JSON of the merged envelope to the stream.
+         */
+        fun writeTo(outputStream: OutputStream) {
+            serializer.toJson(envelope, Envelope.logEnvelopeSerializer, outputStream)
+        }
+    }
+}
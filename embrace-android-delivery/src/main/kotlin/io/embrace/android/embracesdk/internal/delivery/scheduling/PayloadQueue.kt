@@ -0,0 +1,77 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.StoredPayloadListener
+import io.embrace.android.embracesdk.internal.delivery.storedTelemetryComparator
+import java.util.NavigableSet
+import java.util.concurrent.ConcurrentSkipListSet
+
+/**
+ * An incrementally maintained index of payloads that are stored and waiting to be delivered.
+ *
+ * Payloads are bucketed by [SupportedEnvelopeType] and each bucket is kept in [storedTelemetryComparator] order, so the
+ * highest priority payload of a given type can be found in O(log n) without listing and sorting everything that is
+ * on disk. The index is kept in sync with the storage layer through [StoredPayloadListener] callbacks, which can be
+ * invoked from any thread.
+ */
+internal class PayloadQueue : StoredPayloadListener {
+
+    private val payloadsByType: Map<SupportedEnvelopeType, NavigableSet<StoredTelemetryMetadata>> =
+        SupportedEnvelopeType.entries.associateWith { ConcurrentSkipListSet(storedTelemetryComparator) }
+
+    override fun onPayloadStored(metadata: StoredTelemetryMetadata) {
+        payloadsByType.getValue(metadata.envelopeType).add(metadata)
+    }
+
+    override fun onPayloadRemoved(metadata: StoredTelemetryMetadata) {
+        remove(metadata)
+    }
+
+    /**
+     * Add payloads that were stored before this queue started listening to changes
+     */
+    fun addAll(payloads: List<StoredTelemetryMetadata>) {
+        payloads.forEach(::onPayloadStored)
+    }
+
+    /**
+     * Remove the payload from the queue so it is no longer considered for delivery
+     */
+    fun remove(metadata: StoredTelemetryMetadata) {
+        payloadsByType.getValue(metadata.envelopeType).remove(metadata)
+    }
+
+    fun contains(metadata: StoredTelemetryMetadata): Boolean =
+        payloadsByType.getValue(metadata.envelopeType).contains(metadata)
+
+    /**
+     * Returns the highest priority payload of the given type that satisfies [predicate]. Payloads are visited in priority
+     * order and the search stops at the first match, so callers should only reject payloads that are rarely at the head
+     * of the queue.
+     */
+    fun firstOfType(
+        envelopeType: SupportedEnvelopeType,
+        predicate: (StoredTelemetryMetadata) -> Boolean,
+    ): StoredTelemetryMetadata? = payloadsByType.getValue(envelopeType).firstOrNull(predicate)
+
+    /**
+     * Returns up to [limit] payloads of the same type that come after [metadata] in priority order. The search stops at the
+     * first payload that doesn't satisfy [predicate] so the returned payloads are contiguous.
+     */
+    fun payloadsAfter(
+        metadata: StoredTelemetryMetadata,
+        limit: Int,
+        predicate: (StoredTelemetryMetadata) -> Boolean,
+    ): List<StoredTelemetryMetadata> = payloadsByType.getValue(metadata.envelopeType)
+        .tailSet(metadata, false)
+        .asSequence()
+        .takeWhile(predicate)
+        .take(limit)
+        .toList()
+
+    /**
+     * Returns a copy of all the payloads in the queue in priority order. This is O(n) and should only be used for debugging.
+     */
+    fun snapshot(): List<StoredTelemetryMetadata> = payloadsByType.values.flatten()
+}
@@ -9,14 +9,13 @@ import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.delivery.execution.ExecutionResult
 import io.embrace.android.embracesdk.internal.delivery.execution.RequestExecutionService
 import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
-import io.embrace.android.embracesdk.internal.delivery.storedTelemetryComparator
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
 import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
-import java.io.InputStream
 import java.net.ConnectException
 import java.net.NoRouteToHostException
 import java.net.UnknownHostException
+import java.nio.channels.ReadableByteChannel
 import java.util.Collections
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ScheduledFuture
@@ -34,15 +33,17 @@ class SchedulingServiceImpl(
     private val clock: Clock,
     private val logger: InternalLogger,
     private val deliveryTracer: DeliveryTracer? = null,
+    private val deliveryMode: DeliveryMode = DeliveryMode.Serial,
+    private val logEnvelopeBatcher: LogEnvelopeBatcher? = null,
 ) : SchedulingService {
 
     private val blockedEndpoints: MutableMap<Endpoint, Long> = ConcurrentHashMap()
     private val connectionStatus = ConnectionStatus(clock)
     private val activeSends: MutableSet<StoredTelemetryMetadata> = Collections.newSetFromMap(ConcurrentHashMap())
-    private val deleteInProgress: MutableSet<StoredTelemetryMetadata> = Collections.newSetFromMap(ConcurrentHashMap())
     private val payloadsToRetry: MutableMap<StoredTelemetryMetadata, RetryInstance> = ConcurrentHashMap()
     private val resurrectionComplete = AtomicBoolean(false)
     private val payloadsInProgress = ConcurrentHashMap<SupportedEnvelopeType, StoredTelemetryMetadata>()
+    private val requestsInFlight = ConcurrentHashMap<Endpoint, Int>()
     private val intakeDeliveryPending = AtomicBoolean(false)
     private val scheduledDeliveryAttempt: ScheduledDeliveryAttempt = ScheduledDeliveryAttempt(
         clock = clock,
@@ -50,6 +51,11 @@ class SchedulingServiceImpl(
         worker = schedulingWorker,
     )
 
+    // Payloads on disk are indexed incrementally as they are stored and deleted, so the queue is only seeded from the
+    // storage service once on the scheduling thread, at which point payloads persisted in previous app instances are loaded.
+    private val payloadQueue = PayloadQueue().also(storageService::addStoredPayloadListener)
+    private var payloadQueueSeeded = false
+
     override fun onPayloadIntake() {
         // We only need to schedule a delivery queuing if one wasn't already scheduled.
         // If one were scheduled, it will trigger a new delivery when it's complete.
@@ -121,15 +127,22 @@ class SchedulingServiceImpl(
 
     /**
      * Find the next eligible payload with the highest priority and attempt to deliver it if the connection is ready.
+     *
+     * In [DeliveryMode.PerEndpoint], keep dispatching payloads until every endpoint is either at capacity or has nothing
+     * eligible to send, so that each endpoint drains independently.
      */
     private fun findAndDeliverNextPayload() {
         try {
             connectionStatus.unblockIfWaitTimeExceeded(clock.now())
-            if (connectionStatus.ready()) {
-                findNextPayload()?.let { payload ->
-                    payload.envelopeType.endpoint.updateBlockedEndpoint()
-                    payloadsInProgress[payload.envelopeType] = payload
-                    executeDelivery(payload)
+            while (connectionStatus.ready()) {
+                val payload = findNextPayload() ?: break
+                val endpoint = payload.envelopeType.endpoint
+                endpoint.updateBlockedEndpoint()
+                payloadsInProgress[payload.envelopeType] = payload
+                requestsInFlight.merge(endpoint, 1, Int::plus)
+                executeDelivery(payload, payload.findBatchCandidates())
+                if (deliveryMode == DeliveryMode.Serial) {
+                    break
                 }
             }
         } catch (t: Throwable) {
@@ -138,55 +151,114 @@ class SchedulingServiceImpl(
     }
 
     private fun findNextPayload(): StoredTelemetryMetadata? {
-        val payloadsByPriority = storageService.getPayloadsByPriority()
-        reconcileRetryState(payloadsByPriority)
-        val payloadToSend = payloadsByPriority
-            .filter { !connectionStatus.isPayloadBlocked(it) && it.eligibleForSending() }
-            .sortedWith(storedTelemetryComparator)
-            .firstOrNull()
+        if (!payloadQueueSeeded) {
+            payloadQueue.addAll(storageService.getPayloadsByPriority())
+            payloadQueueSeeded = true
+        }
+        var payloadToSend: StoredTelemetryMetadata? = null
+        for (envelopeType in SupportedEnvelopeType.entries) {
+            payloadToSend = findNextPayloadOfType(envelopeType)
+            if (payloadToSend != null) {
+                break
+            }
+        }
         deliveryTracer?.onFindNextPayload(
-            payloadsByPriority,
+            payloadQueue.snapshot(),
             payloadToSend,
         )
         return payloadToSend
     }
 
+    /**
+     * Find the highest priority payload of the given type that is eligible to be sent. If a payload of this type is already in
+     * progress, it is the only candidate, so at most one payload per envelope type is being delivered or waiting to be retried.
+     */
+    private fun findNextPayloadOfType(envelopeType: SupportedEnvelopeType): StoredTelemetryMetadata? {
+        if (envelopeType != SupportedEnvelopeType.CRASH && !resurrectionComplete.get()) {
+            return null
+        }
+
+        if (envelopeType.endpoint.isBlocked() || !envelopeType.endpoint.hasDeliveryCapacity()) {
+            return null
+        }
+
+        val activePayload = payloadsInProgress[envelopeType]
+        if (activePayload != null) {
+            if (activeSends.contains(activePayload) || payloadQueue.contains(activePayload)) {
+                return activePayload.takeIf { it.eligibleForSending() }
+            }
+            reconcileRetryState(activePayload)
+        }
+        return payloadQueue.firstOfType(envelopeType) { it.eligibleForSending() }
+    }
+
     /**
      * Payloads can be removed from disk by the storage layer (e.g. age/count-based pruning) without
-     * [processDeliveryResult] ever running. Drop any entries that are no longer around
-     * to free up memory.
+     * [processDeliveryResult] ever running. Drop the state of such a payload so it doesn't block others of the same type
+     * and to free up memory.
      */
-    private fun reconcileRetryState(payloadsOnDisk: List<StoredTelemetryMetadata>) {
-        if (payloadsToRetry.isEmpty()) {
-            return
+    private fun reconcileRetryState(orphaned: StoredTelemetryMetadata) {
+        payloadsToRetry.remove(orphaned)
+        payloadsInProgress.remove(orphaned.envelopeType, orphaned)
+    }
+
+    /**
+     * Find the payloads that can be sent in the same request as the given payload if log batching is enabled. These are
+     * the eligible log payloads immediately following it in priority order that aren't waiting to be retried.
+     */
+    private fun StoredTelemetryMetadata.findBatchCandidates(): List<StoredTelemetryMetadata> {
+        val batcher = logEnvelopeBatcher
+        if (batcher == null || envelopeType != SupportedEnvelopeType.LOG) {
+            return emptyList()
         }
-        val onDisk = payloadsOnDisk.toHashSet()
-        payloadsToRetry.keys.filterNot(onDisk::contains).forEach { orphaned ->
-            payloadsToRetry.remove(orphaned)
-            payloadsInProgress.remove(orphaned.envelopeType, orphaned)
+        return payloadQueue.payloadsAfter(this, batcher.maxBatchSize - 1) {
+            !payloadsToRetry.containsKey(it) && it.eligibleForSending()
         }
     }
 
     /**
      * Attempt payload delivery on worker thread. Handle connection blocking up execution attempt completing, but defer to the scheduling
      * worker to handle further scheduling.
+     *
+     * If [batchCandidates] is not empty, as many of them as possible will be merged with [payload] and sent in the same request.
+     * The result of that request applies to every payload in the batch, but only [payload] is tracked for retries, so the
+     * others are simply released and batched again behind it on the next attempt.
      */
-    private fun executeDelivery(payload: StoredTelemetryMetadata) {
+    private fun executeDelivery(
+        payload: StoredTelemetryMetadata,
+        batchCandidates: List<StoredTelemetryMetadata>,
+    ) {
         deliveryTracer?.onExecuteDelivery(payload)
         activeSends.add(payload)
+        activeSends.addAll(batchCandidates)
         deliveryWorker.submit {
+            var batchedPayloads = emptyList<StoredTelemetryMetadata>()
+
             // Do not execute if the network isn't ready
             val result: ExecutionResult = if (!connectionStatus.ready()) {
                 ExecutionResult.NetworkNotReady
             } else {
                 try {
-                    payload.toStream()?.use { stream ->
-                        executionService.attemptHttpRequest(
-                            payloadStream = { stream },
+                    val batch = when {
+                        batchCandidates.isEmpty() -> null
+                        else -> logEnvelopeBatcher?.createBatch(listOf(payload) + batchCandidates)
+                    }
+                    if (batch != null && batch.payloads.size > 1) {
+                        batchedPayloads = batch.payloads.drop(1)
+                        executionService.attemptBatchHttpRequest(
+                            payloadWriter = batch::writeTo,
                             envelopeType = payload.envelopeType,
-                            payloadType = payload.payloadTypesHeader,
+                            payloadType = batch.payloadTypesHeader,
                         )
-                    } ?: ExecutionResult.NotAttempted
+                    } else {
+                        payload.toChannel()?.use { channel ->
+                            executionService.attemptHttpRequest(
+                                payloadChannel = channel,
+                                envelopeType = payload.envelopeType,
+                                payloadType = payload.payloadTypesHeader,
+                            )
+                        } ?: ExecutionResult.NotAttempted
+                    }
                 } catch (t: Throwable) {
                     logger.trackInternalError(InternalErrorType.DeliverySchedulingFail, t)
                     ExecutionResult.Incomplete(exception = t, retry = false)
@@ -201,6 +273,8 @@ class SchedulingServiceImpl(
             // Allow the scheduling thread to process the execution results
             schedulingWorker.submit {
                 deliveryTracer?.onProcessingDeliveryResult(payload, result)
+                result.processBatchedPayloads(batchedPayloads)
+                batchCandidates.forEach(activeSends::remove)
                 result.processDeliveryResult(payload)
             }
         }
@@ -212,6 +286,10 @@ class SchedulingServiceImpl(
     private fun ExecutionResult.processDeliveryResult(
         payload: StoredTelemetryMetadata,
     ) {
+        requestsInFlight.computeIfPresent(payload.envelopeType.endpoint) { _, count ->
+            (count - 1).takeIf { it > 0 }
+        }
+
         // If the request failed because the SDK cannot reach the Embrace server, schedule a delivery for when the connection unblocks.
         // At that time, the scheduler will determine what that payload is.
         if (failedToConnect()) {
@@ -229,15 +307,11 @@ class SchedulingServiceImpl(
             // If the response is such that we should not ever retry the delivery of this payload,
             // delete it from both the in memory retry payloads map and on disk
             payloadsToRetry.remove(payload)
-            deleteInProgress.add(payload)
-            storageService.delete(payload) {
-                // Remove delete flag on scheduling thread once the storage system finishes deletion
-                // Doing it prematurely leads to a to-be-deleted payload seeming like it's eligible to be sent.
-                // Trying to do so will lead to a failure when we attempt to do so, but the payload is not found
-                schedulingWorker.submit {
-                    deleteInProgress.remove(payload)
-                }
-            }
+            // Remove the payload from the queue right away rather than waiting for the storage system to finish deletion.
+            // Otherwise a to-be-deleted payload would seem like it's eligible to be sent, which will lead to a failure
+            // when we attempt to do so, but the payload is not found
+            payloadQueue.remove(payload)
+            storageService.delete(payload)
         } else {
             // If delivery of this payload should be retried, add or replace the entry in the retry map
             // with the new values for how many times it has failed, and when the next retry should happen
@@ -275,25 +349,27 @@ class SchedulingServiceImpl(
     }
 
     /**
-     * Whether the given payload is eligible to be delivered based on the state of the connection, delivery, and undelivered payloads.
+     * Delete payloads that were sent in the same request as the payload whose result is processed by [processDeliveryResult]
+     * if that payload won't be retried. This must be done before the next payload is chosen so they aren't sent again.
      */
-    private fun StoredTelemetryMetadata.eligibleForSending(): Boolean {
-        // determine if the given payload is eligible to be sent
-        // i.e. not already being sent, endpoint not blocked by 429, and isn't waiting to be retried
-        if (activeSends.contains(this) || deleteInProgress.contains(this)) {
-            return false
-        }
-
-        if (isEndpointBlocked()) {
-            return false
+    private fun ExecutionResult.processBatchedPayloads(payloads: List<StoredTelemetryMetadata>) {
+        if (failedToConnect() || this is ExecutionResult.NetworkNotReady || shouldRetry) {
+            return
         }
-
-        if (envelopeType != SupportedEnvelopeType.CRASH && !resurrectionComplete.get()) {
-            return false
+        payloads.forEach { payload ->
+            payloadQueue.remove(payload)
+            storageService.delete(payload)
         }
+    }
 
-        val activePayload = payloadsInProgress[envelopeType]
-        if (activePayload != null && activePayload != this) {
+    /**
+     * Whether the given payload is eligible to be delivered based on the state of the connection, delivery, and undelivered payloads.
+     */
+    private fun StoredTelemetryMetadata.eligibleForSending(): Boolean {
+        // determine if the given payload is eligible to be sent
+        // i.e. not already being sent, not blocked by the connection, and isn't waiting to be retried.
+        // Checks that apply to the whole envelope type are done in findNextPayloadOfType()
+        if (activeSends.contains(this) || connectionStatus.isPayloadBlocked(this)) {
             return false
         }
 
@@ -302,13 +378,18 @@ class SchedulingServiceImpl(
         } ?: true
     }
 
-    private fun StoredTelemetryMetadata.toStream(): InputStream? = storageService.loadPayloadAsStream(this)
+    private fun StoredTelemetryMetadata.toChannel(): ReadableByteChannel? = storageService.loadPayloadAsChannel(this)
 
-    private fun StoredTelemetryMetadata.isEndpointBlocked(): Boolean =
-        blockedEndpoints[envelopeType.endpoint]?.let { timestampMs ->
+    private fun Endpoint.isBlocked(): Boolean =
+        blockedEndpoints[this]?.let { timestampMs ->
             timestampMs > clock.now()
         } ?: false
 
+    private fun Endpoint.hasDeliveryCapacity(): Boolean = when (deliveryMode) {
+        DeliveryMode.Serial -> true
+        is DeliveryMode.PerEndpoint -> (requestsInFlight[this] ?: 0) < deliveryMode.maxInFlightRequests
+    }
+
     private fun Endpoint.updateBlockedEndpoint() {
         blockedEndpoints[this]?.let {
             if (it <= clock.now()) {
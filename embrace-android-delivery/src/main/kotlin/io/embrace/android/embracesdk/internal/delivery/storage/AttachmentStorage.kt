@@ -1,16 +1,104 @@
 package io.embrace.android.embracesdk.internal.delivery.storage
 
+import java.io.ByteArrayInputStream
+import java.io.IOException
 import java.io.InputStream
 import java.io.OutputStream
+import java.io.SequenceInputStream
+import java.util.UUID
 
+private const val SEND_READY_PREFIX = "emb-multipart:"
+private const val MAX_HEADER_LENGTH = 128
+private const val CRLF = "\r\n"
+
+/**
+ * How an attachment was stored on disk.
+ */
+sealed class StoredAttachment {
+
+    /**
+     * The attachment is stored as the multipart form parts that are sent to the attachments endpoint, apart from the
+     * app_id part. The stream is positioned at the start of the parts, so they can be copied into the request as-is.
+     */
+    class SendReady(val boundary: String) : StoredAttachment()
+
+    /**
+     * The attachment was stored gzipped by an older version of the SDK and must be read with [loadAttachment].
+     */
+    class Gzipped(val stream: InputStream) : StoredAttachment()
+}
+
+/**
+ * Stores an attachment in a send-ready format: a header line that holds the multipart boundary, followed by the
+ * attachment_id and file parts and the closing boundary exactly as they are sent over the wire.
+ */
 fun storeAttachment(stream: OutputStream, attachment: ByteArray, id: String) {
+    val boundary = UUID.randomUUID().toString()
+    val idBytes = id.toByteArray()
     stream.use {
-        it.write(id.toByteArray())
-        it.write("\n".toByteArray())
+        it.write("$SEND_READY_PREFIX$boundary\n".toByteArray())
+        it.write(createFormPartHeader(boundary, "attachment_id", idBytes.size.toLong()))
+        it.write(idBytes)
+        it.write(CRLF.toByteArray())
+        it.write(createFormPartHeader(boundary, "file", attachment.size.toLong(), filename = "file"))
         it.write(attachment)
+        it.write(CRLF.toByteArray())
+        it.write("--$boundary--$CRLF".toByteArray())
+    }
+}
+
+/**
+ * Reads the header of a stored attachment. The stream is read one byte at a time so that nothing past the header is
+ * consumed, which means a stream over a file channel is left positioned at the start of the multipart parts.
+ */
+fun readStoredAttachment(stream: InputStream): StoredAttachment {
+    val first = stream.read()
+    if (first == -1) {
+        throw IOException("Empty attachment")
+    }
+    if (first != SEND_READY_PREFIX[0].code) {
+        return StoredAttachment.Gzipped(SequenceInputStream(ByteArrayInputStream(byteArrayOf(first.toByte())), stream))
+    }
+    val header = StringBuilder().append(first.toChar())
+    while (header.length < MAX_HEADER_LENGTH) {
+        when (val next = stream.read()) {
+            -1 -> throw IOException("Truncated attachment header")
+            '\n'.code -> {
+                if (!header.startsWith(SEND_READY_PREFIX)) {
+                    throw IOException("Unrecognized attachment header")
+                }
+                return StoredAttachment.SendReady(header.substring(SEND_READY_PREFIX.length))
+            }
+
+            else -> header.append(next.toChar())
+        }
+    }
+    throw IOException("Attachment header too long")
+}
+
+/**
+ * Creates a complete multipart form part that holds [value].
+ */
+fun createFormPart(boundary: String, name: String, value: String): ByteArray {
+    val bytes = value.toByteArray()
+    return createFormPartHeader(boundary, name, bytes.size.toLong()) + bytes + CRLF.toByteArray()
+}
+
+/**
+ * Creates the delimiter and headers that precede the body of a multipart form part. These match what
+ * [okhttp3.MultipartBody] writes for a part without a content type.
+ */
+private fun createFormPartHeader(boundary: String, name: String, length: Long, filename: String? = null): ByteArray {
+    val disposition = when (filename) {
+        null -> "form-data; name=\"$name\""
+        else -> "form-data; name=\"$name\"; filename=\"$filename\""
     }
+    return "--$boundary${CRLF}Content-Disposition: $disposition${CRLF}Content-Length: $length$CRLF$CRLF".toByteArray()
 }
 
+/**
+ * Reads an attachment that was stored by an older version of the SDK, after it has been decompressed.
+ */
 fun loadAttachment(stream: InputStream): Pair<ByteArray, String>? {
     stream.use {
         val contents = it.readBytes()
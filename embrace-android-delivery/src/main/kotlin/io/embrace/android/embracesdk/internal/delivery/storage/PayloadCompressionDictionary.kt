@@ -0,0 +1,104 @@
+@file:OptIn(ExperimentalSemconv::class)
+
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.semconv.EmbAppAttributes
+import io.embrace.android.embracesdk.semconv.EmbCommonAttributes
+import io.embrace.android.embracesdk.semconv.EmbSessionAttributes
+import io.embrace.android.embracesdk.semconv.EmbSpanAttributes
+import io.embrace.android.embracesdk.semconv.EmbStateTransitionAttributes
+import io.embrace.android.embracesdk.semconv.EmbTelemetryAttributes
+import io.embrace.android.embracesdk.semconv.ExperimentalSemconv
+
+/**
+ * A preset dictionary for [PayloadCompression] made up of the JSON fragments that appear in almost every session part
+ * snapshot: envelope and resource keys, span fields, and the keys of the attributes the SDK adds to session part spans.
+ *
+ * Deflate encodes matches that are closer to the end of the dictionary more cheaply, so the fragments that repeat the
+ * most are placed last. Changing the contents changes the dictionary's checksum, after which payloads compressed with
+ * the previous dictionary can no longer be read. Only cached snapshots are compressed with it, so that is limited to
+ * the snapshots left behind when the SDK is updated.
+ */
+object PayloadCompressionDictionary {
+
+    private val resourceKeys = listOf(
+        "app_version", "app_framework", "build_id", "app_ecosystem_id", "build_type", "build_flavor", "environment",
+        "bundle_version", "sdk_version", "sdk_simple_version", "device_manufacturer", "device_model",
+        "device_architecture", "jailbroken", "disk_total_capacity", "os_type", "os_name", "os_version", "os_code",
+        "screen_resolution", "num_cores", "device_soc_model", "uses_emmc_storage",
+    )
+
+    private val attributeKeys = listOf(
+        EmbTelemetryAttributes.EMB_IS_EMULATOR,
+        EmbTelemetryAttributes.EMB_KOTLIN_ON_CLASSPATH,
+        EmbAppAttributes.EMB_APP_VERSION_STARTUP_COUNTER,
+        EmbCommonAttributes.EMB_MANUAL_INSTRUMENTATION,
+        EmbSpanAttributes.EMB_ERROR_CODE,
+        EmbSpanAttributes.EMB_PRIVATE,
+        EmbStateTransitionAttributes.EMB_STATE_INITIAL_VALUE,
+        EmbStateTransitionAttributes.EMB_STATE_NEW_VALUE,
+        EmbStateTransitionAttributes.EMB_STATE_TRANSITION_COUNT,
+        EmbSessionAttributes.EMB_USER_SESSION_INACTIVITY_TIMEOUT_SECONDS,
+        EmbSessionAttributes.EMB_USER_SESSION_MAX_DURATION_SECONDS,
+        EmbSessionAttributes.EMB_USER_SESSION_TERMINATION_REASON,
+        EmbSessionAttributes.EMB_USER_SESSION_START_TS,
+        EmbSessionAttributes.EMB_USER_SESSION_PART_INDEX,
+        EmbSessionAttributes.EMB_USER_SESSION_NUMBER,
+        EmbSessionAttributes.EMB_USER_SESSION_ID,
+        EmbSessionAttributes.EMB_STARTUP_ACTIVITY,
+        EmbSessionAttributes.EMB_STARTUP_DURATION,
+        EmbSessionAttributes.EMB_CLOCK_GNSS_DRIFT,
+        EmbSessionAttributes.EMB_CLOCK_NETWORK_DRIFT,
+        EmbSessionAttributes.EMB_DISK_FREE_BYTES,
+        EmbSessionAttributes.EMB_ERROR_LOG_COUNT,
+        EmbSessionAttributes.EMB_IS_BACKGROUND_ONLY_PART,
+        EmbSessionAttributes.EMB_IS_FINAL_SESSION_PART,
+        EmbSessionAttributes.EMB_PRIVATE_SEND_MODE,
+        EmbSessionAttributes.EMB_SESSION_START_TYPE,
+        EmbSessionAttributes.EMB_SESSION_END_TYPE,
+        EmbSessionAttributes.EMB_SESSION_NUMBER,
+        EmbSessionAttributes.EMB_SESSION_PART_NUMBER,
+        EmbSessionAttributes.EMB_SESSION_PART_ID,
+        EmbSessionAttributes.EMB_PROCESS_IDENTIFIER,
+        EmbSessionAttributes.EMB_CLEAN_EXIT,
+        EmbSessionAttributes.EMB_COLD_START,
+        EmbSessionAttributes.EMB_TERMINATED,
+        EmbSessionAttributes.EMB_STATE,
+        EmbSessionAttributes.EMB_HEARTBEAT_TIME_UNIX_NANO,
+        "emb.type",
+    )
+
+    private val spanFragments = listOf(
+        "\"span_snapshots\":[",
+        "\"spans\":[",
+        "\"events\":[],",
+        "\"links\":[",
+        "\"status\":\"Unset\",",
+        "\"status\":\"Ok\",",
+        "\"status\":\"Error\",",
+        "\"parent_span_id\":\"0000000000000000\",",
+        "\"end_time_unix_nano\":",
+        "\"start_time_unix_nano\":",
+        "\"time_unix_nano\":",
+        "\"name\":\"",
+        "\"trace_id\":\"",
+        "\"span_id\":\"",
+        "\"parent_span_id\":\"",
+        "\"attributes\":[",
+        "\",\"value\":\"",
+        "{\"key\":\"",
+    )
+
+    /**
+     * The dictionary bytes. Callers must not modify the array.
+     */
+    val bytes: ByteArray by lazy {
+        buildString {
+            append("{\"resource\":{")
+            resourceKeys.forEach { append("\"").append(it).append("\":\"") }
+            append("\"metadata\":{},\"version\":\"0.1.0\",\"type\":\"spans\",\"data\":{")
+            attributeKeys.forEach { append("{\"key\":\"").append(it).append("\",\"value\":\"") }
+            spanFragments.forEach(::append)
+        }.toByteArray()
+    }
+}
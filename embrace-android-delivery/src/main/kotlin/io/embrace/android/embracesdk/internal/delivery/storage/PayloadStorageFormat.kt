@@ -0,0 +1,18 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+/**
+ * How payloads are laid out on disk by [PayloadStorageServiceImpl]
+ */
+enum class PayloadStorageFormat {
+
+    /**
+     * Each payload is written to its own file
+     */
+    FILE_PER_PAYLOAD,
+
+    /**
+     * Payloads are appended to a small number of segment files, which are kept in a sibling of the directory used by
+     * [FILE_PER_PAYLOAD] storage.
+     */
+    SEGMENTED,
+}
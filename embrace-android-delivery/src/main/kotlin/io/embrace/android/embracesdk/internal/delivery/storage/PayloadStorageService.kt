@@ -2,6 +2,8 @@ package io.embrace.android.embracesdk.internal.delivery.storage
 
 import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
 import java.io.InputStream
+import java.nio.channels.Channels
+import java.nio.channels.ReadableByteChannel
 
 /**
  * Stores a completed payload to disk. This service makes several assumptions around threading
@@ -31,6 +33,19 @@ interface PayloadStorageService {
      */
     fun loadPayloadAsStream(metadata: StoredTelemetryMetadata): InputStream?
 
+    /**
+     * Loads a payload as a [ReadableByteChannel] with the same contents as [loadPayloadAsStream]. Where possible this is
+     * a [java.nio.channels.FileChannel], whose size is known up front and which needs no stream wrapper to be read.
+     */
+    fun loadPayloadAsChannel(metadata: StoredTelemetryMetadata): ReadableByteChannel? =
+        loadPayloadAsStream(metadata)?.let(Channels::newChannel)
+
+    /**
+     * Loads a payload as an [InputStream] that returns the uncompressed bytes that were written in [store]
+     */
+    fun loadPayloadAsDecompressedStream(metadata: StoredTelemetryMetadata): InputStream? =
+        loadPayloadAsStream(metadata)?.let(::PooledGzipInputStream)
+
     /**
      * Return stored payloads as a list sorted in priority order
      */
@@ -40,4 +55,10 @@ interface PayloadStorageService {
      * Return cached payloads from previous app instances
      */
     fun getUndeliveredPayloads(): List<StoredTelemetryMetadata>
+
+    /**
+     * Registers a listener that is notified whenever a payload is stored or removed, including removals made
+     * internally to enforce storage limits
+     */
+    fun addStoredPayloadListener(listener: StoredPayloadListener)
 }
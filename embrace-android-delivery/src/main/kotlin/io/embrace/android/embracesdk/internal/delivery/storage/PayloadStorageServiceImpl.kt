@@ -2,44 +2,140 @@ package io.embrace.android.embracesdk.internal.delivery.storage
 
 import io.embrace.android.embracesdk.internal.clock.Clock
 import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
 import io.embrace.android.embracesdk.internal.delivery.debug.DeliveryTracer
 import io.embrace.android.embracesdk.internal.delivery.storedTelemetryComparator
+import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.internal.worker.PriorityWorker
 import java.io.File
 import java.io.InputStream
-import java.util.zip.GZIPOutputStream
+import java.nio.channels.ReadableByteChannel
 
 /**
  * Implementation of [PayloadStorageService] that will persist and load payloads as gzipped bytes streams.
  * Callers of the [store] method are expected to pass in a [SerializationAction] that streams back uncompressed bytes,
- * while the callers of [loadPayloadAsStream] should expect the bytes from the stream to be gzipped.
+ * while the callers of [loadPayloadAsStream] should expect the bytes from the stream to be gzipped, unless a
+ * [PayloadCompression] with a dictionary was supplied. [loadPayloadAsDecompressedStream] handles either format.
+ *
+ * Attachments are the exception: they are stored uncompressed, as they are written in the send-ready format of
+ * [storeAttachment].
+ *
+ * [PayloadStorageFormat.FILE_PER_PAYLOAD] stores payloads in [outputDir], while [PayloadStorageFormat.SEGMENTED] stores
+ * them in a sibling directory. Payloads left behind in the directory of the other format are moved over the first time
+ * stored payloads are listed, so switching formats doesn't lose anything that was waiting to be sent.
  */
 class PayloadStorageServiceImpl(
-    outputDir: Lazy<File>,
-    worker: PriorityWorker<StoredTelemetryMetadata>,
+    private val outputDir: Lazy<File>,
+    private val worker: PriorityWorker<StoredTelemetryMetadata>,
     private val processIdProvider: () -> String,
-    logger: InternalLogger,
-    clock: Clock,
+    private val logger: InternalLogger,
+    private val clock: Clock,
     private val deliveryTracer: DeliveryTracer? = null,
-    storageLimit: Int = 500,
+    private val storageLimit: Int = 500,
+    storageFormat: PayloadStorageFormat = PayloadStorageFormat.FILE_PER_PAYLOAD,
+    private val compression: PayloadCompression = PayloadCompression(),
+    private val storageBudget: StorageBudget = StorageBudget(),
+    telemetryService: TelemetryService? = null,
 ) : PayloadStorageService {
 
-    private val fileStorageService: FileStorageService = FileStorageServiceImpl(
-        outputDir,
-        worker,
-        logger,
-        clock,
-        storageLimit,
-    )
+    private val segmentDir: Lazy<File> = lazy { outputDir.value.resolveSibling("${outputDir.value.name}$SEGMENT_DIR_SUFFIX") }
+
+    private val fileStorageService: FileStorageService = createFileStorageService(storageFormat, telemetryService)
+
+    private val previousFormat = when (storageFormat) {
+        PayloadStorageFormat.FILE_PER_PAYLOAD -> PayloadStorageFormat.SEGMENTED
+        PayloadStorageFormat.SEGMENTED -> PayloadStorageFormat.FILE_PER_PAYLOAD
+    }
+    private val previousDir = when (previousFormat) {
+        PayloadStorageFormat.FILE_PER_PAYLOAD -> outputDir
+        PayloadStorageFormat.SEGMENTED -> segmentDir
+    }
+
+    private val migrationLock = Any()
+
+    @Volatile
+    private var migrated = false
+
+    private fun createFileStorageService(
+        format: PayloadStorageFormat,
+        telemetryService: TelemetryService?,
+    ): FileStorageService = when (format) {
+        PayloadStorageFormat.FILE_PER_PAYLOAD -> FileStorageServiceImpl(
+            outputDir,
+            worker,
+            logger,
+            clock,
+            storageLimit,
+            budget = storageBudget,
+            telemetryService = telemetryService,
+        )
+        PayloadStorageFormat.SEGMENTED -> SegmentedFileStorageService(
+            segmentDir,
+            worker,
+            logger,
+            clock,
+            storageLimit,
+            budget = storageBudget,
+            telemetryService = telemetryService,
+        )
+    }
+
+    /**
+     * Moves any payloads stored in the format that isn't in use over to [fileStorageService] the first time this is
+     * called. The stored bytes are copied as-is, so they don't need to be decompressed. A payload is only removed from
+     * the previous format once its copy is stored, so any that fail to copy, e.g. because the disk is full, are tried
+     * again on the next launch. The directory of the previous format is removed once nothing is left in it.
+     */
+    private fun migratePreviousFormat() {
+        if (migrated) {
+            return
+        }
+        synchronized(migrationLock) {
+            if (!migrated) {
+                try {
+                    migratePayloads(previousDir.value)
+                } catch (exc: Throwable) {
+                    logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+                }
+                migrated = true
+            }
+        }
+    }
+
+    private fun migratePayloads(dir: File) {
+        if (dir.listFiles().isNullOrEmpty()) {
+            return
+        }
+        val previous = createFileStorageService(previousFormat, null)
+        val payloads = previous.getStoredPayloads()
+        // payloads that can't be read are dropped along with the directory
+        val failed = payloads.filter { metadata ->
+            val copied = previous.loadPayloadAsStream(metadata)?.use { input ->
+                fileStorageService.store(metadata) { input.copyTo(it) }
+                fileStorageService.getStoredPayloads().contains(metadata)
+            }
+            copied == false
+        }
+        if (failed.isEmpty()) {
+            dir.deleteRecursively()
+        } else {
+            (payloads - failed.toSet()).forEach { previous.delete(it) }
+        }
+    }
 
     /**
-     * [SerializationAction] is expected to return bytes that are not compressed, and they will be gzipped before
-     * being persisted.
+     * [SerializationAction] is expected to return bytes that are not compressed, and they will be compressed with
+     * [compression] before being persisted.
      */
     override fun store(metadata: StoredTelemetryMetadata, action: SerializationAction) {
         fileStorageService.store(metadata) { stream ->
-            GZIPOutputStream(stream).use(action)
+            when (metadata.envelopeType) {
+                // attachments are stored as the multipart body that is sent, which is not gzipped on the wire
+                SupportedEnvelopeType.ATTACHMENT -> action(stream)
+                else -> compression.compress(stream).use(action)
+            }
         }
         deliveryTracer?.onStore(metadata)
     }
@@ -59,17 +155,37 @@ class PayloadStorageServiceImpl(
         }
     }
 
+    override fun loadPayloadAsDecompressedStream(metadata: StoredTelemetryMetadata): InputStream? {
+        return loadPayloadAsStream(metadata)?.let(compression::decompress)
+    }
+
+    override fun loadPayloadAsChannel(metadata: StoredTelemetryMetadata): ReadableByteChannel? {
+        return fileStorageService.loadPayloadAsChannel(metadata).apply {
+            deliveryTracer?.onLoadPayloadAsStream(this != null)
+        }
+    }
+
     override fun getPayloadsByPriority(): List<StoredTelemetryMetadata> {
+        migratePreviousFormat()
         return fileStorageService.getStoredPayloads().sortedWith(storedTelemetryComparator).apply {
             deliveryTracer?.onGetPayloadsByPriority(this)
         }
     }
 
     override fun getUndeliveredPayloads(): List<StoredTelemetryMetadata> {
+        migratePreviousFormat()
         return fileStorageService.getStoredPayloads().sortedWith(storedTelemetryComparator)
             .filter { !it.complete && it.processIdentifier != processIdProvider() }
             .toList().apply {
                 deliveryTracer?.onGetUndeliveredPayloads(this)
             }
     }
+
+    override fun addStoredPayloadListener(listener: StoredPayloadListener) {
+        fileStorageService.addStoredPayloadListener(listener)
+    }
+
+    private companion object {
+        const val SEGMENT_DIR_SUFFIX = "_segments"
+    }
 }
@@ -0,0 +1,40 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+
+/**
+ * Persists snapshots of the in-progress session part as a journal of changes, so each periodic snapshot only writes
+ * what changed since the previous one rather than the whole payload.
+ *
+ * Journals left behind by previous app instances are rebuilt into full payloads on demand when they are resurrected.
+ */
+interface SessionSnapshotJournal {
+
+    /**
+     * Records a snapshot of the in-progress session part described by [metadata]
+     */
+    fun append(metadata: StoredTelemetryMetadata, envelope: Envelope<SessionPartPayload>)
+
+    /**
+     * Discards the journal of the in-progress session part as a complete payload for it has been stored
+     */
+    fun onSessionPartStored(metadata: StoredTelemetryMetadata)
+
+    /**
+     * Return the latest snapshot of each session part journaled by previous app instances
+     */
+    fun getUndeliveredSnapshots(): List<StoredTelemetryMetadata>
+
+    /**
+     * Rebuilds the full session part from the journal of a snapshot returned by [getUndeliveredSnapshots]. Returns null
+     * if the journal is unknown or has no readable snapshot.
+     */
+    fun loadSnapshot(metadata: StoredTelemetryMetadata): Envelope<SessionPartPayload>?
+
+    /**
+     * Deletes the journal of a snapshot returned by [getUndeliveredSnapshots]
+     */
+    fun delete(metadata: StoredTelemetryMetadata)
+}
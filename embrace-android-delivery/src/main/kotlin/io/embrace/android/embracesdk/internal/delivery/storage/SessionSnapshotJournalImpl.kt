@@ -0,0 +1,198 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.logging.InternalErrorType
+import io.embrace.android.embracesdk.internal.logging.InternalLogger
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.SessionPartSnapshotDelta
+import io.embrace.android.embracesdk.internal.serialization.PlatformSerializer
+import java.io.BufferedInputStream
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileOutputStream
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Writes one journal file per session part. Each record in the file is laid out as:
+ *
+ * | snapshot filename (modified UTF-8) | delta length (int) | compressed JSON of a [SessionPartSnapshotDelta] |
+ *
+ * The first record holds the full snapshot and every later record holds the changes since the one before it. Once a
+ * journal holds [compactionThreshold] records it is rewritten as a single full record so that rebuilding it stays cheap.
+ * A record that was only partially written when the process died is ignored.
+ *
+ * A session part can finish storing after the next one has started journaling, so the journals of the current process
+ * are tracked per session part until each part is stored.
+ */
+class SessionSnapshotJournalImpl(
+    private val outputDir: Lazy<File>,
+    private val serializer: PlatformSerializer,
+    private val processIdProvider: () -> String,
+    private val logger: InternalLogger,
+    private val compactionThreshold: Int = 100,
+    private val compression: PayloadCompression = PayloadCompression(),
+) : SessionSnapshotJournal {
+
+    private val lock = Any()
+    private val activeJournals: MutableMap<JournalKey, ActiveJournal> = mutableMapOf()
+    private val undeliveredJournals: MutableMap<StoredTelemetryMetadata, File> = ConcurrentHashMap()
+
+    override fun append(metadata: StoredTelemetryMetadata, envelope: Envelope<SessionPartPayload>) {
+        synchronized(lock) {
+            val key = JournalKey(metadata)
+            try {
+                val journal = activeJournals.getOrPut(key) {
+                    ActiveJournal(File(outputDir.value, "${metadata.filename}$JOURNAL_SUFFIX"))
+                }
+                if (journal.recordCount == 0 || journal.recordCount >= compactionThreshold) {
+                    val state = SessionSnapshotState()
+                    writeFull(journal.file, createRecord(metadata, state.update(envelope)))
+                    journal.state = state
+                    journal.recordCount = 1
+                } else {
+                    val record = createRecord(metadata, journal.state.update(envelope))
+                    FileOutputStream(journal.file, true).use { it.write(record) }
+                    journal.recordCount++
+                }
+            } catch (exc: Throwable) {
+                // the in-memory state may no longer match what is on disk, so rewrite the whole journal next time
+                activeJournals[key]?.recordCount = 0
+                logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+            }
+        }
+    }
+
+    override fun onSessionPartStored(metadata: StoredTelemetryMetadata) {
+        synchronized(lock) {
+            activeJournals.remove(JournalKey(metadata))?.file?.delete()
+        }
+    }
+
+    override fun getUndeliveredSnapshots(): List<StoredTelemetryMetadata> {
+        val processId = processIdProvider()
+        val files = outputDir.value.listFiles { file -> file.name.endsWith(JOURNAL_SUFFIX) } ?: return emptyList()
+        return files.mapNotNull { file ->
+            var lastFilename: String? = null
+            forEachRecord(file, readDelta = false) { filename, _ ->
+                lastFilename = filename
+            }
+            val metadata = lastFilename?.let { StoredTelemetryMetadata.fromFilename(it).getOrNull() }
+            when {
+                metadata == null -> {
+                    file.delete()
+                    null
+                }
+
+                metadata.processIdentifier == processId -> null
+                else -> metadata.also { undeliveredJournals[it] = file }
+            }
+        }
+    }
+
+    override fun loadSnapshot(metadata: StoredTelemetryMetadata): Envelope<SessionPartPayload>? {
+        val file = undeliveredJournals[metadata] ?: return null
+        val state = SessionSnapshotState()
+        var records = 0
+        forEachRecord(file, readDelta = true) { _, delta ->
+            state.apply(checkNotNull(delta))
+            records++
+        }
+        return if (records > 0) state.toEnvelope() else null
+    }
+
+    override fun delete(metadata: StoredTelemetryMetadata) {
+        undeliveredJournals.remove(metadata)?.delete()
+    }
+
+    private fun createRecord(metadata: StoredTelemetryMetadata, delta: SessionPartSnapshotDelta): ByteArray {
+        val deltaBytes = ByteArrayOutputStream()
+        serializer.toJson(delta, SessionPartSnapshotDelta.serializer(), compression.compress(deltaBytes))
+
+        val record = ByteArrayOutputStream(deltaBytes.size() + RECORD_OVERHEAD_BYTES)
+        DataOutputStream(record).use { stream ->
+            stream.writeUTF(metadata.filename)
+            stream.writeInt(deltaBytes.size())
+            deltaBytes.writeTo(stream)
+        }
+        return record.toByteArray()
+    }
+
+    private fun writeFull(file: File, record: ByteArray) {
+        val tmp = File(file.parentFile, "${file.name}$TMP_SUFFIX")
+        tmp.writeBytes(record)
+        if (!tmp.renameTo(file)) {
+            tmp.delete()
+            error("Failed to replace session snapshot journal ${file.name}")
+        }
+    }
+
+    /**
+     * Reads complete records from the journal in order. Reading stops at the first record that was only partially
+     * written, or whose delta can't be decoded when [readDelta] is true.
+     */
+    private fun forEachRecord(
+        file: File,
+        readDelta: Boolean,
+        action: (filename: String, delta: SessionPartSnapshotDelta?) -> Unit,
+    ) {
+        try {
+            DataInputStream(BufferedInputStream(file.inputStream())).use { stream ->
+                while (true) {
+                    val filename = stream.readUTF()
+                    val length = stream.readInt()
+                    val delta = if (readDelta) {
+                        val bytes = ByteArray(length)
+                        stream.readFully(bytes)
+                        serializer.fromJson(
+                            compression.decompress(ByteArrayInputStream(bytes)),
+                            SessionPartSnapshotDelta.serializer(),
+                        )
+                    } else {
+                        if (stream.skipBytes(length) < length) {
+                            break
+                        }
+                        null
+                    }
+                    action(filename, delta)
+                }
+            }
+        } catch (ignored: EOFException) {
+        } catch (exc: Exception) {
+            logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+        }
+    }
+
+    /**
+     * A journal of the current process. A [recordCount] of zero means the journal has to be rewritten in full.
+     */
+    private class ActiveJournal(val file: File) {
+        var state: SessionSnapshotState = SessionSnapshotState()
+        var recordCount: Int = 0
+    }
+
+    /**
+     * Identifies the session part a snapshot belongs to, as the rest of its metadata changes with every snapshot.
+     */
+    private data class JournalKey(
+        val processIdentifier: String,
+        val userSessionId: String,
+        val sessionPartId: String,
+    ) {
+        constructor(metadata: StoredTelemetryMetadata) : this(
+            metadata.processIdentifier,
+            metadata.userSessionId,
+            metadata.sessionPartId,
+        )
+    }
+
+    private companion object {
+        private const val JOURNAL_SUFFIX = ".journal"
+        private const val TMP_SUFFIX = ".tmp"
+        private const val RECORD_OVERHEAD_BYTES = 256
+    }
+}
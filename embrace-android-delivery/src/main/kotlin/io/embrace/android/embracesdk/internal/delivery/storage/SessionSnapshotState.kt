@@ -0,0 +1,82 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeMetadata
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.SessionPartSnapshotDelta
+import io.embrace.android.embracesdk.internal.payload.Span
+
+/**
+ * The contents of a session part snapshot, keyed so that it can be diffed against a newer snapshot or rebuilt from a
+ * sequence of [SessionPartSnapshotDelta].
+ *
+ * Spans are compared with [Span.equals], which is a deep comparison but is much cheaper than serializing and writing
+ * every span again.
+ */
+internal class SessionSnapshotState {
+
+    private var resource: EnvelopeResource? = null
+    private var metadata: EnvelopeMetadata? = null
+    private var version: String? = null
+    private var type: String? = null
+    private var sharedLibSymbolMapping: Map<String, String>? = null
+    private val spans = LinkedHashMap<String, Span>()
+    private val spanSnapshots = LinkedHashMap<String, Span>()
+
+    /**
+     * Returns the changes needed to go from the current state to [envelope] and updates the state to match it.
+     */
+    fun update(envelope: Envelope<SessionPartPayload>): SessionPartSnapshotDelta {
+        val delta = SessionPartSnapshotDelta(
+            resource = envelope.resource.takeIf { it != resource },
+            metadata = envelope.metadata.takeIf { it != metadata },
+            version = envelope.version.takeIf { it != version },
+            type = envelope.type.takeIf { it != type },
+            spans = changedSpans(spans, envelope.data.spans),
+            spanSnapshots = changedSpans(spanSnapshots, envelope.data.spanSnapshots),
+            removedSpanIds = removedSpanIds(spans, envelope.data.spans),
+            removedSpanSnapshotIds = removedSpanIds(spanSnapshots, envelope.data.spanSnapshots),
+            sharedLibSymbolMapping = envelope.data.sharedLibSymbolMapping.takeIf { it != sharedLibSymbolMapping },
+        )
+        apply(delta)
+        return delta
+    }
+
+    /**
+     * Applies the changes recorded in [delta] to the current state.
+     */
+    fun apply(delta: SessionPartSnapshotDelta) {
+        delta.resource?.let { resource = it }
+        delta.metadata?.let { metadata = it }
+        delta.version?.let { version = it }
+        delta.type?.let { type = it }
+        delta.sharedLibSymbolMapping?.let { sharedLibSymbolMapping = it }
+        delta.removedSpanIds?.forEach(spans::remove)
+        delta.removedSpanSnapshotIds?.forEach(spanSnapshots::remove)
+        delta.spans?.forEach { spans[it.key()] = it }
+        delta.spanSnapshots?.forEach { spanSnapshots[it.key()] = it }
+    }
+
+    fun toEnvelope(): Envelope<SessionPartPayload> = Envelope(
+        resource = resource,
+        metadata = metadata,
+        version = version,
+        type = type,
+        data = SessionPartPayload(
+            spans = spans.values.toList(),
+            spanSnapshots = spanSnapshots.values.toList(),
+            sharedLibSymbolMapping = sharedLibSymbolMapping,
+        ),
+    )
+
+    private fun changedSpans(previous: Map<String, Span>, current: List<Span>?): List<Span>? =
+        current?.filter { previous[it.key()] != it }?.ifEmpty { null }
+
+    private fun removedSpanIds(previous: Map<String, Span>, current: List<Span>?): List<String>? {
+        val currentIds = current?.mapTo(HashSet(), Span::key) ?: emptySet()
+        return previous.keys.filterNot(currentIds::contains).ifEmpty { null }
+    }
+
+    private fun Span.key(): String = spanId.orEmpty()
+}
@@ -3,19 +3,30 @@ package io.embrace.android.embracesdk.internal.delivery.execution
 import io.embrace.android.embracesdk.fakes.FakeInternalLogger
 import io.embrace.android.embracesdk.internal.delivery.PayloadType
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.storeAttachment
 import okhttp3.Headers.Companion.toHeaders
+import okhttp3.MultipartReader
 import okhttp3.OkHttpClient
 import okhttp3.Protocol
 import okhttp3.mockwebserver.MockResponse
 import okhttp3.mockwebserver.MockWebServer
+import okhttp3.mockwebserver.RecordedRequest
 import okhttp3.mockwebserver.SocketPolicy
+import okio.Buffer
 import org.junit.After
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.FileInputStream
 import java.net.SocketTimeoutException
 import java.net.UnknownHostException
+import java.nio.channels.Channels
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
 import java.util.concurrent.TimeUnit
 
 class OkHttpRequestExecutionServiceTest {
@@ -276,4 +287,130 @@ class OkHttpRequestExecutionServiceTest {
 
         assertEquals(PayloadType.AEI.value, request.getHeader("X-EM-PAYLOAD-TYPES"))
     }
+
+    @Test
+    fun `batch request body is gzipped as it is written`() {
+        // given a server that returns a 200 response
+        server.enqueue(MockResponse().setResponseCode(200))
+
+        // when attempting to make a batch request
+        val payloadTypes = "${PayloadType.LOG.value},${PayloadType.NETWORK_CAPTURE.value}"
+        val result = requestExecutionService.attemptBatchHttpRequest(
+            payloadWriter = { stream -> stream.write(testPostBody.toByteArray()) },
+            envelopeType = SupportedEnvelopeType.LOG,
+            payloadType = payloadTypes,
+        )
+
+        // then the request should contain the compressed payload and the combined payload types
+        assertTrue(result is ExecutionResult.Success)
+        val request = server.takeRequest()
+        assertEquals("gzip", request.getHeader("Content-Encoding"))
+        assertEquals(payloadTypes, request.getHeader("X-EM-PAYLOAD-TYPES"))
+        val body = GZIPInputStream(request.body.inputStream()).bufferedReader().readText()
+        assertEquals(testPostBody, body)
+    }
+
+    @Test
+    fun `batch request body is one-shot`() {
+        val body = OkHttpRequestExecutionService.GzipRequestBody { }
+        assertTrue(body.isOneShot())
+    }
+
+    @Test
+    fun `file channel body is sent as stored`() {
+        // given a server that returns a 200 response and a payload stored in a file
+        server.enqueue(MockResponse().setResponseCode(200))
+        val file = File.createTempFile("payload", ".json").apply {
+            deleteOnExit()
+            writeText(testPostBody)
+        }
+
+        // when attempting to make a request from the file channel
+        val result = FileInputStream(file).channel.use { channel ->
+            requestExecutionService.attemptHttpRequest(
+                payloadChannel = channel,
+                envelopeType = SupportedEnvelopeType.SESSION,
+                payloadType = PayloadType.SESSION.value,
+            )
+        }
+
+        // then the request should contain the stored bytes unchanged
+        assertTrue(result is ExecutionResult.Success)
+        assertEquals(testPostBody, server.takeRequest().body.readUtf8())
+    }
+
+    @Test
+    fun `non-file channel body is written in full`() {
+        val sink = Buffer()
+        OkHttpRequestExecutionService.ChannelRequestBody(
+            Channels.newChannel(testPostBody.byteInputStream()),
+        ).writeTo(sink)
+        assertEquals(testPostBody, sink.readUtf8())
+    }
+
+    @Test
+    fun `channel request body is one-shot`() {
+        val body = OkHttpRequestExecutionService.ChannelRequestBody(Channels.newChannel(ByteArrayInputStream(ByteArray(0))))
+        assertTrue(body.isOneShot())
+    }
+
+    @Test
+    fun `send-ready attachment is streamed after the app id`() {
+        // given a server that returns a 200 response and an attachment stored in the send-ready format
+        server.enqueue(MockResponse().setResponseCode(200))
+        val file = File.createTempFile("attachment", ".bin").apply {
+            deleteOnExit()
+            outputStream().use { storeAttachment(it, testPostBody.toByteArray(), "my-attachment-id") }
+        }
+
+        // when attempting to make a request from the file channel
+        val result = FileInputStream(file).channel.use { channel ->
+            requestExecutionService.attemptHttpRequest(
+                payloadChannel = channel,
+                envelopeType = SupportedEnvelopeType.ATTACHMENT,
+                payloadType = PayloadType.ATTACHMENT.value,
+            )
+        }
+
+        // then the request should contain the app id followed by the stored parts
+        assertTrue(result is ExecutionResult.Success)
+        assertAttachmentRequest(server.takeRequest())
+    }
+
+    @Test
+    fun `gzipped attachment from an older version is re-encoded`() {
+        // given a server that returns a 200 response and an attachment stored gzipped
+        server.enqueue(MockResponse().setResponseCode(200))
+        val bytes = ByteArrayOutputStream().also { baos ->
+            GZIPOutputStream(baos).use { it.write("my-attachment-id\n$testPostBody".toByteArray()) }
+        }.toByteArray()
+
+        // when attempting to make a request
+        val result = requestExecutionService.attemptHttpRequest(
+            payloadStream = { bytes.inputStream() },
+            envelopeType = SupportedEnvelopeType.ATTACHMENT,
+            payloadType = PayloadType.ATTACHMENT.value,
+        )
+
+        // then the request should contain the same parts
+        assertTrue(result is ExecutionResult.Success)
+        assertAttachmentRequest(server.takeRequest())
+    }
+
+    private fun assertAttachmentRequest(request: RecordedRequest) {
+        val boundary = checkNotNull(request.getHeader("Content-Type")).substringAfter("boundary=")
+        val parts = MultipartReader(request.body, boundary).use { reader ->
+            generateSequence { reader.nextPart() }.map { part ->
+                part.headers["Content-Disposition"] to part.body.readUtf8()
+            }.toList()
+        }
+        assertEquals(
+            listOf(
+                "form-data; name=\"app_id\"" to testAppId,
+                "form-data; name=\"attachment_id\"" to "my-attachment-id",
+                "form-data; name=\"file\"; filename=\"file\"" to testPostBody,
+            ),
+            parts,
+        )
+    }
 }
@@ -13,6 +13,7 @@ import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.BLO
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.CRASH
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.LOG
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.SESSION
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournalImpl
 import io.embrace.android.embracesdk.internal.delivery.storedTelemetryRunnableComparator
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.payload.Envelope
@@ -32,6 +33,7 @@ import org.junit.Before
 import org.junit.Test
 import java.io.ByteArrayOutputStream
 import java.io.IOException
+import java.nio.file.Files
 import java.util.concurrent.CountDownLatch
 import java.util.concurrent.Executors
 import java.util.concurrent.RejectedExecutionException
@@ -789,6 +791,32 @@ class IntakeServiceImplTest {
         assertTrue(f2.isDone)
     }
 
+    @Test
+    fun `session snapshots are journaled when a journal is supplied`() {
+        val journalDir = Files.createTempDirectory("journal").toFile()
+        executorService.blockingMode = false
+        intakeService = IntakeServiceImpl(
+            schedulingService,
+            payloadStorageService,
+            cacheStorageService,
+            logger,
+            serializer,
+            PriorityWorker(executorService),
+            sessionSnapshotJournal = SessionSnapshotJournalImpl(lazy { journalDir }, serializer, { PROCESS_ID }, logger),
+        )
+
+        intakeService.take(sessionEnvelope, sessionMetadata.copy(complete = false))
+        intakeService.take(sessionEnvelope, sessionMetadata2.copy(complete = false))
+        assertEquals(0, cacheStorageService.storedPayloadCount())
+        assertEquals(1, journalDir.listFiles()?.size)
+
+        // the journal is discarded once the complete session part is stored
+        intakeService.take(sessionEnvelope, sessionMetadata)
+        assertEquals(1, payloadStorageService.storedPayloadCount())
+        assertTrue(journalDir.listFiles().isNullOrEmpty())
+        assertTrue(logger.internalErrorMessages.isEmpty())
+    }
+
     private fun assertIntakeRejected(envelope: Envelope<*>, metadata: StoredTelemetryMetadata) {
         val service = when {
             metadata.complete -> payloadStorageService
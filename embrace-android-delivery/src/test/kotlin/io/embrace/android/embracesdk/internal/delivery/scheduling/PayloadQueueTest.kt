@@ -0,0 +1,77 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.CRASH
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.LOG
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.SESSION
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+internal class PayloadQueueTest {
+
+    private val crash = StoredTelemetryMetadata(1, "crash", "pid", CRASH)
+    private val session = StoredTelemetryMetadata(1, "session", "pid", SESSION)
+    private val session2 = StoredTelemetryMetadata(100, "session2", "pid", SESSION)
+    private val session3 = StoredTelemetryMetadata(1000, "session3", "pid", SESSION)
+    private val log = StoredTelemetryMetadata(1, "log", "pid", LOG)
+
+    private lateinit var queue: PayloadQueue
+
+    @Before
+    fun setUp() {
+        queue = PayloadQueue()
+    }
+
+    @Test
+    fun `empty queue`() {
+        assertNull(queue.firstOfType(SESSION) { true })
+        assertTrue(queue.snapshot().isEmpty())
+    }
+
+    @Test
+    fun `payloads are returned in priority order regardless of insertion order`() {
+        listOf(session3, log, session, crash, session2).forEach(queue::onPayloadStored)
+        assertEquals(crash, queue.firstOfType(CRASH) { true })
+        assertEquals(session, queue.firstOfType(SESSION) { true })
+        assertEquals(log, queue.firstOfType(LOG) { true })
+        assertEquals(listOf(crash, session, session2, session3, log), queue.snapshot())
+    }
+
+    @Test
+    fun `predicate skips ineligible payloads`() {
+        queue.addAll(listOf(session, session2, session3))
+        assertEquals(session2, queue.firstOfType(SESSION) { it != session })
+        assertNull(queue.firstOfType(SESSION) { false })
+    }
+
+    @Test
+    fun `removed payloads are no longer returned`() {
+        queue.addAll(listOf(session, session2))
+        queue.onPayloadRemoved(session)
+        assertFalse(queue.contains(session))
+        assertEquals(session2, queue.firstOfType(SESSION) { true })
+        queue.remove(session2)
+        assertNull(queue.firstOfType(SESSION) { true })
+    }
+
+    @Test
+    fun `adding the same payload twice is idempotent`() {
+        queue.onPayloadStored(session)
+        queue.addAll(listOf(session))
+        assertEquals(listOf(session), queue.snapshot())
+    }
+
+    @Test
+    fun `payloads after a given payload are contiguous and bounded`() {
+        queue.addAll(listOf(session, session2, session3, log))
+        assertEquals(listOf(session2, session3), queue.payloadsAfter(session, 5) { true })
+        assertEquals(listOf(session2), queue.payloadsAfter(session, 1) { true })
+        assertEquals(listOf(session2), queue.payloadsAfter(session, 5) { it != session3 })
+        assertTrue(queue.payloadsAfter(session, 5) { it != session2 }.isEmpty())
+        assertTrue(queue.payloadsAfter(log, 5) { true }.isEmpty())
+    }
+}
@@ -0,0 +1,215 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.assertions.returnIfConditionMet
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakePayloadStorageService
+import io.embrace.android.embracesdk.fakes.FakeRequestExecutionService
+import io.embrace.android.embracesdk.internal.comms.api.Endpoint
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.payload.LogPayload
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Exercises [SchedulingServiceImpl] with real threads so that requests to different endpoints can actually overlap.
+ */
+internal class SchedulingServiceConcurrentDeliveryTest {
+
+    private lateinit var clock: FakeClock
+    private lateinit var storageService: FakePayloadStorageService
+    private lateinit var executionService: FakeRequestExecutionService
+    private lateinit var schedulingExecutor: ScheduledExecutorService
+    private lateinit var deliveryExecutor: ScheduledExecutorService
+    private lateinit var schedulingService: SchedulingServiceImpl
+
+    @Before
+    fun setUp() {
+        clock = FakeClock()
+        storageService = FakePayloadStorageService()
+        executionService = FakeRequestExecutionService()
+        schedulingExecutor = Executors.newSingleThreadScheduledExecutor()
+    }
+
+    @After
+    fun tearDown() {
+        schedulingService.shutdown()
+    }
+
+    @Test
+    fun `slow session upload does not delay crashes and logs in per-endpoint mode`() {
+        createSchedulingService(DeliveryMode.PerEndpoint())
+        val sessionUploadLatch = CountDownLatch(1)
+        executionService.requestLatencyAction = { envelopeType ->
+            if (envelopeType == SupportedEnvelopeType.SESSION) {
+                sessionUploadLatch.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS)
+            }
+        }
+        addMixedBacklog(logCount = 5)
+        schedulingService.onResurrectionComplete()
+
+        // the crash and every log are delivered while the session upload is still in flight
+        awaitRequests<LogPayload>(6)
+        assertEquals(0, executionService.getRequests<SessionPartPayload>().size)
+
+        sessionUploadLatch.countDown()
+        awaitDrained()
+        assertEquals(1, executionService.getRequests<SessionPartPayload>().size)
+    }
+
+    @Test
+    fun `slow session upload delays crashes and logs in serial mode`() {
+        createSchedulingService(DeliveryMode.Serial)
+        val sessionUploadStarted = CountDownLatch(1)
+        val sessionUploadLatch = CountDownLatch(1)
+        executionService.requestLatencyAction = { envelopeType ->
+            if (envelopeType == SupportedEnvelopeType.SESSION) {
+                sessionUploadStarted.countDown()
+                sessionUploadLatch.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS)
+            }
+        }
+        addMixedBacklog(logCount = 5)
+        schedulingService.onResurrectionComplete()
+
+        // the crash has the highest priority so it's sent first. The session upload then holds the only delivery
+        // thread, so nothing queued after it can have been sent while it is in flight.
+        assertTrue(sessionUploadStarted.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS))
+        assertEquals(1, executionService.getRequests<LogPayload>().size)
+
+        sessionUploadLatch.countDown()
+        awaitDrained()
+        assertEquals(6, executionService.getRequests<LogPayload>().size)
+    }
+
+    @Test
+    fun `payloads of different types sharing an endpoint are bounded by max in flight requests`() {
+        createSchedulingService(DeliveryMode.PerEndpoint(maxInFlightRequests = 2))
+        val crashUploadLatch = CountDownLatch(1)
+        executionService.requestLatencyAction = { envelopeType ->
+            if (envelopeType == SupportedEnvelopeType.CRASH) {
+                crashUploadLatch.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS)
+            }
+        }
+        addMixedBacklog(logCount = 3)
+        schedulingService.onResurrectionComplete()
+
+        // a second slot on the logs endpoint lets logs drain while the crash upload is stuck
+        awaitRequests<LogPayload>(3)
+        awaitRequests<SessionPartPayload>(1)
+
+        crashUploadLatch.countDown()
+        awaitDrained()
+        assertEquals(4, executionService.getRequests<LogPayload>().size)
+    }
+
+    @Test
+    fun `uploads to the logs and sessions endpoints are in flight at once in per-endpoint mode`() {
+        createSchedulingService(DeliveryMode.PerEndpoint())
+        // the first upload to each endpoint waits until an upload to the other endpoint has started, so the latch only
+        // opens if the two endpoints are served concurrently
+        val uploadsStarted = CountDownLatch(2)
+        val startedEndpoints = ConcurrentHashMap.newKeySet<Endpoint>()
+        executionService.requestLatencyAction = { envelopeType ->
+            if (startedEndpoints.add(envelopeType.endpoint)) {
+                uploadsStarted.countDown()
+            }
+            uploadsStarted.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS)
+        }
+        addMixedBacklog(logCount = 3)
+        schedulingService.onResurrectionComplete()
+
+        assertTrue(uploadsStarted.await(WAIT_TIME_MS, TimeUnit.MILLISECONDS))
+        awaitDrained()
+        assertEquals(4, executionService.getRequests<LogPayload>().size)
+        assertEquals(1, executionService.getRequests<SessionPartPayload>().size)
+    }
+
+    @Test
+    fun `only one request is in flight at a time in serial mode`() {
+        createSchedulingService(DeliveryMode.Serial)
+        val inFlight = AtomicInteger(0)
+        val maxInFlight = AtomicInteger(0)
+        executionService.requestLatencyAction = {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), ::maxOf)
+            inFlight.decrementAndGet()
+        }
+        addMixedBacklog(logCount = 5)
+        schedulingService.onResurrectionComplete()
+
+        awaitDrained()
+        assertEquals(1, maxInFlight.get())
+    }
+
+    private fun createSchedulingService(deliveryMode: DeliveryMode) {
+        deliveryExecutor = when (deliveryMode) {
+            DeliveryMode.Serial -> Executors.newSingleThreadScheduledExecutor()
+            is DeliveryMode.PerEndpoint -> Executors.newScheduledThreadPool(SupportedEnvelopeType.entries.size)
+        }
+        schedulingService = SchedulingServiceImpl(
+            storageService = storageService,
+            executionService = executionService,
+            schedulingWorker = BackgroundWorker(schedulingExecutor),
+            deliveryWorker = BackgroundWorker(deliveryExecutor),
+            clock = clock,
+            logger = FakeInternalLogger(),
+            deliveryMode = deliveryMode,
+        )
+    }
+
+    private fun addMixedBacklog(logCount: Int) {
+        storageService.addFakePayload(createMetadata(SupportedEnvelopeType.CRASH, PayloadType.JVM_CRASH, 0))
+        storageService.addFakePayload(createMetadata(SupportedEnvelopeType.SESSION, PayloadType.SESSION, 1))
+        repeat(logCount) { k ->
+            storageService.addFakePayload(createMetadata(SupportedEnvelopeType.LOG, PayloadType.LOG, k + 2))
+        }
+    }
+
+    private fun createMetadata(
+        envelopeType: SupportedEnvelopeType,
+        payloadType: PayloadType,
+        index: Int,
+    ) = StoredTelemetryMetadata(
+        timestamp = clock.now() + index,
+        uuid = "payload-$index",
+        processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+        envelopeType = envelopeType,
+        payloadType = payloadType,
+    )
+
+    private inline fun <reified T : Any> awaitRequests(count: Int) {
+        returnIfConditionMet(
+            desiredValueSupplier = {},
+            waitTimeMs = WAIT_TIME_MS.toInt(),
+            dataProvider = { executionService.getRequests<T>().size },
+            condition = { it >= count },
+            errorMessageSupplier = { "Expected $count ${T::class.simpleName} requests" },
+        )
+    }
+
+    private fun awaitDrained() {
+        returnIfConditionMet(
+            desiredValueSupplier = {},
+            waitTimeMs = WAIT_TIME_MS.toInt(),
+            dataProvider = { storageService.storedPayloadCount() },
+            condition = { it == 0 },
+            errorMessageSupplier = { "Backlog was not drained" },
+        )
+    }
+
+    private companion object {
+        const val WAIT_TIME_MS = 5000L
+    }
+}
@@ -0,0 +1,150 @@
+package io.embrace.android.embracesdk.internal.delivery.scheduling
+
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakePayloadStorageService
+import io.embrace.android.embracesdk.fakes.FakeRequestExecutionService
+import io.embrace.android.embracesdk.fakes.TestPlatformSerializer
+import io.embrace.android.embracesdk.fixtures.fakeSessionStoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.execution.ExecutionResult
+import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingServiceImpl.Companion.INITIAL_DELAY_MS
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.Log
+import io.embrace.android.embracesdk.internal.payload.LogPayload
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+internal class SchedulingServiceLogBatchingTest {
+
+    private lateinit var clock: FakeClock
+    private lateinit var storageService: FakePayloadStorageService
+    private lateinit var executionService: FakeRequestExecutionService
+    private lateinit var schedulingExecutor: BlockingScheduledExecutorService
+    private lateinit var deliveryExecutor: BlockingScheduledExecutorService
+    private lateinit var schedulingService: SchedulingServiceImpl
+
+    @Before
+    fun setUp() {
+        clock = FakeClock()
+        schedulingExecutor = BlockingScheduledExecutorService(clock, blockingMode = true)
+        deliveryExecutor = BlockingScheduledExecutorService(clock, blockingMode = true)
+        storageService = FakePayloadStorageService()
+        executionService = FakeRequestExecutionService()
+        schedulingService = SchedulingServiceImpl(
+            storageService = storageService,
+            executionService = executionService,
+            schedulingWorker = BackgroundWorker(schedulingExecutor),
+            deliveryWorker = BackgroundWorker(deliveryExecutor),
+            clock = clock,
+            logger = FakeInternalLogger(),
+            logEnvelopeBatcher = LogEnvelopeBatcher(storageService, TestPlatformSerializer(), MAX_BATCH_SIZE),
+        )
+    }
+
+    @Test
+    fun `backlog of logs is delivered in batches`() {
+        addLogs(count = 5)
+        waitForResurrectionAndDeliveryAttempts(2)
+        val requests = executionService.getRequests<LogPayload>()
+        assertEquals(listOf(listOf("0", "1", "2"), listOf("3", "4")), requests.map { it.data.logBodies() })
+        assertEquals(listOf("sys.log", "sys.log"), executionService.batchRequestPayloadTypes.toList())
+        assertEquals(0, storageService.storedPayloadCount())
+    }
+
+    @Test
+    fun `single log is delivered with a regular request`() {
+        addLogs(count = 1)
+        waitForResurrectionAndDeliveryAttempts(1)
+        assertEquals(listOf("0"), executionService.getRequests<LogPayload>().single().data.logBodies())
+        assertEquals(0, executionService.batchRequestPayloadTypes.size)
+        assertEquals(0, storageService.storedPayloadCount())
+    }
+
+    @Test
+    fun `logs with different resources are not batched together`() {
+        addLogs(count = 2)
+        addLogs(count = 2, startIndex = 2, resource = EnvelopeResource(appVersion = "2.0"))
+        waitForResurrectionAndDeliveryAttempts(2)
+        val requests = executionService.getRequests<LogPayload>()
+        assertEquals(listOf(listOf("0", "1"), listOf("2", "3")), requests.map { it.data.logBodies() })
+        assertEquals(listOf(null, "2.0"), requests.map { it.resource?.appVersion })
+        assertEquals(0, storageService.storedPayloadCount())
+    }
+
+    @Test
+    fun `batch is retried as a whole if delivery fails`() {
+        addLogs(count = 3)
+        executionService.constantResponse = ExecutionResult.Failure(code = 500)
+        waitForResurrectionAndDeliveryAttempts(1)
+        assertEquals(1, executionService.getRequests<LogPayload>().size)
+        assertEquals(3, storageService.storedPayloadCount())
+
+        executionService.constantResponse = ExecutionResult.Success
+        schedulingExecutor.moveForwardAndRunBlocked(INITIAL_DELAY_MS)
+        deliveryExecutor.awaitExecutionCompletion()
+        waitForDeliveryAttempts(1)
+        val requests = executionService.getRequests<LogPayload>()
+        assertEquals(2, requests.size)
+        assertEquals(listOf("0", "1", "2"), requests.last().data.logBodies())
+        assertEquals(0, storageService.storedPayloadCount())
+    }
+
+    @Test
+    fun `batched logs are not blocked by other envelope types`() {
+        storageService.addFakePayload(fakeSessionStoredTelemetryMetadata)
+        addLogs(count = 2)
+        waitForResurrectionAndDeliveryAttempts(2)
+        assertEquals(1, executionService.getRequests<SessionPartPayload>().size)
+        assertEquals(listOf("0", "1"), executionService.getRequests<LogPayload>().single().data.logBodies())
+        assertEquals(0, storageService.storedPayloadCount())
+    }
+
+    private fun addLogs(
+        count: Int,
+        startIndex: Int = 0,
+        resource: EnvelopeResource? = null,
+    ) {
+        repeat(count) { k ->
+            val index = startIndex + k
+            val metadata = StoredTelemetryMetadata(
+                timestamp = clock.now() + index,
+                uuid = "log-$index",
+                processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+                envelopeType = SupportedEnvelopeType.LOG,
+                payloadType = PayloadType.LOG,
+            )
+            val envelope = Envelope(
+                resource = resource,
+                data = LogPayload(logs = listOf(Log(body = "$index"))),
+            )
+            storageService.addPayload(metadata, envelope)
+        }
+    }
+
+    private fun LogPayload.logBodies() = logs?.map { it.body }
+
+    private fun waitForResurrectionAndDeliveryAttempts(requestsToWaitFor: Int) {
+        schedulingService.onResurrectionComplete()
+        waitForDeliveryAttempts(requestsToWaitFor)
+    }
+
+    private fun waitForDeliveryAttempts(requestsToWaitFor: Int) {
+        repeat(requestsToWaitFor) {
+            schedulingExecutor.awaitExecutionCompletion()
+            deliveryExecutor.awaitExecutionCompletion()
+            schedulingExecutor.awaitExecutionCompletion()
+        }
+    }
+
+    private companion object {
+        const val MAX_BATCH_SIZE = 3
+    }
+}
@@ -0,0 +1,78 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import okhttp3.MultipartReader
+import okio.Buffer
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+
+class AttachmentStorageTest {
+
+    private val attachment = "my attachment\nwith several\r\nlines".toByteArray()
+    private val id = "a6a3c3ab-84b6-4ef3-9d2c-0e5a4f2d2a10"
+
+    @Test
+    fun `stored attachment is send-ready`() {
+        val stream = storedAttachmentBytes().inputStream()
+        val storedAttachment = readStoredAttachment(stream) as StoredAttachment.SendReady
+
+        val body = Buffer()
+            .write(createFormPart(storedAttachment.boundary, "app_id", "my_app"))
+            .write(stream.readBytes())
+        val parts = MultipartReader(body, storedAttachment.boundary).use { reader ->
+            generateSequence { reader.nextPart() }.map { part ->
+                part.headers["Content-Disposition"] to part.body.readByteArray()
+            }.toList()
+        }
+
+        assertEquals(3, parts.size)
+        assertEquals("form-data; name=\"app_id\"", parts[0].first)
+        assertEquals("my_app", String(parts[0].second))
+        assertEquals("form-data; name=\"attachment_id\"", parts[1].first)
+        assertEquals(id, String(parts[1].second))
+        assertEquals("form-data; name=\"file\"; filename=\"file\"", parts[2].first)
+        assertArrayEquals(attachment, parts[2].second)
+    }
+
+    @Test
+    fun `header is read without consuming the parts`() {
+        val bytes = storedAttachmentBytes()
+        val stream = bytes.inputStream()
+        val storedAttachment = readStoredAttachment(stream) as StoredAttachment.SendReady
+        val headerLength = bytes.size - stream.available()
+        assertEquals("emb-multipart:${storedAttachment.boundary}\n", String(bytes, 0, headerLength))
+        assertTrue(String(stream.readBytes()).startsWith("--${storedAttachment.boundary}\r\n"))
+    }
+
+    @Test
+    fun `gzipped attachment from an older version is recognized`() {
+        val bytes = ByteArrayOutputStream().also { baos ->
+            PooledGzipOutputStream(baos).use {
+                it.write("$id\n".toByteArray())
+                it.write(attachment)
+            }
+        }.toByteArray()
+
+        val storedAttachment = readStoredAttachment(bytes.inputStream()) as StoredAttachment.Gzipped
+        val loaded = checkNotNull(loadAttachment(PooledGzipInputStream(storedAttachment.stream)))
+        assertArrayEquals(attachment, loaded.first)
+        assertEquals(id, loaded.second)
+    }
+
+    @Test(expected = IOException::class)
+    fun `truncated header is rejected`() {
+        readStoredAttachment("emb-multipart:abc".byteInputStream())
+    }
+
+    @Test(expected = IOException::class)
+    fun `empty attachment is rejected`() {
+        readStoredAttachment(ByteArray(0).inputStream())
+    }
+
+    private fun storedAttachmentBytes(): ByteArray = ByteArrayOutputStream().also {
+        storeAttachment(it, attachment, id)
+    }.toByteArray()
+}
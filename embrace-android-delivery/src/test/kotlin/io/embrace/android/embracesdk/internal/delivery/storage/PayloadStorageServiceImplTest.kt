@@ -11,6 +11,7 @@ import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType.SES
 import io.embrace.android.embracesdk.internal.delivery.storedTelemetryComparator
 import io.embrace.android.embracesdk.internal.worker.PriorityWorker
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
@@ -71,6 +72,26 @@ class PayloadStorageServiceImplTest {
         assertNull(service.loadPayloadAsStream(metadata))
     }
 
+    @Test
+    fun `store and load object compressed with a dictionary`() {
+        val fileContents = "{\"key\":\"emb.session_number\",\"value\":\"1\"}"
+        val compression = PayloadCompression(dictionary = PayloadCompressionDictionary.bytes)
+        service = PayloadStorageServiceImpl(
+            lazy { outputDir },
+            worker,
+            { currentProcessId },
+            logger,
+            clock,
+            compression = compression,
+        )
+        service.store(metadata) {
+            it.write(fileContents.toByteArray())
+        }
+
+        val observed = service.loadPayloadAsDecompressedStream(metadata)?.bufferedReader()?.use { it.readText() }
+        assertEquals(fileContents, observed)
+    }
+
     @Test
     fun `delete non existent file`() {
         service.delete(metadata) // no exception thrown
@@ -157,6 +178,51 @@ class PayloadStorageServiceImplTest {
         }
     }
 
+    @Test
+    fun `payloads are moved over when the storage format changes`() {
+        val log = StoredTelemetryMetadata(TIMESTAMP, UUID, PROCESS_ID, LOG)
+        listOf(metadata, log).forEach { payload ->
+            service.store(payload) { it.write("test ${payload.envelopeType}".toByteArray()) }
+        }
+
+        listOf(PayloadStorageFormat.SEGMENTED, PayloadStorageFormat.FILE_PER_PAYLOAD).forEach { format ->
+            service = PayloadStorageServiceImpl(
+                lazy { outputDir.apply(File::mkdirs) },
+                worker,
+                { currentProcessId },
+                logger,
+                clock,
+                storageFormat = format,
+            )
+            assertEquals(listOf(metadata, log), service.getPayloadsByPriority())
+            listOf(metadata, log).forEach { payload ->
+                val observed = service.loadPayloadAsDecompressedStream(payload)?.bufferedReader()?.use { it.readText() }
+                assertEquals("test ${payload.envelopeType}", observed)
+            }
+        }
+        assertEquals(2, outputDir.listFiles()?.size)
+        assertFalse(outputDir.resolveSibling("${outputDir.name}_segments").exists())
+        assertTrue(logger.internalErrorMessages.isEmpty())
+    }
+
+    @Test
+    fun `payloads that fail to move over are kept for the next launch`() {
+        val log = StoredTelemetryMetadata(TIMESTAMP, UUID, PROCESS_ID, LOG)
+        listOf(metadata, log).forEach { payload ->
+            service.store(payload) { it.write("test ${payload.envelopeType}".toByteArray()) }
+        }
+
+        // the log doesn't fit in the budget of the new format, so only the session is moved over
+        service = createSegmentedService(StorageBudget(maxBytesByType = mapOf(LOG to 1L)))
+        assertEquals(listOf(metadata), service.getPayloadsByPriority())
+        assertEquals(listOf(log.filename), outputDir.list()?.toList())
+
+        // the log is moved over once there is room for it
+        service = createSegmentedService(StorageBudget())
+        assertEquals(listOf(metadata, log), service.getPayloadsByPriority())
+        assertFalse(outputDir.exists())
+    }
+
     @Test
     fun `incomplete payload becomes undelivered when process identifier changes`() {
         service.store(metadata.copy(complete = false)) { stream ->
@@ -167,4 +233,14 @@ class PayloadStorageServiceImplTest {
         currentProcessId = "new-pid"
         assertEquals(1, service.getUndeliveredPayloads().size)
     }
+
+    private fun createSegmentedService(budget: StorageBudget) = PayloadStorageServiceImpl(
+        lazy { outputDir },
+        worker,
+        { currentProcessId },
+        logger,
+        clock,
+        storageFormat = PayloadStorageFormat.SEGMENTED,
+        storageBudget = budget,
+    )
 }
@@ -0,0 +1,204 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.TestPlatformSerializer
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.payload.Attribute
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.Span
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.file.Files
+
+internal class SessionSnapshotJournalImplTest {
+
+    private companion object {
+        private const val PREVIOUS_PROCESS_ID = "previous-process"
+        private const val CURRENT_PROCESS_ID = "current-process"
+    }
+
+    private lateinit var outputDir: File
+    private lateinit var logger: FakeInternalLogger
+    private var timestamp = 1000L
+
+    @Before
+    fun setUp() {
+        outputDir = Files.createTempDirectory("journal").toFile()
+        logger = FakeInternalLogger(throwOnInternalError = false)
+    }
+
+    @Test
+    fun `snapshot is rebuilt from the journal of a previous process`() {
+        val previous = createJournal(PREVIOUS_PROCESS_ID)
+        val snapshots = listOf(
+            createEnvelope(completed = listOf(span("session")), active = listOf(span("a"), span("b"))),
+            createEnvelope(completed = listOf(span("session"), span("a", ended = true)), active = listOf(span("b"))),
+            createEnvelope(
+                completed = listOf(span("session"), span("a", ended = true)),
+                active = listOf(span("b", attributes = listOf(Attribute("key", "value"))), span("c")),
+            ),
+        )
+        val metadata = snapshots.map { envelope -> createMetadata().also { previous.append(it, envelope) } }
+
+        val current = createJournal(CURRENT_PROCESS_ID)
+        assertEquals(listOf(metadata.last()), current.getUndeliveredSnapshots())
+        assertEquals(snapshots.last(), current.loadSnapshot(metadata.last()))
+        assertTrue(logger.internalErrorMessages.isEmpty())
+    }
+
+    @Test
+    fun `unchanged spans are not written again`() {
+        val journal = createJournal(CURRENT_PROCESS_ID)
+        val spans = (1..50).map { span("span-$it", attributes = listOf(Attribute("key", "value-$it"))) }
+        journal.append(createMetadata(), createEnvelope(completed = spans))
+        val fullSnapshotSize = journalFile().length()
+
+        journal.append(createMetadata(), createEnvelope(completed = spans + span("new")))
+        val deltaSize = journalFile().length() - fullSnapshotSize
+        assertTrue(deltaSize < fullSnapshotSize / 4)
+    }
+
+    @Test
+    fun `journal is compacted after the threshold is reached`() {
+        val previous = createJournal(PREVIOUS_PROCESS_ID, compactionThreshold = 3)
+        var envelope = createEnvelope(completed = listOf(span("session")))
+        var metadata = createMetadata()
+        repeat(10) { k ->
+            envelope = createEnvelope(completed = envelope.data.spans.orEmpty() + span("span-$k"))
+            metadata = createMetadata()
+            previous.append(metadata, envelope)
+        }
+        assertEquals(1, outputDir.listFiles()?.size)
+
+        val current = createJournal(CURRENT_PROCESS_ID)
+        assertEquals(listOf(metadata), current.getUndeliveredSnapshots())
+        assertEquals(envelope, current.loadSnapshot(metadata))
+    }
+
+    @Test
+    fun `partially written record is ignored`() {
+        val previous = createJournal(PREVIOUS_PROCESS_ID)
+        val envelope = createEnvelope(completed = listOf(span("session")))
+        val metadata = createMetadata()
+        previous.append(metadata, envelope)
+
+        // simulate the process dying while a second snapshot was being written
+        journalFile().appendBytes(byteArrayOf(0, 3, 'a'.code.toByte(), 'b'.code.toByte()))
+
+        val current = createJournal(CURRENT_PROCESS_ID)
+        assertEquals(listOf(metadata), current.getUndeliveredSnapshots())
+        assertEquals(envelope, current.loadSnapshot(metadata))
+    }
+
+    @Test
+    fun `journals of the current process are not resurrected`() {
+        val journal = createJournal(CURRENT_PROCESS_ID)
+        journal.append(createMetadata(CURRENT_PROCESS_ID), createEnvelope(completed = listOf(span("session"))))
+        assertTrue(journal.getUndeliveredSnapshots().isEmpty())
+    }
+
+    @Test
+    fun `journal is removed when the session part is stored`() {
+        val journal = createJournal(CURRENT_PROCESS_ID)
+        journal.append(createMetadata(CURRENT_PROCESS_ID), createEnvelope(completed = listOf(span("session"))))
+        assertTrue(journalFile().exists())
+
+        // a payload resurrected from another process doesn't affect the current journal
+        journal.onSessionPartStored(createMetadata(PREVIOUS_PROCESS_ID).copy(complete = true))
+        assertTrue(journalFile().exists())
+
+        journal.onSessionPartStored(createMetadata(CURRENT_PROCESS_ID).copy(complete = true))
+        assertTrue(outputDir.listFiles().isNullOrEmpty())
+    }
+
+    @Test
+    fun `storing an earlier session part keeps the journal of the active one`() {
+        val journal = createJournal(CURRENT_PROCESS_ID)
+        val firstPart = createMetadata(CURRENT_PROCESS_ID, sessionPartId = "part-1")
+        val secondPart = createMetadata(CURRENT_PROCESS_ID, sessionPartId = "part-2")
+        journal.append(firstPart, createEnvelope(completed = listOf(span("session"))))
+        journal.append(secondPart, createEnvelope(completed = listOf(span("session"))))
+
+        // the first part of the same process finishes storing after the second part has started journaling
+        journal.onSessionPartStored(firstPart.copy(complete = true))
+        assertEquals("${secondPart.filename}.journal", journalFile().name)
+
+        journal.onSessionPartStored(secondPart.copy(complete = true))
+        assertTrue(outputDir.listFiles().isNullOrEmpty())
+    }
+
+    @Test
+    fun `new session part starts a new journal`() {
+        val journal = createJournal(CURRENT_PROCESS_ID)
+        journal.append(createMetadata(sessionPartId = "part-1"), createEnvelope(completed = listOf(span("session"))))
+        journal.append(createMetadata(sessionPartId = "part-2"), createEnvelope(completed = listOf(span("session"))))
+        assertEquals(2, outputDir.listFiles()?.size)
+    }
+
+    @Test
+    fun `deleted journal is no longer returned`() {
+        val previous = createJournal(PREVIOUS_PROCESS_ID)
+        previous.append(createMetadata(), createEnvelope(completed = listOf(span("session"))))
+
+        val current = createJournal(CURRENT_PROCESS_ID)
+        val metadata = current.getUndeliveredSnapshots().single()
+        current.delete(metadata)
+        assertTrue(outputDir.listFiles().isNullOrEmpty())
+        assertNull(current.loadSnapshot(metadata))
+        assertTrue(current.getUndeliveredSnapshots().isEmpty())
+    }
+
+    private fun createJournal(processId: String, compactionThreshold: Int = 100) = SessionSnapshotJournalImpl(
+        lazy { outputDir },
+        TestPlatformSerializer(),
+        { processId },
+        logger,
+        compactionThreshold,
+    )
+
+    private fun createMetadata(
+        processId: String = PREVIOUS_PROCESS_ID,
+        sessionPartId: String = "part-1",
+    ) = StoredTelemetryMetadata(
+        timestamp = timestamp++,
+        uuid = "uuid-$timestamp",
+        processIdentifier = processId,
+        envelopeType = SupportedEnvelopeType.SESSION,
+        complete = false,
+        payloadType = PayloadType.SESSION,
+        userSessionId = "user-session",
+        sessionPartId = sessionPartId,
+    )
+
+    private fun createEnvelope(
+        completed: List<Span> = emptyList(),
+        active: List<Span> = emptyList(),
+    ) = Envelope(
+        resource = EnvelopeResource(appVersion = "1.0"),
+        version = "1.0.0",
+        type = "spans",
+        data = SessionPartPayload(spans = completed, spanSnapshots = active),
+    )
+
+    private fun span(
+        id: String,
+        ended: Boolean = false,
+        attributes: List<Attribute> = emptyList(),
+    ) = Span(
+        spanId = id,
+        name = id,
+        startTimeNanos = 1000L,
+        endTimeNanos = if (ended) 2000L else null,
+        attributes = attributes,
+    )
+
+    private fun journalFile(): File = checkNotNull(outputDir.listFiles()).single()
+}
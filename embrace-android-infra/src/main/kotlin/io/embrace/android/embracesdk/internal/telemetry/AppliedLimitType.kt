@@ -18,4 +18,9 @@ enum class AppliedLimitType(val attributeName: String) {
      * A telemetry item was completely dropped due to rate limits or other constraints.
      */
     DROP("drop"),
+
+    /**
+     * A telemetry item had to wait in a bounded queue behind telemetry that was still being processed.
+     */
+    QUEUE("queue"),
 }
@@ -0,0 +1,13 @@
+package io.embrace.android.embracesdk.internal.telemetry
+
+/**
+ * A source of storage telemetry that is read each time telemetry attributes are collected, rather than pushing a new
+ * value every time the storage changes.
+ */
+fun interface StorageTelemetrySource {
+
+    /**
+     * Adds the current storage telemetry names and values to [dst].
+     */
+    fun collectStorageTelemetry(dst: MutableMap<String, String>)
+}
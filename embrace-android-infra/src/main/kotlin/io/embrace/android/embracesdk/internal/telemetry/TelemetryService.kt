@@ -14,13 +14,20 @@ interface TelemetryService {
      */
     fun logStorageTelemetry(storageTelemetry: Map<String, String>)
 
+    /**
+     * Registers a [StorageTelemetrySource] that is read whenever telemetry attributes are collected. This suits storage
+     * that changes too often to call [logStorageTelemetry] on every change.
+     */
+    fun registerStorageTelemetrySource(source: StorageTelemetrySource)
+
     /**
      * Tracks when a limit is applied to telemetry (truncation or drop).
      *
      * @param telemetryType The type of telemetry that had the limit applied
      * @param limitType The type of limit that was applied
+     * @param count The number of times the limit was applied
      */
-    fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType)
+    fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int = 1)
 
     /**
      * Returns a map with every telemetry value. This is called when the session ends.
@@ -0,0 +1,72 @@
+package io.embrace.android.embracesdk.internal.utils.concurrent
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.AtomicReferenceArray
+
+/**
+ * A bounded, lock-free queue backed by a ring of slots. Any number of threads can offer and poll concurrently.
+ *
+ * Each slot carries a sequence number that tells producers and consumers whether it is free to write or ready to
+ * read, so neither side needs a lock. [capacity] is rounded up to a power of two.
+ */
+class RingBuffer<T : Any>(capacity: Int) {
+
+    private val size = Integer.highestOneBit((capacity - 1).coerceAtLeast(1)) shl 1
+    private val mask = size - 1L
+    private val slots = AtomicReferenceArray<T?>(size)
+    private val sequences = AtomicLongArray(size).apply {
+        for (k in 0 until size) {
+            set(k, k.toLong())
+        }
+    }
+    private val tail = AtomicLong(0)
+    private val head = AtomicLong(0)
+
+    /**
+     * The approximate number of items in the buffer.
+     */
+    val count: Int
+        get() = (tail.get() - head.get()).coerceIn(0, size.toLong()).toInt()
+
+    /**
+     * Adds [item] to the buffer. Returns false if the buffer is full.
+     */
+    fun offer(item: T): Boolean {
+        while (true) {
+            val position = tail.get()
+            val index = (position and mask).toInt()
+            val diff = sequences.get(index) - position
+            when {
+                diff == 0L -> if (tail.compareAndSet(position, position + 1)) {
+                    slots.set(index, item)
+                    sequences.set(index, position + 1)
+                    return true
+                }
+
+                diff < 0L -> return false
+            }
+        }
+    }
+
+    /**
+     * Removes and returns the oldest item in the buffer, or null if it is empty.
+     */
+    fun poll(): T? {
+        while (true) {
+            val position = head.get()
+            val index = (position and mask).toInt()
+            val diff = sequences.get(index) - (position + 1)
+            when {
+                diff == 0L -> if (head.compareAndSet(position, position + 1)) {
+                    val item = slots.get(index)
+                    slots.set(index, null)
+                    sequences.set(index, position + size)
+                    return item
+                }
+
+                diff < 0L -> return null
+            }
+        }
+    }
+}
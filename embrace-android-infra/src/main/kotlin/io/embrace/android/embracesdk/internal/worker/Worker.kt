@@ -60,5 +60,11 @@ sealed class Worker(val threadName: String) {
          * latency-sensitive registration tasks such as [IoRegWorker].
          */
         object HttpRequestWorker : Background("http-request")
+
+        /**
+         * Worker that performs payload uploads concurrently when delivery is configured to allow requests to different
+         * endpoints to be in flight at the same time. Backed by a small pool of threads rather than a single one.
+         */
+        object ConcurrentHttpRequestWorker : Background("http-request-concurrent")
     }
 }
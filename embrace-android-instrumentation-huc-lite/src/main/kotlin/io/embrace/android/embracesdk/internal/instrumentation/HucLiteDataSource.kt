@@ -6,6 +6,7 @@ import io.embrace.android.embracesdk.instrumentation.huclite.DelegatingInstrumen
 import io.embrace.android.embracesdk.instrumentation.huclite.HucLitePathOverrideRequest
 import io.embrace.android.embracesdk.instrumentation.huclite.InstrumentedUrlStreamHandlerFactory
 import io.embrace.android.embracesdk.internal.arch.InstrumentationArgs
+import io.embrace.android.embracesdk.internal.arch.SessionPartEndListener
 import io.embrace.android.embracesdk.internal.arch.datasource.DataSourceImpl
 import io.embrace.android.embracesdk.internal.arch.datasource.TelemetryDestination
 import io.embrace.android.embracesdk.internal.arch.limits.NoopLimitStrategy
@@ -13,6 +14,7 @@ import io.embrace.android.embracesdk.internal.arch.schema.EmbType
 import io.embrace.android.embracesdk.internal.arch.schema.ErrorCodeAttribute
 import io.embrace.android.embracesdk.internal.arch.schema.SchemaType
 import io.embrace.android.embracesdk.internal.clock.Clock
+import io.embrace.android.embracesdk.internal.instrumentation.network.NetworkRecordingQueue
 import io.embrace.android.embracesdk.internal.instrumentation.network.getOverriddenURLString
 import io.embrace.android.embracesdk.internal.instrumentation.network.toStatusCodeString
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
@@ -21,6 +23,7 @@ import io.embrace.android.embracesdk.internal.network.http.HttpRequestInfoModifi
 import io.embrace.android.embracesdk.internal.network.http.MutableHttpRequestInfoImpl
 import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
 import io.embrace.android.embracesdk.internal.utils.NetworkUtils
+import io.embrace.android.embracesdk.internal.worker.Worker
 import io.embrace.android.embracesdk.network.http.HttpRequestInfo
 import io.opentelemetry.kotlin.semconv.ErrorAttributes
 import io.opentelemetry.kotlin.semconv.ExceptionAttributes
@@ -40,7 +43,7 @@ class HucLiteDataSource(
     private val args: InstrumentationArgs,
     private val streamHandlerFactoryFieldProvider: () -> Field? = ::defaultFactoryFieldProvider,
     private val factoryInstaller: (URLStreamHandlerFactory) -> Unit = URL::setURLStreamHandlerFactory,
-) : DataSourceImpl(
+) : SessionPartEndListener, DataSourceImpl(
     args = args,
     limitStrategy = NoopLimitStrategy,
     instrumentationName = "huc_lite_data_source",
@@ -50,6 +53,14 @@ class HucLiteDataSource(
     private val recordForUrl = args.configService.networkBehavior::isUrlEnabled
     private var initializationAttempted = false
 
+    private val recordingQueue: NetworkRecordingQueue? by lazy {
+        if (args.configService.networkBehavior.isAsyncNetworkRecordingEnabled()) {
+            NetworkRecordingQueue(args.backgroundWorker(Worker.Background.NonIoRegWorker))
+        } else {
+            null
+        }
+    }
+
     override fun onDataCaptureEnabled() {
         if (!initializationAttempted) {
             try {
@@ -66,6 +77,13 @@ class HucLiteDataSource(
     override fun onDataCaptureDisabled() {
     }
 
+    /**
+     * Records any queued requests so they land in the session part that is ending.
+     */
+    override fun onPreSessionEnd() {
+        recordingQueue?.drain()
+    }
+
     fun createRequestData(
         wrappedConnection: HttpsURLConnection,
         clock: Clock,
@@ -82,6 +100,7 @@ class HucLiteDataSource(
                     telemetryDestination = telemetryDestination,
                     errorHandler = ::errorHandler,
                     httpRequestInfoModifierChain = args.httpRequestInfoModifierChain,
+                    recordingQueue = recordingQueue,
                 )
             }.onFailure {
                 errorHandler(it)
@@ -140,6 +159,7 @@ class HucLiteDataSource(
         val telemetryDestination: TelemetryDestination,
         val errorHandler: (t: Throwable) -> Unit,
         private val httpRequestInfoModifierChain: HttpRequestInfoModifierChain,
+        private val recordingQueue: NetworkRecordingQueue? = null,
     ) {
         private val creationTimeMs = clock.now()
         private val telemetryUrlProvider = {
@@ -164,8 +184,8 @@ class HucLiteDataSource(
             }
 
         fun completeRequest(responseCode: Int) {
-            recordRequest { info ->
-                val endTimeMs = clock.now()
+            val endTimeMs = clock.now()
+            recordRequest { info, startTimeMs, path ->
                 val errorCode = if (responseCode !in 1..<400) {
                     ErrorCodeAttribute.Failure
                 } else {
@@ -179,8 +199,8 @@ class HucLiteDataSource(
                     ),
                 )
                 telemetryDestination.recordCompletedSpan(
-                    name = "${info.httpMethod} ${pathProvider()}",
-                    startTimeMs = getValidStartTime(),
+                    name = "${info.httpMethod} $path",
+                    startTimeMs = startTimeMs,
                     endTimeMs = endTimeMs,
                     errorCode = errorCode,
                     type = EmbType.Performance.Network,
@@ -190,8 +210,8 @@ class HucLiteDataSource(
         }
 
         fun clientError(t: Throwable) {
-            recordRequest { info ->
-                val errorTimeMs = clock.now()
+            val errorTimeMs = clock.now()
+            recordRequest { info, startTimeMs, path ->
                 val networkRequestSchemaType = SchemaType.NetworkRequest(
                     incompleteRequestAttributes(
                         url = info.url,
@@ -201,8 +221,8 @@ class HucLiteDataSource(
                     ),
                 )
                 telemetryDestination.recordCompletedSpan(
-                    name = "${info.httpMethod} ${pathProvider()}",
-                    startTimeMs = getValidStartTime(),
+                    name = "${info.httpMethod} $path",
+                    startTimeMs = startTimeMs,
                     endTimeMs = errorTimeMs,
                     errorCode = ErrorCodeAttribute.Failure,
                     type = EmbType.Performance.Network,
@@ -245,24 +265,49 @@ class HucLiteDataSource(
             }
 
         private fun recordRequest(
-            recordingFunction: (info: HttpRequestInfo) -> Unit,
+            recordingFunction: (info: HttpRequestInfo, startTimeMs: Long, path: String) -> Unit,
         ) {
             runCatching {
                 if (requestRecorded.compareAndSet(false, true)) {
-                    // Apply any registered modifiers so the reported url/method reflect the
-                    // consumer's changes. The underlying HTTP request is not affected.
-                    val info = httpRequestInfoModifierChain.apply(
-                        MutableHttpRequestInfoImpl(
-                            httpMethod = methodProvider(),
-                            url = telemetryUrlProvider(),
-                        ),
-                    )
-                    NetworkUtils.getDomain(info.url)?.let { domain ->
-                        if (shouldRecord(domain)) {
-                            recordingFunction(info)
-                        } else {
-                            onLimitReached()
-                        }
+                    // Read everything from the connection on the calling thread, as it may be reused or
+                    // disconnected by the time a queued recording runs.
+                    val httpMethod = methodProvider()
+                    val url = telemetryUrlProvider()
+                    val path = pathProvider()
+                    val startTimeMs = getValidStartTime()
+                    val queue = recordingQueue
+                    if (queue != null) {
+                        queue.enqueue { applyLimitsAndRecord(httpMethod, url, path, startTimeMs, recordingFunction) }
+                    } else {
+                        applyLimitsAndRecord(httpMethod, url, path, startTimeMs, recordingFunction)
+                    }
+                }
+            }.onFailure {
+                errorHandler(it)
+            }
+        }
+
+        private fun applyLimitsAndRecord(
+            httpMethod: String,
+            url: String,
+            path: String,
+            startTimeMs: Long,
+            recordingFunction: (info: HttpRequestInfo, startTimeMs: Long, path: String) -> Unit,
+        ) {
+            runCatching {
+                // Apply any registered modifiers so the reported url/method reflect the
+                // consumer's changes. The underlying HTTP request is not affected.
+                val info = httpRequestInfoModifierChain.apply(
+                    MutableHttpRequestInfoImpl(
+                        httpMethod = httpMethod,
+                        url = url,
+                    ),
+                )
+                NetworkUtils.getDomain(info.url)?.let { domain ->
+                    if (shouldRecord(domain)) {
+                        recordingFunction(info, startTimeMs, path)
+                    } else {
+                        onLimitReached()
                     }
                 }
             }.onFailure {
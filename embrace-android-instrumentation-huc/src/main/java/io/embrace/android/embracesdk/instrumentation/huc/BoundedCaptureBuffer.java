@@ -0,0 +1,114 @@
+package io.embrace.android.embracesdk.instrumentation.huc;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a copy of at most a fixed number of bytes written to it, so a network body can be captured without buffering
+ * the parts that would be truncated anyway. Bytes are held in fixed size chunks taken from a small shared pool, so
+ * capturing a body neither allocates per write nor grows and copies a contiguous array.
+ */
+final class BoundedCaptureBuffer {
+
+    private static final int CHUNK_SIZE = 8192;
+    private static final int MAX_POOLED_CHUNKS = 32;
+    private static final long MAX_CAPTURE_BYTES = Integer.MAX_VALUE - 8;
+
+    private static final ConcurrentLinkedQueue<byte[]> pool = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger pooledChunks = new AtomicInteger(0);
+
+    private final long limit;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private int size;
+    private boolean released;
+
+    /**
+     * @param limit the maximum number of bytes to keep. Anything written beyond it is dropped.
+     */
+    BoundedCaptureBuffer(long limit) {
+        this.limit = Math.max(0, Math.min(limit, MAX_CAPTURE_BYTES));
+    }
+
+    synchronized void write(int b) {
+        if (released || size >= limit) {
+            return;
+        }
+        int position = size % CHUNK_SIZE;
+        if (position == 0) {
+            chunks.add(acquireChunk());
+        }
+        chunks.get(chunks.size() - 1)[position] = (byte) b;
+        size++;
+    }
+
+    synchronized void write(@NonNull byte[] b, int off, int len) {
+        if (released) {
+            return;
+        }
+        int remaining = (int) Math.min(len, limit - size);
+        while (remaining > 0) {
+            int position = size % CHUNK_SIZE;
+            if (position == 0) {
+                chunks.add(acquireChunk());
+            }
+            int count = Math.min(remaining, CHUNK_SIZE - position);
+            System.arraycopy(b, off, chunks.get(chunks.size() - 1), position, count);
+            off += count;
+            size += count;
+            remaining -= count;
+        }
+    }
+
+    /**
+     * Returns a copy of the bytes captured so far.
+     */
+    @NonNull
+    synchronized byte[] toByteArray() {
+        byte[] result = new byte[size];
+        int copied = 0;
+        for (byte[] chunk : chunks) {
+            int count = Math.min(CHUNK_SIZE, size - copied);
+            System.arraycopy(chunk, 0, result, copied, count);
+            copied += count;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the bytes captured so far and hands the chunks back to the pool. Nothing is captured afterwards.
+     */
+    @NonNull
+    synchronized byte[] release() {
+        byte[] result = toByteArray();
+        if (!released) {
+            released = true;
+            for (byte[] chunk : chunks) {
+                releaseChunk(chunk);
+            }
+            chunks.clear();
+            size = 0;
+        }
+        return result;
+    }
+
+    private static byte[] acquireChunk() {
+        byte[] chunk = pool.poll();
+        if (chunk == null) {
+            return new byte[CHUNK_SIZE];
+        }
+        pooledChunks.decrementAndGet();
+        return chunk;
+    }
+
+    private static void releaseChunk(byte[] chunk) {
+        if (pooledChunks.incrementAndGet() <= MAX_POOLED_CHUNKS) {
+            pool.offer(chunk);
+        } else {
+            pooledChunks.decrementAndGet();
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package io.embrace.android.embracesdk.instrumentation.huc;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,21 +35,24 @@ final class CountingInputStreamWithCallback extends FilterInputStream {
      */
     private final AtomicLong count = new AtomicLong(0);
 
-    private final boolean shouldCaptureBody;
-
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    /**
+     * Holds the captured body, or null if the body should not be captured.
+     */
+    @Nullable
+    private final BoundedCaptureBuffer capturedBody;
 
     /**
      * Wraps another input stream, counting the number of bytes read.
      *
-     * @param in the input stream to be wrapped
+     * @param in           the input stream to be wrapped
+     * @param captureLimit the maximum number of bytes of the body to capture, or 0 to capture nothing
      */
     CountingInputStreamWithCallback(InputStream in,
-                                    boolean shouldCaptureBody,
+                                    long captureLimit,
                                     @NonNull Function1<byte[], Unit> callback) {
         super(in);
         this.callback = callback;
-        this.shouldCaptureBody = shouldCaptureBody;
+        this.capturedBody = captureLimit > 0 ? new BoundedCaptureBuffer(captureLimit) : null;
     }
 
     /**
@@ -64,8 +67,9 @@ final class CountingInputStreamWithCallback extends FilterInputStream {
         int result = in.read();
         if (result != -1) {
             count.incrementAndGet();
-            byte[] resultByte = {Integer.valueOf(result).byteValue()};
-            conditionallyCaptureBody(resultByte, 0, 1);
+            if (capturedBody != null) {
+                capturedBody.write(result);
+            }
         } else if (!callbackCompleted) {
             notifyCallback();
         }
@@ -77,7 +81,9 @@ final class CountingInputStreamWithCallback extends FilterInputStream {
         int result = in.read(b, off, len);
         if (result != -1) {
             count.addAndGet(result);
-            conditionallyCaptureBody(b, off, result);
+            if (capturedBody != null && b != null) {
+                capturedBody.write(b, off, result);
+            }
         } else if (!callbackCompleted) {
             notifyCallback();
         }
@@ -112,18 +118,8 @@ final class CountingInputStreamWithCallback extends FilterInputStream {
         callbackCompleted = false;
     }
 
-    private void conditionallyCaptureBody(byte[] b, int off, int len) {
-        if (!shouldCaptureBody) {
-            return;
-        }
-
-        if (b != null) {
-            os.write(b, off, len);
-        }
-    }
-
     private void notifyCallback() {
         callbackCompleted = true;
-        callback.invoke(os.toByteArray());
+        callback.invoke(capturedBody != null ? capturedBody.release() : new byte[0]);
     }
 }
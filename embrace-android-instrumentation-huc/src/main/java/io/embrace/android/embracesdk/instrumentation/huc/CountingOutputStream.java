@@ -1,6 +1,7 @@
 package io.embrace.android.embracesdk.instrumentation.huc;
 
-import java.io.ByteArrayOutputStream;
+import androidx.annotation.Nullable;
+
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -11,15 +12,24 @@ import java.io.OutputStream;
 class CountingOutputStream extends FilterOutputStream {
     private long count;
 
-    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    @Nullable
+    private final BoundedCaptureBuffer capturedBody;
+
+    /**
+     * The captured request body, set once the stream is closed and the capture buffer has been released.
+     */
+    @Nullable
+    private byte[] closedRequestBody;
 
     /**
      * Wraps another output stream, counting the number of bytes written.
      *
-     * @param out the output stream to be wrapped
+     * @param out          the output stream to be wrapped
+     * @param captureLimit the maximum number of bytes of the request body to capture, or 0 to capture nothing
      */
-    public CountingOutputStream(OutputStream out) {
+    public CountingOutputStream(OutputStream out, long captureLimit) {
         super(out);
+        this.capturedBody = captureLimit > 0 ? new BoundedCaptureBuffer(captureLimit) : null;
     }
 
     /**
@@ -30,18 +40,24 @@ class CountingOutputStream extends FilterOutputStream {
     }
 
     /**
-     * Returns the request body written.
+     * Returns the request body written, up to the capture limit, or null if it is not being captured.
      */
+    @Nullable
     byte[] getRequestBody() {
-        return os.toByteArray();
+        if (capturedBody == null) {
+            return null;
+        }
+        synchronized (capturedBody) {
+            return closedRequestBody != null ? closedRequestBody : capturedBody.toByteArray();
+        }
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
         out.write(b, off, len);
         count += len;
-        if (b != null) {
-            os.write(b, off, len);
+        if (capturedBody != null && b != null) {
+            capturedBody.write(b, off, len);
         }
     }
 
@@ -49,7 +65,9 @@ class CountingOutputStream extends FilterOutputStream {
     public void write(int b) throws IOException {
         out.write(b);
         count++;
-        os.write(b);
+        if (capturedBody != null) {
+            capturedBody.write(b);
+        }
     }
 
     // Overriding close() because FilterOutputStream's close() method pre-JDK8 has bad behavior:
@@ -57,6 +75,16 @@ class CountingOutputStream extends FilterOutputStream {
     // It should flush itself if necessary.
     @Override
     public void close() throws IOException {
-        out.close();
+        try {
+            out.close();
+        } finally {
+            if (capturedBody != null) {
+                synchronized (capturedBody) {
+                    if (closedRequestBody == null) {
+                        closedRequestBody = capturedBody.release();
+                    }
+                }
+            }
+        }
     }
 }
@@ -405,7 +405,7 @@ class EmbraceUrlConnectionDelegate<T extends HttpURLConnection> implements Embra
         identifyTraceId();
         OutputStream out = connection.getOutputStream();
         if (enableWrapIoStreams && this.outputStream == null && out != null) {
-            this.outputStream = new CountingOutputStream(out);
+            this.outputStream = new CountingOutputStream(out, networkBodyCaptureLimit());
             return this.outputStream;
         }
         return out;
@@ -617,7 +617,7 @@ class EmbraceUrlConnectionDelegate<T extends HttpURLConnection> implements Embra
     private CountingInputStreamWithCallback countingInputStream(InputStream inputStream) {
         return new CountingInputStreamWithCallback(
             inputStream,
-            hasNetworkCaptureRules(),
+            networkBodyCaptureLimit(),
             (responseBody) -> {
                 cacheNetworkCallData(responseBody);
                 internalLogNetworkCall();
@@ -778,6 +778,20 @@ class EmbraceUrlConnectionDelegate<T extends HttpURLConnection> implements Embra
         return internalNetworkApi.shouldCaptureNetworkBody(url, method);
     }
 
+    /**
+     * The number of body bytes worth capturing, which is the largest max size of the capture rules that apply to this
+     * request, or 0 if none do.
+     */
+    private long networkBodyCaptureLimit() {
+        if (this.connection.getURL() == null) {
+            return 0;
+        }
+        String url = this.connection.getURL().toString();
+        String method = this.connection.getRequestMethod();
+
+        return internalNetworkApi.getNetworkBodyCaptureLimit(url, method);
+    }
+
     private void cacheNetworkCallData() {
         cacheNetworkCallData(null);
     }
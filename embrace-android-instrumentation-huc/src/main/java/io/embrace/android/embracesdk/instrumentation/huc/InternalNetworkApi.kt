@@ -6,6 +6,7 @@ internal interface InternalNetworkApi {
     fun isNetworkSpanForwardingEnabled(): Boolean
     fun recordNetworkRequest(embraceNetworkRequest: EmbraceNetworkRequest)
     fun shouldCaptureNetworkBody(url: String, method: String): Boolean
+    fun getNetworkBodyCaptureLimit(url: String, method: String): Long
     fun logInternalError(error: Throwable)
     fun getSdkCurrentTimeMs(): Long
 }
@@ -14,6 +15,7 @@ internal object NoopInternalNetworkApi : InternalNetworkApi {
     override fun isNetworkSpanForwardingEnabled(): Boolean = false
     override fun recordNetworkRequest(embraceNetworkRequest: EmbraceNetworkRequest) {}
     override fun shouldCaptureNetworkBody(url: String, method: String): Boolean = false
+    override fun getNetworkBodyCaptureLimit(url: String, method: String): Long = 0
     override fun logInternalError(error: Throwable) {}
     override fun getSdkCurrentTimeMs(): Long = 0
 }
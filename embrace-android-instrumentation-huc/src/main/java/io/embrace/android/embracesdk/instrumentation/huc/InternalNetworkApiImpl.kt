@@ -52,5 +52,12 @@ internal class InternalNetworkApiImpl(
         ) ?: false
     }
 
+    override fun getNetworkBodyCaptureLimit(url: String, method: String): Long {
+        return networkCaptureDataSource?.getNetworkBodyCaptureLimit(
+            url = url,
+            method = method,
+        ) ?: 0
+    }
+
     override fun logInternalError(error: Throwable) = args.logger.trackInternalError(InternalErrorType.InternalInterfaceFail, error)
 }
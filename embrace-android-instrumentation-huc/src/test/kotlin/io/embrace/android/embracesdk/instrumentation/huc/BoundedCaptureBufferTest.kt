@@ -0,0 +1,78 @@
+package io.embrace.android.embracesdk.instrumentation.huc
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+
+internal class BoundedCaptureBufferTest {
+
+    @Test
+    fun `bytes up to the limit are captured`() {
+        val buffer = BoundedCaptureBuffer(5)
+        buffer.write("abc".toByteArray(), 0, 3)
+        buffer.write('d'.code)
+        buffer.write("efgh".toByteArray(), 0, 4)
+        buffer.write('i'.code)
+
+        assertEquals("abcde", buffer.toByteArray().decodeToString())
+    }
+
+    @Test
+    fun `offset writes are respected`() {
+        val buffer = BoundedCaptureBuffer(100)
+        buffer.write("xxabcxx".toByteArray(), 2, 3)
+
+        assertEquals("abc", buffer.toByteArray().decodeToString())
+    }
+
+    @Test
+    fun `bodies spanning several chunks are captured`() {
+        val body = ByteArray(20_000) { it.toByte() }
+        val buffer = BoundedCaptureBuffer(Long.MAX_VALUE)
+        body.asList().chunked(3000).forEach {
+            buffer.write(it.toByteArray(), 0, it.size)
+        }
+
+        assertArrayEquals(body, buffer.toByteArray())
+    }
+
+    @Test
+    fun `nothing is captured after release`() {
+        val buffer = BoundedCaptureBuffer(100)
+        buffer.write("abc".toByteArray(), 0, 3)
+
+        assertEquals("abc", buffer.release().decodeToString())
+        buffer.write("def".toByteArray(), 0, 3)
+        assertEquals(0, buffer.release().size)
+    }
+
+    @Test
+    fun `released chunks do not leak into later buffers`() {
+        val first = BoundedCaptureBuffer(100)
+        first.write("secret".toByteArray(), 0, 6)
+        first.release()
+
+        val second = BoundedCaptureBuffer(100)
+        second.write("ab".toByteArray(), 0, 2)
+        assertEquals("ab", second.release().decodeToString())
+    }
+
+    @Test
+    fun `counting streams only capture up to the limit`() {
+        var responseBody: ByteArray? = null
+        val input = CountingInputStreamWithCallback("hello world".byteInputStream(), 5) {
+            responseBody = it
+        }
+        assertEquals("hello world", input.readBytes().decodeToString())
+        assertEquals(11, input.count)
+        assertEquals("hello", responseBody?.decodeToString())
+
+        val output = CountingOutputStream(ByteArrayOutputStream(), 5)
+        output.write("hello world".toByteArray())
+        assertEquals("hello", output.requestBody?.decodeToString())
+        output.close()
+        assertEquals("hello", output.requestBody?.decodeToString())
+        assertEquals(11, output.count)
+    }
+}
@@ -5,6 +5,7 @@ import io.embrace.android.embracesdk.network.EmbraceNetworkRequest
 internal class FakeInternalNetworkApi(
     var time: Long = 0,
     var captureNetworkBody: Boolean = true,
+    var networkBodyCaptureLimit: Long = Long.MAX_VALUE,
     var networkSpanForwardingEnabled: Boolean = false,
 ) : InternalNetworkApi {
 
@@ -21,5 +22,10 @@ internal class FakeInternalNetworkApi(
         method: String,
     ): Boolean = captureNetworkBody
 
+    override fun getNetworkBodyCaptureLimit(
+        url: String,
+        method: String,
+    ): Long = if (captureNetworkBody) networkBodyCaptureLimit else 0
+
     override fun logInternalError(error: Throwable) {}
 }
@@ -68,6 +68,7 @@ internal class InternalNetworkApiImplTest {
         assertEquals(args.clock.now(), getSdkCurrentTimeMs())
         assertEquals(args.configService.networkSpanForwardingBehavior.isNetworkSpanForwardingEnabled(), isNetworkSpanForwardingEnabled())
         assertFalse(shouldCaptureNetworkBody("foo", "GET"))
+        assertEquals(0L, getNetworkBodyCaptureLimit("foo", "GET"))
     }
 
     private class FakeNetworkRequestDataSource : NetworkRequestDataSource {
@@ -15,4 +15,10 @@ interface NetworkCaptureDataSource : DataSource {
      * This method is discouraged and will be removed soon.
      */
     fun shouldCaptureNetworkBody(url: String, method: String): Boolean
+
+    /**
+     * The maximum number of body bytes worth capturing for the given URL and method: the largest max size of the
+     * rules that apply, or 0 if none do. Anything beyond this would be truncated before it is sent.
+     */
+    fun getNetworkBodyCaptureLimit(url: String, method: String): Long
 }
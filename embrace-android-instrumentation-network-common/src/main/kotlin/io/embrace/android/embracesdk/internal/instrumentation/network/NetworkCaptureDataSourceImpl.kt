@@ -51,6 +51,10 @@ class NetworkCaptureDataSourceImpl(
         return getNetworkCaptureRules(url, method).isNotEmpty()
     }
 
+    override fun getNetworkBodyCaptureLimit(url: String, method: String): Long {
+        return getNetworkCaptureRules(url, method).maxOfOrNull { it.maxSize } ?: 0
+    }
+
     /**
      * Logs the network captured data only if it matches the duration and status code set on the Network Rule.
      */
@@ -145,31 +149,12 @@ class NetworkCaptureDataSourceImpl(
      * The rule expire_in field must be > 0. Otherwise the rule is expired and shouldn't be apply.
      */
     internal fun getNetworkCaptureRules(url: String, method: String): Set<NetworkCaptureRuleRemoteConfig> {
-        val networkCaptureRules = configService.networkBehavior.getNetworkCaptureRules().toMutableSet()
-        if (networkCaptureRules.isEmpty()) {
-            return emptySet()
-        }
-
         // Embrace data endpoint cannot be captured, even if there is a rule for that.
         if (url.contains(EMB_DATA_URL)) {
             return emptySet()
         }
-
-        val applicableRules = networkCaptureRules.filter { rule ->
-            rule.method.contains(method) && rule.urlRegex.toRegex().containsMatchIn(url) && rule.expiresIn > 0
-        }.toMutableSet()
-
-        val rulesToRemove = mutableSetOf<NetworkCaptureRuleRemoteConfig>()
-        applicableRules.forEach { rule ->
-            if (isNetworkCaptureRuleOver(rule.id)) {
-                rulesToRemove.add(rule)
-            }
-        }
-
-        networkCaptureRules.removeAll(rulesToRemove)
-        applicableRules.removeAll(rulesToRemove)
-
-        return applicableRules
+        return configService.networkBehavior.getMatchingNetworkCaptureRules(url, method)
+            .filterNotTo(LinkedHashSet()) { isNetworkCaptureRuleOver(it.id) }
     }
 
     private fun isNetworkCaptureRuleOver(id: String): Boolean {
@@ -197,6 +182,11 @@ class NetworkCaptureDataSourceImpl(
 
     private fun encryptNetworkCall(capturedNetworkCall: NetworkCapturedCall): String? {
         val capturePublicKey = configService.networkBehavior.getNetworkBodyCapturePublicKey() ?: return null
+        if (configService.networkBehavior.isHybridBodyEncryptionEnabled()) {
+            return networkCaptureEncryptionManager.encryptHybrid(capturePublicKey) {
+                serializer.toJson(capturedNetworkCall, it)
+            }
+        }
         return networkCaptureEncryptionManager.encrypt(
             serializer.toJson(capturedNetworkCall),
             capturePublicKey,
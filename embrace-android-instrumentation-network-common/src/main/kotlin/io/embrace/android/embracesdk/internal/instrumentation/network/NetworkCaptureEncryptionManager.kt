@@ -1,31 +1,49 @@
 package io.embrace.android.embracesdk.internal.instrumentation.network
 
 import android.util.Base64
+import android.util.Base64OutputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
 import java.io.IOException
+import java.io.OutputStream
+import java.security.GeneralSecurityException
 import java.security.InvalidKeyException
 import java.security.Key
 import java.security.KeyFactory
 import java.security.NoSuchAlgorithmException
+import java.security.SecureRandom
 import java.security.spec.InvalidKeySpecException
 import java.security.spec.X509EncodedKeySpec
 import javax.crypto.BadPaddingException
 import javax.crypto.Cipher
+import javax.crypto.CipherOutputStream
 import javax.crypto.IllegalBlockSizeException
+import javax.crypto.KeyGenerator
 import javax.crypto.NoSuchPaddingException
+import javax.crypto.spec.GCMParameterSpec
+import javax.crypto.spec.SecretKeySpec
 
 /**
  * API to encrypt/decrypt data
  */
-internal class NetworkCaptureEncryptionManager {
+class NetworkCaptureEncryptionManager {
+
+    private class ParsedKey(val text: String, val key: Key)
 
     private val transformation = "RSA/ECB/PKCS1Padding"
+    private val secureRandom by lazy { SecureRandom() }
+
+    // the capture key rarely changes, so keep the last parsed one rather than decoding it for every body
+    @Volatile
+    private var parsedKey: ParsedKey? = null
 
     /**
      * @return encrypted data in Base64 String or null if any error occur.
      */
     fun encrypt(data: String, keyText: String): String? {
         return try {
-            val publicKey = getKeyFromText(keyText)
+            val publicKey = getPublicKey(keyText)
             if (publicKey != null) {
                 encrypt(data, publicKey)
             } else {
@@ -60,6 +78,81 @@ internal class NetworkCaptureEncryptionManager {
         return result
     }
 
+    /**
+     * Encrypts the bytes written by [writeBody] with a freshly generated AES-GCM key, and wraps that key with the
+     * public key. The body is encrypted as it is written, so it never needs to be held in memory as plain text.
+     *
+     * The Base64 encoded result contains a format version byte, the length of the wrapped key as two bytes, the
+     * wrapped key, the GCM nonce, and then the ciphertext followed by the GCM tag.
+     *
+     * @return encrypted data in Base64 String or null if any error occur.
+     */
+    fun encryptHybrid(keyText: String, writeBody: (OutputStream) -> Unit): String? {
+        return try {
+            val publicKey = getPublicKey(keyText) ?: return null
+            val bodyKey = KeyGenerator.getInstance(AES).run {
+                init(AES_KEY_SIZE_BITS, secureRandom)
+                generateKey()
+            }
+            val wrappedKey = Cipher.getInstance(transformation).run {
+                init(Cipher.ENCRYPT_MODE, publicKey)
+                doFinal(bodyKey.encoded)
+            }
+            val nonce = ByteArray(GCM_NONCE_SIZE).also(secureRandom::nextBytes)
+            val bodyCipher = Cipher.getInstance(AES_GCM_TRANSFORMATION).apply {
+                init(Cipher.ENCRYPT_MODE, bodyKey, GCMParameterSpec(GCM_TAG_SIZE_BITS, nonce))
+            }
+
+            val bytes = ByteArrayOutputStream()
+            val base64 = Base64OutputStream(bytes, Base64.DEFAULT)
+            DataOutputStream(base64).apply {
+                writeByte(HYBRID_FORMAT_VERSION)
+                writeShort(wrappedKey.size)
+                write(wrappedKey)
+                write(nonce)
+                flush()
+            }
+            // closing the cipher stream writes the GCM tag and the Base64 padding
+            CipherOutputStream(base64, bodyCipher).use(writeBody)
+            bytes.toString(UTF_8)
+        } catch (ignored: GeneralSecurityException) {
+            null
+        } catch (ignored: IOException) {
+            null
+        } catch (ignored: IllegalArgumentException) {
+            null
+        }
+    }
+
+    /**
+     * @param data Base64 data produced by [encryptHybrid].
+     * @return decrypted data or null if any error occur
+     */
+    fun decryptHybrid(data: String, key: Key): String? {
+        return try {
+            val input = DataInputStream(Base64.decode(data, Base64.DEFAULT).inputStream())
+            if (input.readByte().toInt() != HYBRID_FORMAT_VERSION) {
+                return null
+            }
+            val wrappedKey = ByteArray(input.readUnsignedShort()).also(input::readFully)
+            val nonce = ByteArray(GCM_NONCE_SIZE).also(input::readFully)
+            val bodyKey = Cipher.getInstance(transformation).run {
+                init(Cipher.DECRYPT_MODE, key)
+                SecretKeySpec(doFinal(wrappedKey), AES)
+            }
+            val bodyCipher = Cipher.getInstance(AES_GCM_TRANSFORMATION).apply {
+                init(Cipher.DECRYPT_MODE, bodyKey, GCMParameterSpec(GCM_TAG_SIZE_BITS, nonce))
+            }
+            String(bodyCipher.doFinal(input.readBytes()), charset(UTF_8))
+        } catch (ignored: GeneralSecurityException) {
+            null
+        } catch (ignored: IOException) {
+            null
+        } catch (ignored: IllegalArgumentException) {
+            null
+        }
+    }
+
     /**
      * @param data Base64 encrypted data.
      * @return decrypted data or null if any error occur
@@ -141,6 +234,13 @@ internal class NetworkCaptureEncryptionManager {
         return toReturn
     }
 
+    private fun getPublicKey(keyText: String): Key? {
+        parsedKey?.takeIf { it.text == keyText }?.let { return it.key }
+        return getKeyFromText(keyText)?.also {
+            parsedKey = ParsedKey(keyText, it)
+        }
+    }
+
     private fun getKeyFromText(keyText: String?): Key? {
         try {
             val encodedKeySpec = X509EncodedKeySpec(Base64.decode(keyText, Base64.DEFAULT))
@@ -156,5 +256,11 @@ internal class NetworkCaptureEncryptionManager {
         private const val UTF_8 = "UTF-8"
         private const val ENCRYPT_BLOCK_SIZE = 245
         private const val DECRYPT_BLOCK_SIZE = 256
+        private const val HYBRID_FORMAT_VERSION = 2
+        private const val AES = "AES"
+        private const val AES_GCM_TRANSFORMATION = "AES/GCM/NoPadding"
+        private const val AES_KEY_SIZE_BITS = 256
+        private const val GCM_NONCE_SIZE = 12
+        private const val GCM_TAG_SIZE_BITS = 128
     }
 }
@@ -0,0 +1,65 @@
+package io.embrace.android.embracesdk.internal.instrumentation.network
+
+import io.embrace.android.embracesdk.internal.utils.concurrent.RingBuffer
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Moves the work of turning network requests into telemetry off the thread that made the request. Callers snapshot
+ * the timestamps and request data they need into a task, and the tasks run in the order they were queued on [worker].
+ *
+ * Queueing a task is a lock-free offer to a [RingBuffer]. If the buffer is full, everything already queued and then the
+ * new task run on the calling thread, so nothing is dropped or reordered.
+ */
+class NetworkRecordingQueue(
+    private val worker: BackgroundWorker,
+    capacity: Int = DEFAULT_CAPACITY,
+) {
+
+    private val buffer = RingBuffer<() -> Unit>(capacity)
+    private val drainLock = Any()
+    private val drainScheduled = AtomicBoolean(false)
+
+    /**
+     * Queues [task] to run on the background worker.
+     */
+    fun enqueue(task: () -> Unit) {
+        if (!buffer.offer(task)) {
+            synchronized(drainLock) {
+                drainLocked()
+                runTask(task)
+            }
+            return
+        }
+        if (drainScheduled.compareAndSet(false, true)) {
+            worker.submit {
+                drainScheduled.set(false)
+                drain()
+            }
+        }
+    }
+
+    /**
+     * Runs every queued task on the calling thread. If the worker is part way through the queue, this waits for it.
+     */
+    fun drain() {
+        synchronized(drainLock) {
+            drainLocked()
+        }
+    }
+
+    private fun drainLocked() {
+        while (true) {
+            runTask(buffer.poll() ?: return)
+        }
+    }
+
+    private fun runTask(task: () -> Unit) {
+        // tasks report their own failures, and one failing must not strand the tasks behind it
+        runCatching(task)
+    }
+
+    private companion object {
+        private const val DEFAULT_CAPACITY = 256
+    }
+}
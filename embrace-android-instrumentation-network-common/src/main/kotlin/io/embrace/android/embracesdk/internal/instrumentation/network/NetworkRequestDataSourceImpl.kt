@@ -13,15 +13,9 @@ import io.embrace.android.embracesdk.internal.network.logging.DomainCountLimiter
 import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
 import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getDomain
 import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getUrlPath
-import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getValidTraceId
 import io.embrace.android.embracesdk.internal.utils.NetworkUtils.stripUrl
-import io.embrace.android.embracesdk.internal.utils.putIfNotNull
+import io.embrace.android.embracesdk.internal.worker.Worker
 import io.embrace.android.embracesdk.semconv.EmbNetworkRequestAttributes
-import io.opentelemetry.kotlin.semconv.ErrorAttributes
-import io.opentelemetry.kotlin.semconv.ExceptionAttributes
-import io.opentelemetry.kotlin.semconv.HttpAttributes
-import io.opentelemetry.kotlin.semconv.UrlAttributes
-import io.opentelemetry.kotlin.semconv.UserAgentAttributes
 import java.util.concurrent.ConcurrentHashMap
 
 /**
@@ -42,7 +36,25 @@ class NetworkRequestDataSourceImpl(
     private val domainCountLimiter: DomainCountLimiter = args.configService.networkBehavior.domainCountLimiter
     private val httpRequestInfoModifierChain = args.httpRequestInfoModifierChain
 
+    // decided once, so that ends and discards for the same request are never split between the queue and the caller
+    private val recordingQueue: NetworkRecordingQueue? by lazy {
+        if (configService.networkBehavior.isAsyncNetworkRecordingEnabled()) {
+            NetworkRecordingQueue(args.backgroundWorker(Worker.Background.NonIoRegWorker))
+        } else {
+            null
+        }
+    }
+
     override fun recordNetworkRequest(request: HttpNetworkRequest) {
+        val queue = recordingQueue
+        if (queue != null) {
+            queue.enqueue { recordCompletedRequest(request) }
+        } else {
+            recordCompletedRequest(request)
+        }
+    }
+
+    private fun recordCompletedRequest(request: HttpNetworkRequest) {
         // Apply any registered modifiers so the reported url/method reflect the consumer's changes.
         // The underlying HTTP request is not affected.
         val info = httpRequestInfoModifierChain.apply(MutableHttpRequestInfoImpl(request.httpMethod, request.url))
@@ -54,9 +66,8 @@ class NetworkRequestDataSourceImpl(
         }
 
         // Get the domain, if it can be successfully parsed. If not, don't log this call.
-        val domain = getDomain(
-            stripUrl(url),
-        ) ?: return
+        val strippedUrl = stripUrl(url)
+        val domain = getDomain(strippedUrl) ?: return
 
         captureTelemetry(
             inputValidation = {
@@ -66,7 +77,10 @@ class NetworkRequestDataSourceImpl(
                 telemetryService.trackAppliedLimit("network_request", AppliedLimitType.DROP)
             },
         ) {
-            val networkRequestSchemaType = SchemaType.NetworkRequest(generateSchemaAttributes(request, url, httpMethod))
+            // the span service may buffer this call until it is initialized, so it still takes a map
+            val attributes = buildMap {
+                NetworkSpanAttributes.writeCompleted(request, strippedUrl, httpMethod) { key, value -> put(key, value) }
+            }
             val statusCode = request.statusCode
             val errorCode = if (statusCode == null || statusCode <= 0 || statusCode >= 400) {
                 ErrorCodeAttribute.Failure
@@ -74,11 +88,11 @@ class NetworkRequestDataSourceImpl(
                 null
             }
             recordCompletedSpan(
-                name = getNetworkSpanName(httpMethod, url),
+                name = getNetworkSpanName(httpMethod, strippedUrl),
                 startTimeMs = request.startTime,
                 endTimeMs = request.endTime,
                 type = EmbType.Performance.Network,
-                attributes = networkRequestSchemaType.attributes(),
+                attributes = attributes,
                 errorCode = errorCode,
             )
         }
@@ -96,9 +110,8 @@ class NetworkRequestDataSourceImpl(
         }
 
         // Get the domain, if it can be successfully parsed. If not, don't log this call.
-        val domain = getDomain(
-            stripUrl(url),
-        ) ?: return null
+        val strippedUrl = stripUrl(url)
+        val domain = getDomain(strippedUrl) ?: return null
 
         return captureTelemetry(
             inputValidation = { domainCountLimiter.canLogNetworkRequest(domain) },
@@ -107,9 +120,11 @@ class NetworkRequestDataSourceImpl(
             },
         ) {
             val spanToken = destination.startSpanCapture(
-                schemaType = SchemaType.NetworkRequest(requestStartAttributes(url, httpMethod)),
+                schemaType = SchemaType.NetworkRequest { put ->
+                    NetworkSpanAttributes.writeStart(strippedUrl, httpMethod, put)
+                },
                 startTimeMs = startData.sdkClockStartTime,
-                name = getNetworkSpanName(httpMethod, url),
+                name = getNetworkSpanName(httpMethod, strippedUrl),
                 parentSpanId = startData.traceparent?.getSpanIdFromTraceparent(),
                 timeoutMs = startData.timeoutMs,
             )
@@ -125,6 +140,15 @@ class NetworkRequestDataSourceImpl(
     }
 
     override fun endRequest(endData: RequestEndData) {
+        val queue = recordingQueue
+        if (queue != null) {
+            queue.enqueue { stopRequestSpan(endData) }
+        } else {
+            stopRequestSpan(endData)
+        }
+    }
+
+    private fun stopRequestSpan(endData: RequestEndData) {
         activeRequests.remove(endData.id)?.let { activeRequest ->
             // The final url is only known when the request ends (e.g. it may be overridden during
             // execution), so apply the modifiers again to the end url. The underlying HTTP request
@@ -139,8 +163,8 @@ class NetworkRequestDataSourceImpl(
                 } else {
                     null
                 }
-                requestEndAttributes(endData, modifiedUrl).forEach {
-                    setSystemAttribute(it.key, it.value)
+                NetworkSpanAttributes.writeEnd(endData, stripUrl(modifiedUrl)) { key, value ->
+                    setSystemAttribute(key, value)
                 }
                 stop(endData.sdkClockEndTime, errorCode)
             }
@@ -148,55 +172,25 @@ class NetworkRequestDataSourceImpl(
     }
 
     override fun discardRequest(id: String) {
-        activeRequests.remove(id)
+        val queue = recordingQueue
+        if (queue != null) {
+            queue.enqueue { activeRequests.remove(id) }
+        } else {
+            activeRequests.remove(id)
+        }
     }
 
     /**
-     * When a session part ends, drop any tracking entries whose span has already been stopped by the
-     * timeout sweep. This releases the retained [SpanToken] (and its underlying span) for requests
-     * that leaked and were never explicitly ended.
+     * When a session part ends, record any queued requests so they land in the ending session part, then
+     * drop any tracking entries whose span has already been stopped by the timeout sweep. This releases the
+     * retained [SpanToken] (and its underlying span) for requests that leaked and were never explicitly ended.
      */
     override fun onPreSessionEnd() {
+        recordingQueue?.drain()
         activeRequests.values.removeAll { !it.spanToken.isRecording() }
     }
 
-    private fun generateSchemaAttributes(
-        request: HttpNetworkRequest,
-        url: String,
-        httpMethod: String,
-    ): Map<String, String> = buildMap {
-        put(UrlAttributes.URL_FULL, stripUrl(url))
-        put(HttpAttributes.HTTP_REQUEST_METHOD, httpMethod)
-        putIfNotNull(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, request.statusCode?.toStatusCodeString())
-        putIfNotNull(HttpAttributes.HTTP_REQUEST_BODY_SIZE, request.bytesSent?.toString())
-        putIfNotNull(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, request.bytesReceived?.toString())
-        putIfNotNull(ErrorAttributes.ERROR_TYPE, request.errorType)
-        putIfNotNull(ExceptionAttributes.EXCEPTION_MESSAGE, request.errorMessage)
-        request.w3cTraceparent?.let { traceparent ->
-            put(EmbNetworkRequestAttributes.EMB_W3C_TRACEPARENT, traceparent)
-            put(EmbNetworkRequestAttributes.EMB_FORWARD_TELEMETRY, "true")
-        }
-        putIfNotNull(EmbNetworkRequestAttributes.EMB_TRACE_ID, getValidTraceId(request.traceId))
-    }
-
-    private fun requestStartAttributes(url: String, httpMethod: String): Map<String, String> = buildMap {
-        put(UrlAttributes.URL_FULL, stripUrl(url))
-        put(HttpAttributes.HTTP_REQUEST_METHOD, httpMethod)
-    }
-
-    private fun requestEndAttributes(endData: RequestEndData, url: String): Map<String, String> = buildMap {
-        put(UrlAttributes.URL_FULL, stripUrl(url))
-        putIfNotNull(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, endData.statusCode?.toStatusCodeString())
-        putIfNotNull(HttpAttributes.HTTP_REQUEST_BODY_SIZE, endData.bytesSent?.toString())
-        putIfNotNull(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, endData.bytesReceived?.toString())
-        putIfNotNull(ErrorAttributes.ERROR_TYPE, endData.errorType)
-        putIfNotNull(ExceptionAttributes.EXCEPTION_MESSAGE, endData.errorMessage)
-        putIfNotNull(UserAgentAttributes.USER_AGENT_NAME, endData.userAgentName)
-        putIfNotNull(UserAgentAttributes.USER_AGENT_VERSION, endData.userAgentVersion)
-        putIfNotNull(EmbNetworkRequestAttributes.EMB_TRACE_ID, getValidTraceId(endData.traceId))
-    }
-
-    private fun getNetworkSpanName(httpMethod: String, url: String) = "$httpMethod ${getUrlPath(stripUrl(url))}"
+    private fun getNetworkSpanName(httpMethod: String, strippedUrl: String) = "$httpMethod ${getUrlPath(strippedUrl)}"
 
     /**
      * Returns the span-id of this string if it is a valid W3C traceparent, or null if it is not.
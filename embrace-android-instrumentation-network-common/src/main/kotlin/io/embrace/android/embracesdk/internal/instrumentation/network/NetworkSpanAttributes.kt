@@ -0,0 +1,61 @@
+package io.embrace.android.embracesdk.internal.instrumentation.network
+
+import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getValidTraceId
+import io.embrace.android.embracesdk.semconv.EmbNetworkRequestAttributes
+import io.opentelemetry.kotlin.semconv.ErrorAttributes
+import io.opentelemetry.kotlin.semconv.ExceptionAttributes
+import io.opentelemetry.kotlin.semconv.HttpAttributes
+import io.opentelemetry.kotlin.semconv.UrlAttributes
+import io.opentelemetry.kotlin.semconv.UserAgentAttributes
+
+/**
+ * Writes the attributes of a network request span one at a time, so they can go straight onto a span rather than
+ * through an intermediate map. Every url passed in must already have been stripped of its query and fragment.
+ */
+object NetworkSpanAttributes {
+
+    /**
+     * Writes the attributes known when a request starts.
+     */
+    inline fun writeStart(url: String, httpMethod: String, put: (key: String, value: String) -> Unit) {
+        put(UrlAttributes.URL_FULL, url)
+        put(HttpAttributes.HTTP_REQUEST_METHOD, httpMethod)
+    }
+
+    /**
+     * Writes the attributes of a request that is recorded after it has completed.
+     */
+    inline fun writeCompleted(
+        request: HttpNetworkRequest,
+        url: String,
+        httpMethod: String,
+        put: (key: String, value: String) -> Unit,
+    ) {
+        writeStart(url, httpMethod, put)
+        request.statusCode?.let { put(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, it.toStatusCodeString()) }
+        request.bytesSent?.let { put(HttpAttributes.HTTP_REQUEST_BODY_SIZE, it.toString()) }
+        request.bytesReceived?.let { put(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, it.toString()) }
+        request.errorType?.let { put(ErrorAttributes.ERROR_TYPE, it) }
+        request.errorMessage?.let { put(ExceptionAttributes.EXCEPTION_MESSAGE, it) }
+        request.w3cTraceparent?.let {
+            put(EmbNetworkRequestAttributes.EMB_W3C_TRACEPARENT, it)
+            put(EmbNetworkRequestAttributes.EMB_FORWARD_TELEMETRY, "true")
+        }
+        getValidTraceId(request.traceId)?.let { put(EmbNetworkRequestAttributes.EMB_TRACE_ID, it) }
+    }
+
+    /**
+     * Writes the attributes that are only known when a request ends.
+     */
+    inline fun writeEnd(endData: RequestEndData, url: String, put: (key: String, value: String) -> Unit) {
+        put(UrlAttributes.URL_FULL, url)
+        endData.statusCode?.let { put(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, it.toStatusCodeString()) }
+        endData.bytesSent?.let { put(HttpAttributes.HTTP_REQUEST_BODY_SIZE, it.toString()) }
+        endData.bytesReceived?.let { put(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, it.toString()) }
+        endData.errorType?.let { put(ErrorAttributes.ERROR_TYPE, it) }
+        endData.errorMessage?.let { put(ExceptionAttributes.EXCEPTION_MESSAGE, it) }
+        endData.userAgentName?.let { put(UserAgentAttributes.USER_AGENT_NAME, it) }
+        endData.userAgentVersion?.let { put(UserAgentAttributes.USER_AGENT_VERSION, it) }
+        getValidTraceId(endData.traceId)?.let { put(EmbNetworkRequestAttributes.EMB_TRACE_ID, it) }
+    }
+}
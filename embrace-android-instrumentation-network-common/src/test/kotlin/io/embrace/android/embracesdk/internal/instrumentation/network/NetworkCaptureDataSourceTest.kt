@@ -120,6 +120,21 @@ internal class NetworkCaptureDataSourceTest {
         assertTrue(result.isEmpty())
     }
 
+    @Test
+    fun `test body capture limit is the largest max size of the matching rules`() {
+        cfg = RemoteConfig(
+            networkCaptureRules = setOf(
+                getDefaultRule(id = "small", maxSize = 10),
+                getDefaultRule(id = "large", maxSize = 500),
+                getDefaultRule(id = "post", maxSize = 9000, method = "POST"),
+            ),
+        )
+        val service = getService()
+        assertEquals(500L, service.getNetworkBodyCaptureLimit("https://embrace.io/changelog", "GET"))
+        assertEquals(9000L, service.getNetworkBodyCaptureLimit("https://embrace.io/changelog", "POST"))
+        assertEquals(0L, service.getNetworkBodyCaptureLimit("https://google.com", "GET"))
+    }
+
     @Test
     fun `test capture rule duration`() {
         // capture calls that exceeds 5000ms
@@ -4,7 +4,9 @@ import android.util.Base64
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import org.junit.Assert
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
 import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertNull
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -45,12 +47,53 @@ internal class NetworkCaptureEncryptionManagerTest {
         assertNotNull(decrypt(encryptedText))
     }
 
-    private fun decrypt(data: String): String? {
-        val privateKey = KeyFactory.getInstance("RSA")
-            .generatePrivate(PKCS8EncodedKeySpec(Base64.decode(sPrivateKey, Base64.DEFAULT)))
-        return networkCaptureEncryptionManager.decrypt(data, privateKey)
+    @Test
+    fun `test hybrid encrypt and decrypt correctly`() {
+        val textToEncrypt = "text to encrypt"
+        val encryptedText = checkNotNull(encryptHybrid(textToEncrypt, sPublicKey))
+
+        assertEquals(textToEncrypt, decryptHybrid(encryptedText))
+    }
+
+    @Test
+    fun `test hybrid encrypt and decrypt large payload correctly`() {
+        val textToEncrypt = encryptedPayload.repeat(500)
+        val encryptedText = checkNotNull(encryptHybrid(textToEncrypt, sPublicKey))
+
+        assertEquals(textToEncrypt, decryptHybrid(encryptedText))
+    }
+
+    @Test
+    fun `test hybrid encryption uses a fresh key for each body`() {
+        val textToEncrypt = "text to encrypt"
+        assertNotEquals(encryptHybrid(textToEncrypt, sPublicKey), encryptHybrid(textToEncrypt, sPublicKey))
     }
 
+    @Test
+    fun `test hybrid encrypt exception`() {
+        assertNull(encryptHybrid("text to encrypt", "12345"))
+    }
+
+    @Test
+    fun `test tampered hybrid payload is rejected`() {
+        val encrypted = Base64.decode(checkNotNull(encryptHybrid("text to encrypt", sPublicKey)), Base64.DEFAULT)
+        encrypted[encrypted.size - 1] = (encrypted[encrypted.size - 1].toInt() xor 1).toByte()
+
+        assertNull(decryptHybrid(Base64.encodeToString(encrypted, Base64.DEFAULT)))
+    }
+
+    private fun encryptHybrid(data: String, keyText: String): String? =
+        networkCaptureEncryptionManager.encryptHybrid(keyText) {
+            it.write(data.toByteArray())
+        }
+
+    private fun decrypt(data: String): String? = networkCaptureEncryptionManager.decrypt(data, privateKey())
+
+    private fun decryptHybrid(data: String): String? = networkCaptureEncryptionManager.decryptHybrid(data, privateKey())
+
+    private fun privateKey() = KeyFactory.getInstance("RSA")
+        .generatePrivate(PKCS8EncodedKeySpec(Base64.decode(sPrivateKey, Base64.DEFAULT)))
+
     private val encryptedPayload =
         "onilxHAND1nF2t21dktOG16FeLzICtqwSeW9IM5X4sFnuM+ixvI0mGGTuXzCTFAmISh+H0zwQte9\n" +
             "OC3/+FilKZuLWGTxVHulaExzMj8tjRk6+gelfFyA+V9jaad7MQUfQGMFbs7GTVX3RbLgJtmp7giF" +
@@ -0,0 +1,57 @@
+package io.embrace.android.embracesdk.internal.instrumentation.network
+
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+
+internal class NetworkRecordingQueueTest {
+
+    private lateinit var executor: BlockingScheduledExecutorService
+    private lateinit var queue: NetworkRecordingQueue
+    private lateinit var results: MutableList<Int>
+
+    @Before
+    fun setUp() {
+        executor = BlockingScheduledExecutorService(blockingMode = true)
+        queue = NetworkRecordingQueue(BackgroundWorker(executor), capacity = 4)
+        results = mutableListOf()
+    }
+
+    @Test
+    fun `tasks run on the worker in order`() {
+        repeat(3) { queue.enqueue { results.add(it) } }
+        assertEquals(emptyList<Int>(), results)
+
+        executor.runCurrentlyBlocked()
+        assertEquals(listOf(0, 1, 2), results)
+    }
+
+    @Test
+    fun `drain runs queued tasks on the calling thread`() {
+        repeat(2) { queue.enqueue { results.add(it) } }
+        queue.drain()
+        assertEquals(listOf(0, 1), results)
+
+        executor.runCurrentlyBlocked()
+        assertEquals(listOf(0, 1), results)
+    }
+
+    @Test
+    fun `full queue runs inline without reordering`() {
+        repeat(6) { queue.enqueue { results.add(it) } }
+        assertEquals(listOf(0, 1, 2, 3, 4), results)
+
+        executor.runCurrentlyBlocked()
+        assertEquals(listOf(0, 1, 2, 3, 4, 5), results)
+    }
+
+    @Test
+    fun `failing task does not block later tasks`() {
+        queue.enqueue { error("Whoops") }
+        queue.enqueue { results.add(1) }
+        executor.runCurrentlyBlocked()
+        assertEquals(listOf(1), results)
+    }
+}
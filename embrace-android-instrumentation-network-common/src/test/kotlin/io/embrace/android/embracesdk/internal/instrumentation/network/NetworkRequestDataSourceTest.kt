@@ -246,6 +246,50 @@ internal class NetworkRequestDataSourceTest {
         assertEquals(2000L, span.endTimeMs)
     }
 
+    @Test
+    fun `async recording defers span creation to the background worker`() {
+        harness = NetworkRequestDataSourceTestHarness(asyncRecording = true)
+        logNetworkRequest(url = "https://www.example.com/api", startTime = 100, endTime = 200)
+        assertTrue(harness.getNetworkSpans().isEmpty())
+
+        harness.executor.runCurrentlyBlocked()
+        harness.assertNetworkRequest(
+            spanToken = harness.getNetworkSpans().single(),
+            expectedName = "GET /api",
+            expectedStartTimeMs = 100,
+            expectedEndTimeMs = 200,
+        )
+    }
+
+    @Test
+    fun `async requests are recorded before the session part ends`() {
+        harness = NetworkRequestDataSourceTestHarness(asyncRecording = true)
+        val id = checkNotNull(
+            harness.dataSource.startRequest(
+                RequestStartData(
+                    url = "https://www.example.com/api",
+                    httpMethod = "GET",
+                    sdkClockStartTime = 100L,
+                ),
+            ),
+        )
+        val span = harness.getNetworkSpans().single()
+        harness.dataSource.endRequest(
+            RequestEndData(
+                id = id,
+                url = "https://www.example.com/api",
+                sdkClockStartTime = 100L,
+                sdkClockEndTime = 300L,
+                statusCode = 200,
+            ),
+        )
+        assertTrue(span.isRecording())
+
+        (harness.dataSource as SessionPartEndListener).onPreSessionEnd()
+        assertFalse(span.isRecording())
+        assertEquals(300L, span.endTimeMs)
+    }
+
     private fun logNetworkRequest(
         url: String,
         startTime: Long = 100,
@@ -1,6 +1,7 @@
 package io.embrace.android.embracesdk.internal.instrumentation.network
 
 import androidx.test.core.app.ApplicationProvider
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
 import io.embrace.android.embracesdk.fakes.FakeConfigService
 import io.embrace.android.embracesdk.fakes.FakeDomainCountLimiter
 import io.embrace.android.embracesdk.fakes.FakeInstrumentationArgs
@@ -10,19 +11,25 @@ import io.embrace.android.embracesdk.fakes.behavior.FakeNetworkBehavior
 import io.embrace.android.embracesdk.fakes.behavior.FakeNetworkSpanForwardingBehavior
 import io.embrace.android.embracesdk.internal.arch.schema.EmbType
 import io.embrace.android.embracesdk.internal.arch.schema.ErrorCodeAttribute
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
 import org.junit.Assert.assertEquals
 
-internal class NetworkRequestDataSourceTestHarness {
+internal class NetworkRequestDataSourceTestHarness(asyncRecording: Boolean = false) {
+    val executor: BlockingScheduledExecutorService = BlockingScheduledExecutorService(blockingMode = true)
     val domainCountLimiter: FakeDomainCountLimiter = FakeDomainCountLimiter()
     val telemetryService: FakeTelemetryService = FakeTelemetryService()
     val networkSpanForwardingBehavior = FakeNetworkSpanForwardingBehavior()
     val args: FakeInstrumentationArgs = FakeInstrumentationArgs(
         application = ApplicationProvider.getApplicationContext(),
         configService = FakeConfigService(
-            networkBehavior = FakeNetworkBehavior(domainCountLimiter = domainCountLimiter),
+            networkBehavior = FakeNetworkBehavior(
+                domainCountLimiter = domainCountLimiter,
+                asyncNetworkRecordingEnabled = asyncRecording,
+            ),
             networkSpanForwardingBehavior = networkSpanForwardingBehavior,
         ),
         telemetryService = telemetryService,
+        backgroundWorkerSupplier = { BackgroundWorker(executor) },
     )
     val dataSource: NetworkRequestDataSource = NetworkRequestDataSourceImpl(args)
 
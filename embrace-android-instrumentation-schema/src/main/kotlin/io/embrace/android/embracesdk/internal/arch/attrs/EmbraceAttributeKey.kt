@@ -1 +1,12 @@
 package io.embrace.android.embracesdk.internal.arch.attrs
+
+/**
+ * An attribute key from the fixed [EmbraceAttributeKeys] registry. [id] is the key's position in the registry, so
+ * attribute storage can refer to the key with a single byte instead of a reference to its name.
+ */
+class EmbraceAttributeKey internal constructor(
+    val id: Int,
+    val name: String,
+) {
+    override fun toString(): String = name
+}
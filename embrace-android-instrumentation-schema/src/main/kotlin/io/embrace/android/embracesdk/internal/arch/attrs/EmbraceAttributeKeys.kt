@@ -1 +1,94 @@
 package io.embrace.android.embracesdk.internal.arch.attrs
+
+import io.embrace.android.embracesdk.semconv.EmbCommonAttributes
+import io.embrace.android.embracesdk.semconv.EmbNetworkRequestAttributes
+import io.embrace.android.embracesdk.semconv.EmbSessionAttributes
+import io.embrace.android.embracesdk.semconv.EmbSpanAttributes
+import io.opentelemetry.kotlin.semconv.ErrorAttributes
+import io.opentelemetry.kotlin.semconv.ExceptionAttributes
+import io.opentelemetry.kotlin.semconv.HttpAttributes
+import io.opentelemetry.kotlin.semconv.UrlAttributes
+import io.opentelemetry.kotlin.semconv.UserAgentAttributes
+import io.opentelemetry.kotlin.semconv.UserAttributes
+
+/**
+ * The fixed registry of attribute keys that appear on most spans and logs recorded by the SDK. Each key is assigned
+ * a small integer ID by its position in the registry.
+ *
+ * New keys must be appended so that existing IDs are stable. The registry can hold at most [MAX_KEYS] keys.
+ */
+object EmbraceAttributeKeys {
+
+    /**
+     * The ID used for keys that are not in the registry.
+     */
+    const val UNREGISTERED: Int = -1
+
+    private const val MAX_KEYS = 127
+
+    private val keys: Array<EmbraceAttributeKey> = listOf(
+        EMB_TYPE,
+        EmbSpanAttributes.EMB_PRIVATE,
+        EmbSpanAttributes.EMB_ERROR_CODE,
+        EmbSpanAttributes.EMB_TERMINATION_CAUSE,
+        EmbSpanAttributes.EMB_LINK_TYPE,
+        EmbCommonAttributes.EMB_MANUAL_INSTRUMENTATION,
+        EmbSessionAttributes.EMB_PRIVATE_SEND_MODE,
+        EmbSessionAttributes.EMB_PROCESS_IDENTIFIER,
+        EmbSessionAttributes.EMB_SESSION_PART_ID,
+        EmbSessionAttributes.EMB_USER_SESSION_ID,
+        EmbSessionAttributes.EMB_STATE,
+        EmbSessionAttributes.EMB_COLD_START,
+        EmbSessionAttributes.EMB_CLEAN_EXIT,
+        EmbSessionAttributes.EMB_TERMINATED,
+        EmbSessionAttributes.EMB_SESSION_NUMBER,
+        EmbSessionAttributes.EMB_SESSION_PART_NUMBER,
+        EmbSessionAttributes.EMB_SESSION_START_TYPE,
+        EmbSessionAttributes.EMB_SESSION_END_TYPE,
+        EmbSessionAttributes.EMB_HEARTBEAT_TIME_UNIX_NANO,
+        EmbSessionAttributes.EMB_IS_BACKGROUND_ONLY_PART,
+        EmbSessionAttributes.EMB_IS_FINAL_SESSION_PART,
+        EmbSessionAttributes.EMB_ERROR_LOG_COUNT,
+        EmbSessionAttributes.EMB_CRASH_ID,
+        EmbSessionAttributes.EMB_USER_SESSION_NUMBER,
+        EmbSessionAttributes.EMB_USER_SESSION_PART_INDEX,
+        EmbSessionAttributes.EMB_USER_SESSION_START_TS,
+        UserAttributes.USER_ID,
+        UrlAttributes.URL_FULL,
+        HttpAttributes.HTTP_REQUEST_METHOD,
+        HttpAttributes.HTTP_RESPONSE_STATUS_CODE,
+        HttpAttributes.HTTP_REQUEST_BODY_SIZE,
+        HttpAttributes.HTTP_RESPONSE_BODY_SIZE,
+        ErrorAttributes.ERROR_TYPE,
+        ExceptionAttributes.EXCEPTION_MESSAGE,
+        UserAgentAttributes.USER_AGENT_NAME,
+        UserAgentAttributes.USER_AGENT_VERSION,
+        EmbNetworkRequestAttributes.EMB_W3C_TRACEPARENT,
+        EmbNetworkRequestAttributes.EMB_FORWARD_TELEMETRY,
+        EmbNetworkRequestAttributes.EMB_TRACE_ID,
+    ).mapIndexed(::EmbraceAttributeKey).toTypedArray()
+
+    private val ids: Map<String, Int> = keys.associate { it.name to it.id }
+
+    init {
+        check(keys.size <= MAX_KEYS) { "Too many registered attribute keys" }
+    }
+
+    /**
+     * The number of registered keys.
+     */
+    val size: Int
+        get() = keys.size
+
+    /**
+     * Returns the ID of [key], or [UNREGISTERED] if it is not in the registry.
+     */
+    fun idOf(key: String): Int = ids[key] ?: UNREGISTERED
+
+    /**
+     * Returns the registered key with the given [id].
+     */
+    fun keyOf(id: Int): EmbraceAttributeKey = keys[id]
+}
+
+private const val EMB_TYPE = "emb.type"
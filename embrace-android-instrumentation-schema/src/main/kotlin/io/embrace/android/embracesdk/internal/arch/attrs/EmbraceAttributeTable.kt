@@ -0,0 +1,126 @@
+package io.embrace.android.embracesdk.internal.arch.attrs
+
+/**
+ * Compact storage for String attributes that keeps entries in insertion order in parallel arrays.
+ *
+ * Keys in [EmbraceAttributeKeys] are stored as a single byte ID, so an entry costs about five bytes rather than the
+ * node, key reference and table slot of a hash map. Keys outside the registry are kept in a side array that is
+ * only allocated once one is added. Lookups scan the entries, which is faster than hashing for the handful of
+ * attributes a span or log carries.
+ *
+ * This class is not thread safe.
+ */
+class EmbraceAttributeTable(initialCapacity: Int = DEFAULT_CAPACITY) {
+
+    private var ids = ByteArray(initialCapacity)
+    private var values = arrayOfNulls<String>(initialCapacity)
+    private var unregisteredKeys: Array<String?>? = null
+
+    /**
+     * The number of attributes in the table.
+     */
+    var size: Int = 0
+        private set
+
+    operator fun get(key: String): String? {
+        val index = indexOf(key)
+        return if (index >= 0) values[index] else null
+    }
+
+    fun containsKey(key: String): Boolean = indexOf(key) >= 0
+
+    /**
+     * Sets the value of [key], replacing any existing value.
+     */
+    fun put(key: String, value: String) {
+        val id = EmbraceAttributeKeys.idOf(key)
+        val existing = indexOf(key, id)
+        if (existing >= 0) {
+            values[existing] = value
+            return
+        }
+        ensureCapacity(size + 1)
+        ids[size] = id.toByte()
+        values[size] = value
+        if (id == EmbraceAttributeKeys.UNREGISTERED) {
+            unregisteredKeys().set(size, key)
+        }
+        size++
+    }
+
+    fun remove(key: String) {
+        val index = indexOf(key)
+        if (index < 0) {
+            return
+        }
+        ids.copyInto(ids, index, index + 1, size)
+        values.copyInto(values, index, index + 1, size)
+        unregisteredKeys?.let { it.copyInto(it, index, index + 1, size) }
+        size--
+        values[size] = null
+        unregisteredKeys?.set(size, null)
+    }
+
+    /**
+     * Invokes [action] for each attribute in insertion order.
+     */
+    fun forEach(action: (key: String, value: String) -> Unit) {
+        for (k in 0 until size) {
+            action(keyAt(k), checkNotNull(values[k]))
+        }
+    }
+
+    /**
+     * Returns a copy of the table as a map, in insertion order.
+     */
+    fun toMap(): Map<String, String> {
+        val map = LinkedHashMap<String, String>(size)
+        forEach { key, value -> map[key] = value }
+        return map
+    }
+
+    private fun keyAt(index: Int): String {
+        val id = ids[index].toInt()
+        return if (id == EmbraceAttributeKeys.UNREGISTERED) {
+            checkNotNull(unregisteredKeys?.get(index))
+        } else {
+            EmbraceAttributeKeys.keyOf(id).name
+        }
+    }
+
+    private fun indexOf(key: String, id: Int = EmbraceAttributeKeys.idOf(key)): Int {
+        if (id == EmbraceAttributeKeys.UNREGISTERED) {
+            val names = unregisteredKeys ?: return -1
+            for (k in 0 until size) {
+                if (ids[k].toInt() == EmbraceAttributeKeys.UNREGISTERED && names[k] == key) {
+                    return k
+                }
+            }
+        } else {
+            val target = id.toByte()
+            for (k in 0 until size) {
+                if (ids[k] == target) {
+                    return k
+                }
+            }
+        }
+        return -1
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity <= ids.size) {
+            return
+        }
+        val newCapacity = maxOf(capacity, ids.size * 2, DEFAULT_CAPACITY)
+        ids = ids.copyOf(newCapacity)
+        values = values.copyOf(newCapacity)
+        unregisteredKeys = unregisteredKeys?.copyOf(newCapacity)
+    }
+
+    private fun unregisteredKeys(): Array<String?> =
+        unregisteredKeys ?: arrayOfNulls<String>(ids.size).also { unregisteredKeys = it }
+
+    private companion object {
+        private const val DEFAULT_CAPACITY = 4
+    }
+}
@@ -42,10 +42,31 @@ sealed class SchemaType(
         return if (sendMode == SendMode.DEFAULT) {
             schemaAttributes
         } else {
-            schemaAttributes.plus(EmbSessionAttributes.EMB_PRIVATE_SEND_MODE to sendMode.name)
+            LinkedHashMap<String, String>(schemaAttributes.size + 1).also { map ->
+                forEachAttribute { key, value -> map[key] = value }
+            }
         }
     }
 
+    /**
+     * Invokes [action] for each of the attributes returned by [attributes], without copying them into a new map
+     */
+    fun forEachAttribute(action: (key: String, value: String) -> Unit) {
+        forEachSchemaAttribute(action)
+        val sendMode = telemetryType.sendMode
+        if (sendMode != SendMode.DEFAULT) {
+            action(EmbSessionAttributes.EMB_PRIVATE_SEND_MODE, sendMode.name)
+        }
+    }
+
+    /**
+     * Invokes [action] for each of the [schemaAttributes]. Schemas that can produce their attributes without building
+     * a map override this so that [forEachAttribute] never materializes one.
+     */
+    protected open fun forEachSchemaAttribute(action: (key: String, value: String) -> Unit) {
+        schemaAttributes.forEach { action(it.key, it.value) }
+    }
+
     class Breadcrumb(message: String) : SchemaType(
         telemetryType = EmbType.System.Breadcrumb,
         fixedObjectName = "breadcrumb",
@@ -161,10 +182,34 @@ sealed class SchemaType(
         ).toNonNullMap()
     }
 
-    class NetworkRequest(networkRequestAttrs: Map<String, String>) : SchemaType(EmbType.Performance.Network) {
+    class NetworkRequest private constructor(
+        private var networkRequestAttrs: Map<String, String>?,
+        private val writeAttributes: ((put: (key: String, value: String) -> Unit) -> Unit)?,
+    ) : SchemaType(EmbType.Performance.Network) {
+
         // EmbraceNetworkRequest needs to stay in embrace-android-sdk module as it's a public API,
         // so pass a map of attributes directly.
-        override val schemaAttributes: Map<String, String> = networkRequestAttrs
+        constructor(networkRequestAttrs: Map<String, String>) : this(networkRequestAttrs, null)
+
+        /**
+         * Creates a schema whose attributes are written by [writeAttributes] each time they are iterated, so that
+         * starting a span copies them straight onto it without building a map.
+         */
+        constructor(writeAttributes: (put: (key: String, value: String) -> Unit) -> Unit) : this(null, writeAttributes)
+
+        override val schemaAttributes: Map<String, String>
+            get() = networkRequestAttrs ?: buildMap {
+                writeAttributes?.invoke { key, value -> put(key, value) }
+            }.also { networkRequestAttrs = it }
+
+        override fun forEachSchemaAttribute(action: (key: String, value: String) -> Unit) {
+            val write = writeAttributes
+            if (write != null) {
+                write(action)
+            } else {
+                super.forEachSchemaAttribute(action)
+            }
+        }
     }
 
     class Log(attributes: TelemetryAttributes) : SchemaType(EmbType.System.Log) {
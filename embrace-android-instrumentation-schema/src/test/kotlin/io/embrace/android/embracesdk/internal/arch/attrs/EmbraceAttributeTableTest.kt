@@ -0,0 +1,68 @@
+package io.embrace.android.embracesdk.internal.arch.attrs
+
+import io.embrace.android.embracesdk.semconv.EmbSessionAttributes
+import io.embrace.android.embracesdk.semconv.EmbSpanAttributes
+import io.opentelemetry.kotlin.semconv.UrlAttributes
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+internal class EmbraceAttributeTableTest {
+
+    private val table = EmbraceAttributeTable(initialCapacity = 1)
+
+    @Test
+    fun `registered and unregistered keys are stored in insertion order`() {
+        table.put(EmbSpanAttributes.EMB_PRIVATE, "true")
+        table.put("my.key", "a")
+        table.put(EmbSessionAttributes.EMB_SESSION_PART_ID, "part")
+        table.put("other.key", "b")
+
+        assertEquals(4, table.size)
+        assertEquals("true", table[EmbSpanAttributes.EMB_PRIVATE])
+        assertEquals("a", table["my.key"])
+        assertEquals("part", table[EmbSessionAttributes.EMB_SESSION_PART_ID])
+        assertEquals(
+            listOf(EmbSpanAttributes.EMB_PRIVATE, "my.key", EmbSessionAttributes.EMB_SESSION_PART_ID, "other.key"),
+            table.toMap().keys.toList(),
+        )
+    }
+
+    @Test
+    fun `putting an existing key replaces its value`() {
+        table.put(EmbSpanAttributes.EMB_ERROR_CODE, "failure")
+        table.put(EmbSpanAttributes.EMB_ERROR_CODE, "unknown")
+        table.put("my.key", "a")
+        table.put("my.key", "b")
+        assertEquals(mapOf(EmbSpanAttributes.EMB_ERROR_CODE to "unknown", "my.key" to "b"), table.toMap())
+    }
+
+    @Test
+    fun `removing a key keeps the order of the remaining keys`() {
+        table.put("first", "1")
+        table.put(EmbSpanAttributes.EMB_PRIVATE, "true")
+        table.put("third", "3")
+
+        table.remove(EmbSpanAttributes.EMB_PRIVATE)
+        table.remove("missing")
+        assertFalse(table.containsKey(EmbSpanAttributes.EMB_PRIVATE))
+        assertNull(table[EmbSpanAttributes.EMB_PRIVATE])
+        assertEquals(mapOf("first" to "1", "third" to "3"), table.toMap())
+
+        table.remove("first")
+        assertEquals(mapOf("third" to "3"), table.toMap())
+        assertTrue(table.containsKey("third"))
+    }
+
+    @Test
+    fun `registry ids round trip`() {
+        val id = EmbraceAttributeKeys.idOf(EmbSessionAttributes.EMB_USER_SESSION_ID)
+        assertEquals(EmbSessionAttributes.EMB_USER_SESSION_ID, EmbraceAttributeKeys.keyOf(id).name)
+        assertEquals(EmbraceAttributeKeys.UNREGISTERED, EmbraceAttributeKeys.idOf("my.key"))
+
+        val networkId = EmbraceAttributeKeys.idOf(UrlAttributes.URL_FULL)
+        assertEquals(UrlAttributes.URL_FULL, EmbraceAttributeKeys.keyOf(networkId).name)
+    }
+}
@@ -1,7 +1,9 @@
 package io.embrace.android.embracesdk.internal.otel.config
 
 import io.embrace.android.embracesdk.internal.SystemInfo
+import io.embrace.android.embracesdk.internal.otel.export.BatchingInlineExporter
 import io.embrace.android.embracesdk.internal.otel.export.ExternalExportDispatcher
+import io.embrace.android.embracesdk.internal.otel.export.InlineExporter
 import io.embrace.android.embracesdk.internal.otel.logs.DefaultLogRecordExporter
 import io.embrace.android.embracesdk.internal.otel.logs.EmbraceLogRecordProcessor
 import io.embrace.android.embracesdk.internal.otel.logs.LogSink
@@ -20,6 +22,7 @@ import io.opentelemetry.kotlin.semconv.DeviceAttributes
 import io.opentelemetry.kotlin.semconv.OsAttributes
 import io.opentelemetry.kotlin.semconv.ServiceAttributes
 import io.opentelemetry.kotlin.semconv.TelemetryAttributes
+import io.opentelemetry.kotlin.tracing.data.SpanData
 import io.opentelemetry.kotlin.tracing.export.SpanExporter
 import io.opentelemetry.kotlin.tracing.export.SpanProcessor
 import java.util.concurrent.ConcurrentHashMap
@@ -38,6 +41,7 @@ class OtelSdkConfig(
     private val eventMetadataProvider: () -> Map<String, String> = { emptyMap() },
     private val processIdentifierProvider: () -> String = IdGenerator.Companion::generateLaunchInstanceId,
     private val externalExportDispatcher: ExternalExportDispatcher = ExternalExportDispatcher(),
+    private val spanBatchConfigProvider: () -> SpanBatchConfig? = { null },
 ) {
 
     private val customAttributes: MutableMap<String, String> = ConcurrentHashMap()
@@ -79,21 +83,35 @@ class OtelSdkConfig(
     private var exportEnabled: Boolean = true
     private val exportCheck: () -> Boolean = { exportEnabled }
 
+    @Volatile
+    private var spanBatchExporter: BatchingInlineExporter<SpanData>? = null
+
     fun disableDataExport() {
         exportEnabled = false
     }
 
     fun shutdownExport() {
+        spanBatchExporter?.shutdown()
         externalExportDispatcher.shutdown()
     }
 
-    private val spanExporter: DefaultSpanExporter by lazy {
-        DefaultSpanExporter(
+    private val spanExporter: InlineExporter<SpanData> by lazy {
+        val exporter = DefaultSpanExporter(
             spanRepository = spanRepository,
             externalExporters = externalSpanExporters.toList(),
             exportCheck = exportCheck,
             externalExportDispatcher = externalExportDispatcher,
         )
+        val batchConfig = spanBatchConfigProvider() ?: return@lazy exporter
+        BatchingInlineExporter(
+            delegate = exporter,
+            maxBatchSize = batchConfig.maxBatchSize,
+            maxLatencyMs = batchConfig.maxLatencyMs,
+            workerProvider = { BatchingInlineExporter.singleThreadedWorker("emb-span-batch") },
+        ).also {
+            spanBatchExporter = it
+            spanRepository.setPendingSpanDrain(it::drain)
+        }
     }
     val spanProcessor: SpanProcessor by lazy {
         EmbraceSpanProcessor(
@@ -0,0 +1,12 @@
+package io.embrace.android.embracesdk.internal.otel.config
+
+/**
+ * Controls how completed spans are batched before they are exported to the span repository.
+ *
+ * @param maxBatchSize the number of waiting spans that triggers an immediate export
+ * @param maxLatencyMs the maximum time a completed span waits before it is exported
+ */
+class SpanBatchConfig(
+    val maxBatchSize: Int,
+    val maxLatencyMs: Long,
+)
@@ -0,0 +1,130 @@
+package io.embrace.android.embracesdk.internal.otel.export
+
+import io.embrace.android.embracesdk.internal.utils.EmbTrace
+import io.embrace.android.embracesdk.internal.utils.concurrent.RingBuffer
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import io.opentelemetry.kotlin.export.OperationResultCode
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Hands telemetry to a [RingBuffer] on the calling thread, then exports it to [delegate] in batches on a
+ * [BackgroundWorker]. Telemetry is exported once [maxBatchSize] items are waiting, or at most [maxLatencyMs] after the
+ * first item arrives.
+ *
+ * The caller only pays for a lock-free offer. If the buffer is full, the telemetry is exported inline instead, so
+ * nothing is dropped. Readers of the delegate's sink call [drain] first so they never miss buffered telemetry.
+ *
+ * Once [shutdown] is called anything still buffered is exported, the worker is released, and later telemetry is
+ * exported inline.
+ */
+internal class BatchingInlineExporter<T : Any>(
+    private val delegate: InlineExporter<T>,
+    private val maxBatchSize: Int,
+    private val maxLatencyMs: Long,
+    workerProvider: () -> BackgroundWorker,
+    capacity: Int = DEFAULT_CAPACITY,
+) : InlineExporter<T> {
+
+    private val buffer = RingBuffer<T>(capacity)
+    private val drainLock = Any()
+    private val lazyWorker = lazy(workerProvider)
+    private val delayedExportScheduled = AtomicBoolean(false)
+    private val fullBatchExportScheduled = AtomicBoolean(false)
+
+    @Volatile
+    private var stopped = false
+
+    override fun exportInline(telemetry: List<T>): OperationResultCode {
+        if (stopped) {
+            return delegate.exportInline(telemetry)
+        }
+        telemetry.forEachIndexed { index, item ->
+            if (!buffer.offer(item)) {
+                return delegate.exportInline(telemetry.subList(index, telemetry.size))
+            }
+        }
+        // each flag is cleared by its task before it drains, so telemetry offered before a failed compareAndSet is
+        // always picked up by the task that is already scheduled
+        if (buffer.count >= maxBatchSize) {
+            if (fullBatchExportScheduled.compareAndSet(false, true)) {
+                schedule(0) { fullBatchExportScheduled.set(false) }
+            }
+        } else if (delayedExportScheduled.compareAndSet(false, true)) {
+            schedule(maxLatencyMs) { delayedExportScheduled.set(false) }
+        }
+        return OperationResultCode.Success
+    }
+
+    /**
+     * Exports everything that is currently buffered on the calling thread. If the worker is part way through
+     * exporting a batch, this waits until that batch has reached the delegate.
+     */
+    fun drain() {
+        synchronized(drainLock) {
+            while (true) {
+                val batch = ArrayList<T>(minOf(buffer.count, maxBatchSize))
+                while (batch.size < maxBatchSize) {
+                    batch.add(buffer.poll() ?: break)
+                }
+                if (batch.isEmpty()) {
+                    return
+                }
+                delegate.exportInline(batch)
+            }
+        }
+    }
+
+    override suspend fun forceFlush(): OperationResultCode {
+        drain()
+        return delegate.forceFlush()
+    }
+
+    /**
+     * Exports anything still buffered on the calling thread and releases the worker. Telemetry received afterwards is
+     * exported inline.
+     */
+    fun shutdown() {
+        stopped = true
+        drain()
+        if (lazyWorker.isInitialized()) {
+            lazyWorker.value.shutdownAndWait()
+        }
+    }
+
+    private fun schedule(delayMs: Long, onRun: () -> Unit) {
+        val task = Runnable {
+            onRun()
+            try {
+                EmbTrace.trace("otel-batch-export") {
+                    drain()
+                }
+            } catch (ignored: Throwable) {
+            }
+        }
+        try {
+            lazyWorker.value.schedule<Unit>(task, delayMs, TimeUnit.MILLISECONDS)
+        } catch (ignored: RejectedExecutionException) {
+            task.run()
+        }
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 2048
+
+        /**
+         * Creates a [BackgroundWorker] backed by a single thread with the given name.
+         */
+        fun singleThreadedWorker(threadName: String): BackgroundWorker =
+            BackgroundWorker(
+                Executors.newSingleThreadScheduledExecutor { runnable ->
+                    Executors.defaultThreadFactory().newThread(runnable).apply {
+                        name = threadName
+                        isDaemon = true
+                    }
+                },
+            )
+    }
+}
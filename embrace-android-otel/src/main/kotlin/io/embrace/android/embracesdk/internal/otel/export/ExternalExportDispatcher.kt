@@ -1,5 +1,7 @@
 package io.embrace.android.embracesdk.internal.otel.export
 
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.internal.utils.EmbTrace
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
@@ -16,27 +18,88 @@ import java.util.concurrent.Executors
  *
  * A customer exporter is arbitrary suspending code - an OTLP exporter performs network I/O - so
  * exporting inline would block whichever thread ended a span or emitted a log.
+ *
+ * At most the number of telemetry items returned by [capacityProvider] wait to be exported. When a slow or offline
+ * exporter lets the queue fill up, [overflowPolicyProvider] decides which items are dropped. Both are read on every
+ * dispatch, so they follow config that is applied after the dispatcher is created. The number of items dropped, and
+ * the number that had to wait behind an export that was still running, are reported to [telemetryService]. Batches
+ * that are waiting for the same exporters are coalesced into a single export call.
  */
 class ExternalExportDispatcher(
     dispatcherProvider: () -> CoroutineDispatcher = ::singleThreadedDispatcher,
+    private val capacityProvider: () -> Int = { DEFAULT_CAPACITY },
+    private val overflowPolicyProvider: () -> OverflowPolicy = { OverflowPolicy.DROP_OLDEST },
+    private val telemetryService: TelemetryService? = null,
 ) {
 
+    /**
+     * Which telemetry is dropped when the queue is full.
+     */
+    enum class OverflowPolicy {
+
+        /**
+         * Drop the telemetry that has waited longest to make room for new telemetry.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Keep the telemetry that is already waiting and drop new telemetry that does not fit.
+         */
+        DROP_NEWEST,
+    }
+
     private val lazyDispatcher = lazy(dispatcherProvider)
     private val lazyScope = lazy { CoroutineScope(SupervisorJob() + lazyDispatcher.value) }
 
+    private val lock = Any()
+    private val pending = ArrayDeque<PendingExport<*, *>>()
+    private var pendingItems = 0
+    private var drainScheduled = false
+
     /**
-     * Exports to every exporter in [exporters] on the export thread and returns immediately. Each
-     * exporter is isolated: one that throws neither stops the others nor propagates into the app.
+     * The number of telemetry items waiting to be exported.
      */
-    fun <E> dispatch(exporters: List<E>, export: suspend (E) -> Unit) {
-        lazyScope.value.launch {
-            EmbTrace.trace("otel-external-export") {
-                exporters.forEach { exporter ->
-                    try {
-                        export(exporter)
-                    } catch (ignored: Throwable) {
-                    }
-                }
+    val queuedCount: Int
+        get() = synchronized(lock) { pendingItems }
+
+    /**
+     * Queues [telemetry] for export to every exporter in [exporters] on the export thread and returns immediately.
+     * Each exporter is isolated: one that throws neither stops the others nor propagates into the app.
+     */
+    fun <E, T> dispatch(exporters: List<E>, telemetry: List<T>, export: suspend (E, List<T>) -> Unit) {
+        if (exporters.isEmpty() || telemetry.isEmpty()) {
+            return
+        }
+        val capacity = capacityProvider()
+        val overflowPolicy = overflowPolicyProvider()
+        val dropped: Int
+        val queued: Int
+        val launchDrain: Boolean
+        synchronized(lock) {
+            val accepted = when (overflowPolicy) {
+                OverflowPolicy.DROP_OLDEST -> telemetry.takeLast(capacity)
+                OverflowPolicy.DROP_NEWEST -> telemetry.take((capacity - pendingItems).coerceAtLeast(0))
+            }
+            dropped = telemetry.size - accepted.size + evictOldest(pendingItems + accepted.size - capacity)
+            if (accepted.isNotEmpty()) {
+                pending.addLast(PendingExport(exporters, accepted, export))
+                pendingItems += accepted.size
+            }
+            queued = if (drainScheduled) accepted.size else 0
+            launchDrain = !drainScheduled && pending.isNotEmpty()
+            if (launchDrain) {
+                drainScheduled = true
+            }
+        }
+        if (dropped > 0) {
+            telemetryService?.trackAppliedLimit(TELEMETRY_TYPE, AppliedLimitType.DROP, dropped)
+        }
+        if (queued > 0) {
+            telemetryService?.trackAppliedLimit(TELEMETRY_TYPE, AppliedLimitType.QUEUE, queued)
+        }
+        if (launchDrain) {
+            lazyScope.value.launch {
+                drainPending()
             }
         }
     }
@@ -61,7 +124,85 @@ class ExternalExportDispatcher(
         (lazyDispatcher.value as? ExecutorCoroutineDispatcher)?.close()
     }
 
+    /**
+     * Drops at most [count] of the oldest waiting items, returning the number dropped. Must hold [lock].
+     */
+    private fun evictOldest(count: Int): Int {
+        var remaining = count
+        while (remaining > 0) {
+            val oldest = pending.firstOrNull() ?: break
+            if (oldest.telemetry.size <= remaining) {
+                pending.removeFirst()
+                remaining -= oldest.telemetry.size
+            } else {
+                pending[0] = oldest.drop(remaining)
+                remaining = 0
+            }
+        }
+        val evicted = count.coerceAtLeast(0) - remaining
+        pendingItems -= evicted
+        return evicted
+    }
+
+    private suspend fun drainPending() {
+        while (true) {
+            val batches = synchronized(lock) {
+                if (pending.isEmpty()) {
+                    drainScheduled = false
+                    return
+                }
+                pending.toList().also {
+                    pending.clear()
+                    pendingItems = 0
+                }
+            }
+            EmbTrace.trace("otel-external-export") {
+                coalesce(batches).forEach { it.run() }
+            }
+        }
+    }
+
+    private fun coalesce(batches: List<PendingExport<*, *>>): List<PendingExport<*, *>> {
+        val result = ArrayList<PendingExport<*, *>>(batches.size)
+        batches.forEach { batch ->
+            val index = result.indexOfFirst { it.exporters === batch.exporters }
+            if (index == -1) {
+                result.add(batch)
+            } else {
+                result[index] = result[index].mergedWith(batch)
+            }
+        }
+        return result
+    }
+
+    /**
+     * Telemetry waiting to be exported. Batches dispatched with the same exporters list always carry the same type of
+     * telemetry, so they can be merged.
+     */
+    private class PendingExport<E, T>(
+        val exporters: List<E>,
+        val telemetry: List<T>,
+        private val export: suspend (E, List<T>) -> Unit,
+    ) {
+        fun drop(count: Int): PendingExport<E, T> = PendingExport(exporters, telemetry.drop(count), export)
+
+        @Suppress("UNCHECKED_CAST")
+        fun mergedWith(other: PendingExport<*, *>): PendingExport<E, T> =
+            PendingExport(exporters, telemetry + (other.telemetry as List<T>), export)
+
+        suspend fun run() {
+            exporters.forEach { exporter ->
+                try {
+                    export(exporter, telemetry)
+                } catch (ignored: Throwable) {
+                }
+            }
+        }
+    }
+
     private companion object {
+        private const val DEFAULT_CAPACITY = 2048
+        private const val TELEMETRY_TYPE = "otel_external_export"
 
         /**
          * Single-threaded so that telemetry reaches the customer in the order the SDK produced it.
@@ -1,10 +1,12 @@
 package io.embrace.android.embracesdk.internal.otel.logs
 
 import io.embrace.android.embracesdk.internal.arch.schema.PrivateSpan
+import io.embrace.android.embracesdk.internal.arch.schema.SendMode
 import io.embrace.android.embracesdk.internal.otel.export.ExternalExportDispatcher
 import io.embrace.android.embracesdk.internal.otel.export.InlineExporter
 import io.embrace.android.embracesdk.internal.otel.payload.toEmbracePayload
 import io.embrace.android.embracesdk.internal.otel.sdk.StoreDataResult
+import io.embrace.android.embracesdk.semconv.EmbSessionAttributes
 import io.opentelemetry.kotlin.export.OperationResultCode
 import io.opentelemetry.kotlin.logging.export.LogRecordExporter
 import io.opentelemetry.kotlin.logging.model.ReadableLogRecord
@@ -23,11 +25,18 @@ internal class DefaultLogRecordExporter(
         if (!exportCheck()) {
             return OperationResultCode.Success
         }
-        val result = logSink.storeLogs(telemetry.map(ReadableLogRecord::toEmbracePayload))
+        // the send mode is read from the record's attribute map rather than searched for in the payload's attributes
+        var result = StoreDataResult.SUCCESS
+        telemetry.forEach { record ->
+            val sendMode = SendMode.fromString(record.attributes[EmbSessionAttributes.EMB_PRIVATE_SEND_MODE]?.toString())
+            if (logSink.storeLog(record.toEmbracePayload(), sendMode) == StoreDataResult.FAILURE) {
+                result = StoreDataResult.FAILURE
+            }
+        }
 
         if (result == StoreDataResult.SUCCESS && externalExporters.isNotEmpty()) {
             val exportable = telemetry.filterNot { it.attributes.containsKey(PrivateSpan.key) }
-            externalExportDispatcher.dispatch(externalExporters) { it.export(exportable) }
+            externalExportDispatcher.dispatch(externalExporters, exportable) { exporter, batch -> exporter.export(batch) }
         }
 
         return when (result) {
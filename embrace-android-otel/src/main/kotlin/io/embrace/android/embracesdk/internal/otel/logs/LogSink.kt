@@ -1,5 +1,6 @@
 package io.embrace.android.embracesdk.internal.otel.logs
 
+import io.embrace.android.embracesdk.internal.arch.schema.SendMode
 import io.embrace.android.embracesdk.internal.otel.sdk.StoreDataResult
 import io.embrace.android.embracesdk.internal.payload.Log
 
@@ -14,6 +15,12 @@ interface LogSink {
      */
     fun storeLogs(logs: List<Log>): StoreDataResult
 
+    /**
+     * Store a [Log] whose [SendMode] has already been decided, which avoids searching its attributes for the send
+     * mode. Implementations must support concurrent invocations.
+     */
+    fun storeLog(log: Log, sendMode: SendMode): StoreDataResult
+
     /**
      * Returns a snapshot of the currently stored [Log] objects waiting to be sent in the next batch.
      */
@@ -24,9 +31,20 @@ interface LogSink {
      */
     fun storedLogCount(): Int
 
+    /**
+     * Returns the estimated serialized size in bytes of the stored [Log] objects waiting to be sent in the next batch.
+     */
+    fun storedLogBytes(): Long
+
+    /**
+     * Sets the maximum number of logs and the maximum estimated size in bytes of the batches returned by [flushBatch].
+     */
+    fun setBatchLimits(maxCount: Int, maxBytes: Long)
+
     /**
      * Removes and returns the stored [Log] objects to be sent in the next batch, in the order they were stored, up
-     * to an implementation-defined maximum batch size.
+     * to the limits set by [setBatchLimits]. A batch always contains at least one log if any are stored, even if
+     * that log alone is over the byte limit.
      */
     fun flushBatch(): List<Log>
 
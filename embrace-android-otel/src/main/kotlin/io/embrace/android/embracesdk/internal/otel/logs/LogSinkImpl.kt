@@ -7,28 +7,28 @@ import io.embrace.android.embracesdk.internal.payload.Log
 import io.embrace.android.embracesdk.internal.utils.threadSafeToList
 import io.embrace.android.embracesdk.semconv.EmbSessionAttributes
 import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 
 class LogSinkImpl : LogSink {
     private val storedLogs: ConcurrentLinkedQueue<Log> = ConcurrentLinkedQueue()
+    private val storedLogCount = AtomicInteger(0)
+    private val storedLogBytes = AtomicLong(0)
     private val logRequests: ConcurrentLinkedQueue<LogRequest<Log>> = ConcurrentLinkedQueue()
     private var onLogsStored: (() -> Unit)? = null
     private val flushLock = Any()
 
+    @Volatile
+    private var maxBatchCount: Int = DEFAULT_MAX_LOGS_PER_BATCH
+
+    @Volatile
+    private var maxBatchBytes: Long = DEFAULT_MAX_BATCH_BYTES
+
     override fun storeLogs(logs: List<Log>): StoreDataResult {
         try {
             logs.forEach { log ->
                 val mode = log.attributes?.findAttributeValue(EmbSessionAttributes.EMB_PRIVATE_SEND_MODE)
-                val sendMode = SendMode.fromString(mode)
-                if (sendMode != SendMode.DEFAULT) {
-                    logRequests.add(
-                        LogRequest(
-                            payload = log,
-                            defer = sendMode == SendMode.DEFER,
-                        ),
-                    )
-                } else {
-                    storedLogs.add(log)
-                }
+                route(log, SendMode.fromString(mode))
             }
             onLogsStored?.invoke()
         } catch (t: Throwable) {
@@ -37,19 +37,63 @@ class LogSinkImpl : LogSink {
         return StoreDataResult.SUCCESS
     }
 
+    override fun storeLog(log: Log, sendMode: SendMode): StoreDataResult {
+        try {
+            route(log, sendMode)
+            onLogsStored?.invoke()
+        } catch (t: Throwable) {
+            return StoreDataResult.FAILURE
+        }
+        return StoreDataResult.SUCCESS
+    }
+
+    private fun route(log: Log, sendMode: SendMode) {
+        if (sendMode != SendMode.DEFAULT) {
+            logRequests.add(
+                LogRequest(
+                    payload = log,
+                    defer = sendMode == SendMode.DEFER,
+                ),
+            )
+        } else {
+            storedLogs.add(log)
+            storedLogCount.incrementAndGet()
+            storedLogBytes.addAndGet(log.estimatedSize().toLong())
+        }
+    }
+
     override fun logsForNextBatch(): List<Log> {
         return storedLogs.threadSafeToList()
     }
 
-    override fun storedLogCount(): Int = storedLogs.size
+    override fun storedLogCount(): Int = storedLogCount.get()
+
+    override fun storedLogBytes(): Long = storedLogBytes.get()
+
+    override fun setBatchLimits(maxCount: Int, maxBytes: Long) {
+        maxBatchCount = maxCount.coerceAtLeast(1)
+        maxBatchBytes = maxBytes.coerceAtLeast(1)
+    }
 
     override fun flushBatch(): List<Log> {
         synchronized(flushLock) {
-            val flushedLogs = ArrayList<Log>(MAX_LOGS_PER_BATCH)
-            while (flushedLogs.size < MAX_LOGS_PER_BATCH) {
-                val log = storedLogs.poll() ?: break
+            val maxCount = maxBatchCount
+            val maxBytes = maxBatchBytes
+            val flushedLogs = ArrayList<Log>(minOf(maxCount, storedLogCount.get()).coerceAtLeast(0))
+            var flushedBytes = 0L
+            while (flushedLogs.size < maxCount) {
+                // only flushes remove logs, so the head of the queue cannot change between the peek and the poll
+                val log = storedLogs.peek() ?: break
+                val size = log.estimatedSize()
+                if (flushedLogs.isNotEmpty() && flushedBytes + size > maxBytes) {
+                    break
+                }
+                storedLogs.poll()
                 flushedLogs.add(log)
+                flushedBytes += size
             }
+            storedLogCount.addAndGet(-flushedLogs.size)
+            storedLogBytes.addAndGet(-flushedBytes)
             return flushedLogs
         }
     }
@@ -61,4 +105,8 @@ class LogSinkImpl : LogSink {
     }
 }
 
-internal const val MAX_LOGS_PER_BATCH = 50
+/**
+ * The batch limits used until [LogSink.setBatchLimits] is called.
+ */
+internal const val DEFAULT_MAX_LOGS_PER_BATCH = 50
+internal const val DEFAULT_MAX_BATCH_BYTES = 1024 * 1024L
@@ -0,0 +1,19 @@
+package io.embrace.android.embracesdk.internal.otel.logs
+
+import io.embrace.android.embracesdk.internal.payload.Log
+
+/**
+ * Roughly how many bytes this log adds to a serialized batch, before compression. This counts string lengths plus a
+ * fixed allowance for field names and numbers, so it is cheap enough to call for every stored log.
+ */
+fun Log.estimatedSize(): Int {
+    var size = LOG_OVERHEAD_BYTES + (body?.length ?: 0) + (severityText?.length ?: 0) +
+        (traceId?.length ?: 0) + (spanId?.length ?: 0)
+    attributes?.forEach { attr ->
+        size += ATTRIBUTE_OVERHEAD_BYTES + (attr.key?.length ?: 0) + (attr.data?.length ?: 0)
+    }
+    return size
+}
+
+private const val LOG_OVERHEAD_BYTES = 96
+private const val ATTRIBUTE_OVERHEAD_BYTES = 20
@@ -42,61 +42,53 @@ class DataValidator(
         return truncatedEvents
     }
 
+    /**
+     * Returns [attributes] limited to the maximum attribute count, key length and value length. When nothing exceeds a
+     * limit, which is the common case, [attributes] itself is returned without copying it, so callers that retain the
+     * result beyond the call must copy it.
+     */
     fun truncateAttributes(attributes: Map<String, String>, internal: Boolean, countOverride: Int? = null): Map<String, String> {
+        if (!internal && bypassValidation()) {
+            return attributes
+        }
         val maxAttributeCount = countOverride ?: if (internal) {
             otelLimitsConfig.getMaxSystemAttributeCount()
         } else {
             otelLimitsConfig.getMaxCustomAttributeCount()
         }
-        val maxKeyLength = if (internal) {
-            otelLimitsConfig.getMaxInternalAttributeKeyLength()
-        } else {
-            otelLimitsConfig.getMaxCustomAttributeKeyLength()
-        }
-        val maxValueLength = if (internal) {
-            otelLimitsConfig.getMaxInternalAttributeValueLength()
-        } else {
-            otelLimitsConfig.getMaxCustomAttributeValueLength()
-        }
+        val maxKeyLength = getMaxKeyLength(internal)
+        val maxValueLength = getMaxValueLength(internal)
 
-        return if (internal || !bypassValidation()) {
-            attributes.truncate(
-                maxCount = maxAttributeCount,
-                maxKeyLength = maxKeyLength,
-                maxValueLength = maxValueLength,
-            )
-        } else {
-            attributes
+        if (attributes.isWithinLimits(maxAttributeCount, maxKeyLength, maxValueLength)) {
+            return attributes
         }
+        return attributes.truncate(
+            maxCount = maxAttributeCount,
+            maxKeyLength = maxKeyLength,
+            maxValueLength = maxValueLength,
+        )
     }
 
-    fun truncateAttribute(key: String, value: String, internal: Boolean): Pair<String, String> {
-        val maxKeyLength = if (internal) {
-            otelLimitsConfig.getMaxInternalAttributeKeyLength()
-        } else {
-            otelLimitsConfig.getMaxCustomAttributeKeyLength()
-        }
-        val maxValueLength = if (internal) {
-            otelLimitsConfig.getMaxInternalAttributeValueLength()
-        } else {
-            otelLimitsConfig.getMaxCustomAttributeValueLength()
-        }
-
-        val truncatedKey = PropertyUtils.truncate(key, maxKeyLength)
+    /**
+     * Returns [key] truncated to the maximum attribute key length, or [key] itself if it is within the limit.
+     */
+    fun truncateAttributeKey(key: String, internal: Boolean): String {
+        val truncatedKey = PropertyUtils.truncate(key, getMaxKeyLength(internal))
         if (truncatedKey != key) {
             telemetryService.trackAppliedLimit("span_attribute_key", AppliedLimitType.TRUNCATE_STRING)
         }
+        return truncatedKey
+    }
 
-        val truncatedValue = if (key.isValidLongValueAttribute()) {
-            value
-        } else {
-            PropertyUtils.truncate(value, maxValueLength)
-        }
+    /**
+     * Returns [value] truncated to the maximum value length for [key], or [value] itself if it is within the limit.
+     */
+    fun truncateAttributeValue(key: String, value: String, internal: Boolean): String {
+        val truncatedValue = truncateValue(key, value, getMaxValueLength(internal))
         if (truncatedValue != value) {
             telemetryService.trackAppliedLimit("span_attribute_value", AppliedLimitType.TRUNCATE_STRING)
         }
-
-        return Pair(truncatedKey, truncatedValue)
+        return truncatedValue
     }
 
     fun createTruncatedSpanEvent(
@@ -108,47 +100,73 @@ class DataValidator(
         return EmbraceSpanEvent.create(
             name = truncateName(name, internal),
             timestampMs = timestampMs,
+            // the event retains its attributes, so copy them if they weren't truncated
             attributes = truncateAttributes(
                 attributes = attributes,
                 internal = internal,
                 countOverride = otelLimitsConfig.getMaxEventAttributeCount(),
-            ),
+            ).let { if (it === attributes) attributes.toMap() else it },
         )
     }
 
+    private fun getMaxKeyLength(internal: Boolean): Int = if (internal) {
+        otelLimitsConfig.getMaxInternalAttributeKeyLength()
+    } else {
+        otelLimitsConfig.getMaxCustomAttributeKeyLength()
+    }
+
+    private fun getMaxValueLength(internal: Boolean): Int = if (internal) {
+        otelLimitsConfig.getMaxInternalAttributeValueLength()
+    } else {
+        otelLimitsConfig.getMaxCustomAttributeValueLength()
+    }
+
+    private fun Map<String, String>.isWithinLimits(
+        maxCount: Int,
+        maxKeyLength: Int,
+        maxValueLength: Int,
+    ): Boolean {
+        if (size > maxCount) {
+            return false
+        }
+        for ((key, value) in this) {
+            if (key.length > maxKeyLength || (value.length > maxValueLength && !key.isValidLongValueAttribute())) {
+                return false
+            }
+        }
+        return true
+    }
+
     private fun Map<String, String>.truncate(
         maxCount: Int,
         maxKeyLength: Int,
         maxValueLength: Int,
     ): Map<String, String> {
-        val truncatedEntries = entries.take(maxCount)
-        if (truncatedEntries.size < entries.size) {
+        if (size > maxCount) {
             telemetryService.trackAppliedLimit("span_attribute", AppliedLimitType.TRUNCATE_ATTRIBUTES)
         }
 
-        return truncatedEntries.associate {
-            val truncatedKey = PropertyUtils.truncate(
-                value = it.key,
-                maxLength = maxKeyLength,
-            )
-            if (truncatedKey != it.key) {
+        val result = LinkedHashMap<String, String>(minOf(size, maxCount))
+        var count = 0
+        for ((key, value) in this) {
+            if (count++ == maxCount) {
+                break
+            }
+            val truncatedKey = PropertyUtils.truncate(key, maxKeyLength)
+            if (truncatedKey != key) {
                 telemetryService.trackAppliedLimit("span_attribute_key", AppliedLimitType.TRUNCATE_STRING)
             }
 
-            val truncatedValue = truncateAttributeValue(
-                key = it.key,
-                value = it.value,
-                maxLength = maxValueLength,
-            )
-            if (truncatedValue != it.value) {
+            val truncatedValue = truncateValue(key, value, maxValueLength)
+            if (truncatedValue != value) {
                 telemetryService.trackAppliedLimit("span_attribute_value", AppliedLimitType.TRUNCATE_STRING)
             }
-
-            truncatedKey to truncatedValue
+            result[truncatedKey] = truncatedValue
         }
+        return result
     }
 
-    private fun truncateAttributeValue(key: String, value: String, maxLength: Int): String =
+    private fun truncateValue(key: String, value: String, maxLength: Int): String =
         if (key.isValidLongValueAttribute()) {
             value
         } else {
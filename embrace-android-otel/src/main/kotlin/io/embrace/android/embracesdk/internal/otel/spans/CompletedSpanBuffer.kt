@@ -0,0 +1,108 @@
+package io.embrace.android.embracesdk.internal.otel.spans
+
+import io.embrace.android.embracesdk.internal.payload.Span
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * Holds completed [Span] payloads until they are flushed at the end of a session part.
+ *
+ * Spans are appended to one of several stripes, chosen by the calling thread, so that threads exporting spans
+ * concurrently rarely contend on the same lock. Each append is numbered, and reads merge the stripes back into the
+ * order the appends happened in, so consumers see spans in the order they were stored, as with a single queue.
+ * The number of buffered spans is tracked separately so that appends that would take the buffer over [capacity] can
+ * be rejected without walking the stripes.
+ */
+internal class CompletedSpanBuffer(
+    private val capacity: Int,
+    stripeCount: Int = DEFAULT_STRIPE_COUNT,
+) {
+    private val stripes = Array(stripeCount) { Stripe() }
+    private val count = AtomicInteger(0)
+    private val sequence = AtomicLong(0)
+
+    /**
+     * Appends [spans] to the buffer. Returns false without storing anything if doing so would exceed the capacity.
+     */
+    fun addAll(spans: List<Span>): Boolean {
+        if (spans.isEmpty()) {
+            return true
+        }
+        while (true) {
+            val current = count.get()
+            if (current + spans.size > capacity) {
+                return false
+            }
+            if (count.compareAndSet(current, current + spans.size)) {
+                break
+            }
+        }
+        val stripe = stripes[(Thread.currentThread().id % stripes.size).toInt()]
+        stripe.lock.withLock {
+            stripe.batches.add(Batch(sequence.getAndIncrement(), spans.toList()))
+        }
+        return true
+    }
+
+    /**
+     * Returns a copy of the buffered spans in the order they were stored.
+     */
+    fun snapshot(): List<Span> {
+        val batches = ArrayList<Batch>()
+        stripes.forEach { stripe ->
+            stripe.lock.withLock {
+                batches.addAll(stripe.batches)
+            }
+        }
+        return merge(batches)
+    }
+
+    /**
+     * Returns and clears the buffered spans in the order they were stored. Every stripe is locked for the duration of
+     * the flush, so spans cannot be added while it is in progress.
+     */
+    fun flush(): List<Span> {
+        val batches = ArrayList<Batch>()
+        var locked = 0
+        try {
+            while (locked < stripes.size) {
+                stripes[locked].lock.lock()
+                locked++
+            }
+            stripes.forEach { stripe ->
+                batches.addAll(stripe.batches)
+                stripe.batches.clear()
+            }
+            count.addAndGet(-batches.sumOf { it.spans.size })
+        } finally {
+            while (locked > 0) {
+                locked--
+                stripes[locked].lock.unlock()
+            }
+        }
+        return merge(batches)
+    }
+
+    private fun merge(batches: ArrayList<Batch>): List<Span> {
+        batches.sortBy(Batch::sequence)
+        val result = ArrayList<Span>(batches.sumOf { it.spans.size })
+        batches.forEach { result.addAll(it.spans) }
+        return result
+    }
+
+    private class Stripe {
+        val lock = ReentrantLock()
+        val batches = ArrayList<Batch>()
+    }
+
+    /**
+     * Spans stored by a single call to [addAll], numbered by the order in which the calls took their stripe's lock.
+     */
+    private class Batch(val sequence: Long, val spans: List<Span>)
+
+    private companion object {
+        private const val DEFAULT_STRIPE_COUNT = 4
+    }
+}
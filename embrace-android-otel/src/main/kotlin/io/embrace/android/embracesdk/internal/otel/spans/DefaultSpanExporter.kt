@@ -27,7 +27,7 @@ internal class DefaultSpanExporter(
 
         if (result == StoreDataResult.SUCCESS && externalExporters.isNotEmpty()) {
             val exportable = telemetry.filterNot { it.attributes.containsKey(PrivateSpan.key) }
-            externalExportDispatcher.dispatch(externalExporters) { it.export(exportable) }
+            externalExportDispatcher.dispatch(externalExporters, exportable) { exporter, batch -> exporter.export(batch) }
         }
 
         return when (result) {
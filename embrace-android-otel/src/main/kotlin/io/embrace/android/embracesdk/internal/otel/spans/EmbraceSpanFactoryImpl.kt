@@ -1,6 +1,7 @@
 package io.embrace.android.embracesdk.internal.otel.spans
 
 import io.embrace.android.embracesdk.internal.arch.attrs.EmbraceAttribute
+import io.embrace.android.embracesdk.internal.arch.attrs.EmbraceAttributeTable
 import io.embrace.android.embracesdk.internal.arch.schema.ErrorCodeAttribute
 import io.embrace.android.embracesdk.internal.arch.schema.LinkType
 import io.embrace.android.embracesdk.internal.clock.millisToNanos
@@ -154,7 +155,10 @@ private class EmbraceSpanImpl(
 
     private var customLinks: MutableList<EmbraceLinkData>? = null
 
-    private val systemAttributes = ConcurrentHashMap<String, String>(otelSpanStartArgs.embraceAttributes.size).apply {
+    // Array-backed rather than a ConcurrentHashMap: system attribute keys almost all come from the
+    // EmbraceAttributeKeys registry, so each entry costs a byte ID and a value slot instead of a hash node.
+    // Every read and write synchronizes on the table itself.
+    private val systemAttributes = EmbraceAttributeTable(otelSpanStartArgs.embraceAttributes.size).apply {
         otelSpanStartArgs.embraceAttributes.forEach { put(it.key, it.value) }
     }
     private val customAttributes = ConcurrentHashMap<String, String>()
@@ -214,10 +218,11 @@ private class EmbraceSpanImpl(
                 return false
             }
 
+            // set the start time first so the repository can register the span's timeout deadline
+            spanStartTimeMs = attemptedStartTimeMs
             deps.spanRepository.trackStartedEmbraceSpan(this)
             newSpan.setName(spanName)
 
-            spanStartTimeMs = attemptedStartTimeMs
             deps.spanRepository.notifySpanUpdate()
         }
 
@@ -257,6 +262,7 @@ private class EmbraceSpanImpl(
                 successful = !isRecording
                 if (successful) {
                     spanEndTimeMs = attemptedEndTimeMs
+                    deps.spanRepository.trackCompletedEmbraceSpan(this)
                     deps.spanRepository.notifySpanUpdate()
                     releaseRetainedData()
                 }
@@ -339,12 +345,8 @@ private class EmbraceSpanImpl(
         if (customAttributes.size < maxAttributeCount && key.isNotBlank()) {
             synchronized(customAttributes) {
                 if (customAttributes.size < maxAttributeCount && isRecording) {
-                    val attribute = deps.dataValidator.truncateAttribute(
-                        key = key,
-                        value = value,
-                        internal = internal,
-                    )
-                    customAttributes[attribute.first] = attribute.second
+                    val validKey = deps.dataValidator.truncateAttributeKey(key, internal)
+                    customAttributes[validKey] = deps.dataValidator.truncateAttributeValue(key, value, internal)
                     deps.spanRepository.notifySpanUpdate()
                     return true
                 }
@@ -411,9 +413,11 @@ private class EmbraceSpanImpl(
     }
 
     override fun hasEmbraceAttribute(embraceAttribute: EmbraceAttribute): Boolean =
-        systemAttributes[embraceAttribute.key] == embraceAttribute.value
+        getSystemAttribute(embraceAttribute.key) == embraceAttribute.value
 
-    override fun getSystemAttribute(key: String): String? = systemAttributes[key]
+    override fun getSystemAttribute(key: String): String? = synchronized(systemAttributes) {
+        systemAttributes[key]
+    }
 
     override fun setSystemAttribute(key: String, value: String) {
         addSystemAttribute(key, value)
@@ -421,20 +425,20 @@ private class EmbraceSpanImpl(
 
     override fun addSystemAttribute(key: String, value: String) {
         val max = deps.dataValidator.otelLimitsConfig.getMaxSystemAttributeCount()
-        if (systemAttributes.containsKey(key) || systemAttributes.size < max) {
-            synchronized(systemAttributes) {
-                if (systemAttributes.containsKey(key) || systemAttributes.size < max) {
-                    systemAttributes[key] = value
-                    deps.spanRepository.notifySpanUpdate()
-                    return
-                }
+        synchronized(systemAttributes) {
+            if (systemAttributes.containsKey(key) || systemAttributes.size < max) {
+                systemAttributes.put(key, value)
+                deps.spanRepository.notifySpanUpdate()
+                return
             }
         }
         deps.telemetryService.trackAppliedLimit("span_attribute", AppliedLimitType.DROP)
     }
 
     override fun removeSystemAttribute(key: String) {
-        systemAttributes.remove(key)
+        synchronized(systemAttributes) {
+            systemAttributes.remove(key)
+        }
         deps.spanRepository.notifySpanUpdate()
     }
 
@@ -502,8 +506,16 @@ private class EmbraceSpanImpl(
     private fun redactCustomLinks(customLinks: List<EmbraceLinkData>): List<EmbraceLinkData> =
         customLinks.map { it.copy(attributes = it.attributes.redactIfSensitive()) }
 
-    private fun getAttributesPayload(): List<Attribute> =
-        systemAttributes.map { Attribute(it.key, it.value) } + customAttributes.redactIfSensitive().toEmbracePayload()
+    private fun getAttributesPayload(): List<Attribute> {
+        val custom = customAttributes.redactIfSensitive()
+        val payload = synchronized(systemAttributes) {
+            ArrayList<Attribute>(systemAttributes.size + custom.size).apply {
+                systemAttributes.forEach { key, value -> add(Attribute(key, value)) }
+            }
+        }
+        custom.forEach { payload.add(Attribute(it.key, it.value)) }
+        return payload
+    }
 
     private fun canSnapshot(): Boolean = spanId != null && spanStartTimeMs > UNSET_TIME
 
@@ -585,8 +597,10 @@ private class EmbraceSpanImpl(
     }
 
     private fun populateAttributes(spanToStop: Span) {
-        systemAttributes.forEach { systemAttribute ->
-            spanToStop.setStringAttribute(systemAttribute.key, systemAttribute.value)
+        synchronized(systemAttributes) {
+            systemAttributes.forEach { key, value ->
+                spanToStop.setStringAttribute(key, value)
+            }
         }
         customAttributes.redactIfSensitive().forEach { attribute ->
             spanToStop.setStringAttribute(attribute.key, attribute.value)
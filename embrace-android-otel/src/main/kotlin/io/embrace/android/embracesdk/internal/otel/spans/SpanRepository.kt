@@ -4,13 +4,13 @@ import io.embrace.android.embracesdk.internal.arch.schema.EmbType
 import io.embrace.android.embracesdk.internal.arch.schema.ErrorCodeAttribute
 import io.embrace.android.embracesdk.internal.otel.sdk.StoreDataResult
 import io.embrace.android.embracesdk.internal.payload.Span
-import io.embrace.android.embracesdk.internal.utils.threadSafeToList
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.spans.AutoTerminationMode
 import io.embrace.android.embracesdk.spans.EmbraceSpan
-import java.util.Queue
 import java.util.concurrent.ConcurrentHashMap
-import java.util.concurrent.ConcurrentLinkedQueue
 import java.util.concurrent.ConcurrentMap
+import java.util.concurrent.ConcurrentSkipListMap
 
 /**
  * Stores the spans of the current session. Two distinct representations are held:
@@ -19,39 +19,90 @@ import java.util.concurrent.ConcurrentMap
  *   references can be retrieved by their associated spanId. Accessed via the `*EmbraceSpan(s)` methods.
  * - [Span]: the completed spans exported through the OTel pipeline that are pending delivery
  *   off-device. Accessed via the `*OtelSpan(s)` methods.
+ *
+ * Active and completed [EmbraceSdkSpan] instances are held in separate indexes so that snapshots and sweeps only visit
+ * the spans that are still in progress. Completed [Span] payloads are held in a [CompletedSpanBuffer] that holds at
+ * most [completedSpanLimit] spans. Spans that don't fit are dropped and reported to [telemetryService].
+ *
+ * Spans with a [SpanTerminationMode.Timeout] have their deadline registered when they start and removed when they
+ * stop, so a timeout sweep only visits the spans that have actually expired. Likewise, in-progress spans whose root
+ * span terminates on background are indexed when they start, so auto-termination only visits those spans.
  */
-class SpanRepository {
-    private val spans: ConcurrentMap<String, EmbraceSdkSpan> = ConcurrentHashMap()
+class SpanRepository(
+    completedSpanLimit: Int = DEFAULT_COMPLETED_SPAN_LIMIT,
+    private val telemetryService: TelemetryService? = null,
+) {
+    private val activeSpans: ConcurrentMap<String, EmbraceSdkSpan> = ConcurrentHashMap()
+    private val completedSpans: ConcurrentMap<String, EmbraceSdkSpan> = ConcurrentHashMap()
+    private val timeoutDeadlines: ConcurrentSkipListMap<SpanDeadline, EmbraceSdkSpan> = ConcurrentSkipListMap()
+    private val autoTerminatingSpans: ConcurrentMap<String, AutoTerminatingSpan> = ConcurrentHashMap()
     private var spanUpdateNotifier: (() -> Unit)? = null
 
-    private val completedSpanData: Queue<Span> = ConcurrentLinkedQueue()
-    private val flushLock = Any()
+    @Volatile
+    private var pendingSpanDrain: (() -> Unit)? = null
+
+    private val completedSpanData = CompletedSpanBuffer(completedSpanLimit)
 
     /**
      * Track the [EmbraceSpan] if it has been started and it's not already tracked.
      */
     fun trackStartedEmbraceSpan(embraceSpan: EmbraceSdkSpan) {
         val spanId = embraceSpan.spanId ?: return
-        spans.putIfAbsent(spanId, embraceSpan)
+        if (completedSpans.containsKey(spanId)) {
+            return
+        }
+        if (embraceSpan.isRecording) {
+            if (activeSpans.putIfAbsent(spanId, embraceSpan) == null) {
+                embraceSpan.timeoutDeadline(spanId)?.let { timeoutDeadlines[it] = embraceSpan }
+                if (embraceSpan.rootSpan().autoTerminationMode == AutoTerminationMode.ON_BACKGROUND) {
+                    autoTerminatingSpans[spanId] = AutoTerminatingSpan(embraceSpan, embraceSpan.depth())
+                }
+            }
+        } else {
+            completedSpans.putIfAbsent(spanId, embraceSpan)
+        }
+    }
+
+    /**
+     * Move a tracked [EmbraceSpan] from the active to the completed index once it has stopped.
+     */
+    fun trackCompletedEmbraceSpan(embraceSpan: EmbraceSdkSpan) {
+        val spanId = embraceSpan.spanId ?: return
+        if (activeSpans[spanId] === embraceSpan) {
+            // add to the completed index before removing so the span can always be found by its spanId
+            completedSpans.putIfAbsent(spanId, embraceSpan)
+            activeSpans.remove(spanId, embraceSpan)
+            embraceSpan.timeoutDeadline(spanId)?.let { timeoutDeadlines.remove(it, embraceSpan) }
+            autoTerminatingSpans.remove(spanId)
+        }
     }
 
     /**
      * Return the [EmbraceSdkSpan] with the corresponding [spanId] if it's tracked. Return null otherwise.
      */
-    fun getEmbraceSpan(spanId: String): EmbraceSdkSpan? = spans[spanId]
+    fun getEmbraceSpan(spanId: String): EmbraceSdkSpan? = activeSpans[spanId] ?: completedSpans[spanId]
 
     /**
      * Get a list of active spans that are being tracked
      */
     fun getActiveEmbraceSpans(): List<EmbraceSdkSpan> {
-        return spans.values.filter { it.isRecording }
+        val active = ArrayList<EmbraceSdkSpan>(activeSpans.size)
+        activeSpans.values.forEach { span ->
+            if (span.isRecording) {
+                active.add(span)
+            } else {
+                trackCompletedEmbraceSpan(span)
+            }
+        }
+        return active
     }
 
     /**
      * Get a list of completed spans that are being tracked.
      */
     fun getCompletedEmbraceSpans(): List<EmbraceSdkSpan> {
-        return spans.values.filterNot { it.isRecording }
+        moveStoppedSpans()
+        return completedSpans.values.toList()
     }
 
     /**
@@ -60,14 +111,14 @@ class SpanRepository {
      * regardless of when the sweep runs. Spans with no timeout are untouched.
      */
     fun stopTimedOutSpans(now: Long) {
-        getActiveEmbraceSpans().forEach { span ->
-            val mode = span.terminationMode
-            val startTimeMs = span.getStartTimeMs()
-            if (mode is SpanTerminationMode.Timeout && startTimeMs != null) {
-                val deadlineMs = startTimeMs + mode.timeoutMs
-                if (now >= deadlineMs) {
-                    span.stopWithErrorCode(ErrorCodeAttribute.Failure, deadlineMs)
-                }
+        while (true) {
+            val next = timeoutDeadlines.firstEntry() ?: return
+            if (next.key.deadlineMs > now) {
+                return
+            }
+            // only the thread that removes the deadline stops the span
+            if (timeoutDeadlines.remove(next.key, next.value) && next.value.isRecording) {
+                next.value.stopWithErrorCode(ErrorCodeAttribute.Failure, next.key.deadlineMs)
             }
         }
     }
@@ -85,13 +136,8 @@ class SpanRepository {
      * Clear the completed spans this repository is tracking
      */
     fun clearCompletedEmbraceSpans() {
-        val iterator = spans.values.iterator()
-        while (iterator.hasNext()) {
-            val candidate = iterator.next()
-            if (!candidate.isRecording) {
-                iterator.remove()
-            }
-        }
+        moveStoppedSpans()
+        completedSpans.clear()
     }
 
     /**
@@ -101,6 +147,14 @@ class SpanRepository {
         spanUpdateNotifier = notifier
     }
 
+    /**
+     * Set a function that exports any completed spans that are waiting to be stored. It is invoked before the
+     * stored spans are read, so spans that have ended are never missed.
+     */
+    fun setPendingSpanDrain(drain: () -> Unit) {
+        pendingSpanDrain = drain
+    }
+
     /**
      * Call to notify the repository that a span has been updated
      */
@@ -109,11 +163,17 @@ class SpanRepository {
     }
 
     /**
-     * Automatically terminates root spans
+     * Terminates any in-progress spans whose root span is set to auto terminate on the process entering the
+     * background, including descendants of a root that has already been cleared from the repository. Parents are
+     * stopped before their descendants, and the end time is guaranteed to be the same for any auto-terminated spans.
      */
     fun autoTerminateEmbraceSpans(now: Long) {
-        val roots = buildSpanTree()
-        terminateSpansIfRequired(now, roots.filter { it.span.autoTerminationMode == AutoTerminationMode.ON_BACKGROUND })
+        autoTerminatingSpans.values.sortedBy(AutoTerminatingSpan::depth).forEach { (span) ->
+            if (span.isRecording) {
+                span.stop(endTimeMs = now)
+            }
+            trackCompletedEmbraceSpan(span)
+        }
     }
 
     /**
@@ -121,7 +181,10 @@ class SpanRepository {
      */
     fun storeCompletedOtelSpans(spans: List<Span>): StoreDataResult {
         try {
-            completedSpanData += spans
+            if (!completedSpanData.addAll(spans)) {
+                telemetryService?.trackAppliedLimit("span", AppliedLimitType.DROP, spans.size)
+                return StoreDataResult.FAILURE
+            }
         } catch (t: Throwable) {
             return StoreDataResult.FAILURE
         }
@@ -131,58 +194,78 @@ class SpanRepository {
     /**
      * Returns the list of the currently stored completed [Span].
      */
-    fun completedOtelSpans(): List<Span> = completedSpanData.threadSafeToList()
+    fun completedOtelSpans(): List<Span> {
+        pendingSpanDrain?.invoke()
+        return completedSpanData.snapshot()
+    }
 
     /**
      * Returns and clears the currently stored completed [Span]. The clearing and returning is
      * atomic, i.e. spans cannot be added during this operation.
      */
     fun flushOtelSpans(): List<Span> {
-        synchronized(flushLock) {
-            val count = completedSpanData.size
-            val flushed = ArrayList<Span>(count)
-            repeat(count) { completedSpanData.poll()?.let(flushed::add) }
-            return flushed
-        }
+        pendingSpanDrain?.invoke()
+        return completedSpanData.flush()
     }
 
     /**
-     * Terminates any spans & their descendants that are set to auto terminate on the process entering the background.
-     *
-     * The root span and their descendants are terminated via depth-first traversal. The end time is guaranteed
-     * to be the same for any auto-terminated spans.
+     * Moves any span in the active index that has stopped without going through [trackCompletedEmbraceSpan].
      */
-    private fun terminateSpansIfRequired(endTimeMs: Long, nodes: List<SpanNode>) {
-        nodes.forEach { node ->
-            if (node.span.isRecording) {
-                node.span.stop(endTimeMs = endTimeMs)
+    private fun moveStoppedSpans() {
+        activeSpans.values.forEach { span ->
+            if (!span.isRecording) {
+                trackCompletedEmbraceSpan(span)
             }
-            terminateSpansIfRequired(endTimeMs, node.children)
         }
     }
 
-    private fun buildSpanTree(): List<SpanNode> {
-        // first, create nodes individually by getting all active spans, then adding them to all completed spans
-        val allSpans = spans.values
-        val nodes = allSpans.map { SpanNode(it, mutableListOf()) }.associateBy(SpanNode::span)
-        val roots = mutableListOf<SpanNode>()
+    private fun EmbraceSpan.rootSpan(): EmbraceSpan {
+        var root = this
+        while (true) {
+            root = root.parent ?: return root
+        }
+    }
 
-        // then build relationships between nodes
-        allSpans.forEach { span ->
-            nodes[span]?.let { node ->
-                if (span.parent != null) {
-                    nodes[span.parent]?.children?.add(node)
-                } else {
-                    roots.add(node)
-                }
-            }
+    private fun EmbraceSpan.depth(): Int {
+        var depth = 0
+        var span = this
+        while (true) {
+            span = span.parent ?: return depth
+            depth++
         }
-        // finally, return a list of root nodes
-        return roots.toList()
     }
 
-    private data class SpanNode(
-        val span: EmbraceSpan,
-        val children: MutableList<SpanNode>,
+    private fun EmbraceSdkSpan.timeoutDeadline(spanId: String): SpanDeadline? {
+        val mode = terminationMode as? SpanTerminationMode.Timeout ?: return null
+        val startTimeMs = getStartTimeMs() ?: return null
+        return SpanDeadline(startTimeMs + mode.timeoutMs, spanId)
+    }
+
+    /**
+     * An in-progress span under a root that terminates on background, with its distance from that root.
+     */
+    private data class AutoTerminatingSpan(
+        val span: EmbraceSdkSpan,
+        val depth: Int,
     )
+
+    /**
+     * Orders registered timeouts by deadline, using the spanId to keep deadlines that are equal distinct.
+     */
+    private data class SpanDeadline(
+        val deadlineMs: Long,
+        val spanId: String,
+    ) : Comparable<SpanDeadline> {
+        override fun compareTo(other: SpanDeadline): Int = when (val result = deadlineMs.compareTo(other.deadlineMs)) {
+            0 -> spanId.compareTo(other.spanId)
+            else -> result
+        }
+    }
+
+    private companion object {
+        /**
+         * Comfortably above the sum of the default per-session part span limits.
+         */
+        private const val DEFAULT_COMPLETED_SPAN_LIMIT = 10_000
+    }
 }
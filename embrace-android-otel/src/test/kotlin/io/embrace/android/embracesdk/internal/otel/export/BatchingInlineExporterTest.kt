@@ -0,0 +1,169 @@
+package io.embrace.android.embracesdk.internal.otel.export
+
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import io.opentelemetry.kotlin.export.OperationResultCode
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.util.Collections
+
+internal class BatchingInlineExporterTest {
+
+    private lateinit var delegate: RecordingExporter
+    private lateinit var executor: BlockingScheduledExecutorService
+    private var workersCreated = 0
+
+    @Before
+    fun setUp() {
+        delegate = RecordingExporter()
+        executor = BlockingScheduledExecutorService(blockingMode = true)
+        workersCreated = 0
+    }
+
+    @Test
+    fun `telemetry is not exported on the calling thread`() {
+        val exporter = createExporter(maxBatchSize = 10)
+        assertEquals(OperationResultCode.Success, exporter.exportInline(listOf("a", "b")))
+        assertTrue(delegate.exported.isEmpty())
+
+        exporter.drain()
+        assertEquals(listOf("a", "b"), delegate.exported)
+        assertEquals(Thread.currentThread(), delegate.threads.single())
+    }
+
+    @Test
+    fun `full batches are exported on the worker without waiting for the max latency`() {
+        val exporter = createExporter(maxBatchSize = 5)
+        exporter.exportInline((0 until 10).map(Int::toString))
+        assertTrue(delegate.exported.isEmpty())
+
+        executor.runCurrentlyBlocked()
+        assertEquals((0 until 10).map(Int::toString), delegate.exported)
+        assertEquals(listOf(5, 5), delegate.batchSizes)
+    }
+
+    @Test
+    fun `partial batches are exported after the max latency`() {
+        val exporter = createExporter(maxBatchSize = 100, maxLatencyMs = 10)
+        exporter.exportInline(listOf("a"))
+        exporter.exportInline(listOf("b"))
+        assertEquals(1, executor.scheduledTasksCount())
+
+        executor.moveForwardAndRunBlocked(9)
+        assertTrue(delegate.exported.isEmpty())
+
+        executor.moveForwardAndRunBlocked(1)
+        assertEquals(listOf("a", "b"), delegate.exported)
+    }
+
+    @Test
+    fun `telemetry offered after an export schedules another one`() {
+        val exporter = createExporter(maxBatchSize = 100, maxLatencyMs = 10)
+        exporter.exportInline(listOf("a"))
+        executor.moveForwardAndRunBlocked(10)
+        exporter.exportInline(listOf("b"))
+        executor.moveForwardAndRunBlocked(10)
+        assertEquals(listOf("a", "b"), delegate.exported)
+        assertEquals(listOf(1, 1), delegate.batchSizes)
+    }
+
+    @Test
+    fun `telemetry is exported inline when the buffer is full`() {
+        val exporter = createExporter(maxBatchSize = 100, capacity = 4)
+        exporter.exportInline((0 until 6).map(Int::toString))
+        assertEquals(listOf("4", "5"), delegate.exported)
+
+        exporter.drain()
+        assertEquals(listOf("4", "5", "0", "1", "2", "3"), delegate.exported)
+    }
+
+    @Test
+    fun `force flush drains the buffer`() {
+        val exporter = createExporter(maxBatchSize = 10)
+        exporter.exportInline(listOf("a"))
+        runBlocking {
+            assertEquals(OperationResultCode.Success, exporter.forceFlush())
+        }
+        assertEquals(listOf("a"), delegate.exported)
+        assertEquals(1, delegate.forceFlushCount)
+    }
+
+    @Test
+    fun `shutdown exports buffered telemetry and stops the worker`() {
+        val exporter = createExporter(maxBatchSize = 10)
+        exporter.exportInline(listOf("a", "b"))
+        exporter.shutdown()
+        assertEquals(listOf("a", "b"), delegate.exported)
+        assertTrue(executor.isShutdown)
+
+        exporter.exportInline(listOf("c"))
+        assertEquals(listOf("a", "b", "c"), delegate.exported)
+        assertEquals(0, executor.scheduledTasksCount())
+    }
+
+    @Test
+    fun `shutdown does not create a worker that was never used`() {
+        val exporter = createExporter(maxBatchSize = 10)
+        exporter.shutdown()
+        assertEquals(0, workersCreated)
+        assertFalse(executor.isShutdown)
+    }
+
+    @Test
+    fun `concurrent producers neither lose nor duplicate telemetry`() {
+        val exporter = BatchingInlineExporter(
+            delegate,
+            maxBatchSize = 16,
+            maxLatencyMs = 5,
+            workerProvider = { BatchingInlineExporter.singleThreadedWorker("test") },
+            capacity = 64,
+        )
+        val producers = (0 until 4).map { p ->
+            Thread {
+                repeat(2_500) { k -> exporter.exportInline(listOf("$p-$k")) }
+            }.apply { start() }
+        }
+        producers.forEach(Thread::join)
+        exporter.shutdown()
+        assertEquals(10_000, delegate.exported.size)
+        assertEquals(10_000, delegate.exported.toSet().size)
+    }
+
+    private fun createExporter(
+        maxBatchSize: Int,
+        maxLatencyMs: Long = 60_000,
+        capacity: Int = 2048,
+    ) = BatchingInlineExporter(
+        delegate,
+        maxBatchSize = maxBatchSize,
+        maxLatencyMs = maxLatencyMs,
+        workerProvider = {
+            workersCreated++
+            BackgroundWorker(executor)
+        },
+        capacity = capacity,
+    )
+
+    private class RecordingExporter : InlineExporter<String> {
+        val exported: MutableList<String> = Collections.synchronizedList(mutableListOf())
+        val batchSizes: MutableList<Int> = Collections.synchronizedList(mutableListOf())
+        val threads: MutableList<Thread> = Collections.synchronizedList(mutableListOf())
+        var forceFlushCount = 0
+
+        override fun exportInline(telemetry: List<String>): OperationResultCode {
+            exported.addAll(telemetry)
+            batchSizes.add(telemetry.size)
+            threads.add(Thread.currentThread())
+            return OperationResultCode.Success
+        }
+
+        override suspend fun forceFlush(): OperationResultCode {
+            forceFlushCount++
+            return OperationResultCode.Success
+        }
+    }
+}
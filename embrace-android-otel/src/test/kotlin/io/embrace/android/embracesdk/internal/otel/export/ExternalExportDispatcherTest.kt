@@ -0,0 +1,150 @@
+package io.embrace.android.embracesdk.internal.otel.export
+
+import io.embrace.android.embracesdk.fakes.FakeTelemetryService
+import io.embrace.android.embracesdk.internal.otel.export.ExternalExportDispatcher.OverflowPolicy
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import kotlinx.coroutines.runBlocking
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+internal class ExternalExportDispatcherTest {
+
+    private val telemetryService = FakeTelemetryService()
+    private val exporter = RecordingExporter()
+    private val exporters = listOf(exporter)
+
+    @Test
+    fun `queued batches for the same exporters are coalesced`() {
+        val dispatcher = ExternalExportDispatcher(capacityProvider = { 10 })
+        exporter.block()
+        dispatch(dispatcher, listOf("a"))
+        exporter.awaitBlocked()
+        dispatch(dispatcher, listOf("b", "c"))
+        dispatch(dispatcher, listOf("d"))
+        assertEquals(3, dispatcher.queuedCount)
+
+        exporter.unblock()
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(listOf(listOf("a"), listOf("b", "c", "d")), exporter.batches)
+        assertEquals(0, dispatcher.queuedCount)
+    }
+
+    @Test
+    fun `oldest telemetry is dropped when the queue is full`() {
+        val dispatcher = ExternalExportDispatcher(capacityProvider = { 3 }, telemetryService = telemetryService)
+        exporter.block()
+        dispatch(dispatcher, listOf("a"))
+        exporter.awaitBlocked()
+        dispatch(dispatcher, listOf("b", "c"))
+        dispatch(dispatcher, listOf("d", "e"))
+        assertEquals(3, dispatcher.queuedCount)
+
+        exporter.unblock()
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(listOf(listOf("a"), listOf("c", "d", "e")), exporter.batches)
+        assertEquals(1, appliedLimitCount(AppliedLimitType.DROP))
+    }
+
+    @Test
+    fun `telemetry waiting behind a running export is reported as queued`() {
+        val dispatcher = ExternalExportDispatcher(capacityProvider = { 10 }, telemetryService = telemetryService)
+        exporter.block()
+        dispatch(dispatcher, listOf("a"))
+        exporter.awaitBlocked()
+        assertEquals(0, appliedLimitCount(AppliedLimitType.QUEUE))
+
+        dispatch(dispatcher, listOf("b", "c"))
+        dispatch(dispatcher, listOf("d"))
+        exporter.unblock()
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(3, appliedLimitCount(AppliedLimitType.QUEUE))
+        assertEquals(0, appliedLimitCount(AppliedLimitType.DROP))
+        assertEquals(setOf("otel_external_export"), telemetryService.appliedLimits.map { it.first }.toSet())
+    }
+
+    @Test
+    fun `capacity and policy are read on every dispatch`() {
+        var capacity = 1
+        var policy = OverflowPolicy.DROP_OLDEST
+        val dispatcher = ExternalExportDispatcher(
+            capacityProvider = { capacity },
+            overflowPolicyProvider = { policy },
+            telemetryService = telemetryService,
+        )
+        exporter.block()
+        dispatch(dispatcher, listOf("a"))
+        exporter.awaitBlocked()
+        capacity = 3
+        policy = OverflowPolicy.DROP_NEWEST
+        dispatch(dispatcher, listOf("b", "c", "d", "e"))
+
+        exporter.unblock()
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(listOf(listOf("a"), listOf("b", "c", "d")), exporter.batches)
+        assertEquals(1, appliedLimitCount(AppliedLimitType.DROP))
+    }
+
+    @Test
+    fun `newest telemetry is dropped when the queue is full`() {
+        val dispatcher = ExternalExportDispatcher(
+            capacityProvider = { 3 },
+            overflowPolicyProvider = { OverflowPolicy.DROP_NEWEST },
+            telemetryService = telemetryService,
+        )
+        exporter.block()
+        dispatch(dispatcher, listOf("a"))
+        exporter.awaitBlocked()
+        dispatch(dispatcher, listOf("b", "c"))
+        dispatch(dispatcher, listOf("d", "e"))
+        dispatch(dispatcher, listOf("f"))
+
+        exporter.unblock()
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(listOf(listOf("a"), listOf("b", "c", "d")), exporter.batches)
+        assertEquals(2, appliedLimitCount(AppliedLimitType.DROP))
+    }
+
+    @Test
+    fun `batches larger than the capacity are truncated`() {
+        val dispatcher = ExternalExportDispatcher(capacityProvider = { 2 }, telemetryService = telemetryService)
+        dispatch(dispatcher, listOf("a", "b", "c"))
+        runBlocking { dispatcher.awaitPendingExports() }
+        assertEquals(listOf(listOf("b", "c")), exporter.batches)
+        assertEquals(1, telemetryService.appliedLimits.size)
+    }
+
+    private fun appliedLimitCount(type: AppliedLimitType): Int = telemetryService.appliedLimits.count { it.second == type }
+
+    private fun dispatch(dispatcher: ExternalExportDispatcher, telemetry: List<String>) {
+        dispatcher.dispatch(exporters, telemetry) { exporter, batch -> exporter.export(batch) }
+    }
+
+    /**
+     * Records each batch it receives and can be made to block, so that later batches queue up behind it.
+     */
+    private class RecordingExporter {
+        val batches: MutableList<List<String>> = mutableListOf()
+        private var blocked: CountDownLatch? = null
+        private val started = CountDownLatch(1)
+
+        fun block() {
+            blocked = CountDownLatch(1)
+        }
+
+        fun awaitBlocked() {
+            started.await(5, TimeUnit.SECONDS)
+        }
+
+        fun unblock() {
+            blocked?.countDown()
+        }
+
+        fun export(batch: List<String>) {
+            started.countDown()
+            blocked?.await(5, TimeUnit.SECONDS)
+            batches += batch
+        }
+    }
+}
@@ -3,6 +3,7 @@ package io.embrace.android.embracesdk.internal.otel.logs
 import io.embrace.android.embracesdk.concurrency.SingleThreadTestScheduledExecutor
 import io.embrace.android.embracesdk.fixtures.deferredLog
 import io.embrace.android.embracesdk.fixtures.sendImmediatelyLog
+import io.embrace.android.embracesdk.internal.arch.schema.SendMode
 import io.embrace.android.embracesdk.internal.otel.sdk.StoreDataResult
 import io.embrace.android.embracesdk.internal.payload.Log
 import org.junit.Assert.assertEquals
@@ -67,17 +68,48 @@ internal class LogSinkImplTest {
 
     @Test
     fun `flushing caps the batch and retains equal logs that were not flushed`() {
-        val total = MAX_LOGS_PER_BATCH + 10
+        val total = DEFAULT_MAX_LOGS_PER_BATCH + 10
         logSink.storeLogs(List(total) { Log() })
         assertEquals(total, logSink.storedLogCount())
 
         // logs beyond the batch cap must survive the flush, even though they are all equal to each other
-        assertEquals(MAX_LOGS_PER_BATCH, logSink.flushBatch().size)
+        assertEquals(DEFAULT_MAX_LOGS_PER_BATCH, logSink.flushBatch().size)
         assertEquals(10, logSink.storedLogCount())
         assertEquals(10, logSink.flushBatch().size)
         assertEquals(0, logSink.flushBatch().size)
     }
 
+    @Test
+    fun `flushing honours the configured count limit`() {
+        logSink.setBatchLimits(maxCount = 3, maxBytes = Long.MAX_VALUE)
+        logSink.storeLogs(List(5) { Log() })
+        assertEquals(3, logSink.flushBatch().size)
+        assertEquals(2, logSink.flushBatch().size)
+    }
+
+    @Test
+    fun `flushing honours the configured byte limit`() {
+        val log = Log(body = "a".repeat(1000))
+        val size = log.estimatedSize().toLong()
+        logSink.setBatchLimits(maxCount = 100, maxBytes = size * 2 + 1)
+        logSink.storeLogs(List(5) { log })
+        assertEquals(size * 5, logSink.storedLogBytes())
+
+        assertEquals(2, logSink.flushBatch().size)
+        assertEquals(size * 3, logSink.storedLogBytes())
+        assertEquals(2, logSink.flushBatch().size)
+        assertEquals(1, logSink.flushBatch().size)
+        assertEquals(0, logSink.storedLogBytes())
+    }
+
+    @Test
+    fun `a log larger than the byte limit is flushed on its own`() {
+        logSink.setBatchLimits(maxCount = 100, maxBytes = 10)
+        logSink.storeLogs(listOf(Log(body = "a".repeat(100)), Log()))
+        assertEquals(1, logSink.flushBatch().size)
+        assertEquals(1, logSink.flushBatch().size)
+    }
+
     @Test
     fun `concurrent stores and flushes neither lose nor duplicate logs`() {
         val totalToStore = 5_000
@@ -99,7 +131,7 @@ internal class LogSinkImplTest {
         }
         assertTrue(storeDoneLatch.await(5, TimeUnit.SECONDS))
 
-        // drain anything stored after the last in-loop flush. each flush is capped at MAX_LOGS_PER_BATCH,
+        // drain anything stored after the last in-loop flush. each flush is capped at DEFAULT_MAX_LOGS_PER_BATCH,
         // so keep going until the sink is empty.
         do {
             val batch = logSink.flushBatch()
@@ -143,6 +175,17 @@ internal class LogSinkImplTest {
         assertNull(logSink.pollUnbatchedLog())
     }
 
+    @Test
+    fun `logs are routed by the supplied send mode`() {
+        assertEquals(StoreDataResult.SUCCESS, logSink.storeLog(Log(body = "batched"), SendMode.DEFAULT))
+        assertEquals(StoreDataResult.SUCCESS, logSink.storeLog(Log(body = "deferred"), SendMode.DEFER))
+        assertEquals(1, logSink.storedLogCount())
+        assertEquals("batched", logSink.logsForNextBatch().single().body)
+        val logRequest = checkNotNull(logSink.pollUnbatchedLog())
+        assertEquals("deferred", logRequest.payload.body)
+        assertTrue(logRequest.defer)
+    }
+
     @Test
     fun `unbatchable logs are stored in the unbatched log queue`() {
         val resultCode = logSink.storeLogs(listOf(sendImmediatelyLog))
@@ -0,0 +1,95 @@
+package io.embrace.android.embracesdk.internal.otel.sdk
+
+import io.embrace.android.embracesdk.fakes.FakeTelemetryService
+import io.embrace.android.embracesdk.internal.config.instrumented.schema.OtelLimitsConfig
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.opentelemetry.kotlin.semconv.ExceptionAttributes
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+
+internal class DataValidatorTest {
+
+    private val limits = object : OtelLimitsConfig {
+        override fun getMaxCustomAttributeCount(): Int = 3
+        override fun getMaxEventAttributeCount(): Int = 2
+        override fun getMaxCustomAttributeKeyLength(): Int = 8
+        override fun getMaxCustomAttributeValueLength(): Int = 10
+    }
+
+    private lateinit var telemetryService: FakeTelemetryService
+    private lateinit var validator: DataValidator
+
+    @Before
+    fun setUp() {
+        telemetryService = FakeTelemetryService()
+        validator = DataValidator(limits, telemetryService = telemetryService)
+    }
+
+    @Test
+    fun `attributes within limits are returned as-is`() {
+        val attributes = mapOf("key" to "value", "other" to "value")
+        assertSame(attributes, validator.truncateAttributes(attributes, false))
+        assertTrue(telemetryService.appliedLimits.isEmpty())
+    }
+
+    @Test
+    fun `attributes are truncated in a single pass`() {
+        val attributes = linkedMapOf(
+            "key" to "value",
+            "very-long-key" to "value",
+            "long-value" to "0123456789abcdef",
+            "dropped" to "value",
+        )
+        val truncated = validator.truncateAttributes(attributes, false)
+        assertEquals(
+            mapOf("key" to "value", "very-..." to "value", "long-..." to "0123456..."),
+            truncated,
+        )
+        assertEquals(
+            listOf(
+                "span_attribute" to AppliedLimitType.TRUNCATE_ATTRIBUTES,
+                "span_attribute_key" to AppliedLimitType.TRUNCATE_STRING,
+                "span_attribute_key" to AppliedLimitType.TRUNCATE_STRING,
+                "span_attribute_value" to AppliedLimitType.TRUNCATE_STRING,
+            ),
+            telemetryService.appliedLimits,
+        )
+    }
+
+    @Test
+    fun `long value attributes are not truncated`() {
+        val attributes = mapOf(ExceptionAttributes.EXCEPTION_STACKTRACE to "0123456789abcdef")
+        assertSame(attributes, validator.truncateAttributes(attributes, false))
+    }
+
+    @Test
+    fun `bypassed validation returns the input`() {
+        val bypassed = DataValidator(limits, { true }, telemetryService)
+        val attributes = (0..10).associate { "key-$it" to "value-$it" }
+        assertSame(attributes, bypassed.truncateAttributes(attributes, false))
+    }
+
+    @Test
+    fun `single attributes are truncated`() {
+        val key = "key"
+        val value = "value"
+        assertSame(key, validator.truncateAttributeKey(key, false))
+        assertSame(value, validator.truncateAttributeValue(key, value, false))
+        assertEquals("very-...", validator.truncateAttributeKey("very-long-key", false))
+        assertEquals("0123456...", validator.truncateAttributeValue(key, "0123456789abcdef", false))
+        assertEquals(2, telemetryService.appliedLimits.size)
+    }
+
+    @Test
+    fun `span events copy attributes that are not truncated`() {
+        val attributes = mutableMapOf("key" to "value")
+        val event = checkNotNull(validator.createTruncatedSpanEvent("event", 1000, false, attributes))
+        attributes["key"] = "changed"
+        assertNotSame(attributes, event.attributes)
+        assertEquals(mapOf("key" to "value"), event.attributes)
+    }
+}
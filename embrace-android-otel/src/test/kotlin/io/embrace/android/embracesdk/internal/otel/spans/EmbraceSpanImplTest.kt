@@ -42,6 +42,7 @@ import io.embrace.android.embracesdk.internal.otel.sdk.toEmbraceObjectName
 import io.embrace.android.embracesdk.internal.payload.Span
 import io.embrace.android.embracesdk.internal.serialization.PlatformSerializer
 import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.StorageTelemetrySource
 import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.internal.utils.truncatedStacktraceText
 import io.embrace.android.embracesdk.spans.ErrorCode
@@ -734,8 +735,10 @@ internal class EmbraceSpanImplTest {
 
         override fun logStorageTelemetry(storageTelemetry: Map<String, String>) {}
 
-        override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType) {
-            appliedLimits.add(telemetryType to limitType)
+        override fun registerStorageTelemetrySource(source: StorageTelemetrySource) {}
+
+        override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int) {
+            repeat(count) { appliedLimits.add(telemetryType to limitType) }
         }
 
         override fun getAndClearTelemetryAttributes(): Map<String, String> = emptyMap()
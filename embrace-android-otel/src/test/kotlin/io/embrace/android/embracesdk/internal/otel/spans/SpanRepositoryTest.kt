@@ -4,10 +4,14 @@ import androidx.test.ext.junit.runners.AndroidJUnit4
 import io.embrace.android.embracesdk.concurrency.SingleThreadTestScheduledExecutor
 import io.embrace.android.embracesdk.fakes.FakeEmbraceSdkSpan
 import io.embrace.android.embracesdk.fakes.FakeSpanData
+import io.embrace.android.embracesdk.fakes.FakeTelemetryService
 import io.embrace.android.embracesdk.internal.arch.schema.ErrorCodeAttribute
 import io.embrace.android.embracesdk.internal.otel.sdk.StoreDataResult
 import io.embrace.android.embracesdk.internal.payload.Span
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
 import io.embrace.android.embracesdk.internal.toEmbracePayload
+import io.embrace.android.embracesdk.spans.EmbraceSpan
+import io.embrace.android.embracesdk.spans.ErrorCode
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNull
@@ -70,6 +74,30 @@ internal class SpanRepositoryTest {
         assertEquals(1, repository.getCompletedEmbraceSpans().size)
     }
 
+    @Test
+    fun `stopped span moved to the completed index`() {
+        val span = FakeEmbraceSdkSpan.started()
+        repository.trackStartedEmbraceSpan(span)
+        span.stop()
+        repository.trackCompletedEmbraceSpan(span)
+        assertSame(span, repository.getEmbraceSpan(checkNotNull(span.spanId)))
+        assertEquals(0, repository.getActiveEmbraceSpans().size)
+        assertSame(span, repository.getCompletedEmbraceSpans().single())
+
+        // tracking the span as started again has no effect
+        repository.trackStartedEmbraceSpan(span)
+        assertEquals(0, repository.getActiveEmbraceSpans().size)
+        assertEquals(1, repository.getCompletedEmbraceSpans().size)
+    }
+
+    @Test
+    fun `untracked span is not added to the completed index`() {
+        val span = FakeEmbraceSdkSpan.stopped()
+        repository.trackCompletedEmbraceSpan(span)
+        assertNull(repository.getEmbraceSpan(checkNotNull(span.spanId)))
+        assertEquals(0, repository.getCompletedEmbraceSpans().size)
+    }
+
     @Test
     fun `completed span not available after clearing but existing reference still valid`() {
         val completedSpan = FakeEmbraceSdkSpan.stopped()
@@ -141,6 +169,131 @@ internal class SpanRepositoryTest {
         assertNull(span.errorCode)
     }
 
+    @Test
+    fun `only expired spans are stopped when many timed spans are in progress`() {
+        val spans = (0 until 10_000).map { k ->
+            FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.Timeout(1000L + k)).apply { start(0L) }
+        }
+        spans.forEach(repository::trackStartedEmbraceSpan)
+
+        // stop every other span before its deadline, which cancels its timeout
+        spans.filterIndexed { k, _ -> k % 2 == 0 }.forEach { span ->
+            span.stop(endTimeMs = 500L)
+            repository.trackCompletedEmbraceSpan(span)
+        }
+        assertEquals(5_000, repository.getActiveEmbraceSpans().size)
+
+        repository.stopTimedOutSpans(now = 5999L)
+        spans.forEachIndexed { k, span ->
+            when {
+                k % 2 == 0 -> assertEquals(500L, span.spanEndTimeMs)
+                k < 5000 -> assertEquals(1000L + k, span.spanEndTimeMs)
+                else -> assertTrue(span.isRecording)
+            }
+        }
+        assertEquals(2_500, repository.getActiveEmbraceSpans().size)
+
+        repository.stopTimedOutSpans(now = Long.MAX_VALUE)
+        assertEquals(0, repository.getActiveEmbraceSpans().size)
+        assertEquals(10_000, repository.getCompletedEmbraceSpans().size)
+    }
+
+    @Test
+    fun `concurrent sweeps stop each timed out span once`() {
+        val spans = (0 until 10_000).map {
+            FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.Timeout(1000L)).apply { start(0L) }
+        }
+        spans.forEach(repository::trackStartedEmbraceSpan)
+
+        val sweeper = SingleThreadTestScheduledExecutor()
+        val latch = CountDownLatch(1)
+        sweeper.submit {
+            repository.stopTimedOutSpans(now = 1000L)
+            latch.countDown()
+        }
+        repository.stopTimedOutSpans(now = 1000L)
+        latch.await(5, TimeUnit.SECONDS)
+
+        spans.forEach { span ->
+            assertFalse(span.isRecording)
+            assertEquals(1000L, span.spanEndTimeMs)
+            assertEquals(ErrorCodeAttribute.Failure, span.errorCode)
+        }
+    }
+
+    @Test
+    fun `spans under an auto terminating root are stopped on background`() {
+        val root = FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.OnBackground).apply { start(0L) }
+        val child = FakeEmbraceSdkSpan(parentContext = checkNotNull(root.asNewContext())).apply { start(0L) }
+        val grandchild = FakeEmbraceSdkSpan(parentContext = checkNotNull(child.asNewContext())).apply { start(0L) }
+        val otherRoot = FakeEmbraceSdkSpan().apply { start(0L) }
+        val otherChild = FakeEmbraceSdkSpan(
+            parentContext = checkNotNull(otherRoot.asNewContext()),
+            terminationMode = SpanTerminationMode.OnBackground,
+        ).apply { start(0L) }
+        listOf(root, child, grandchild, otherRoot, otherChild).forEach(repository::trackStartedEmbraceSpan)
+
+        // a stopped parent does not prevent its descendants being terminated
+        child.stop(endTimeMs = 100L)
+        repository.trackCompletedEmbraceSpan(child)
+
+        repository.autoTerminateEmbraceSpans(500L)
+        assertEquals(500L, root.spanEndTimeMs)
+        assertEquals(100L, child.spanEndTimeMs)
+        assertEquals(500L, grandchild.spanEndTimeMs)
+        assertTrue(otherRoot.isRecording)
+        assertTrue(otherChild.isRecording)
+        assertEquals(listOf(otherRoot, otherChild).toSet(), repository.getActiveEmbraceSpans().toSet())
+
+        // spans started after backgrounding are terminated the next time
+        val next = FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.OnBackground).apply { start(600L) }
+        repository.trackStartedEmbraceSpan(next)
+        repository.autoTerminateEmbraceSpans(700L)
+        assertEquals(700L, next.spanEndTimeMs)
+    }
+
+    @Test
+    fun `parents are auto terminated before their descendants`() {
+        val stopOrder = mutableListOf<EmbraceSpan>()
+        val root = FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.OnBackground).apply { start(0L) }
+        val spans = mutableListOf<EmbraceSdkSpan>(root)
+        repeat(10) {
+            val child = FakeEmbraceSdkSpan(parentContext = checkNotNull(root.asNewContext())).apply { start(0L) }
+            val grandchild = FakeEmbraceSdkSpan(parentContext = checkNotNull(child.asNewContext())).apply { start(0L) }
+            spans += listOf(child, grandchild)
+        }
+        // track the deepest spans first so the order of tracking cannot produce the expected order by itself
+        spans.reversed().forEach { span ->
+            repository.trackStartedEmbraceSpan(StopRecordingSpan(span, stopOrder))
+        }
+
+        repository.autoTerminateEmbraceSpans(500L)
+        assertEquals(spans.size, stopOrder.size)
+        stopOrder.forEachIndexed { index, span ->
+            val parentIndex = stopOrder.indexOf(span.parent)
+            assertTrue("span $index stopped before its parent", span.parent == null || parentIndex in 0 until index)
+        }
+    }
+
+    @Test
+    fun `descendants of a cleared auto terminating root are still terminated`() {
+        val root = FakeEmbraceSdkSpan(terminationMode = SpanTerminationMode.OnBackground).apply { start(0L) }
+        val child = FakeEmbraceSdkSpan(parentContext = checkNotNull(root.asNewContext())).apply { start(0L) }
+        repository.trackStartedEmbraceSpan(root)
+        repository.trackStartedEmbraceSpan(child)
+
+        // the root ends with a session part and is cleared, while its child carries on into the next one
+        root.stop(endTimeMs = 100L)
+        repository.trackCompletedEmbraceSpan(root)
+        repository.clearCompletedEmbraceSpans()
+        assertNull(repository.getEmbraceSpan(checkNotNull(root.spanId)))
+
+        repository.autoTerminateEmbraceSpans(500L)
+        assertEquals(100L, root.spanEndTimeMs)
+        assertEquals(500L, child.spanEndTimeMs)
+        assertTrue(repository.getActiveEmbraceSpans().isEmpty())
+    }
+
     @Test
     fun `verify default completed otel span state`() {
         assertEquals(0, repository.completedOtelSpans().size)
@@ -162,6 +315,45 @@ internal class SpanRepositoryTest {
         assertEquals(0, repository.completedOtelSpans().size)
     }
 
+    @Test
+    fun `otel spans stored from different threads are flushed in the order they were stored`() {
+        val names = (0 until 8).map { "span$it" }
+        names.forEach { name ->
+            Thread {
+                repository.storeCompletedOtelSpans(listOf(FakeSpanData(name = name).toEmbracePayload()))
+            }.apply {
+                start()
+                join()
+            }
+        }
+        assertEquals(names, repository.completedOtelSpans().map { it.name })
+        assertEquals(names, repository.flushOtelSpans().map { it.name })
+    }
+
+    @Test
+    fun `otel spans over the limit are rejected`() {
+        val telemetryService = FakeTelemetryService()
+        repository = SpanRepository(completedSpanLimit = 2, telemetryService = telemetryService)
+        val spans = listOf(FakeSpanData(), FakeSpanData()).map(FakeSpanData::toEmbracePayload)
+        assertEquals(StoreDataResult.SUCCESS, repository.storeCompletedOtelSpans(spans))
+        assertTrue(telemetryService.appliedLimits.isEmpty())
+        assertEquals(StoreDataResult.FAILURE, repository.storeCompletedOtelSpans(spans))
+        assertEquals(2, repository.completedOtelSpans().size)
+        assertEquals(List(2) { "span" to AppliedLimitType.DROP }, telemetryService.appliedLimits)
+
+        repository.flushOtelSpans()
+        assertEquals(StoreDataResult.SUCCESS, repository.storeCompletedOtelSpans(listOf(FakeSpanData().toEmbracePayload())))
+    }
+
+    @Test
+    fun `pending spans are drained before stored spans are read`() {
+        repository.setPendingSpanDrain {
+            repository.storeCompletedOtelSpans(listOf(FakeSpanData().toEmbracePayload()))
+        }
+        assertEquals(1, repository.completedOtelSpans().size)
+        assertEquals(2, repository.flushOtelSpans().size)
+    }
+
     @Test
     fun `flushing does not retain previously flushed otel spans`() {
         repository.storeCompletedOtelSpans(listOf(FakeSpanData(), FakeSpanData()).map(FakeSpanData::toEmbracePayload))
@@ -204,4 +396,17 @@ internal class SpanRepositoryTest {
         val distinctNames = flushed.mapTo(HashSet()) { it.name }
         assertEquals(totalToStore, distinctNames.size)
     }
+
+    /**
+     * Records the order in which spans are stopped, delegating everything else to [delegate].
+     */
+    private class StopRecordingSpan(
+        private val delegate: FakeEmbraceSdkSpan,
+        private val stopOrder: MutableList<EmbraceSpan>,
+    ) : EmbraceSdkSpan by delegate {
+        override fun stop(errorCode: ErrorCode?, endTimeMs: Long?): Boolean {
+            stopOrder.add(delegate)
+            return delegate.stop(errorCode, endTimeMs)
+        }
+    }
 }
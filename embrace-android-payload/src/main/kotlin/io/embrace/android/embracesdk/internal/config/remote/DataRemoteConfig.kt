@@ -51,4 +51,82 @@ data class DataRemoteConfig(
      */
     @SerialName("periodic_cache_interval_ms")
     val periodicCacheIntervalMs: Long? = null,
+
+    /**
+     * The maximum number of payload uploads that can be in flight to each endpoint at the same time. If absent or 0,
+     * payloads are uploaded one at a time across all endpoints.
+     */
+    @SerialName("max_concurrent_requests_per_endpoint")
+    val maxConcurrentRequestsPerEndpoint: Int? = null,
+
+    /**
+     * The maximum number of stored log envelopes that can be merged into a single upload. If absent or 1, each log
+     * envelope is uploaded in its own request.
+     */
+    @SerialName("max_log_envelopes_per_request")
+    val maxLogEnvelopesPerRequest: Int? = null,
+
+    /**
+     * Whether periodic snapshots of the in-progress session part should be written as a journal of changes rather than
+     * re-serializing the whole payload each time. Defaults to false.
+     */
+    @SerialName("session_snapshot_journal_enabled")
+    val sessionSnapshotJournalEnabled: Boolean? = null,
+
+    /**
+     * The zlib compression level (1-9) used when payloads are written to disk. Higher levels produce smaller files at
+     * the cost of more CPU time. Defaults to 6.
+     */
+    @SerialName("payload_compression_level")
+    val payloadCompressionLevel: Int? = null,
+
+    /**
+     * Whether cached session part snapshots should be compressed with a preset dictionary of common payload keys rather
+     * than gzipped. Payloads that are sent as-is are always gzipped. Defaults to false.
+     */
+    @SerialName("dictionary_compression_enabled")
+    val dictionaryCompressionEnabled: Boolean? = null,
+
+    /**
+     * Whether payloads should be stored by appending them to a few segment files rather than writing a file per
+     * payload. Payloads stored in the other format are moved over the next time stored payloads are read. Defaults to
+     * false.
+     */
+    @SerialName("segmented_payload_storage_enabled")
+    val segmentedPayloadStorageEnabled: Boolean? = null,
+
+    /**
+     * Whether completed spans should be handed to a background thread in batches rather than exported on the thread
+     * that ended them. Defaults to false.
+     */
+    @SerialName("span_batching_enabled")
+    val spanBatchingEnabled: Boolean? = null,
+
+    /**
+     * The number of completed spans that triggers an immediate export when span batching is enabled. Values are
+     * clamped to the range 1..512 when this config is read. Defaults to 64.
+     */
+    @SerialName("span_batch_max_size")
+    val spanBatchMaxSize: Int? = null,
+
+    /**
+     * The maximum time in milliseconds a completed span waits before it is exported when span batching is enabled.
+     * Values are clamped to the range 10..5000 when this config is read. Defaults to 200.
+     */
+    @SerialName("span_batch_max_latency_ms")
+    val spanBatchMaxLatencyMs: Long? = null,
+
+    /**
+     * The maximum number of telemetry items that can wait to be exported to customer-supplied OTel exporters. Values
+     * are clamped to the range 64..16384 when this config is read. Defaults to 2048.
+     */
+    @SerialName("external_export_queue_capacity")
+    val externalExportQueueCapacity: Int? = null,
+
+    /**
+     * Whether new telemetry should be dropped rather than the oldest waiting telemetry when the queue of telemetry
+     * waiting for customer-supplied OTel exporters is full. Defaults to false.
+     */
+    @SerialName("external_export_drop_newest")
+    val externalExportDropNewest: Boolean? = null,
 )
@@ -32,4 +32,35 @@ data class LogRemoteConfig(
      */
     @SerialName("error_limit")
     val logErrorLimit: Int? = null,
+
+    /**
+     * The maximum number of logs in a batch. Clamped to 1-1000, defaults to 50.
+     */
+    @SerialName("batch_max_count")
+    val batchMaxCount: Int? = null,
+
+    /**
+     * The maximum estimated size of a batch in bytes. Clamped to 16KiB-4MiB, defaults to 1MiB.
+     */
+    @SerialName("batch_max_bytes")
+    val batchMaxBytes: Long? = null,
+
+    /**
+     * The longest a batch is held open after its first log, in milliseconds. Clamped to 1000-60000, defaults to 5000.
+     */
+    @SerialName("batch_max_time_ms")
+    val batchMaxTimeMs: Long? = null,
+
+    /**
+     * How long without a new log before a batch is sent, in milliseconds. Clamped to 500 and the batch max time,
+     * defaults to 2000.
+     */
+    @SerialName("batch_inactivity_ms")
+    val batchInactivityMs: Long? = null,
+
+    /**
+     * Whether the batch size grows under sustained load and shrinks back when logging is idle. Defaults to false.
+     */
+    @SerialName("adaptive_batching")
+    val adaptiveBatchingEnabled: Boolean? = null,
 )
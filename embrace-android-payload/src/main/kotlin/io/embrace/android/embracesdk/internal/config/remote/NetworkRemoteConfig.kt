@@ -23,4 +23,18 @@ data class NetworkRemoteConfig(
      */
     @SerialName("domains")
     val domainLimits: Map<String, Int>? = null,
+
+    /**
+     * Whether captured network bodies are encrypted with a per-body AES-GCM key that is wrapped with the capture
+     * public key, rather than RSA-encrypting the whole body. Defaults to false.
+     */
+    @SerialName("hybrid_body_encryption")
+    val hybridBodyEncryption: Boolean? = null,
+
+    /**
+     * Whether completed network requests are turned into spans on a background thread rather than on the thread that
+     * made the request. Defaults to false.
+     */
+    @SerialName("async_recording_enabled")
+    val asyncRecordingEnabled: Boolean? = null,
 )
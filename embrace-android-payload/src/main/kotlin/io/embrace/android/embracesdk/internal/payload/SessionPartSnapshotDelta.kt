@@ -0,0 +1,45 @@
+package io.embrace.android.embracesdk.internal.payload
+
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+
+/**
+ * The changes made to a cached session part snapshot since the previous snapshot was written. Replaying every delta
+ * for a session part in order rebuilds the full [Envelope] of [SessionPartPayload] that was last snapshotted.
+ *
+ * Envelope fields are only present when they changed. Spans are keyed by their span ID: a span in [spans] or
+ * [spanSnapshots] either replaces the previous version of that span or is added to the payload.
+ *
+ * @param removedSpanIds IDs of completed spans that are no longer part of the payload
+ * @param removedSpanSnapshotIds IDs of span snapshots that are no longer part of the payload, usually because the span
+ * has since completed
+ */
+@Serializable
+data class SessionPartSnapshotDelta(
+    @SerialName("resource")
+    val resource: EnvelopeResource? = null,
+
+    @SerialName("metadata")
+    val metadata: EnvelopeMetadata? = null,
+
+    @SerialName("version")
+    val version: String? = null,
+
+    @SerialName("type")
+    val type: String? = null,
+
+    @SerialName("spans")
+    val spans: List<Span>? = null,
+
+    @SerialName("span_snapshots")
+    val spanSnapshots: List<Span>? = null,
+
+    @SerialName("removed_span_ids")
+    val removedSpanIds: List<String>? = null,
+
+    @SerialName("removed_span_snapshot_ids")
+    val removedSpanSnapshotIds: List<String>? = null,
+
+    @SerialName("shared_lib_symbol_mapping")
+    val sharedLibSymbolMapping: Map<String, String>? = null,
+)
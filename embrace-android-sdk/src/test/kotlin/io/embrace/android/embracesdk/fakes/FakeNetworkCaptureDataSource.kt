@@ -15,6 +15,8 @@ class FakeNetworkCaptureDataSource : NetworkCaptureDataSource {
 
     override fun shouldCaptureNetworkBody(url: String, method: String): Boolean = true
 
+    override fun getNetworkBodyCaptureLimit(url: String, method: String): Long = Long.MAX_VALUE
+
     override fun onDataCaptureEnabled() {
         TODO("Not yet implemented")
     }
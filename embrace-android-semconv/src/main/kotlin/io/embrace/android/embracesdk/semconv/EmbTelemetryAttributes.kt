@@ -40,6 +40,24 @@ object EmbTelemetryAttributes {
     @ExperimentalSemconv
     const val EMB_STORAGE_AVAILABLE: String = "emb.storage.available"
 
+    /**
+     * Number of stored payloads evicted to keep a location within its limits, suffixed with the location.
+     */
+    @ExperimentalSemconv
+    const val EMB_STORAGE_PAYLOADS_EVICTED: String = "emb.storage.payloads.evicted"
+
+    /**
+     * Number of new payloads not stored because they could not fit within a location's limits, suffixed with the location.
+     */
+    @ExperimentalSemconv
+    const val EMB_STORAGE_PAYLOADS_REJECTED: String = "emb.storage.payloads.rejected"
+
+    /**
+     * Bytes used by the payloads stored in a location, suffixed with the location and optionally the envelope type.
+     */
+    @ExperimentalSemconv
+    const val EMB_STORAGE_PAYLOADS_USED: String = "emb.storage.payloads.used"
+
     /**
      * Storage used by Embrace in bytes.
      */
@@ -5,6 +5,7 @@ plugins {
 dependencies {
     implementation(project(":embrace-android-payload"))
     implementation(project(":embrace-android-infra"))
+    implementation(project(":embrace-android-semconv"))
 
     testImplementation(project(":embrace-test-common"))
 }
@@ -2,6 +2,8 @@ package io.embrace.android.embracesdk.internal.delivery.storage
 
 import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
 import java.io.InputStream
+import java.nio.channels.Channels
+import java.nio.channels.ReadableByteChannel
 
 /**
  * Stores arbitrary files in a directory.
@@ -23,8 +25,20 @@ interface FileStorageService {
      */
     fun loadPayloadAsStream(metadata: StoredTelemetryMetadata): InputStream?
 
+    /**
+     * Loads a payload as a [ReadableByteChannel]. Implementations backed by a single file return a
+     * [java.nio.channels.FileChannel], whose size is known up front and which needs no stream wrapper to be read.
+     */
+    fun loadPayloadAsChannel(metadata: StoredTelemetryMetadata): ReadableByteChannel? =
+        loadPayloadAsStream(metadata)?.let(Channels::newChannel)
+
     /**
      * Return stored payloads as a list sorted in priority order
      */
     fun getStoredPayloads(): List<StoredTelemetryMetadata>
+
+    /**
+     * Registers a listener that is notified whenever a payload is stored or removed
+     */
+    fun addStoredPayloadListener(listener: StoredPayloadListener)
 }
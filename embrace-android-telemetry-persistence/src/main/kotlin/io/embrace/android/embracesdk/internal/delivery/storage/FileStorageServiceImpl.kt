@@ -4,12 +4,13 @@ import io.embrace.android.embracesdk.internal.clock.Clock
 import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
 import io.embrace.android.embracesdk.internal.logging.InternalErrorType
 import io.embrace.android.embracesdk.internal.logging.InternalLogger
-import io.embrace.android.embracesdk.internal.utils.threadSafeToList
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.internal.worker.PriorityWorker
 import java.io.File
 import java.io.FileNotFoundException
 import java.io.InputStream
-import java.util.concurrent.CopyOnWriteArraySet
+import java.nio.channels.ReadableByteChannel
+import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.RejectedExecutionException
 
 class FileStorageServiceImpl(
@@ -17,33 +18,44 @@ class FileStorageServiceImpl(
     private val worker: PriorityWorker<StoredTelemetryMetadata>,
     private val logger: InternalLogger,
     private val clock: Clock,
-    private val storageLimit: Int = 500,
+    private val storageLimit: Int = DEFAULT_STORAGE_LIMIT,
     private val maxAgeMs: Long = DEFAULT_MAX_AGE_MS,
+    private val budget: StorageBudget = StorageBudget(),
+    telemetryService: TelemetryService? = null,
 ) : FileStorageService {
 
-    private companion object {
-        const val DEFAULT_MAX_AGE_MS = 7L * 24L * 60L * 60L * 1_000L
-    }
-
     private val payloadDir by lazy {
         outputDir.value.apply { mkdirs() }
     }
 
-    // maintain an in-memory list of payloads to avoid calling listFiles() every time we need
+    // maintain an in-memory index of payloads and their sizes to avoid calling listFiles() every time we need
     // to check the storage limit. This will always remain in sync with the actual files on disk
     // as the files are only manipulated from within this class.
-    private val storedFiles: CopyOnWriteArraySet<StoredTelemetryMetadata> by lazy {
+    private val storedFilesDelegate = lazy {
         val result = runCatching { payloadDir.listFiles() }.getOrNull()
         val files = result?.toList() ?: emptyList()
-        val metadata = files.mapNotNull { file ->
-            val parsed = StoredTelemetryMetadata.fromFilename(file.name).getOrNull()
-            if (parsed == null) {
-                // delete files that can't be parsed (e.g. leftover .tmp files from killed processes)
-                runCatching { file.delete() }
+        StoredPayloadIndex(storageLimit, budget).apply {
+            files.forEach { file ->
+                val parsed = StoredTelemetryMetadata.fromFilename(file.name).getOrNull()
+                if (parsed == null) {
+                    // delete files that can't be parsed (e.g. leftover .tmp files from killed processes)
+                    runCatching { file.delete() }
+                } else {
+                    add(parsed, file.length())
+                }
             }
-            parsed
         }
-        CopyOnWriteArraySet(metadata)
+    }
+    private val storedFiles: StoredPayloadIndex by storedFilesDelegate
+
+    private val listeners = CopyOnWriteArrayList<StoredPayloadListener>()
+    private val storageTelemetry = StoredPayloadTelemetry(
+        location = { payloadDir.name },
+        index = { if (storedFilesDelegate.isInitialized()) storedFiles else null },
+    )
+
+    init {
+        telemetryService?.registerStorageTelemetrySource(storageTelemetry)
     }
 
     override fun store(metadata: StoredTelemetryMetadata, action: SerializationAction) {
@@ -58,13 +70,7 @@ class FileStorageServiceImpl(
         metadata: StoredTelemetryMetadata,
         action: SerializationAction,
     ) {
-        if (pruneStorage(
-                newPayload = metadata,
-                cutoffMs = clock.now() - maxAgeMs,
-            )
-        ) {
-            return
-        }
+        pruneExpired(clock.now() - maxAgeMs)
 
         // write to a temporary file then rename it, to avoid sending incomplete files
         // to the backend (i.e. where the process terminates or there isn't any disk space).
@@ -76,11 +82,18 @@ class FileStorageServiceImpl(
                 action(stream)
             }
 
+            // the size of a payload is only known once it's written, so the budget is enforced before it's moved
+            val sizeBytes = tmpFile.length()
+            if (pruneStorage(metadata, sizeBytes)) {
+                return
+            }
+
             // move the complete file to its final location.
             val dst = metadata.asFile()
             dst.parentFile?.mkdirs()
             if (tmpFile.renameTo(dst)) {
-                storedFiles.add(metadata)
+                storedFiles.add(metadata, sizeBytes)
+                listeners.forEach { it.onPayloadStored(metadata) }
             }
         } finally {
             // clean up the temp file on any failure
@@ -108,7 +121,9 @@ class FileStorageServiceImpl(
                 logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
             }
         } finally {
-            storedFiles.remove(metadata)
+            if (storedFiles.remove(metadata)) {
+                listeners.forEach { it.onPayloadRemoved(metadata) }
+            }
         }
     }
 
@@ -123,44 +138,47 @@ class FileStorageServiceImpl(
         }
     }
 
+    override fun loadPayloadAsChannel(metadata: StoredTelemetryMetadata): ReadableByteChannel? {
+        return try {
+            metadata.asFile().inputStream().channel
+        } catch (_: FileNotFoundException) {
+            null
+        } catch (exc: Throwable) {
+            logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+            null
+        }
+    }
+
     override fun getStoredPayloads(): List<StoredTelemetryMetadata> {
-        return storedFiles.threadSafeToList()
+        return storedFiles.getPayloads()
+    }
+
+    override fun addStoredPayloadListener(listener: StoredPayloadListener) {
+        listeners.add(listener)
     }
 
     /**
-     * When [cutoffMs] > 0 all payloads whose timestamp is strictly less than [cutoffMs] are
-     * removed.  When [newPayload] is non-null the count-based limit
-     * is then enforced and the return value indicates whether [newPayload]
-     * itself was not written to disk.
+     * When [cutoffMs] > 0 all payloads whose timestamp is strictly less than [cutoffMs] are removed.
      */
-    private fun pruneStorage(newPayload: StoredTelemetryMetadata?, cutoffMs: Long = 0L): Boolean {
-        // remove old payloads created before the cutoff
+    private fun pruneExpired(cutoffMs: Long) {
         if (cutoffMs > 0L) {
-            storedFiles.filter { it.timestamp < cutoffMs }.forEach(::processDelete)
+            storedFiles.selectExpired(cutoffMs).forEach(::processDelete)
         }
+    }
 
-        newPayload ?: return false
-
-        // remove payloads by count
-        val count = storedFiles.size
-        if (count < storageLimit) {
-            return false
-        }
-        val input = storedFiles.plus(newPayload)
-        val removalCount = input.size - storageLimit
-        if (removalCount < 0) {
-            return false
+    /**
+     * Enforces the count limit and the byte budget for storing [newPayload], which is [sizeBytes] long. The return
+     * value indicates whether [newPayload] should be dropped rather than written to disk.
+     */
+    private fun pruneStorage(newPayload: StoredTelemetryMetadata, sizeBytes: Long): Boolean {
+        val removals = storedFiles.selectEvictions(newPayload, sizeBytes)
+        if (removals.contains(newPayload)) {
+            storageTelemetry.onRejected()
+            return true
         }
-        val removals = input.sortedWith(
-            compareByDescending(StoredTelemetryMetadata::envelopeType)
-                .thenBy(StoredTelemetryMetadata::timestamp),
-        )
-            .take(removalCount)
+        storageTelemetry.onEvicted(removals.size)
         removals.forEach(::processDelete)
-
-        // notify the caller whether the new payload should be dropped
-        val shouldNotPersist = removals.contains(newPayload)
-        return shouldNotPersist
+        return false
     }
 
     private fun StoredTelemetryMetadata.asFile(): File = File(payloadDir, filename)
@@ -0,0 +1,160 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.PushbackInputStream
+import java.util.zip.DataFormatException
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.Inflater
+import java.util.zip.ZipException
+
+private const val GZIP_FIRST_BYTE = 0x1f
+private const val ZLIB_DEFLATE_METHOD = 8
+private const val ZLIB_METHOD_MASK = 0x0f
+private const val BUFFER_SIZE_BYTES = 8192
+
+/**
+ * How payloads are compressed when they are written to disk.
+ *
+ * By default payloads are gzipped, which is the format they are sent in. If [useDictionary] is true they are written in
+ * zlib format with [dictionary] preset, so the JSON keys that appear in every payload are compressed from their first
+ * occurrence. That format can't be sent as-is, so it should only be used for payloads that are read back on the device
+ * before they are sent.
+ *
+ * [decompress] recognizes both formats, so a [dictionary] should be supplied even when it is not used to compress, so
+ * payloads written while it was in use can still be read.
+ */
+class PayloadCompression(
+    val level: Int = Deflater.DEFAULT_COMPRESSION,
+    private val dictionary: ByteArray? = null,
+    private val useDictionary: Boolean = dictionary != null,
+) {
+
+    /**
+     * Returns a stream that compresses what is written to it into [stream]
+     */
+    fun compress(stream: OutputStream): OutputStream = when {
+        useDictionary && dictionary != null ->
+            DictionaryDeflaterOutputStream(stream, Deflater(level).apply { setDictionary(dictionary) })
+
+        else -> PooledGzipOutputStream(stream, level = level)
+    }
+
+    /**
+     * Returns a stream that decompresses [stream], which may hold gzip or zlib data. A [ZipException] is thrown if
+     * the data is in neither format, or needs a dictionary other than the one this instance was created with.
+     */
+    fun decompress(stream: InputStream): InputStream {
+        val input = PushbackInputStream(stream, 1)
+        val first = input.read()
+        if (first == -1) {
+            input.close()
+            throw EOFException()
+        }
+        input.unread(first)
+        return when {
+            first == GZIP_FIRST_BYTE -> PooledGzipInputStream(input)
+            (first and ZLIB_METHOD_MASK) == ZLIB_DEFLATE_METHOD -> DictionaryInflaterInputStream(input, dictionary)
+            else -> {
+                input.close()
+                throw ZipException("Not in GZIP or ZLIB format")
+            }
+        }
+    }
+}
+
+/**
+ * Releases the native state of the deflater on close, which [DeflaterOutputStream] only does for its own deflater.
+ */
+private class DictionaryDeflaterOutputStream(
+    output: OutputStream,
+    deflater: Deflater,
+) : DeflaterOutputStream(output, deflater, BUFFER_SIZE_BYTES) {
+
+    private var released = false
+
+    override fun close() {
+        if (!released) {
+            released = true
+            try {
+                super.close()
+            } finally {
+                def.end()
+            }
+        }
+    }
+}
+
+/**
+ * Inflates zlib data, supplying [dictionary] when the data asks for one. [java.util.zip.InflaterInputStream] treats a
+ * request for a dictionary as the end of the stream, so the inflation loop is implemented here instead.
+ */
+private class DictionaryInflaterInputStream(
+    private val input: InputStream,
+    private val dictionary: ByteArray?,
+) : InputStream() {
+
+    private val inflater = Inflater()
+    private val buf = ByteArray(BUFFER_SIZE_BYTES)
+    private val singleByte = ByteArray(1)
+    private var closed = false
+
+    override fun read(): Int = when (read(singleByte, 0, 1)) {
+        -1 -> -1
+        else -> singleByte[0].toInt() and 0xff
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (closed) {
+            throw IOException("Stream closed")
+        }
+        if (len == 0) {
+            return 0
+        }
+        try {
+            while (true) {
+                val count = inflater.inflate(b, off, len)
+                when {
+                    count > 0 -> return count
+                    inflater.finished() -> return -1
+                    inflater.needsDictionary() -> setDictionary()
+                    inflater.needsInput() -> fill()
+                }
+            }
+        } catch (exc: DataFormatException) {
+            throw ZipException(exc.message ?: "Invalid ZLIB data format")
+        }
+    }
+
+    override fun available(): Int = if (closed || inflater.finished()) 0 else 1
+
+    override fun close() {
+        if (!closed) {
+            closed = true
+            inflater.end()
+            input.close()
+        }
+    }
+
+    private fun setDictionary() {
+        if (dictionary == null) {
+            throw ZipException("ZLIB data requires a dictionary")
+        }
+        try {
+            inflater.setDictionary(dictionary)
+        } catch (exc: IllegalArgumentException) {
+            throw ZipException("ZLIB data requires a different dictionary")
+        }
+    }
+
+    private fun fill() {
+        val count = input.read(buf)
+        if (count == -1) {
+            throw EOFException("Unexpected end of ZLIB input stream")
+        }
+        inflater.setInput(buf, 0, count)
+    }
+}
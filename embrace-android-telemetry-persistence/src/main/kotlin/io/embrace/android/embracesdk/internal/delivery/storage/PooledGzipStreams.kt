@@ -0,0 +1,227 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import java.io.EOFException
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.zip.CRC32
+import java.util.zip.Deflater
+import java.util.zip.DeflaterOutputStream
+import java.util.zip.Inflater
+import java.util.zip.InflaterInputStream
+import java.util.zip.ZipException
+
+private const val GZIP_MAGIC = 0x8b1f
+private const val DEFLATE_METHOD = 8
+private const val FLAG_HEADER_CRC = 2
+private const val FLAG_EXTRA = 4
+private const val FLAG_NAME = 8
+private const val FLAG_COMMENT = 16
+private const val DEFAULT_BUFFER_SIZE_BYTES = 8192
+private const val MAX_POOLED_CODECS = 4
+
+private val gzipHeader = byteArrayOf(0x1f, 0x8b.toByte(), DEFLATE_METHOD.toByte(), 0, 0, 0, 0, 0, 0, 0)
+
+/**
+ * A small pool of zlib codecs. Creating an [Inflater] or [Deflater] allocates native zlib state and registers the
+ * object for cleanup, which adds up when hundreds of payloads are read or written in a row.
+ */
+private class CodecPool<T>(
+    private val factory: () -> T,
+    private val reset: (T) -> Unit,
+    private val end: (T) -> Unit,
+) {
+    private val codecs = ArrayBlockingQueue<T>(MAX_POOLED_CODECS)
+
+    fun acquire(): T = codecs.poll() ?: factory()
+
+    fun release(codec: T) {
+        reset(codec)
+        if (!codecs.offer(codec)) {
+            end(codec)
+        }
+    }
+}
+
+private val inflaterPool = CodecPool({ Inflater(true) }, Inflater::reset, Inflater::end)
+private val deflaterPool = CodecPool({ Deflater(Deflater.DEFAULT_COMPRESSION, true) }, Deflater::reset, Deflater::end)
+
+/**
+ * Decompresses a gzip stream with an [Inflater] borrowed from a pool, which is returned when the stream is closed.
+ *
+ * Only single-member gzip data is supported, which is what [PooledGzipOutputStream] and
+ * [java.util.zip.GZIPOutputStream] produce. Like [java.util.zip.GZIPInputStream] the header is read on construction
+ * and a [ZipException] is thrown if the data is not in gzip format.
+ */
+class PooledGzipInputStream(
+    input: InputStream,
+    bufferSize: Int = DEFAULT_BUFFER_SIZE_BYTES,
+) : InflaterInputStream(input, inflaterPool.acquire(), bufferSize) {
+
+    private val crc = CRC32()
+    private var endOfStream = false
+    private var released = false
+
+    init {
+        try {
+            readHeader()
+        } catch (exc: IOException) {
+            close()
+            throw exc
+        }
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (endOfStream) {
+            return -1
+        }
+        val count = super.read(b, off, len)
+        if (count == -1) {
+            readTrailer()
+            endOfStream = true
+        } else {
+            crc.update(b, off, count)
+        }
+        return count
+    }
+
+    override fun available(): Int = if (endOfStream) 0 else super.available()
+
+    override fun close() {
+        if (!released) {
+            released = true
+            try {
+                super.close()
+            } finally {
+                inflaterPool.release(inf)
+            }
+        }
+    }
+
+    private fun readHeader() {
+        if (readUnsignedShort() != GZIP_MAGIC) {
+            throw ZipException("Not in GZIP format")
+        }
+        if (readUnsignedByte() != DEFLATE_METHOD) {
+            throw ZipException("Unsupported compression method")
+        }
+        val flags = readUnsignedByte()
+        skipHeaderBytes(6) // modification time, extra flags, OS
+        if (flags and FLAG_EXTRA != 0) {
+            skipHeaderBytes(readUnsignedShort())
+        }
+        if (flags and FLAG_NAME != 0) {
+            skipZeroTerminated()
+        }
+        if (flags and FLAG_COMMENT != 0) {
+            skipZeroTerminated()
+        }
+        if (flags and FLAG_HEADER_CRC != 0) {
+            skipHeaderBytes(2)
+        }
+    }
+
+    /**
+     * The trailer follows the deflated data, so part or all of it may already have been read into [buf].
+     */
+    private fun readTrailer() {
+        var remaining = inf.remaining
+        var position = len - remaining
+        val nextByte = {
+            if (remaining > 0) {
+                remaining--
+                buf[position++].toInt() and 0xff
+            } else {
+                readUnsignedByte()
+            }
+        }
+        val expectedCrc = readUnsignedInt(nextByte)
+        val expectedSize = readUnsignedInt(nextByte)
+        if (expectedCrc != crc.value || expectedSize != (inf.bytesWritten and 0xffffffffL)) {
+            throw ZipException("Corrupt GZIP trailer")
+        }
+    }
+
+    private fun readUnsignedInt(nextByte: () -> Int): Long =
+        (0 until 4).fold(0L) { value, k -> value or (nextByte().toLong() shl (8 * k)) }
+
+    private fun readUnsignedShort(): Int = readUnsignedByte() or (readUnsignedByte() shl 8)
+
+    private fun readUnsignedByte(): Int {
+        val value = `in`.read()
+        if (value < 0) {
+            throw EOFException()
+        }
+        return value
+    }
+
+    private fun skipHeaderBytes(count: Int) {
+        repeat(count) { readUnsignedByte() }
+    }
+
+    private fun skipZeroTerminated() {
+        while (readUnsignedByte() != 0) {
+            // skip
+        }
+    }
+}
+
+/**
+ * Compresses data in gzip format with a [Deflater] borrowed from a pool, which is returned when the stream is closed.
+ * The output can be read by [java.util.zip.GZIPInputStream]. The compression [level] is set every time a deflater is
+ * borrowed, as the pool may hold deflaters that were used at a different level.
+ */
+class PooledGzipOutputStream(
+    output: OutputStream,
+    bufferSize: Int = DEFAULT_BUFFER_SIZE_BYTES,
+    level: Int = Deflater.DEFAULT_COMPRESSION,
+) : DeflaterOutputStream(output, deflaterPool.acquire().apply { setLevel(level) }, bufferSize) {
+
+    private val crc = CRC32()
+    private var trailerWritten = false
+    private var released = false
+
+    init {
+        out.write(gzipHeader)
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+        super.write(b, off, len)
+        crc.update(b, off, len)
+    }
+
+    override fun finish() {
+        if (!trailerWritten) {
+            super.finish()
+            writeTrailer()
+            trailerWritten = true
+        }
+    }
+
+    override fun close() {
+        if (!released) {
+            released = true
+            try {
+                super.close()
+            } finally {
+                deflaterPool.release(def)
+            }
+        }
+    }
+
+    /**
+     * Writes the CRC and uncompressed size through [buf], which is free once deflation has finished.
+     */
+    private fun writeTrailer() {
+        writeIntLe(crc.value, 0)
+        writeIntLe(def.bytesRead, 4)
+        out.write(buf, 0, 8)
+    }
+
+    private fun writeIntLe(value: Long, offset: Int) {
+        for (k in 0 until 4) {
+            buf[offset + k] = (value shr (8 * k)).toByte()
+        }
+    }
+}
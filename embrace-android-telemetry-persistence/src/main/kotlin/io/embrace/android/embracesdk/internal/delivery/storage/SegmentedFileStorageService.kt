@@ -0,0 +1,625 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.clock.Clock
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.logging.InternalErrorType
+import io.embrace.android.embracesdk.internal.logging.InternalLogger
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
+import io.embrace.android.embracesdk.internal.worker.PriorityWorker
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.channels.ReadableByteChannel
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.RejectedExecutionException
+import java.util.zip.CRC32
+
+/**
+ * Implementation of [FileStorageService] that appends payloads to a small number of segment files rather than creating a
+ * file per payload, which avoids the filesystem churn of creating, renaming and deleting many small files.
+ *
+ * Each record in a segment is laid out as:
+ *
+ * - type: 1 byte, either [RECORD_PUT] or [RECORD_DELETE]
+ * - name length: 2 bytes, followed by the UTF-8 encoded [StoredTelemetryMetadata.filename]
+ * - payload length: 4 bytes, which is -1 until the record is completely written
+ * - payload bytes
+ * - CRC32 of the name and payload: 4 bytes
+ *
+ * Deletes append a tombstone record. The index of stored payloads is kept in memory and rebuilt on startup by replaying
+ * the segments in order, so a later record for a payload always supersedes an earlier one. Records that were only partially written because the process died, or that fail their
+ * checksum, end the replay of their segment and are truncated.
+ *
+ * The storage limit, [StorageBudget] and telemetry are enforced with a [StoredPayloadIndex] exactly as in
+ * [FileStorageServiceImpl]. As the size of a payload is only known once it's written, a payload that doesn't fit is
+ * truncated from the end of the active segment again.
+ *
+ * Once a segment is full a new one is started. Sealed segments are compacted on the worker thread after deletes:
+ * segments that no longer hold live payloads are removed, and the live payloads of the oldest segment are moved to the
+ * active segment once most of it is garbage. A segment is kept while it holds a record that supersedes one in an older
+ * segment that still exists, otherwise replaying the older record would bring back a stale payload.
+ *
+ * The directory must only be used by this class.
+ */
+class SegmentedFileStorageService(
+    outputDir: Lazy<File>,
+    private val worker: PriorityWorker<StoredTelemetryMetadata>,
+    private val logger: InternalLogger,
+    private val clock: Clock,
+    private val storageLimit: Int = DEFAULT_STORAGE_LIMIT,
+    private val maxAgeMs: Long = DEFAULT_MAX_AGE_MS,
+    private val budget: StorageBudget = StorageBudget(),
+    telemetryService: TelemetryService? = null,
+    private val maxSegmentSizeBytes: Long = DEFAULT_MAX_SEGMENT_SIZE_BYTES,
+) : FileStorageService {
+
+    private companion object {
+        const val DEFAULT_MAX_SEGMENT_SIZE_BYTES = 1024L * 1024L
+        const val SEGMENT_SUFFIX = ".seg"
+        const val RECORD_PUT: Int = 1
+        const val RECORD_DELETE: Int = 2
+        const val INCOMPLETE_LENGTH = -1
+        const val HEADER_FIXED_BYTES = 1 + 2 + 4
+        const val CRC_BYTES = 4
+    }
+
+    private val lock = Any()
+    private val listeners = CopyOnWriteArrayList<StoredPayloadListener>()
+
+    private val segmentDir by lazy {
+        outputDir.value.apply { mkdirs() }
+    }
+
+    // the index is built lazily the first time it's accessed by replaying all the segments on disk.
+    // After that it always remains in sync with the segments as they are only manipulated from within this class.
+    // It's initialized while holding the same lock that guards writes so the two can never wait on each other.
+    private val indexDelegate = lazy(lock) {
+        replaySegments()
+    }
+    private val index: Index by indexDelegate
+
+    private val segments = sortedMapOf<Int, Segment>()
+    private var activeSegment: ActiveSegment? = null
+
+    private val storageTelemetry = StoredPayloadTelemetry(
+        location = { segmentDir.name },
+        index = { if (indexDelegate.isInitialized()) index.payloads else null },
+    )
+
+    init {
+        telemetryService?.registerStorageTelemetrySource(storageTelemetry)
+    }
+
+    override fun store(metadata: StoredTelemetryMetadata, action: SerializationAction) {
+        try {
+            storeImpl(metadata, action)
+        } catch (exc: Throwable) {
+            logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+        }
+    }
+
+    private fun storeImpl(metadata: StoredTelemetryMetadata, action: SerializationAction) {
+        synchronized(lock) {
+            pruneExpired(clock.now() - maxAgeMs)
+            val segment = obtainActiveSegment()
+            val entry = appendPayload(segment, metadata, action)
+            try {
+                if (pruneStorage(metadata, entry.payloadLength.toLong())) {
+                    discardRecord(segment, entry)
+                    return
+                }
+                index.entries.put(metadata, entry)?.let { previous ->
+                    onEntryRemoved(previous)
+                    segment.info.supersededSegments.add(previous.segmentId)
+                }
+                index.payloads.add(metadata, entry.payloadLength.toLong())
+            } finally {
+                rollActiveSegmentIfFull()
+            }
+        }
+        listeners.forEach { it.onPayloadStored(metadata) }
+    }
+
+    override fun delete(metadata: StoredTelemetryMetadata, callback: () -> Unit) {
+        val action = {
+            processDelete(metadata)
+            compactSegments()
+            callback()
+        }
+        try {
+            worker.submit(metadata, action)
+        } catch (exc: RejectedExecutionException) { // handle JVM crash case where worker is shutdown
+            action()
+        }
+    }
+
+    override fun loadPayloadAsStream(metadata: StoredTelemetryMetadata): InputStream? {
+        // a payload can be moved to another segment during compaction, so look it up again if its segment is gone
+        return openPayload(metadata, Entry::openStream)
+    }
+
+    override fun loadPayloadAsChannel(metadata: StoredTelemetryMetadata): ReadableByteChannel? {
+        return openPayload(metadata, Entry::openChannel)
+    }
+
+    private inline fun <T> openPayload(metadata: StoredTelemetryMetadata, open: (Entry) -> T): T? {
+        // a payload can be moved to another segment during compaction, so look it up again if its segment is gone
+        repeat(2) {
+            val entry = index.entries[metadata] ?: return null
+            try {
+                return open(entry)
+            } catch (_: FileNotFoundException) {
+                // retry with the payload's new location
+            } catch (exc: Throwable) {
+                logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+                return null
+            }
+        }
+        return null
+    }
+
+    override fun getStoredPayloads(): List<StoredTelemetryMetadata> = index.payloads.getPayloads()
+
+    override fun addStoredPayloadListener(listener: StoredPayloadListener) {
+        listeners.add(listener)
+    }
+
+    private fun processDelete(metadata: StoredTelemetryMetadata) {
+        val removed = synchronized(lock) {
+            val entry = index.entries.remove(metadata) ?: return@synchronized null
+            index.payloads.remove(metadata)
+            try {
+                appendTombstone(metadata, entry.segmentId)
+            } catch (exc: Throwable) {
+                logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+            }
+            onEntryRemoved(entry)
+            entry
+        }
+        if (removed != null) {
+            listeners.forEach { it.onPayloadRemoved(metadata) }
+        }
+    }
+
+    /**
+     * When [cutoffMs] > 0 all payloads whose timestamp is strictly less than [cutoffMs] are removed. Must be called while
+     * holding [lock].
+     */
+    private fun pruneExpired(cutoffMs: Long) {
+        if (cutoffMs > 0L) {
+            index.payloads.selectExpired(cutoffMs).forEach(::processDelete)
+        }
+    }
+
+    /**
+     * Enforces the count limit and the byte budget for storing [newPayload], which is [sizeBytes] long. The return
+     * value indicates whether [newPayload] should be dropped. Must be called while holding [lock].
+     */
+    private fun pruneStorage(newPayload: StoredTelemetryMetadata, sizeBytes: Long): Boolean {
+        val removals = index.payloads.selectEvictions(newPayload, sizeBytes)
+        if (removals.contains(newPayload)) {
+            storageTelemetry.onRejected()
+            return true
+        }
+        storageTelemetry.onEvicted(removals.size)
+        removals.forEach(::processDelete)
+        return false
+    }
+
+    /**
+     * Append a payload record to [segment] and return its location. Must be called while holding [lock].
+     */
+    private fun appendPayload(segment: ActiveSegment, metadata: StoredTelemetryMetadata, action: SerializationAction): Entry {
+        val file = segment.file
+        val recordOffset = file.length()
+        try {
+            file.seek(recordOffset)
+            val nameBytes = writeHeader(file, RECORD_PUT, metadata)
+            val lengthOffset = file.filePointer - 4
+            val payloadOffset = file.filePointer
+
+            val stream = RecordOutputStream(file).apply { crc.update(nameBytes) }
+            BufferedOutputStream(stream).use(action)
+
+            // write the checksum before the length so a record is only ever considered complete once it's all there
+            file.writeInt(stream.crc.value.toInt())
+            val recordEnd = file.filePointer
+            file.seek(lengthOffset)
+            file.writeInt(stream.count)
+            file.seek(recordEnd)
+
+            val recordLength = recordEnd - recordOffset
+            segment.info.size = recordEnd
+            segment.info.liveBytes += recordLength
+            segment.info.liveCount++
+            return Entry(segment.info.id, segment.info.file, recordOffset, payloadOffset, stream.count, recordLength)
+        } catch (exc: Throwable) {
+            // discard the partial record
+            file.setLength(recordOffset)
+            throw exc
+        }
+    }
+
+    /**
+     * Remove the record of [entry], which must be the last one written to [segment]. Must be called while holding [lock].
+     */
+    private fun discardRecord(segment: ActiveSegment, entry: Entry) {
+        segment.file.setLength(entry.recordOffset)
+        segment.info.size = entry.recordOffset
+        segment.info.liveBytes -= entry.recordLength
+        segment.info.liveCount--
+    }
+
+    /**
+     * Append a tombstone so the delete survives a restart. Must be called while holding [lock].
+     */
+    private fun appendTombstone(metadata: StoredTelemetryMetadata, targetSegmentId: Int) {
+        val segment = obtainActiveSegment()
+        val file = segment.file
+        val recordOffset = file.length()
+        try {
+            file.seek(recordOffset)
+            val nameBytes = writeHeader(file, RECORD_DELETE, metadata)
+            file.writeInt(CRC32().apply { update(nameBytes) }.value.toInt())
+            file.seek(recordOffset + HEADER_FIXED_BYTES + nameBytes.size - 4)
+            file.writeInt(0)
+            segment.info.size = file.length()
+            segment.info.supersededSegments.add(targetSegmentId)
+            rollActiveSegmentIfFull()
+        } catch (exc: Throwable) {
+            file.setLength(recordOffset)
+            throw exc
+        }
+    }
+
+    private fun writeHeader(file: RandomAccessFile, type: Int, metadata: StoredTelemetryMetadata): ByteArray {
+        val nameBytes = metadata.filename.toByteArray(Charsets.UTF_8)
+        file.writeByte(type)
+        file.writeShort(nameBytes.size)
+        file.write(nameBytes)
+        file.writeInt(INCOMPLETE_LENGTH)
+        return nameBytes
+    }
+
+    private fun onEntryRemoved(entry: Entry) {
+        segments[entry.segmentId]?.let { segment ->
+            segment.liveBytes -= entry.recordLength
+            segment.liveCount--
+        }
+    }
+
+    private fun obtainActiveSegment(): ActiveSegment {
+        activeSegment?.let { return it }
+        val id = (segments.keys.maxOrNull() ?: 0) + 1
+        val info = Segment(id, File(segmentDir, "$id$SEGMENT_SUFFIX"))
+        segments[id] = info
+        return ActiveSegment(info, RandomAccessFile(info.file, "rw")).also { activeSegment = it }
+    }
+
+    private fun rollActiveSegmentIfFull() {
+        val segment = activeSegment ?: return
+        if (segment.info.size >= maxSegmentSizeBytes) {
+            segment.file.close()
+            activeSegment = null
+        }
+    }
+
+    /**
+     * Remove sealed segments that no longer contain anything that's needed, and move the live payloads out of the oldest
+     * sealed segment if most of it is garbage so that it can be removed too.
+     */
+    private fun compactSegments() {
+        try {
+            synchronized(lock) {
+                val oldest = sealedSegments().firstOrNull()
+                if (oldest != null && oldest.liveCount > 0 && oldest.liveBytes * 2 < oldest.size) {
+                    relocateLiveEntries(oldest)
+                }
+                var removedSegment = true
+                while (removedSegment) {
+                    removedSegment = sealedSegments().firstOrNull(::isRemovable)?.let(::removeSegment) != null
+                }
+            }
+        } catch (exc: Throwable) {
+            logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+        }
+    }
+
+    private fun sealedSegments(): List<Segment> = segments.values.filter { it.id != activeSegment?.info?.id }
+
+    /**
+     * A segment can be removed if none of its payloads are live and none of its records are still needed to hide
+     * overwritten or deleted payloads in older segments that still exist.
+     */
+    private fun isRemovable(segment: Segment): Boolean = segment.liveCount == 0 &&
+        segment.supersededSegments.none { it != segment.id && segments.containsKey(it) }
+
+    private fun removeSegment(segment: Segment) {
+        segments.remove(segment.id)
+        segment.file.delete()
+    }
+
+    private fun relocateLiveEntries(segment: Segment) {
+        val live = index.entries.entries.filter { it.value.segmentId == segment.id }
+        RandomAccessFile(segment.file, "r").use { source ->
+            live.forEach { (metadata, entry) ->
+                val bytes = ByteArray(entry.recordLength.toInt())
+                source.seek(entry.recordOffset)
+                source.readFully(bytes)
+
+                val target = obtainActiveSegment()
+                val recordOffset = target.file.length()
+                target.file.seek(recordOffset)
+                target.file.write(bytes)
+                target.info.size = target.file.length()
+                target.info.liveBytes += entry.recordLength
+                target.info.liveCount++
+                target.info.supersededSegments.add(entry.segmentId)
+                val relocated = entry.copy(
+                    segmentId = target.info.id,
+                    segmentFile = target.info.file,
+                    recordOffset = recordOffset,
+                    payloadOffset = recordOffset + (entry.payloadOffset - entry.recordOffset),
+                )
+                index.entries[metadata] = relocated
+                onEntryRemoved(entry)
+                rollActiveSegmentIfFull()
+            }
+        }
+    }
+
+    /**
+     * Rebuild the index by replaying every segment on disk in the order they were written.
+     */
+    private fun replaySegments(): Index {
+        val result = ConcurrentHashMap<StoredTelemetryMetadata, Entry>()
+        val files = runCatching { segmentDir.listFiles() }.getOrNull()?.toList() ?: emptyList()
+        files.mapNotNull { file ->
+            file.name.removeSuffix(SEGMENT_SUFFIX).takeIf { file.name.endsWith(SEGMENT_SUFFIX) }?.toIntOrNull()
+                ?.let { id -> Segment(id, file) }
+        }.sortedBy(Segment::id).forEach { segment ->
+            segments[segment.id] = segment
+            try {
+                replaySegment(segment, result)
+            } catch (exc: Throwable) {
+                logger.trackInternalError(InternalErrorType.PayloadStorageFail, exc)
+            }
+        }
+        val payloads = StoredPayloadIndex(storageLimit, budget)
+        result.forEach { (metadata, entry) -> payloads.add(metadata, entry.payloadLength.toLong()) }
+        return Index(result, payloads)
+    }
+
+    private fun replaySegment(segment: Segment, result: MutableMap<StoredTelemetryMetadata, Entry>) {
+        var validLength = 0L
+        DataInputStream(FileInputStream(segment.file).buffered()).use { input ->
+            while (true) {
+                val record = readRecord(input, segment, validLength) ?: break
+                validLength += record.recordLength
+                val metadata = StoredTelemetryMetadata.fromFilename(record.name).getOrNull() ?: continue
+                when (record.type) {
+                    RECORD_PUT -> {
+                        segment.liveBytes += record.recordLength
+                        segment.liveCount++
+                        result.put(metadata, record.entry)?.let { previous ->
+                            segment.supersededSegments.add(previous.segmentId)
+                            segments[previous.segmentId]?.let {
+                                it.liveBytes -= previous.recordLength
+                                it.liveCount--
+                            }
+                        }
+                    }
+                    RECORD_DELETE -> result.remove(metadata)?.let { previous ->
+                        segment.supersededSegments.add(previous.segmentId)
+                        segments[previous.segmentId]?.let {
+                            it.liveBytes -= previous.recordLength
+                            it.liveCount--
+                        }
+                    }
+                }
+            }
+        }
+        // drop anything after the last valid record, e.g. a record that was being written when the process died
+        if (validLength < segment.file.length()) {
+            RandomAccessFile(segment.file, "rw").use { it.setLength(validLength) }
+        }
+        segment.size = validLength
+    }
+
+    /**
+     * Read the record at [offset], returning null if it is incomplete or corrupt.
+     */
+    private fun readRecord(input: DataInputStream, segment: Segment, offset: Long): ReplayedRecord? {
+        return try {
+            val type = input.read()
+            if (type != RECORD_PUT && type != RECORD_DELETE) {
+                return null
+            }
+            val nameBytes = ByteArray(input.readUnsignedShort()).also(input::readFully)
+            val length = input.readInt()
+            if (length < 0 || (type == RECORD_DELETE && length != 0)) {
+                return null
+            }
+            val crc = CRC32().apply { update(nameBytes) }
+            val buffer = ByteArray(8192)
+            var remaining = length
+            while (remaining > 0) {
+                val read = input.read(buffer, 0, minOf(buffer.size, remaining))
+                if (read < 0) {
+                    return null
+                }
+                crc.update(buffer, 0, read)
+                remaining -= read
+            }
+            if (input.readInt() != crc.value.toInt()) {
+                return null
+            }
+            val headerLength = HEADER_FIXED_BYTES + nameBytes.size
+            val recordLength = headerLength.toLong() + length + CRC_BYTES
+            ReplayedRecord(
+                type = type,
+                name = String(nameBytes, Charsets.UTF_8),
+                recordLength = recordLength,
+                entry = Entry(segment.id, segment.file, offset, offset + headerLength, length, recordLength),
+            )
+        } catch (_: EOFException) {
+            null
+        }
+    }
+
+    /**
+     * The location of a payload in a segment
+     */
+    private data class Entry(
+        val segmentId: Int,
+        val segmentFile: File,
+        val recordOffset: Long,
+        val payloadOffset: Long,
+        val payloadLength: Int,
+        val recordLength: Long,
+    ) {
+        fun openStream(): InputStream {
+            val stream = FileInputStream(segmentFile)
+            try {
+                stream.channel.position(payloadOffset)
+            } catch (exc: Throwable) {
+                stream.close()
+                throw exc
+            }
+            return BoundedInputStream(stream.buffered(), payloadLength.toLong())
+        }
+
+        fun openChannel(): ReadableByteChannel {
+            val channel = FileInputStream(segmentFile).channel
+            try {
+                channel.position(payloadOffset)
+            } catch (exc: Throwable) {
+                channel.close()
+                throw exc
+            }
+            return BoundedChannel(channel, payloadLength.toLong())
+        }
+    }
+
+    /**
+     * The location of every stored payload, along with their sizes and priorities
+     */
+    private class Index(
+        val entries: ConcurrentHashMap<StoredTelemetryMetadata, Entry>,
+        val payloads: StoredPayloadIndex,
+    )
+
+    private class Segment(
+        val id: Int,
+        val file: File,
+    ) {
+        var size: Long = 0
+        var liveBytes: Long = 0
+        var liveCount: Int = 0
+
+        /**
+         * The segments containing payloads that were overwritten or deleted by records in this segment
+         */
+        val supersededSegments: MutableSet<Int> = mutableSetOf()
+    }
+
+    private class ActiveSegment(
+        val info: Segment,
+        val file: RandomAccessFile,
+    )
+
+    private class ReplayedRecord(
+        val type: Int,
+        val name: String,
+        val recordLength: Long,
+        val entry: Entry,
+    )
+
+    /**
+     * Writes a payload directly to the segment while computing its checksum. Closing this stream does not close the
+     * segment.
+     */
+    private class RecordOutputStream(private val file: RandomAccessFile) : OutputStream() {
+        val crc = CRC32()
+        var count: Int = 0
+
+        override fun write(b: Int) {
+            file.write(b)
+            crc.update(b)
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            file.write(b, off, len)
+            crc.update(b, off, len)
+            count += len
+        }
+    }
+
+    /**
+     * Limits reads to the bytes of a single payload in a segment
+     */
+    private class BoundedInputStream(
+        stream: InputStream,
+        private var remaining: Long,
+    ) : FilterInputStream(stream) {
+
+        override fun read(): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            return super.read().also { if (it >= 0) remaining-- }
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            return super.read(b, off, minOf(len.toLong(), remaining).toInt()).also { if (it > 0) remaining -= it }
+        }
+
+        override fun skip(n: Long): Long = super.skip(minOf(n, remaining)).also { remaining -= it }
+
+        override fun available(): Int = minOf(super.available().toLong(), remaining).toInt()
+
+        override fun markSupported(): Boolean = false
+    }
+
+    /**
+     * Limits reads to the bytes of a single payload in a segment
+     */
+    private class BoundedChannel(
+        private val channel: FileChannel,
+        private var remaining: Long,
+    ) : ReadableByteChannel {
+
+        override fun read(dst: ByteBuffer): Int {
+            if (remaining <= 0) {
+                return -1
+            }
+            val limit = dst.limit()
+            if (dst.remaining() > remaining) {
+                dst.limit(dst.position() + remaining.toInt())
+            }
+            try {
+                return channel.read(dst).also { if (it > 0) remaining -= it }
+            } finally {
+                dst.limit(limit)
+            }
+        }
+
+        override fun isOpen(): Boolean = channel.isOpen
+
+        override fun close() = channel.close()
+    }
+}
@@ -0,0 +1,18 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+
+private const val BYTES_PER_MIB = 1024L * 1024L
+
+/**
+ * Limits on how many bytes stored payloads can take up on disk. [maxBytes] applies to all payloads combined, and
+ * [maxBytesByType] to the payloads of each [SupportedEnvelopeType] that has an entry.
+ *
+ * By default attachments are capped so a few large ones can't push every lower priority payload out of storage.
+ */
+class StorageBudget(
+    val maxBytes: Long = 20L * BYTES_PER_MIB,
+    val maxBytesByType: Map<SupportedEnvelopeType, Long> = mapOf(
+        SupportedEnvelopeType.ATTACHMENT to 5L * BYTES_PER_MIB,
+    ),
+)
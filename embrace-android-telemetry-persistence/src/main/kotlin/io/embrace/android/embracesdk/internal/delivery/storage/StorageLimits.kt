@@ -0,0 +1,4 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+internal const val DEFAULT_STORAGE_LIMIT = 500
+internal const val DEFAULT_MAX_AGE_MS = 7L * 24L * 60L * 60L * 1_000L
@@ -21,4 +21,9 @@ enum class StorageLocation(val dir: String) {
      * Cached envelopes
      */
     ENVELOPE("embrace_envelopes"),
+
+    /**
+     * Journals of incremental session part snapshots
+     */
+    SESSION_JOURNAL("embrace_session_journal"),
 }
@@ -0,0 +1,141 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import java.util.concurrent.ConcurrentSkipListMap
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * In-memory index of stored payloads and their size in bytes, which enforces a count limit and a [StorageBudget].
+ *
+ * Payloads are kept in one concurrent skip list per [SupportedEnvelopeType], oldest first. Walking the types from the
+ * lowest priority to the highest therefore visits payloads in the order they are evicted, so selecting the payloads to
+ * remove costs O(log n) per removal rather than a sort of every stored payload.
+ *
+ * The index doesn't lock: inserts and removals are O(log n) and don't copy the index, and reads iterate the skip lists
+ * without blocking writers. The running totals are updated after each map, so a read that races a write can see a
+ * payload without its size or vice versa. That only makes the limits approximate by a payload for the duration of the
+ * write.
+ */
+internal class StoredPayloadIndex(
+    private val storageLimit: Int,
+    private val budget: StorageBudget,
+) {
+
+    private val payloads: Map<SupportedEnvelopeType, ConcurrentSkipListMap<StoredTelemetryMetadata, Long>> =
+        SupportedEnvelopeType.entries.associateWith {
+            ConcurrentSkipListMap(compareBy(StoredTelemetryMetadata::timestamp).thenBy(StoredTelemetryMetadata::filename))
+        }
+    private val bytesByType = AtomicLongArray(SupportedEnvelopeType.entries.size)
+    private val totalBytes = AtomicLong(0)
+    private val count = AtomicInteger(0)
+
+    /**
+     * Adds [metadata] to the index, replacing any existing entry for the same payload.
+     */
+    fun add(metadata: StoredTelemetryMetadata, sizeBytes: Long) {
+        val replacedBytes = payloads.getValue(metadata.envelopeType).put(metadata, sizeBytes)
+        when (replacedBytes) {
+            null -> onSizeChanged(metadata.envelopeType, sizeBytes, 1)
+            else -> onSizeChanged(metadata.envelopeType, sizeBytes - replacedBytes, 0)
+        }
+    }
+
+    /**
+     * Removes [metadata] from the index, returning false if it was not present.
+     */
+    fun remove(metadata: StoredTelemetryMetadata): Boolean {
+        val sizeBytes = payloads.getValue(metadata.envelopeType).remove(metadata) ?: return false
+        onSizeChanged(metadata.envelopeType, -sizeBytes, -1)
+        return true
+    }
+
+    /**
+     * Returns all indexed payloads, ordered by priority and then by timestamp.
+     */
+    fun getPayloads(): List<StoredTelemetryMetadata> = payloads.values.flatMap { it.keys }
+
+    /**
+     * Returns the oldest indexed payload of [type].
+     */
+    fun getOldest(type: SupportedEnvelopeType): StoredTelemetryMetadata? = payloads.getValue(type).firstEntry()?.key
+
+    /**
+     * Returns the payloads whose timestamp is strictly less than [cutoffMs]. Only the expired payloads are visited.
+     */
+    fun selectExpired(cutoffMs: Long): List<StoredTelemetryMetadata> =
+        payloads.values.flatMap { typePayloads -> typePayloads.keys.takeWhile { it.timestamp < cutoffMs } }
+
+    /**
+     * Returns the payloads that need to be removed so that storing [newPayload], which is [sizeBytes] long, stays within
+     * the storage limit and budget. Payloads of the same type are removed first if that type is over its budget, then
+     * the lowest priority and oldest payloads. If [newPayload] itself would be removed before the limits are met, the
+     * returned list holds only [newPayload] as it should be dropped instead.
+     */
+    fun selectEvictions(newPayload: StoredTelemetryMetadata, sizeBytes: Long): List<StoredTelemetryMetadata> {
+        val type = newPayload.envelopeType
+        val typePayloads = payloads.getValue(type)
+        val replacedBytes = typePayloads[newPayload]
+        val freedBytes = replacedBytes ?: 0L
+        val maxTypeBytes = budget.maxBytesByType[type] ?: Long.MAX_VALUE
+        var excessCount = count.get() - storageLimit + if (replacedBytes == null) 1 else 0
+        var excessBytes = totalBytes.get() - freedBytes + sizeBytes - budget.maxBytes
+        var excessTypeBytes = bytesByType[type.ordinal] - freedBytes + sizeBytes - maxTypeBytes
+        if (excessCount <= 0 && excessBytes <= 0 && excessTypeBytes <= 0) {
+            return emptyList()
+        }
+
+        // avoid walking the index when removing everything that could be removed still wouldn't make room
+        val lowerPriorityTypes = SupportedEnvelopeType.entries.filter { it > type }.reversed()
+        val removableBytes = bytesByType[type.ordinal] - freedBytes + lowerPriorityTypes.sumOf { bytesByType[it.ordinal] }
+        if (sizeBytes > budget.maxBytes || sizeBytes > maxTypeBytes || removableBytes < excessBytes) {
+            return listOf(newPayload)
+        }
+
+        val evictions = mutableListOf<StoredTelemetryMetadata>()
+        val olderOfType = typePayloads.headMap(newPayload, false).entries.iterator()
+        while (excessTypeBytes > 0) {
+            if (!olderOfType.hasNext()) {
+                return listOf(newPayload)
+            }
+            val (metadata, bytes) = olderOfType.next()
+            evictions.add(metadata)
+            excessTypeBytes -= bytes
+            excessBytes -= bytes
+            excessCount--
+        }
+
+        val candidates = lowerPriorityTypes.asSequence()
+            .flatMap { payloads.getValue(it).entries }
+            .plus(olderOfType.asSequence())
+            .iterator()
+        while (excessCount > 0 || excessBytes > 0) {
+            if (!candidates.hasNext()) {
+                return listOf(newPayload)
+            }
+            val (metadata, bytes) = candidates.next()
+            evictions.add(metadata)
+            excessBytes -= bytes
+            excessCount--
+        }
+        return evictions
+    }
+
+    /**
+     * Returns the total number of bytes of the indexed payloads.
+     */
+    fun getTotalBytes(): Long = totalBytes.get()
+
+    /**
+     * Returns the number of bytes of the indexed payloads of [type].
+     */
+    fun getBytes(type: SupportedEnvelopeType): Long = bytesByType[type.ordinal]
+
+    private fun onSizeChanged(type: SupportedEnvelopeType, deltaBytes: Long, deltaCount: Int) {
+        bytesByType.addAndGet(type.ordinal, deltaBytes)
+        totalBytes.addAndGet(deltaBytes)
+        count.addAndGet(deltaCount)
+    }
+}
@@ -0,0 +1,23 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+
+/**
+ * Notified whenever the set of payloads held by a storage service changes. This includes payloads that are removed
+ * internally by the storage service to enforce its limits, so listeners can keep an index of stored payloads in sync
+ * without repeatedly listing them.
+ *
+ * Callbacks are invoked on the thread that performed the change, so implementations must be thread-safe.
+ */
+interface StoredPayloadListener {
+
+    /**
+     * Called after a payload has been successfully persisted.
+     */
+    fun onPayloadStored(metadata: StoredTelemetryMetadata)
+
+    /**
+     * Called after a payload has been removed from storage.
+     */
+    fun onPayloadRemoved(metadata: StoredTelemetryMetadata)
+}
@@ -0,0 +1,54 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.telemetry.StorageTelemetrySource
+import io.embrace.android.embracesdk.semconv.EmbTelemetryAttributes
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Storage telemetry for the payloads stored in one location. Evictions and rejections are counted as they happen,
+ * while the bytes used are only read from the index when telemetry is collected, so storing or deleting a payload
+ * doesn't build any telemetry.
+ *
+ * [index] returns null until the index has been loaded. Nothing can have been stored, evicted or rejected before then,
+ * so nothing is reported and collecting telemetry never loads the index itself.
+ */
+internal class StoredPayloadTelemetry(
+    location: () -> String,
+    private val index: () -> StoredPayloadIndex?,
+) : StorageTelemetrySource {
+
+    private val usedKey by lazy { "${EmbTelemetryAttributes.EMB_STORAGE_PAYLOADS_USED}.${location()}" }
+    private val usedByTypeKeys by lazy {
+        SupportedEnvelopeType.entries.map { "$usedKey.${it.name.lowercase()}" }
+    }
+    private val evictedKey by lazy { "${EmbTelemetryAttributes.EMB_STORAGE_PAYLOADS_EVICTED}.${location()}" }
+    private val rejectedKey by lazy { "${EmbTelemetryAttributes.EMB_STORAGE_PAYLOADS_REJECTED}.${location()}" }
+
+    private val evictionCount = AtomicInteger(0)
+    private val rejectionCount = AtomicInteger(0)
+
+    /**
+     * Records that [count] stored payloads were removed to make room for a new one.
+     */
+    fun onEvicted(count: Int) {
+        evictionCount.addAndGet(count)
+    }
+
+    /**
+     * Records that a new payload was not stored as it could not fit within the limits.
+     */
+    fun onRejected() {
+        rejectionCount.incrementAndGet()
+    }
+
+    override fun collectStorageTelemetry(dst: MutableMap<String, String>) {
+        val storedPayloads = index() ?: return
+        dst[usedKey] = storedPayloads.getTotalBytes().toString()
+        SupportedEnvelopeType.entries.forEach { type ->
+            dst[usedByTypeKeys[type.ordinal]] = storedPayloads.getBytes(type).toString()
+        }
+        dst[evictedKey] = evictionCount.get().toString()
+        dst[rejectedKey] = rejectionCount.get().toString()
+    }
+}
@@ -4,6 +4,7 @@ import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorServic
 import io.embrace.android.embracesdk.fakes.FakeClock
 import io.embrace.android.embracesdk.fakes.FakeClock.Companion.DEFAULT_FAKE_CURRENT_TIME
 import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakeTelemetryService
 import io.embrace.android.embracesdk.internal.delivery.PayloadType
 import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
 import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
@@ -16,6 +17,7 @@ import org.junit.Before
 import org.junit.Test
 import java.io.File
 import java.io.IOException
+import java.nio.channels.Channels
 import java.nio.file.Files
 
 class FileStorageServiceImplTest {
@@ -70,6 +72,17 @@ class FileStorageServiceImplTest {
         assertTrue(logger.internalErrorMessages.isEmpty())
     }
 
+    @Test
+    fun `load payload channel`() {
+        storeDummyFile(fakeSessionStoredTelemetryMetadata)
+
+        service.loadPayloadAsChannel(fakeSessionStoredTelemetryMetadata)?.use {
+            assertEquals(DUMMY_CONTENT, Channels.newInputStream(it).bufferedReader().readText())
+        }
+        assertNull(service.loadPayloadAsChannel(fakeSessionStoredTelemetryMetadata.copy(uuid = "missing")))
+        assertTrue(logger.internalErrorMessages.isEmpty())
+    }
+
     @Test
     fun `stale payloads are pruned on the next store call`() {
         clock.setCurrentTime(100L)
@@ -188,6 +201,100 @@ class FileStorageServiceImplTest {
         assertFalse(orphanTmp.exists())
     }
 
+    @Test
+    fun `listeners are notified when payloads are stored and deleted`() {
+        val stored = mutableListOf<StoredTelemetryMetadata>()
+        val removed = mutableListOf<StoredTelemetryMetadata>()
+        service.addStoredPayloadListener(
+            object : StoredPayloadListener {
+                override fun onPayloadStored(metadata: StoredTelemetryMetadata) {
+                    stored.add(metadata)
+                }
+
+                override fun onPayloadRemoved(metadata: StoredTelemetryMetadata) {
+                    removed.add(metadata)
+                }
+            },
+        )
+        storeDummyFile(fakeSessionStoredTelemetryMetadata)
+        assertEquals(listOf(fakeSessionStoredTelemetryMetadata), stored)
+        assertTrue(removed.isEmpty())
+
+        service.delete(fakeSessionStoredTelemetryMetadata)
+        executor.queueCompletionTask()
+        assertEquals(listOf(fakeSessionStoredTelemetryMetadata), removed)
+
+        // deleting a payload that is no longer stored does not notify again
+        service.delete(fakeSessionStoredTelemetryMetadata)
+        executor.queueCompletionTask()
+        assertEquals(1, removed.size)
+    }
+
+    @Test
+    fun `large payloads are evicted by size`() {
+        val telemetryService = FakeTelemetryService()
+        val budget = StorageBudget(maxBytes = 1000, maxBytesByType = mapOf(SupportedEnvelopeType.ATTACHMENT to 600))
+        service = FileStorageServiceImpl(
+            lazy { outputDir },
+            PriorityWorker(executor),
+            logger,
+            clock,
+            budget = budget,
+            telemetryService = telemetryService,
+        )
+        val log = fakeSessionStoredTelemetryMetadata.copy(envelopeType = SupportedEnvelopeType.LOG)
+        val firstAttachment = fakeSessionStoredTelemetryMetadata.copy(envelopeType = SupportedEnvelopeType.ATTACHMENT)
+        val secondAttachment = firstAttachment.copy(timestamp = firstAttachment.timestamp + 1)
+        storeBytes(log, 100)
+        storeBytes(firstAttachment, 500)
+        val used = "emb.storage.payloads.used.${outputDir.name}"
+        assertEquals("600", telemetryService.collectStorageTelemetry()[used])
+
+        // the attachment budget is exceeded, so the older attachment is removed rather than the log
+        storeBytes(secondAttachment, 500)
+        assertEquals(setOf(log, secondAttachment), service.getStoredPayloads().toSet())
+        assertFalse(File(outputDir, firstAttachment.filename).exists())
+
+        // a session needs the space taken up by the log, which has the lowest priority
+        val session = fakeSessionStoredTelemetryMetadata
+        storeBytes(session, 450)
+        assertEquals(setOf(secondAttachment, session), service.getStoredPayloads().toSet())
+
+        // a payload larger than the budget is not stored at all
+        storeBytes(session.copy(uuid = "too-large"), 1001)
+        assertEquals(setOf(secondAttachment, session), service.getStoredPayloads().toSet())
+        assertTrue(outputDir.listFiles()?.none { it.name.endsWith(".tmp") } ?: true)
+
+        val telemetry = telemetryService.collectStorageTelemetry()
+        assertEquals("950", telemetry[used])
+        assertEquals("500", telemetry["$used.attachment"])
+        assertEquals("450", telemetry["$used.session"])
+        assertEquals("0", telemetry["$used.log"])
+        assertEquals("2", telemetry["emb.storage.payloads.evicted.${outputDir.name}"])
+        assertEquals("1", telemetry["emb.storage.payloads.rejected.${outputDir.name}"])
+    }
+
+    @Test
+    fun `payload sizes are read from disk when building the index`() {
+        storeBytes(fakeSessionStoredTelemetryMetadata, 800)
+        val freshService = FileStorageServiceImpl(
+            lazy { outputDir },
+            PriorityWorker(executor),
+            logger,
+            clock,
+            budget = StorageBudget(maxBytes = 1000),
+        )
+        val newPayload = fakeSessionStoredTelemetryMetadata.copy(timestamp = fakeSessionStoredTelemetryMetadata.timestamp + 1)
+        freshService.store(newPayload) { it.write(ByteArray(300)) }
+        assertEquals(listOf(newPayload), freshService.getStoredPayloads())
+    }
+
+    private fun storeBytes(metadata: StoredTelemetryMetadata, size: Int) {
+        service.store(metadata) {
+            it.write(ByteArray(size))
+        }
+    }
+
     private fun storeDummyFile(metadata: StoredTelemetryMetadata) {
         service.store(metadata) {
             it.write(DUMMY_CONTENT.toByteArray())
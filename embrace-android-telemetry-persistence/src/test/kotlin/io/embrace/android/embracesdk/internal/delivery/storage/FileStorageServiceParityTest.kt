@@ -0,0 +1,189 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakeTelemetryService
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.worker.PriorityWorker
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.channels.Channels
+import java.nio.file.Files
+
+/**
+ * Runs the same scenarios against [FileStorageServiceImpl] and [SegmentedFileStorageService] and checks that they keep
+ * the same payloads, in the same order, and report the same telemetry.
+ */
+class FileStorageServiceParityTest {
+
+    private companion object {
+        private const val MAX_AGE_MS = 10L
+        private const val PROCESS_ID = "8115ec91-3e5e-4d8a-816d-cc40306f9822"
+    }
+
+    private lateinit var logger: FakeInternalLogger
+    private lateinit var executor: BlockingScheduledExecutorService
+    private lateinit var clock: FakeClock
+
+    @Before
+    fun setUp() {
+        logger = FakeInternalLogger(throwOnInternalError = false)
+        executor = BlockingScheduledExecutorService()
+        clock = FakeClock()
+    }
+
+    @Test
+    fun `storage limit evicts the same payloads in priority order`() {
+        val results = runOnEachImplementation(storageLimit = 4) { service, _ ->
+            listOf(0L, 1L).forEach { offset ->
+                SupportedEnvelopeType.entries.forEach { type ->
+                    service.storeBytes(metadata(type, offset), 10)
+                }
+            }
+            service.getStoredPayloads()
+        }
+        val expected = listOf(
+            metadata(SupportedEnvelopeType.CRASH, 0),
+            metadata(SupportedEnvelopeType.CRASH, 1),
+            metadata(SupportedEnvelopeType.SESSION, 0),
+            metadata(SupportedEnvelopeType.SESSION, 1),
+        )
+        results.forEach { assertEquals(expected, it) }
+    }
+
+    @Test
+    fun `budget evicts and rejects the same payloads`() {
+        val budget = StorageBudget(maxBytes = 1000, maxBytesByType = mapOf(SupportedEnvelopeType.ATTACHMENT to 600))
+        val results = runOnEachImplementation(budget = budget) { service, telemetry ->
+            val log = metadata(SupportedEnvelopeType.LOG, 0)
+            val firstAttachment = metadata(SupportedEnvelopeType.ATTACHMENT, 1)
+            service.storeBytes(log, 100)
+            service.storeBytes(firstAttachment, 500)
+            service.storeBytes(metadata(SupportedEnvelopeType.ATTACHMENT, 2), 500)
+            service.storeBytes(metadata(SupportedEnvelopeType.SESSION, 3), 450)
+            service.storeBytes(metadata(SupportedEnvelopeType.SESSION, 4), 1001)
+
+            assertNull(service.loadPayloadAsStream(firstAttachment))
+            assertNull(service.loadPayloadAsStream(log))
+            service.getStoredPayloads() to telemetry.collectStorageTelemetry().values.sorted()
+        }
+        val expected = listOf(metadata(SupportedEnvelopeType.SESSION, 3), metadata(SupportedEnvelopeType.ATTACHMENT, 2))
+        results.forEach { (payloads, _) -> assertEquals(expected, payloads) }
+        assertEquals(results[0].second, results[1].second)
+    }
+
+    @Test
+    fun `expired payloads are pruned by both implementations`() {
+        val results = runOnEachImplementation { service, _ ->
+            clock.setCurrentTime(100L)
+            service.storeBytes(metadata(SupportedEnvelopeType.LOG, 0), 10)
+            clock.setCurrentTime(115L)
+            service.storeBytes(metadata(SupportedEnvelopeType.LOG, 0), 10)
+            service.getStoredPayloads().map(StoredTelemetryMetadata::timestamp)
+        }
+        results.forEach { assertEquals(listOf(115L), it) }
+    }
+
+    @Test
+    fun `payloads load the same bytes as a stream and a channel`() {
+        val payload = metadata(SupportedEnvelopeType.SESSION, 0)
+        val results = runOnEachImplementation { service, _ ->
+            service.store(metadata(SupportedEnvelopeType.LOG, 0)) { it.write("before".toByteArray()) }
+            service.store(payload) { it.write("contents".toByteArray()) }
+            service.store(metadata(SupportedEnvelopeType.LOG, 1)) { it.write("after".toByteArray()) }
+
+            val stream = service.loadPayloadAsStream(payload)?.use { it.readBytes().decodeToString() }
+            val channel = service.loadPayloadAsChannel(payload)?.use {
+                Channels.newInputStream(it).readBytes().decodeToString()
+            }
+            listOf(stream, channel)
+        }
+        results.forEach { assertEquals(listOf("contents", "contents"), it) }
+    }
+
+    @Test
+    fun `sizes are restored after a restart`() {
+        val results = runOnEachImplementation { service, _ ->
+            service.storeBytes(metadata(SupportedEnvelopeType.SESSION, 0), 300)
+            service.storeBytes(metadata(SupportedEnvelopeType.LOG, 1), 200)
+            service.delete(metadata(SupportedEnvelopeType.LOG, 1))
+            executor.queueCompletionTask()
+            service.getStoredPayloads()
+        }
+        results.forEach { assertEquals(listOf(metadata(SupportedEnvelopeType.SESSION, 0)), it) }
+    }
+
+    /**
+     * Runs [action] against each implementation with its own directory, then checks that a fresh instance reading the
+     * same directory reports the same bytes used as the instance that wrote it.
+     */
+    private fun <T> runOnEachImplementation(
+        storageLimit: Int = DEFAULT_STORAGE_LIMIT,
+        budget: StorageBudget = StorageBudget(),
+        action: (FileStorageService, FakeTelemetryService) -> T,
+    ): List<T> = listOf(::createFileStorageService, ::createSegmentedStorageService).map { create ->
+        clock.setCurrentTime(FakeClock.DEFAULT_FAKE_CURRENT_TIME)
+        val dir = Files.createTempDirectory("parity").toFile()
+        val telemetry = FakeTelemetryService()
+        val result = action(create(dir, storageLimit, budget, telemetry), telemetry)
+
+        val restartedTelemetry = FakeTelemetryService()
+        create(dir, storageLimit, budget, restartedTelemetry).getStoredPayloads()
+        val usedKey = "emb.storage.payloads.used.${dir.name}"
+        assertEquals(
+            telemetry.collectStorageTelemetry()[usedKey],
+            restartedTelemetry.collectStorageTelemetry()[usedKey],
+        )
+        result
+    }
+
+    private fun createFileStorageService(
+        dir: File,
+        storageLimit: Int,
+        budget: StorageBudget,
+        telemetryService: FakeTelemetryService,
+    ): FileStorageService = FileStorageServiceImpl(
+        lazy { dir },
+        PriorityWorker(executor),
+        logger,
+        clock,
+        storageLimit = storageLimit,
+        maxAgeMs = MAX_AGE_MS,
+        budget = budget,
+        telemetryService = telemetryService,
+    )
+
+    private fun createSegmentedStorageService(
+        dir: File,
+        storageLimit: Int,
+        budget: StorageBudget,
+        telemetryService: FakeTelemetryService,
+    ): FileStorageService = SegmentedFileStorageService(
+        lazy { dir },
+        PriorityWorker(executor),
+        logger,
+        clock,
+        storageLimit = storageLimit,
+        maxAgeMs = MAX_AGE_MS,
+        budget = budget,
+        telemetryService = telemetryService,
+    )
+
+    private fun metadata(type: SupportedEnvelopeType, offset: Long) = StoredTelemetryMetadata(
+        timestamp = clock.now() + offset,
+        uuid = "${type.name.lowercase()}-$offset",
+        processIdentifier = PROCESS_ID,
+        envelopeType = type,
+    )
+
+    private fun FileStorageService.storeBytes(metadata: StoredTelemetryMetadata, size: Int) {
+        store(metadata) {
+            it.write(ByteArray(size))
+        }
+    }
+}
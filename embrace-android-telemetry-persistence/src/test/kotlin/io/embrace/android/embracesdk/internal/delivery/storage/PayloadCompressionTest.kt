@@ -0,0 +1,97 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.zip.GZIPInputStream
+import java.util.zip.ZipException
+
+class PayloadCompressionTest {
+
+    private val dictionary = "{\"key\":\"emb.session_number\",\"value\":\"{\"key\":\"emb.cold_start\",\"value\":\"".toByteArray()
+    private val payload = (
+        "{\"attributes\":[{\"key\":\"emb.session_number\",\"value\":\"4\"}," +
+            "{\"key\":\"emb.cold_start\",\"value\":\"true\"}]}"
+        ).toByteArray()
+
+    @Test
+    fun `gzip is used without a dictionary`() {
+        val compressed = compress(PayloadCompression(), payload)
+        assertArrayEquals(payload, GZIPInputStream(ByteArrayInputStream(compressed)).readBytes())
+        assertArrayEquals(payload, decompress(PayloadCompression(), compressed))
+    }
+
+    @Test
+    fun `gzip is used when the dictionary is disabled`() {
+        val compression = PayloadCompression(dictionary = dictionary, useDictionary = false)
+        val compressed = compress(compression, payload)
+        assertEquals(0x1f, compressed[0].toInt() and 0xff)
+        assertArrayEquals(payload, decompress(compression, compressed))
+    }
+
+    @Test
+    fun `dictionary round trip`() {
+        val compression = PayloadCompression(dictionary = dictionary)
+        assertArrayEquals(payload, decompress(compression, compress(compression, payload)))
+    }
+
+    @Test
+    fun `dictionary reduces the size of small payloads`() {
+        val gzipped = compress(PayloadCompression(), payload)
+        val withDictionary = compress(PayloadCompression(dictionary = dictionary), payload)
+        assertTrue(withDictionary.size < gzipped.size)
+    }
+
+    @Test
+    fun `payloads written with the dictionary can be read once it is disabled`() {
+        val compressed = compress(PayloadCompression(dictionary = dictionary), payload)
+        val disabled = PayloadCompression(dictionary = dictionary, useDictionary = false)
+        assertArrayEquals(payload, decompress(disabled, compressed))
+    }
+
+    @Test
+    fun `compression level is applied`() {
+        val data = (0 until 2000).joinToString(",") { "value-${it % 97}" }.toByteArray()
+        val fastest = compress(PayloadCompression(level = 1), data)
+        val smallest = compress(PayloadCompression(level = 9), data)
+        assertTrue(smallest.size <= fastest.size)
+        assertArrayEquals(data, decompress(PayloadCompression(), fastest))
+        assertArrayEquals(data, decompress(PayloadCompression(), smallest))
+    }
+
+    @Test(expected = ZipException::class)
+    fun `missing dictionary is rejected`() {
+        val compressed = compress(PayloadCompression(dictionary = dictionary), payload)
+        decompress(PayloadCompression(), compressed)
+    }
+
+    @Test(expected = ZipException::class)
+    fun `different dictionary is rejected`() {
+        val compressed = compress(PayloadCompression(dictionary = dictionary), payload)
+        decompress(PayloadCompression(dictionary = "other".toByteArray()), compressed)
+    }
+
+    @Test(expected = ZipException::class)
+    fun `corrupt checksum is rejected`() {
+        val compression = PayloadCompression(dictionary = dictionary)
+        val compressed = compress(compression, payload)
+        compressed[compressed.size - 1] = (compressed[compressed.size - 1] + 1).toByte()
+        decompress(compression, compressed)
+    }
+
+    @Test(expected = ZipException::class)
+    fun `uncompressed data is rejected`() {
+        decompress(PayloadCompression(), payload)
+    }
+
+    private fun compress(compression: PayloadCompression, data: ByteArray): ByteArray =
+        ByteArrayOutputStream().also { bytes ->
+            compression.compress(bytes).use { it.write(data) }
+        }.toByteArray()
+
+    private fun decompress(compression: PayloadCompression, data: ByteArray): ByteArray =
+        compression.decompress(ByteArrayInputStream(data)).use { it.readBytes() }
+}
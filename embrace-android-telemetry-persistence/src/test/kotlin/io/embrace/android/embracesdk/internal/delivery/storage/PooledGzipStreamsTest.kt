@@ -0,0 +1,84 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipException
+import kotlin.random.Random
+
+class PooledGzipStreamsTest {
+
+    private val payload = (0 until 5000).joinToString(",") { "value-$it" }.toByteArray()
+
+    @Test
+    fun `pooled output can be read by GZIPInputStream`() {
+        val compressed = compress(payload)
+        assertArrayEquals(payload, GZIPInputStream(ByteArrayInputStream(compressed)).use { it.readBytes() })
+    }
+
+    @Test
+    fun `GZIPOutputStream output can be read by pooled input`() {
+        val compressed = ByteArrayOutputStream().also { bytes ->
+            GZIPOutputStream(bytes).use { it.write(payload) }
+        }.toByteArray()
+        assertArrayEquals(payload, decompress(compressed))
+    }
+
+    @Test
+    fun `empty payload round trips`() {
+        assertArrayEquals(ByteArray(0), decompress(compress(ByteArray(0))))
+    }
+
+    @Test
+    fun `incompressible payload round trips`() {
+        val random = Random(42).nextBytes(64 * 1024)
+        assertArrayEquals(random, decompress(compress(random)))
+    }
+
+    @Test
+    fun `codecs are reused across many streams`() {
+        repeat(500) { k ->
+            val data = "payload-$k".repeat(k + 1).toByteArray()
+            assertArrayEquals(data, decompress(compress(data)))
+        }
+    }
+
+    @Test
+    fun `stream is readable after close and reopen`() {
+        val compressed = compress(payload)
+        PooledGzipInputStream(ByteArrayInputStream(compressed)).close()
+        assertArrayEquals(payload, decompress(compressed))
+    }
+
+    @Test
+    fun `reading past the end returns -1`() {
+        PooledGzipInputStream(ByteArrayInputStream(compress(payload))).use { stream ->
+            stream.readBytes()
+            assertEquals(-1, stream.read())
+            assertEquals(0, stream.available())
+        }
+    }
+
+    @Test(expected = ZipException::class)
+    fun `non-gzip input is rejected`() {
+        PooledGzipInputStream(ByteArrayInputStream(payload))
+    }
+
+    @Test(expected = ZipException::class)
+    fun `corrupt trailer is rejected`() {
+        val compressed = compress(payload)
+        compressed[compressed.size - 5] = (compressed[compressed.size - 5] + 1).toByte()
+        decompress(compressed)
+    }
+
+    private fun compress(data: ByteArray): ByteArray = ByteArrayOutputStream().also { bytes ->
+        PooledGzipOutputStream(bytes).use { it.write(data) }
+    }.toByteArray()
+
+    private fun decompress(data: ByteArray): ByteArray =
+        PooledGzipInputStream(ByteArrayInputStream(data)).use { it.readBytes() }
+}
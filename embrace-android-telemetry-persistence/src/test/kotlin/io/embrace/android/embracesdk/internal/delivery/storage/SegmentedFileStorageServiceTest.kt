@@ -0,0 +1,297 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.concurrency.BlockingScheduledExecutorService
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeClock.Companion.DEFAULT_FAKE_CURRENT_TIME
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.worker.PriorityWorker
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.file.Files
+
+class SegmentedFileStorageServiceTest {
+
+    private companion object {
+        private const val DUMMY_CONTENT = "my file contents"
+        private const val MAX_AGE_MS = 10L
+        private const val SMALL_SEGMENT_SIZE_BYTES = 512L
+    }
+
+    private lateinit var outputDir: File
+    private lateinit var service: FileStorageService
+    private lateinit var logger: FakeInternalLogger
+    private lateinit var executor: BlockingScheduledExecutorService
+    private lateinit var clock: FakeClock
+
+    @Before
+    fun setUp() {
+        outputDir = Files.createTempDirectory("temp").toFile().apply {
+            mkdirs()
+        }
+        logger = FakeInternalLogger(throwOnInternalError = false)
+        executor = BlockingScheduledExecutorService()
+        clock = FakeClock()
+        service = createService()
+    }
+
+    @Test
+    fun `load payload stream`() {
+        storeDummyFile(fakeSessionStoredTelemetryMetadata)
+
+        val storedPayload = service.getStoredPayloads().single()
+        assertEquals(fakeSessionStoredTelemetryMetadata.filename, storedPayload.filename)
+        assertEquals(DUMMY_CONTENT, service.readPayload(fakeSessionStoredTelemetryMetadata))
+
+        service.delete(fakeSessionStoredTelemetryMetadata)
+        executor.queueCompletionTask()
+        assertNull(service.loadPayloadAsStream(fakeSessionStoredTelemetryMetadata))
+    }
+
+    @Test
+    fun `load payload stream no file`() {
+        assertNull(service.loadPayloadAsStream(fakeSessionStoredTelemetryMetadata))
+        assertTrue(logger.internalErrorMessages.isEmpty())
+    }
+
+    @Test
+    fun `payloads are appended to the same segment`() {
+        val payloads = createPayloads(10)
+        payloads.forEach { storeDummyFile(it, "content ${it.uuid}") }
+
+        assertEquals(1, segmentFiles().size)
+        payloads.forEach {
+            assertEquals("content ${it.uuid}", service.readPayload(it))
+        }
+    }
+
+    @Test
+    fun `stored and deleted payloads are restored after a restart`() {
+        val payloads = createPayloads(5)
+        payloads.forEach { storeDummyFile(it, "content ${it.uuid}") }
+        service.delete(payloads[1])
+        service.delete(payloads[3])
+        executor.queueCompletionTask()
+
+        val freshService = createService()
+        val expected = listOf(payloads[0], payloads[2], payloads[4])
+        assertEquals(expected.toSet(), freshService.getStoredPayloads().toSet())
+        expected.forEach {
+            assertEquals("content ${it.uuid}", freshService.readPayload(it))
+        }
+    }
+
+    @Test
+    fun `partially written record is discarded after a restart`() {
+        val payloads = createPayloads(2)
+        payloads.forEach(::storeDummyFile)
+        val segment = segmentFiles().single()
+        val completeLength = segment.length()
+
+        // simulate the process dying while a third payload was being written
+        segment.appendBytes(byteArrayOf(1, 0, 5, 'a'.code.toByte()))
+
+        val freshService = createService()
+        assertEquals(payloads.toSet(), freshService.getStoredPayloads().toSet())
+        assertEquals(completeLength, segment.length())
+    }
+
+    @Test
+    fun `corrupt record is discarded after a restart`() {
+        val payloads = createPayloads(2)
+        payloads.forEach(::storeDummyFile)
+        val segment = segmentFiles().single()
+
+        // flip the last byte of the second payload's checksum
+        RandomAccessFile(segment, "rw").use { file ->
+            file.seek(file.length() - 1)
+            val last = file.read()
+            file.seek(file.length() - 1)
+            file.write(last xor 0xff)
+        }
+
+        val freshService = createService()
+        assertEquals(listOf(payloads[0]), freshService.getStoredPayloads())
+        assertEquals(DUMMY_CONTENT, freshService.readPayload(payloads[0]))
+    }
+
+    @Test
+    fun `failed write does not leave a partial record`() {
+        storeDummyFile(fakeSessionStoredTelemetryMetadata)
+        val length = segmentFiles().single().length()
+        val failed = createPayloads(1).single()
+        service.store(failed) {
+            it.write("partial".toByteArray())
+            throw IOException("disk full")
+        }
+
+        assertEquals(listOf(fakeSessionStoredTelemetryMetadata), service.getStoredPayloads())
+        assertEquals(length, segmentFiles().single().length())
+    }
+
+    @Test
+    fun `segments without live payloads are removed`() {
+        service = createService(maxSegmentSizeBytes = SMALL_SEGMENT_SIZE_BYTES)
+        val payloads = createPayloads(20)
+        payloads.forEach(::storeDummyFile)
+        val segmentCount = segmentFiles().size
+        assertTrue(segmentCount > 2)
+
+        payloads.forEach(service::delete)
+        executor.queueCompletionTask()
+
+        assertTrue(segmentFiles().size < segmentCount)
+        assertTrue(createService().getStoredPayloads().isEmpty())
+    }
+
+    @Test
+    fun `live payloads are moved out of mostly deleted segments`() {
+        service = createService(maxSegmentSizeBytes = SMALL_SEGMENT_SIZE_BYTES)
+        val payloads = createPayloads(20)
+        payloads.forEach { storeDummyFile(it, "content ${it.uuid}") }
+        val oldestSegment = segmentFiles().first()
+
+        // keep a single payload alive from the oldest segment
+        val survivor = payloads.first()
+        payloads.drop(1).forEach(service::delete)
+        executor.queueCompletionTask()
+
+        assertFalse(oldestSegment.exists())
+        assertEquals("content ${survivor.uuid}", service.readPayload(survivor))
+
+        val freshService = createService()
+        assertEquals(listOf(survivor), freshService.getStoredPayloads())
+        assertEquals("content ${survivor.uuid}", freshService.readPayload(survivor))
+    }
+
+    @Test
+    fun `overwritten payloads are not restored after their segments are compacted`() {
+        service = createService(maxSegmentSizeBytes = SMALL_SEGMENT_SIZE_BYTES)
+        val (overwritten, survivor, other) = createPayloads(3)
+
+        // the first segment holds the original payload and one that stays live, so it is never removed
+        storeDummyFile(overwritten, "original")
+        storeDummyFile(survivor, "a".repeat(SMALL_SEGMENT_SIZE_BYTES.toInt()))
+
+        // the second segment overwrites the payload and the third deletes it
+        storeDummyFile(overwritten, "b".repeat(SMALL_SEGMENT_SIZE_BYTES.toInt()))
+        service.delete(overwritten)
+        executor.queueCompletionTask()
+
+        // seal the third segment and trigger another compaction
+        storeDummyFile(other, "c".repeat(SMALL_SEGMENT_SIZE_BYTES.toInt()))
+        service.delete(other)
+        executor.queueCompletionTask()
+
+        val freshService = createService(maxSegmentSizeBytes = SMALL_SEGMENT_SIZE_BYTES)
+        assertEquals(listOf(survivor), freshService.getStoredPayloads())
+        assertNull(freshService.readPayload(overwritten))
+    }
+
+    @Test
+    fun `stale payloads are pruned on the next store call`() {
+        clock.setCurrentTime(100L)
+        val staleMetadata = createPayloads(1, prefix = "stale").single()
+        storeDummyFile(staleMetadata)
+
+        clock.setCurrentTime(115L)
+        val freshMetadata = createPayloads(1, prefix = "fresh").single()
+        storeDummyFile(freshMetadata)
+
+        assertEquals(listOf(freshMetadata), service.getStoredPayloads())
+        assertNull(service.loadPayloadAsStream(staleMetadata))
+    }
+
+    @Test
+    fun `payloads over the storage limit are pruned`() {
+        service = createService(storageLimit = 3)
+        val payloads = createPayloads(5)
+        payloads.forEach(::storeDummyFile)
+
+        assertEquals(payloads.takeLast(3).toSet(), service.getStoredPayloads().toSet())
+    }
+
+    @Test
+    fun `listeners are notified when payloads are stored and deleted`() {
+        val stored = mutableListOf<StoredTelemetryMetadata>()
+        val removed = mutableListOf<StoredTelemetryMetadata>()
+        service.addStoredPayloadListener(
+            object : StoredPayloadListener {
+                override fun onPayloadStored(metadata: StoredTelemetryMetadata) {
+                    stored.add(metadata)
+                }
+
+                override fun onPayloadRemoved(metadata: StoredTelemetryMetadata) {
+                    removed.add(metadata)
+                }
+            },
+        )
+        storeDummyFile(fakeSessionStoredTelemetryMetadata)
+        assertEquals(listOf(fakeSessionStoredTelemetryMetadata), stored)
+        assertTrue(removed.isEmpty())
+
+        service.delete(fakeSessionStoredTelemetryMetadata)
+        executor.queueCompletionTask()
+        assertEquals(listOf(fakeSessionStoredTelemetryMetadata), removed)
+
+        // deleting a payload that is no longer stored does not notify again
+        service.delete(fakeSessionStoredTelemetryMetadata)
+        executor.queueCompletionTask()
+        assertEquals(1, removed.size)
+    }
+
+    private fun createService(
+        storageLimit: Int = 500,
+        maxSegmentSizeBytes: Long = 1024L * 1024L,
+    ) = SegmentedFileStorageService(
+        lazy { outputDir },
+        PriorityWorker(executor),
+        logger,
+        clock,
+        storageLimit = storageLimit,
+        maxAgeMs = MAX_AGE_MS,
+        maxSegmentSizeBytes = maxSegmentSizeBytes,
+    )
+
+    private fun createPayloads(count: Int, prefix: String = "payload") = (0 until count).map { k ->
+        StoredTelemetryMetadata(
+            timestamp = clock.now() + k,
+            uuid = "$prefix-$k",
+            processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+            envelopeType = SupportedEnvelopeType.LOG,
+            payloadType = PayloadType.LOG,
+        )
+    }
+
+    private fun segmentFiles(): List<File> =
+        outputDir.listFiles()?.sortedBy { it.nameWithoutExtension.toInt() } ?: emptyList()
+
+    private fun FileStorageService.readPayload(metadata: StoredTelemetryMetadata): String? =
+        loadPayloadAsStream(metadata)?.use { it.bufferedReader().readText() }
+
+    private fun storeDummyFile(metadata: StoredTelemetryMetadata) = storeDummyFile(metadata, DUMMY_CONTENT)
+
+    private fun storeDummyFile(metadata: StoredTelemetryMetadata, content: String) {
+        service.store(metadata) {
+            it.write(content.toByteArray())
+        }
+    }
+
+    val fakeSessionStoredTelemetryMetadata = StoredTelemetryMetadata(
+        timestamp = DEFAULT_FAKE_CURRENT_TIME + 1000L,
+        uuid = "30690ad1-6b87-4e08-b72c-7deca14451d8",
+        processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+        envelopeType = SupportedEnvelopeType.SESSION,
+        true,
+        payloadType = PayloadType.SESSION,
+    )
+}
@@ -0,0 +1,174 @@
+package io.embrace.android.embracesdk.internal.delivery.storage
+
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class StoredPayloadIndexTest {
+
+    @Test
+    fun `sizes are tracked per type`() {
+        val index = StoredPayloadIndex(10, StorageBudget())
+        index.add(metadata(SupportedEnvelopeType.SESSION, 1), 100)
+        index.add(metadata(SupportedEnvelopeType.LOG, 2), 20)
+        index.add(metadata(SupportedEnvelopeType.LOG, 3), 30)
+
+        assertEquals(150L, index.getTotalBytes())
+        assertEquals(100L, index.getBytes(SupportedEnvelopeType.SESSION))
+        assertEquals(50L, index.getBytes(SupportedEnvelopeType.LOG))
+
+        assertTrue(index.remove(metadata(SupportedEnvelopeType.LOG, 2)))
+        assertFalse(index.remove(metadata(SupportedEnvelopeType.LOG, 2)))
+        assertEquals(130L, index.getTotalBytes())
+        assertEquals(2, index.getPayloads().size)
+    }
+
+    @Test
+    fun `replacing a payload does not count it twice`() {
+        val index = StoredPayloadIndex(1, StorageBudget(maxBytes = 100))
+        val payload = metadata(SupportedEnvelopeType.SESSION, 1)
+        index.add(payload, 60)
+        assertEquals(emptyList<StoredTelemetryMetadata>(), index.selectEvictions(payload, 80))
+        index.add(payload, 80)
+        assertEquals(80L, index.getTotalBytes())
+        assertEquals(1, index.getPayloads().size)
+    }
+
+    @Test
+    fun `nothing is evicted within the limits`() {
+        val index = StoredPayloadIndex(3, StorageBudget(maxBytes = 100))
+        index.add(metadata(SupportedEnvelopeType.LOG, 1), 50)
+        index.add(metadata(SupportedEnvelopeType.LOG, 2), 25)
+        assertEquals(emptyList<StoredTelemetryMetadata>(), index.selectEvictions(metadata(SupportedEnvelopeType.LOG, 3), 25))
+    }
+
+    @Test
+    fun `count limit evicts the lowest priority and oldest payloads`() {
+        val index = StoredPayloadIndex(3, StorageBudget())
+        val oldLog = metadata(SupportedEnvelopeType.LOG, 1)
+        index.add(metadata(SupportedEnvelopeType.SESSION, 1), 1)
+        index.add(metadata(SupportedEnvelopeType.LOG, 2), 1)
+        index.add(oldLog, 1)
+        assertEquals(listOf(oldLog), index.selectEvictions(metadata(SupportedEnvelopeType.CRASH, 3), 1))
+    }
+
+    @Test
+    fun `byte budget evicts as many payloads as needed`() {
+        val index = StoredPayloadIndex(100, StorageBudget(maxBytes = 100))
+        val blob = metadata(SupportedEnvelopeType.BLOB, 5)
+        val log = metadata(SupportedEnvelopeType.LOG, 1)
+        index.add(metadata(SupportedEnvelopeType.SESSION, 1), 40)
+        index.add(log, 30)
+        index.add(blob, 20)
+        index.add(metadata(SupportedEnvelopeType.LOG, 2), 10)
+        assertEquals(listOf(blob, log), index.selectEvictions(metadata(SupportedEnvelopeType.SESSION, 3), 50))
+    }
+
+    @Test
+    fun `type budget evicts older payloads of the same type first`() {
+        val budget = StorageBudget(maxBytes = 1000, maxBytesByType = mapOf(SupportedEnvelopeType.ATTACHMENT to 100))
+        val index = StoredPayloadIndex(100, budget)
+        val oldAttachment = metadata(SupportedEnvelopeType.ATTACHMENT, 1)
+        index.add(oldAttachment, 60)
+        index.add(metadata(SupportedEnvelopeType.ATTACHMENT, 2), 30)
+        index.add(metadata(SupportedEnvelopeType.LOG, 1), 10)
+        assertEquals(listOf(oldAttachment), index.selectEvictions(metadata(SupportedEnvelopeType.ATTACHMENT, 3), 50))
+    }
+
+    @Test
+    fun `new payload is dropped when it is the first to be evicted`() {
+        val index = StoredPayloadIndex(2, StorageBudget())
+        index.add(metadata(SupportedEnvelopeType.SESSION, 1), 1)
+        index.add(metadata(SupportedEnvelopeType.LOG, 2), 1)
+        val newPayload = metadata(SupportedEnvelopeType.LOG, 1)
+        assertEquals(listOf(newPayload), index.selectEvictions(newPayload, 1))
+    }
+
+    @Test
+    fun `new payload is dropped when it exceeds its budget on its own`() {
+        val budget = StorageBudget(maxBytes = 1000, maxBytesByType = mapOf(SupportedEnvelopeType.ATTACHMENT to 100))
+        val index = StoredPayloadIndex(100, budget)
+        index.add(metadata(SupportedEnvelopeType.ATTACHMENT, 1), 10)
+        val attachment = metadata(SupportedEnvelopeType.ATTACHMENT, 2)
+        assertEquals(listOf(attachment), index.selectEvictions(attachment, 101))
+        val session = metadata(SupportedEnvelopeType.SESSION, 2)
+        assertEquals(listOf(session), index.selectEvictions(session, 1001))
+    }
+
+    @Test
+    fun `new payload is dropped when higher priority payloads fill the budget`() {
+        val index = StoredPayloadIndex(100, StorageBudget(maxBytes = 100))
+        index.add(metadata(SupportedEnvelopeType.CRASH, 1), 90)
+        index.add(metadata(SupportedEnvelopeType.LOG, 1), 5)
+        val newPayload = metadata(SupportedEnvelopeType.LOG, 2)
+        assertEquals(listOf(newPayload), index.selectEvictions(newPayload, 20))
+    }
+
+    @Test
+    fun `expired payloads are selected from every type`() {
+        val index = StoredPayloadIndex(100, StorageBudget())
+        val expiredSession = metadata(SupportedEnvelopeType.SESSION, 1)
+        val expiredLog = metadata(SupportedEnvelopeType.LOG, 2)
+        index.add(expiredSession, 1)
+        index.add(metadata(SupportedEnvelopeType.SESSION, 5), 1)
+        index.add(expiredLog, 1)
+        index.add(metadata(SupportedEnvelopeType.LOG, 3), 1)
+        assertEquals(setOf(expiredSession, expiredLog), index.selectExpired(3).toSet())
+    }
+
+    @Test
+    fun `payloads are ordered by priority then age`() {
+        val index = StoredPayloadIndex(100, StorageBudget())
+        val newLog = metadata(SupportedEnvelopeType.LOG, 5)
+        val oldLog = metadata(SupportedEnvelopeType.LOG, 1)
+        val session = metadata(SupportedEnvelopeType.SESSION, 9)
+        val crash = metadata(SupportedEnvelopeType.CRASH, 3)
+        listOf(newLog, session, oldLog, crash).forEach { index.add(it, 1) }
+
+        assertEquals(listOf(crash, session, oldLog, newLog), index.getPayloads())
+        assertEquals(oldLog, index.getOldest(SupportedEnvelopeType.LOG))
+        assertNull(index.getOldest(SupportedEnvelopeType.BLOB))
+    }
+
+    @Test
+    fun `totals stay consistent under concurrent writes`() {
+        val index = StoredPayloadIndex(100_000, StorageBudget())
+        val threads = 4
+        val perThread = 1000
+        val executor = Executors.newFixedThreadPool(threads)
+        val latch = CountDownLatch(threads)
+        repeat(threads) { thread ->
+            executor.execute {
+                val type = SupportedEnvelopeType.entries[thread % SupportedEnvelopeType.entries.size]
+                repeat(perThread) { k ->
+                    val payload = metadata(type, thread * perThread + k.toLong())
+                    index.add(payload, 10)
+                    if (k % 2 == 0) {
+                        index.remove(payload)
+                    }
+                }
+                latch.countDown()
+            }
+        }
+        assertTrue(latch.await(10, TimeUnit.SECONDS))
+        executor.shutdown()
+
+        assertEquals(threads * perThread / 2, index.getPayloads().size)
+        assertEquals(threads * perThread / 2 * 10L, index.getTotalBytes())
+        assertEquals(index.getTotalBytes(), SupportedEnvelopeType.entries.sumOf(index::getBytes))
+    }
+
+    private fun metadata(type: SupportedEnvelopeType, timestamp: Long) = StoredTelemetryMetadata(
+        timestamp = timestamp,
+        uuid = "30690ad1-6b87-4e08-b72c-7deca14451d8",
+        processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+        envelopeType = type,
+    )
+}
@@ -0,0 +1,23 @@
+plugins {
+    id("embrace-jvm-conventions")
+    alias(libs.plugins.jmh)
+}
+
+dependencies {
+    jmh(project(":embrace-android-delivery"))
+    jmh(project(":embrace-android-delivery-fakes"))
+    jmh(project(":embrace-android-telemetry-persistence"))
+    jmh(project(":embrace-android-payload"))
+    jmh(project(":embrace-android-infra"))
+    jmh(project(":embrace-test-common"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // throughput is reported in ops/s, and the sample mode adds latency percentiles including p99
+    benchmarkMode.set(listOf("thrpt", "sample"))
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    // e.g. ./gradlew :embrace-jvm-benchmark:jmh -PjmhIncludes=EnvelopeSerializationBenchmark
+    project.findProperty("jmhIncludes")?.let { includes.add(it.toString()) }
+}
@@ -0,0 +1,103 @@
+package io.embrace.android.embracesdk.benchmark.jvm
+
+import io.embrace.android.embracesdk.internal.payload.Attribute
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.Log
+import io.embrace.android.embracesdk.internal.payload.LogPayload
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.Span
+import io.embrace.android.embracesdk.internal.serialization.EmbraceSerializer
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.io.ByteArrayOutputStream
+
+/**
+ * Measures serializing session part and log envelopes to JSON, as is done each time a payload is stored.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+open class EnvelopeSerializationBenchmark {
+
+    @Param("10", "200")
+    @JvmField
+    var spanCount: Int = 0
+
+    private val serializer = EmbraceSerializer()
+    private val stream = ByteArrayOutputStream(64 * 1024)
+    private val resource = EnvelopeResource(
+        appVersion = "1.0.0",
+        sdkVersion = "7.0.0",
+        osName = "android",
+        osVersion = "14",
+        deviceManufacturer = "Google",
+        deviceModel = "Pixel 8",
+    )
+    private lateinit var sessionEnvelope: Envelope<SessionPartPayload>
+    private lateinit var logEnvelope: Envelope<LogPayload>
+
+    @Setup
+    fun setup() {
+        val spans = (0 until spanCount).map { k ->
+            Span(
+                traceId = "0123456789abcdef0123456789abcdef",
+                spanId = "span-$k",
+                parentSpanId = "0000000000000000",
+                name = "emb-span-$k",
+                startTimeNanos = 1_700_000_000_000_000_000,
+                endTimeNanos = 1_700_000_001_000_000_000,
+                status = Span.Status.OK,
+                events = emptyList(),
+                attributes = createAttributes(k),
+            )
+        }
+        sessionEnvelope = Envelope(
+            resource = resource,
+            version = "0.1.0",
+            type = "spans",
+            data = SessionPartPayload(spans = spans),
+        )
+        val logs = (0 until spanCount).map { k ->
+            Log(
+                timeUnixNano = 1_700_000_000_000_000_000 + k,
+                severityNumber = 9,
+                severityText = "INFO",
+                body = "log message $k",
+                attributes = createAttributes(k),
+            )
+        }
+        logEnvelope = Envelope(
+            resource = resource,
+            version = "0.1.0",
+            type = "logs",
+            data = LogPayload(logs = logs),
+        )
+    }
+
+    @Benchmark
+    fun serializeSessionEnvelope(): Int {
+        stream.reset()
+        serializer.toJson(sessionEnvelope, Envelope.sessionEnvelopeSerializer, stream)
+        return stream.size()
+    }
+
+    @Benchmark
+    fun serializeLogEnvelope(): Int {
+        stream.reset()
+        serializer.toJson(logEnvelope, Envelope.logEnvelopeSerializer, stream)
+        return stream.size()
+    }
+
+    private fun createAttributes(k: Int) = listOf(
+        Attribute("emb.type", "perf"),
+        Attribute("key-${k % 10}", "value-$k"),
+    )
+}
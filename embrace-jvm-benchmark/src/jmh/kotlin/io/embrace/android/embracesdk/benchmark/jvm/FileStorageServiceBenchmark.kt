@@ -0,0 +1,83 @@
+package io.embrace.android.embracesdk.benchmark.jvm
+
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.fakePriorityWorker
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.FileStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.FileStorageServiceImpl
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.io.File
+import java.nio.file.Files
+
+/**
+ * Measures storing and deleting payloads with [FileStorageServiceImpl] once it holds 500 and 5,000 payloads. Stores
+ * happen at the storage limit, so they also evict the oldest payload.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+open class FileStorageServiceBenchmark {
+
+    @Param("500", "5000")
+    @JvmField
+    var payloadCount: Int = 0
+
+    private val body = ByteArray(256)
+    private val clock = FakeClock()
+    private lateinit var storageDir: File
+    private lateinit var service: FileStorageService
+    private var next = 0
+
+    @Setup
+    fun setup() {
+        storageDir = Files.createTempDirectory("file_storage_benchmark").toFile()
+        service = FileStorageServiceImpl(
+            lazy { storageDir },
+            fakePriorityWorker(),
+            FakeInternalLogger(throwOnInternalError = false),
+            clock,
+            storageLimit = payloadCount,
+        )
+        repeat(payloadCount) { store() }
+    }
+
+    @TearDown
+    fun tearDown() {
+        storageDir.deleteRecursively()
+    }
+
+    @Benchmark
+    fun storeAtLimit() {
+        store()
+    }
+
+    @Benchmark
+    fun storeAndDelete() {
+        service.delete(store())
+    }
+
+    private fun store(): StoredTelemetryMetadata {
+        val k = next++
+        val metadata = StoredTelemetryMetadata(
+            timestamp = clock.now() + k,
+            uuid = "payload-$k",
+            processIdentifier = "benchmark-process",
+            envelopeType = SupportedEnvelopeType.LOG,
+            payloadType = PayloadType.LOG,
+        )
+        service.store(metadata) { it.write(body) }
+        return metadata
+    }
+}
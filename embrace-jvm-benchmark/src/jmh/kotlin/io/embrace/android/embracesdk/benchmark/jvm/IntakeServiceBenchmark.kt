@@ -0,0 +1,93 @@
+package io.embrace.android.embracesdk.benchmark.jvm
+
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakeSchedulingService
+import io.embrace.android.embracesdk.fakes.fakePriorityWorker
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.intake.IntakeService
+import io.embrace.android.embracesdk.internal.delivery.intake.IntakeServiceImpl
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageServiceImpl
+import io.embrace.android.embracesdk.internal.payload.Attribute
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.Log
+import io.embrace.android.embracesdk.internal.payload.LogPayload
+import io.embrace.android.embracesdk.internal.serialization.EmbraceSerializer
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.io.File
+import java.nio.file.Files
+
+/**
+ * Measures emitting a batch of logs through [IntakeServiceImpl], which serializes, gzips and stores the envelope.
+ * Work that is normally handed to the persistence worker runs on the benchmark thread.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+open class IntakeServiceBenchmark {
+
+    private val clock = FakeClock()
+    private lateinit var storageDir: File
+    private lateinit var intakeService: IntakeService
+    private lateinit var envelope: Envelope<LogPayload>
+    private var next = 0
+
+    @Setup
+    fun setup() {
+        storageDir = Files.createTempDirectory("intake_benchmark").toFile()
+        val logger = FakeInternalLogger(throwOnInternalError = false)
+        val worker = fakePriorityWorker<StoredTelemetryMetadata>()
+        intakeService = IntakeServiceImpl(
+            FakeSchedulingService(),
+            PayloadStorageServiceImpl(lazy { File(storageDir, "payloads") }, worker, { PROCESS_ID }, logger, clock),
+            PayloadStorageServiceImpl(lazy { File(storageDir, "cache") }, worker, { PROCESS_ID }, logger, clock),
+            logger,
+            EmbraceSerializer(),
+            worker,
+        )
+        val logs = (0 until LOG_COUNT).map { k ->
+            Log(
+                timeUnixNano = clock.now() * 1_000_000 + k,
+                severityNumber = 9,
+                severityText = "INFO",
+                body = "log message $k",
+                attributes = listOf(Attribute("emb.type", "sys.log"), Attribute("key-$k", "value-$k")),
+            )
+        }
+        envelope = Envelope(version = "0.1.0", type = "logs", data = LogPayload(logs = logs))
+    }
+
+    @TearDown
+    fun tearDown() {
+        intakeService.shutdown()
+        storageDir.deleteRecursively()
+    }
+
+    @Benchmark
+    fun emitLogBatch() {
+        val k = next++
+        val metadata = StoredTelemetryMetadata(
+            timestamp = clock.now() + k,
+            uuid = "log-batch-$k",
+            processIdentifier = PROCESS_ID,
+            envelopeType = SupportedEnvelopeType.LOG,
+            payloadType = PayloadType.LOG,
+        )
+        intakeService.take(envelope, metadata).get()
+    }
+
+    private companion object {
+        private const val PROCESS_ID = "benchmark-process"
+        private const val LOG_COUNT = 50
+    }
+}
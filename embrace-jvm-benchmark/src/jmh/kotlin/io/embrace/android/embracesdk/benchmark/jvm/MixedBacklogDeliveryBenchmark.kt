@@ -0,0 +1,178 @@
+package io.embrace.android.embracesdk.benchmark.jvm
+
+import io.embrace.android.embracesdk.fakes.FakeClock
+import io.embrace.android.embracesdk.fakes.FakeInternalLogger
+import io.embrace.android.embracesdk.fakes.FakePayloadStorageService
+import io.embrace.android.embracesdk.internal.comms.api.Endpoint
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.execution.ExecutionResult
+import io.embrace.android.embracesdk.internal.delivery.execution.RequestExecutionService
+import io.embrace.android.embracesdk.internal.delivery.scheduling.DeliveryMode
+import io.embrace.android.embracesdk.internal.delivery.scheduling.SchedulingServiceImpl
+import io.embrace.android.embracesdk.internal.delivery.storage.SerializationAction
+import io.embrace.android.embracesdk.internal.delivery.storage.StoredPayloadListener
+import io.embrace.android.embracesdk.internal.worker.BackgroundWorker
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.annotations.Warmup
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how long [SchedulingServiceImpl] takes to drain a backlog of a session part, logs and attachments in each
+ * [DeliveryMode]. Requests don't go over the network: each one sleeps for a fixed latency that depends on its
+ * [Endpoint], so the time reported is dominated by how much of that latency the delivery mode lets overlap.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+open class MixedBacklogDeliveryBenchmark {
+
+    @Param("serial", "per_endpoint")
+    @JvmField
+    var mode: String = ""
+
+    private val clock = FakeClock()
+    private lateinit var storageService: FakePayloadStorageService
+    private lateinit var schedulingExecutor: ScheduledExecutorService
+    private lateinit var deliveryExecutor: ScheduledExecutorService
+    private lateinit var schedulingService: SchedulingServiceImpl
+    private lateinit var drained: CountDownLatch
+
+    @Setup(Level.Invocation)
+    fun setup() {
+        val deliveryMode = when (mode) {
+            "serial" -> DeliveryMode.Serial
+            "per_endpoint" -> DeliveryMode.PerEndpoint()
+            else -> error("Unknown mode: $mode")
+        }
+        storageService = FakePayloadStorageService()
+        schedulingExecutor = Executors.newSingleThreadScheduledExecutor()
+        deliveryExecutor = when (deliveryMode) {
+            DeliveryMode.Serial -> Executors.newSingleThreadScheduledExecutor()
+            is DeliveryMode.PerEndpoint -> Executors.newScheduledThreadPool(SupportedEnvelopeType.entries.size)
+        }
+        schedulingService = SchedulingServiceImpl(
+            storageService = storageService,
+            executionService = LatencyRequestExecutionService(),
+            schedulingWorker = BackgroundWorker(schedulingExecutor),
+            deliveryWorker = BackgroundWorker(deliveryExecutor),
+            clock = clock,
+            logger = FakeInternalLogger(throwOnInternalError = false),
+            deliveryMode = deliveryMode,
+        )
+        addBacklog()
+        drained = CountDownLatch(storageService.storedPayloadCount())
+        storageService.addStoredPayloadListener(
+            object : StoredPayloadListener {
+                override fun onPayloadStored(metadata: StoredTelemetryMetadata) {
+                }
+
+                override fun onPayloadRemoved(metadata: StoredTelemetryMetadata) {
+                    drained.countDown()
+                }
+            },
+        )
+    }
+
+    @TearDown(Level.Invocation)
+    fun tearDown() {
+        schedulingService.shutdown()
+        schedulingExecutor.shutdownNow()
+        deliveryExecutor.shutdownNow()
+    }
+
+    @Benchmark
+    fun drainBacklog() {
+        schedulingService.onResurrectionComplete()
+        check(drained.await(DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) { "Backlog was not drained" }
+    }
+
+    private fun addBacklog() {
+        var index = 0
+        storageService.addFakePayload(createMetadata(SupportedEnvelopeType.SESSION, PayloadType.SESSION, index++))
+        repeat(LOG_COUNT) {
+            storageService.addFakePayload(createMetadata(SupportedEnvelopeType.LOG, PayloadType.LOG, index++))
+        }
+        repeat(ATTACHMENT_COUNT) {
+            val metadata = createMetadata(SupportedEnvelopeType.ATTACHMENT, PayloadType.ATTACHMENT, index++)
+            storageService.store(metadata) { it.write(ATTACHMENT_BODY) }
+        }
+    }
+
+    private fun createMetadata(
+        envelopeType: SupportedEnvelopeType,
+        payloadType: PayloadType,
+        index: Int,
+    ) = StoredTelemetryMetadata(
+        timestamp = clock.now() + index,
+        uuid = "payload-$index",
+        processIdentifier = "8115ec91-3e5e-4d8a-816d-cc40306f9822",
+        envelopeType = envelopeType,
+        payloadType = payloadType,
+    )
+
+    /**
+     * Reads each request body and then waits for the latency of its endpoint, as a real upload would.
+     */
+    private class LatencyRequestExecutionService : RequestExecutionService {
+
+        override fun attemptHttpRequest(
+            payloadStream: () -> InputStream,
+            envelopeType: SupportedEnvelopeType,
+            payloadType: String,
+        ): ExecutionResult {
+            payloadStream().use { it.copyTo(OutputStream.nullOutputStream()) }
+            return respond(envelopeType)
+        }
+
+        override fun attemptBatchHttpRequest(
+            payloadWriter: SerializationAction,
+            envelopeType: SupportedEnvelopeType,
+            payloadType: String,
+        ): ExecutionResult {
+            payloadWriter(OutputStream.nullOutputStream())
+            return respond(envelopeType)
+        }
+
+        private fun respond(envelopeType: SupportedEnvelopeType): ExecutionResult {
+            Thread.sleep(
+                when (envelopeType.endpoint) {
+                    Endpoint.SESSIONS -> SESSION_LATENCY_MS
+                    Endpoint.ATTACHMENTS -> ATTACHMENT_LATENCY_MS
+                    else -> LOG_LATENCY_MS
+                },
+            )
+            return ExecutionResult.Success
+        }
+    }
+
+    private companion object {
+        private const val LOG_COUNT = 20
+        private const val ATTACHMENT_COUNT = 5
+        private const val SESSION_LATENCY_MS = 150L
+        private const val LOG_LATENCY_MS = 10L
+        private const val ATTACHMENT_LATENCY_MS = 60L
+        private const val DRAIN_TIMEOUT_MS = 30_000L
+        private val ATTACHMENT_BODY = ByteArray(16 * 1024)
+    }
+}
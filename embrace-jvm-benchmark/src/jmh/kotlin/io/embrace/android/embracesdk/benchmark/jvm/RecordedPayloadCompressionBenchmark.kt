@@ -0,0 +1,188 @@
+package io.embrace.android.embracesdk.benchmark.jvm
+
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompression
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompressionDictionary
+import org.openjdk.jmh.annotations.AuxCounters
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.util.UUID
+
+/**
+ * Compares gzip against dictionary compression on envelopes built from payloads recorded by the SDK's integration
+ * tests, rather than generated ones. The recorded spans and logs are in `src/jmh/resources/payloads`. Their test
+ * placeholders are replaced with random ids and the JSON is compacted, so the envelopes match what is stored on a
+ * device. [compressedSize] reports the size of each sample in the benchmark results.
+ */
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+open class RecordedPayloadCompressionBenchmark {
+
+    @Param("session_part", "log", "crash_log")
+    @JvmField
+    var sample: String = ""
+
+    @Param("1", "6", "9")
+    @JvmField
+    var level: Int = 0
+
+    private val buffer = ByteArray(8192)
+    private val output = ByteArrayOutputStream(64 * 1024)
+    private lateinit var payload: ByteArray
+    private lateinit var gzip: PayloadCompression
+    private lateinit var dictionary: PayloadCompression
+    private lateinit var gzipped: ByteArray
+    private lateinit var dictionaryCompressed: ByteArray
+
+    @Setup
+    fun setup() {
+        payload = when (sample) {
+            "session_part" -> {
+                val spans = listOf("session_span", "session_span_manual_end", "crash_span").joinToString(",") { load(it) }
+                envelope("spans", "{\"spans\":[$spans]}")
+            }
+            "log" -> envelope("logs", load("log"))
+            "crash_log" -> envelope("logs", load("crash_log"))
+            else -> error("Unknown sample: $sample")
+        }.toByteArray()
+        gzip = PayloadCompression(level = level)
+        dictionary = PayloadCompression(level = level, dictionary = PayloadCompressionDictionary.bytes)
+        gzipped = compress(gzip)
+        dictionaryCompressed = compress(dictionary)
+    }
+
+    /**
+     * Compresses the sample once with each codec and reports the sizes through [Sizes]. A single shot is measured, as
+     * the counters are summed across iterations.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    fun compressedSize(sizes: Sizes) {
+        sizes.uncompressedBytes = payload.size.toLong()
+        sizes.gzipBytes = compress(gzip).size.toLong()
+        sizes.dictionaryBytes = compress(dictionary).size.toLong()
+    }
+
+    @Benchmark
+    fun compressGzip(): Int = compress(gzip).size
+
+    @Benchmark
+    fun compressDictionary(): Int = compress(dictionary).size
+
+    @Benchmark
+    fun decompressGzip(): Int = decompress(gzip, gzipped)
+
+    @Benchmark
+    fun decompressDictionary(): Int = decompress(dictionary, dictionaryCompressed)
+
+    private fun compress(compression: PayloadCompression): ByteArray {
+        output.reset()
+        compression.compress(output).use { it.write(payload) }
+        return output.toByteArray()
+    }
+
+    private fun decompress(compression: PayloadCompression, compressed: ByteArray): Int {
+        var total = 0
+        compression.decompress(ByteArrayInputStream(compressed)).use { stream ->
+            while (true) {
+                val count = stream.read(buffer)
+                if (count == -1) {
+                    return total
+                }
+                total += count
+            }
+        }
+    }
+
+    private fun envelope(type: String, data: String): String =
+        "{\"resource\":${load("envelope_resource")},\"metadata\":{},\"version\":\"0.1.0\",\"type\":\"$type\"," +
+            "\"data\":$data}"
+
+    private fun load(name: String): String {
+        val json = checkNotNull(javaClass.getResourceAsStream("/payloads/$name.json")) { "Missing sample: $name" }
+            .use { it.readBytes().decodeToString() }
+        return compact(replacePlaceholders(json))
+    }
+
+    /**
+     * Session ids repeat within a payload, so each is given one value, while the ids the tests ignore are unique.
+     */
+    private fun replacePlaceholders(json: String): String = PLACEHOLDER.replace(json) { match ->
+        when (match.value) {
+            "__EMBRACE_TEST_SESSION_PART_ID__" -> SESSION_PART_ID
+            "__EMBRACE_TEST_USER_SESSION_ID__" -> USER_SESSION_ID
+            else -> randomId()
+        }
+    }
+
+    /**
+     * Removes the whitespace outside string literals that the recorded payloads are pretty-printed with.
+     */
+    private fun compact(json: String): String = buildString(json.length) {
+        var inString = false
+        var escaped = false
+        json.forEach { c ->
+            when {
+                inString -> {
+                    append(c)
+                    when {
+                        escaped -> escaped = false
+                        c == '\\' -> escaped = true
+                        c == '"' -> inString = false
+                    }
+                }
+                c == '"' -> {
+                    inString = true
+                    append(c)
+                }
+                !c.isWhitespace() -> append(c)
+            }
+        }
+    }
+
+    /**
+     * The sizes of the sample, which JMH reports alongside the timings.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    open class Sizes {
+
+        @JvmField
+        var uncompressedBytes: Long = 0
+
+        @JvmField
+        var gzipBytes: Long = 0
+
+        @JvmField
+        var dictionaryBytes: Long = 0
+
+        @Setup(Level.Iteration)
+        fun reset() {
+            uncompressedBytes = 0
+            gzipBytes = 0
+            dictionaryBytes = 0
+        }
+    }
+
+    private companion object {
+        private val PLACEHOLDER = Regex("__EMBRACE_TEST_[A-Z_]+__")
+        private val SESSION_PART_ID = randomId()
+        private val USER_SESSION_ID = randomId()
+
+        fun randomId(): String = UUID.randomUUID().toString().replace("-", "")
+    }
+}
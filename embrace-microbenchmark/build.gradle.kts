@@ -46,13 +46,17 @@ dependencies {
     androidTestImplementation(libs.androidx.benchmark.junit4)
     androidTestImplementation(libs.opentelemetry.kotlin.api)
     androidTestImplementation(libs.opentelemetry.kotlin.compat)
+    androidTestImplementation(libs.opentelemetry.kotlin.semconv)
     androidTestImplementation(platform(libs.okhttp.bom))
     androidTestImplementation(libs.okhttp)
     androidTestImplementation(project(":embrace-android-sdk"))
     androidTestImplementation(project(":embrace-android-core"))
+    androidTestImplementation(project(":embrace-android-delivery"))
     androidTestImplementation(project(":embrace-android-otel"))
     androidTestImplementation(project(":embrace-android-infra"))
     androidTestImplementation(project(":embrace-android-utils"))
     androidTestImplementation(project(":embrace-android-payload"))
     androidTestImplementation(project(":embrace-android-instrumentation-api"))
+    androidTestImplementation(project(":embrace-android-instrumentation-network-common"))
+    androidTestImplementation(project(":embrace-android-semconv"))
 }
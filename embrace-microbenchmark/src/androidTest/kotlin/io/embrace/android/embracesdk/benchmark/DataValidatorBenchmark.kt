@@ -0,0 +1,73 @@
+package io.embrace.android.embracesdk.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import io.embrace.android.embracesdk.internal.otel.sdk.DataValidator
+import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.StorageTelemetrySource
+import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Measures the time and allocations of validating attribute maps of typical sizes. BenchmarkRule reports the allocation
+ * count per iteration, which should be zero for maps that are within the limits.
+ */
+@RunWith(AndroidJUnit4::class)
+class DataValidatorBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val validator = DataValidator(telemetryService = NoopTelemetryService)
+
+    @Test
+    fun validateEmptyAttributes() = measure(createAttributes(0))
+
+    @Test
+    fun validate5Attributes() = measure(createAttributes(5))
+
+    @Test
+    fun validate20Attributes() = measure(createAttributes(20))
+
+    @Test
+    fun validate50Attributes() = measure(createAttributes(50))
+
+    @Test
+    fun validate50AttributesWithTruncation() = measure(createAttributes(50, valueLength = 2048))
+
+    @Test
+    fun validateSingleAttribute() {
+        benchmarkRule.measureRepeated {
+            validator.truncateAttributeKey("http.request.method", false)
+            validator.truncateAttributeValue("http.request.method", "GET", false)
+        }
+    }
+
+    private fun measure(attributes: Map<String, String>) {
+        benchmarkRule.measureRepeated {
+            validator.truncateAttributes(attributes, false)
+        }
+    }
+
+    private fun createAttributes(count: Int, valueLength: Int = 16): Map<String, String> =
+        (0 until count).associate { k -> "app.attribute.$k" to "v".repeat(valueLength) }
+
+    private object NoopTelemetryService : TelemetryService {
+        override fun onPublicApiCalled(name: String) {
+        }
+
+        override fun logStorageTelemetry(storageTelemetry: Map<String, String>) {
+        }
+
+        override fun registerStorageTelemetrySource(source: StorageTelemetrySource) {
+        }
+
+        override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int) {
+        }
+
+        override fun getAndClearTelemetryAttributes(): Map<String, String> = emptyMap()
+    }
+}
@@ -88,6 +88,14 @@ class HeapAllocationBenchmark {
         )
     }
 
+    @Test
+    fun startSchemaSpan() {
+        report(
+            "schema_span_started",
+            retainedBytesPerItem { destination.startSpanCapture(SchemaType.View("checkout"), System.currentTimeMillis()) },
+        )
+    }
+
     @Test
     fun emitMinimalLog() {
         report("minimal_log", retainedBytesPerItem { index -> minimalLog(index) })
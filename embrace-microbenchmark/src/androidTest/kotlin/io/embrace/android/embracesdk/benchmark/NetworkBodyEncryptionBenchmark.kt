@@ -0,0 +1,74 @@
+package io.embrace.android.embracesdk.benchmark
+
+import android.util.Base64
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import io.embrace.android.embracesdk.internal.instrumentation.network.NetworkCaptureEncryptionManager
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.security.KeyPairGenerator
+
+/**
+ * Compares encrypting a captured network body by RSA-encrypting the whole body against wrapping a per-body AES-GCM
+ * key, for small, medium, and large bodies.
+ */
+@RunWith(AndroidJUnit4::class)
+class NetworkBodyEncryptionBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val manager = NetworkCaptureEncryptionManager()
+    private lateinit var publicKey: String
+
+    @Before
+    fun setup() {
+        val keyPair = KeyPairGenerator.getInstance("RSA").apply { initialize(RSA_KEY_SIZE_BITS) }.generateKeyPair()
+        publicKey = Base64.encodeToString(keyPair.public.encoded, Base64.NO_WRAP)
+    }
+
+    @Test
+    fun rsa1Kb() = measureRsa(createBody(1024))
+
+    @Test
+    fun hybrid1Kb() = measureHybrid(createBody(1024))
+
+    @Test
+    fun rsa100Kb() = measureRsa(createBody(100 * 1024))
+
+    @Test
+    fun hybrid100Kb() = measureHybrid(createBody(100 * 1024))
+
+    @Test
+    fun rsa1Mb() = measureRsa(createBody(1024 * 1024))
+
+    @Test
+    fun hybrid1Mb() = measureHybrid(createBody(1024 * 1024))
+
+    private fun measureRsa(body: String) {
+        benchmarkRule.measureRepeated {
+            checkNotNull(manager.encrypt(body, publicKey))
+        }
+    }
+
+    private fun measureHybrid(body: String) {
+        val bytes = body.toByteArray()
+        benchmarkRule.measureRepeated {
+            checkNotNull(manager.encryptHybrid(publicKey) { it.write(bytes) })
+        }
+    }
+
+    private fun createBody(size: Int): String = buildString(size) {
+        while (length < size) {
+            append("{\"id\":").append(length).append(",\"name\":\"captured network body\"},")
+        }
+        setLength(size)
+    }
+
+    private companion object {
+        private const val RSA_KEY_SIZE_BITS = 2048
+    }
+}
@@ -0,0 +1,187 @@
+@file:OptIn(ExperimentalSemconv::class)
+
+package io.embrace.android.embracesdk.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import io.embrace.android.embracesdk.internal.arch.datasource.TelemetryDestination
+import io.embrace.android.embracesdk.internal.arch.schema.EmbType
+import io.embrace.android.embracesdk.internal.arch.schema.SchemaType
+import io.embrace.android.embracesdk.internal.instrumentation.network.HttpNetworkRequest
+import io.embrace.android.embracesdk.internal.instrumentation.network.NetworkSpanAttributes
+import io.embrace.android.embracesdk.internal.instrumentation.network.RequestEndData
+import io.embrace.android.embracesdk.internal.instrumentation.network.toStatusCodeString
+import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getDomain
+import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getUrlPath
+import io.embrace.android.embracesdk.internal.utils.NetworkUtils.getValidTraceId
+import io.embrace.android.embracesdk.internal.utils.NetworkUtils.stripUrl
+import io.embrace.android.embracesdk.internal.utils.putIfNotNull
+import io.embrace.android.embracesdk.semconv.EmbNetworkRequestAttributes
+import io.embrace.android.embracesdk.semconv.ExperimentalSemconv
+import io.opentelemetry.kotlin.semconv.ErrorAttributes
+import io.opentelemetry.kotlin.semconv.ExceptionAttributes
+import io.opentelemetry.kotlin.semconv.HttpAttributes
+import io.opentelemetry.kotlin.semconv.UrlAttributes
+import io.opentelemetry.kotlin.semconv.UserAgentAttributes
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares recording network request spans the way the network data source used to against the way it does now.
+ * Covers both requests recorded after they complete and requests recorded with a start and an end call. The
+ * allocation counts reported by the benchmark are the figures of interest.
+ *
+ * The "WithMaps" cases reproduce the previous code. It stripped the url three times: once to find the domain, once
+ * for the url attribute and once for the span name. It also built each attribute map with putIfNotNull. The
+ * "WithWriter" cases strip the url once and write the attributes through [NetworkSpanAttributes]. A request recorded
+ * after it completes still goes through a map, because the span service may buffer that call until it is
+ * initialized. For that case the only saving is the two repeated stripUrl calls; the map and its entries remain.
+ */
+@RunWith(AndroidJUnit4::class)
+class NetworkSpanRecordingBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var harness: TelemetryDestinationHarness
+    private lateinit var destination: TelemetryDestination
+
+    private val completedRequest = HttpNetworkRequest(
+        url = URL,
+        httpMethod = METHOD,
+        startTime = START_TIME_MS,
+        endTime = END_TIME_MS,
+        bytesSent = 512,
+        bytesReceived = 4096,
+        statusCode = 200,
+        traceId = "trace-id",
+    )
+
+    private val endData = RequestEndData(
+        id = "request-id",
+        url = URL,
+        sdkClockStartTime = START_TIME_MS,
+        sdkClockEndTime = END_TIME_MS,
+        statusCode = 200,
+        bytesSent = 512,
+        bytesReceived = 4096,
+        userAgentName = "okhttp",
+        userAgentVersion = "4.12.0",
+    )
+
+    @Before
+    fun setup() {
+        harness = TelemetryDestinationHarness()
+        destination = harness.destination
+    }
+
+    @Test
+    fun recordCompletedRequestWithMaps() = measure {
+        checkNotNull(getDomain(stripUrl(URL)))
+        val attributes = buildMap {
+            put(UrlAttributes.URL_FULL, stripUrl(URL))
+            put(HttpAttributes.HTTP_REQUEST_METHOD, METHOD)
+            putIfNotNull(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, completedRequest.statusCode?.toStatusCodeString())
+            putIfNotNull(HttpAttributes.HTTP_REQUEST_BODY_SIZE, completedRequest.bytesSent?.toString())
+            putIfNotNull(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, completedRequest.bytesReceived?.toString())
+            putIfNotNull(ErrorAttributes.ERROR_TYPE, completedRequest.errorType)
+            putIfNotNull(ExceptionAttributes.EXCEPTION_MESSAGE, completedRequest.errorMessage)
+            completedRequest.w3cTraceparent?.let { traceparent ->
+                put(EmbNetworkRequestAttributes.EMB_W3C_TRACEPARENT, traceparent)
+                put(EmbNetworkRequestAttributes.EMB_FORWARD_TELEMETRY, "true")
+            }
+            putIfNotNull(EmbNetworkRequestAttributes.EMB_TRACE_ID, getValidTraceId(completedRequest.traceId))
+        }
+        destination.recordCompletedSpan(
+            name = "$METHOD ${getUrlPath(stripUrl(URL))}",
+            startTimeMs = START_TIME_MS,
+            endTimeMs = END_TIME_MS,
+            type = EmbType.Performance.Network,
+            attributes = SchemaType.NetworkRequest(attributes).attributes(),
+        )
+    }
+
+    @Test
+    fun recordCompletedRequestWithWriter() = measure {
+        val strippedUrl = stripUrl(URL)
+        checkNotNull(getDomain(strippedUrl))
+        destination.recordCompletedSpan(
+            name = "$METHOD ${getUrlPath(strippedUrl)}",
+            startTimeMs = START_TIME_MS,
+            endTimeMs = END_TIME_MS,
+            type = EmbType.Performance.Network,
+            attributes = buildMap {
+                NetworkSpanAttributes.writeCompleted(completedRequest, strippedUrl, METHOD) { key, value ->
+                    put(key, value)
+                }
+            },
+        )
+    }
+
+    @Test
+    fun startAndEndRequestWithMaps() = measure {
+        checkNotNull(getDomain(stripUrl(URL)))
+        val startAttributes = buildMap {
+            put(UrlAttributes.URL_FULL, stripUrl(URL))
+            put(HttpAttributes.HTTP_REQUEST_METHOD, METHOD)
+        }
+        val token = destination.startSpanCapture(
+            schemaType = SchemaType.NetworkRequest(startAttributes),
+            startTimeMs = START_TIME_MS,
+            name = "$METHOD ${getUrlPath(stripUrl(URL))}",
+        )
+        val endAttributes = buildMap {
+            put(UrlAttributes.URL_FULL, stripUrl(endData.url))
+            putIfNotNull(HttpAttributes.HTTP_RESPONSE_STATUS_CODE, endData.statusCode?.toStatusCodeString())
+            putIfNotNull(HttpAttributes.HTTP_REQUEST_BODY_SIZE, endData.bytesSent?.toString())
+            putIfNotNull(HttpAttributes.HTTP_RESPONSE_BODY_SIZE, endData.bytesReceived?.toString())
+            putIfNotNull(ErrorAttributes.ERROR_TYPE, endData.errorType)
+            putIfNotNull(ExceptionAttributes.EXCEPTION_MESSAGE, endData.errorMessage)
+            putIfNotNull(UserAgentAttributes.USER_AGENT_NAME, endData.userAgentName)
+            putIfNotNull(UserAgentAttributes.USER_AGENT_VERSION, endData.userAgentVersion)
+            putIfNotNull(EmbNetworkRequestAttributes.EMB_TRACE_ID, getValidTraceId(endData.traceId))
+        }
+        endAttributes.forEach { token.setSystemAttribute(it.key, it.value) }
+        token.stop(END_TIME_MS)
+    }
+
+    @Test
+    fun startAndEndRequestWithWriter() = measure {
+        val strippedUrl = stripUrl(URL)
+        checkNotNull(getDomain(strippedUrl))
+        val token = destination.startSpanCapture(
+            schemaType = SchemaType.NetworkRequest { put -> NetworkSpanAttributes.writeStart(strippedUrl, METHOD, put) },
+            startTimeMs = START_TIME_MS,
+            name = "$METHOD ${getUrlPath(strippedUrl)}",
+        )
+        NetworkSpanAttributes.writeEnd(endData, stripUrl(endData.url)) { key, value ->
+            token.setSystemAttribute(key, value)
+        }
+        token.stop(END_TIME_MS)
+    }
+
+    /**
+     * Records a batch of requests per iteration, ending the session part between iterations so the per-session-part
+     * network span limit is never reached.
+     */
+    private inline fun measure(crossinline recordRequest: () -> Unit) {
+        benchmarkRule.measureRepeated {
+            repeat(REQUESTS_PER_ITERATION) { recordRequest() }
+            runWithMeasurementDisabled {
+                harness.spanRepository.flushOtelSpans()
+                harness.currentSessionPartSpan.endSession(true)
+            }
+        }
+    }
+
+    private companion object {
+        private const val URL = "https://api.example.com/v1/users/42?include=profile"
+        private const val METHOD = "GET"
+        private const val START_TIME_MS = 1_700_000_000_000L
+        private const val END_TIME_MS = 1_700_000_000_250L
+        private const val REQUESTS_PER_ITERATION = 10
+    }
+}
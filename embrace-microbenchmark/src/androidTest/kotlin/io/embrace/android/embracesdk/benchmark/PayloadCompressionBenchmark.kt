@@ -0,0 +1,164 @@
+package io.embrace.android.embracesdk.benchmark
+
+import android.os.Bundle
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompression
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadCompressionDictionary
+import io.embrace.android.embracesdk.internal.payload.Attribute
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.Span
+import io.embrace.android.embracesdk.internal.serialization.EmbraceSerializer
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+
+/**
+ * Compares the compressed size and CPU time of gzip against dictionary compression at several levels, for a small
+ * session part snapshot early in a session and a large one later on.
+ */
+@RunWith(AndroidJUnit4::class)
+class PayloadCompressionBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val serializer = EmbraceSerializer()
+    private val sessionAttributes = listOf(
+        "emb.type",
+        "emb.clean_exit",
+        "emb.cold_start",
+        "emb.session_number",
+        "emb.session_part_number",
+        "emb.session_part_id",
+        "emb.user_session_id",
+        "emb.process_identifier",
+        "emb.session_start_type",
+        "emb.session_end_type",
+        "emb.heartbeat_time_unix_nano",
+        "emb.error_log_count",
+        "emb.disk_free_bytes",
+        "emb.state",
+    )
+    private lateinit var smallPayload: ByteArray
+    private lateinit var largePayload: ByteArray
+
+    @Before
+    fun setup() {
+        smallPayload = createPayload(spanCount = 2)
+        largePayload = createPayload(spanCount = 200)
+    }
+
+    @Test
+    fun gzipSmall() = measure("gzip_small", gzip(DEFAULT_LEVEL), smallPayload)
+
+    @Test
+    fun dictionarySmall() = measure("dictionary_small", dictionary(DEFAULT_LEVEL), smallPayload)
+
+    @Test
+    fun gzipLarge() = measure("gzip_large", gzip(DEFAULT_LEVEL), largePayload)
+
+    @Test
+    fun dictionaryLarge() = measure("dictionary_large", dictionary(DEFAULT_LEVEL), largePayload)
+
+    @Test
+    fun gzipLargeFastest() = measure("gzip_large_level_1", gzip(1), largePayload)
+
+    @Test
+    fun dictionaryLargeFastest() = measure("dictionary_large_level_1", dictionary(1), largePayload)
+
+    @Test
+    fun gzipLargeSmallest() = measure("gzip_large_level_9", gzip(9), largePayload)
+
+    @Test
+    fun dictionaryLargeSmallest() = measure("dictionary_large_level_9", dictionary(9), largePayload)
+
+    @Test
+    fun decompressGzipLarge() = measureDecompression(gzip(DEFAULT_LEVEL), largePayload)
+
+    @Test
+    fun decompressDictionaryLarge() = measureDecompression(dictionary(DEFAULT_LEVEL), largePayload)
+
+    private fun gzip(level: Int) = PayloadCompression(level = level)
+
+    private fun dictionary(level: Int) = PayloadCompression(level = level, dictionary = PayloadCompressionDictionary.bytes)
+
+    private fun measure(label: String, compression: PayloadCompression, payload: ByteArray) {
+        val size = compress(compression, payload).size
+        Log.i(TAG, "$label compressed ${payload.size} bytes to $size bytes")
+        InstrumentationRegistry.getInstrumentation().sendStatus(
+            0,
+            Bundle().apply { putInt("${label}_$RESULT_KEY", size) },
+        )
+        benchmarkRule.measureRepeated {
+            compress(compression, payload)
+        }
+    }
+
+    private fun measureDecompression(compression: PayloadCompression, payload: ByteArray) {
+        val compressed = compress(compression, payload)
+        val buffer = ByteArray(8192)
+        benchmarkRule.measureRepeated {
+            compression.decompress(ByteArrayInputStream(compressed)).use { stream ->
+                while (stream.read(buffer) != -1) {
+                    // discard
+                }
+            }
+        }
+    }
+
+    private fun compress(compression: PayloadCompression, payload: ByteArray): ByteArray {
+        val bytes = ByteArrayOutputStream(payload.size)
+        compression.compress(bytes).use { it.write(payload) }
+        return bytes.toByteArray()
+    }
+
+    private fun createPayload(spanCount: Int): ByteArray {
+        val sessionSpan = createSpan("session", sessionAttributes.map { Attribute(it, "1") })
+        val spans = (0 until spanCount).map { k ->
+            createSpan("span-$k", listOf(Attribute("emb.type", "perf"), Attribute("key-${k % 10}", "value-$k")))
+        }
+        val envelope = Envelope(
+            resource = EnvelopeResource(
+                appVersion = "1.0.0",
+                sdkVersion = "7.0.0",
+                osName = "android",
+                osVersion = "14",
+                deviceManufacturer = "Google",
+                deviceModel = "Pixel 8",
+            ),
+            version = "0.1.0",
+            type = "spans",
+            data = SessionPartPayload(spans = spans + sessionSpan),
+        )
+        val bytes = ByteArrayOutputStream()
+        serializer.toJson(envelope, Envelope.sessionEnvelopeSerializer, bytes)
+        return bytes.toByteArray()
+    }
+
+    private fun createSpan(id: String, attributes: List<Attribute>) = Span(
+        traceId = "0123456789abcdef0123456789abcdef",
+        spanId = id,
+        parentSpanId = "0000000000000000",
+        name = "emb-$id",
+        startTimeNanos = 1_700_000_000_000_000_000,
+        endTimeNanos = 1_700_000_001_000_000_000,
+        status = Span.Status.OK,
+        events = emptyList(),
+        attributes = attributes,
+    )
+
+    private companion object {
+        private const val TAG = "PayloadCompressionBenchmark"
+        private const val RESULT_KEY = "compressed_bytes"
+        private const val DEFAULT_LEVEL = 6
+    }
+}
@@ -0,0 +1,138 @@
+package io.embrace.android.embracesdk.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.embrace.android.embracesdk.internal.clock.NormalizedIntervalClock
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.execution.OkHttpRequestExecutionService.ApiRequestBody
+import io.embrace.android.embracesdk.internal.delivery.execution.OkHttpRequestExecutionService.ChannelRequestBody
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.PayloadStorageServiceImpl
+import io.embrace.android.embracesdk.internal.delivery.storage.PooledGzipInputStream
+import io.embrace.android.embracesdk.internal.logging.InternalLoggerImpl
+import io.embrace.android.embracesdk.internal.worker.PriorityWorker
+import okio.blackholeSink
+import okio.buffer
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.io.InputStream
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.zip.GZIPInputStream
+
+/**
+ * Measures the time and allocations needed to drain a backlog of stored payloads into request bodies, comparing the
+ * stream and file channel read paths, and decoding them with the JDK gzip stream against the pooled one.
+ *
+ * Neither read path is zero-copy. Both copy the bytes into Okio's heap segments, and the channel path does so through
+ * the temporary buffer [java.nio.channels.FileChannel.transferTo] uses for a target that is not a file or socket. Any
+ * difference comes from the objects allocated per payload, not from avoiding copies.
+ */
+@RunWith(AndroidJUnit4::class)
+class PayloadDrainBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val readBuffer = ByteArray(8192)
+    private lateinit var storageDir: File
+    private lateinit var executor: ExecutorService
+    private lateinit var storageService: PayloadStorageService
+    private lateinit var payloads: List<StoredTelemetryMetadata>
+
+    @Before
+    fun setup() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        storageDir = File(context.cacheDir, "drain_benchmark").apply {
+            deleteRecursively()
+            mkdirs()
+        }
+        executor = Executors.newSingleThreadExecutor()
+        storageService = PayloadStorageServiceImpl(
+            lazy { storageDir },
+            PriorityWorker(executor),
+            { PROCESS_ID },
+            InternalLoggerImpl(),
+            NormalizedIntervalClock(),
+            storageLimit = PAYLOAD_COUNT,
+        )
+        val body = (0 until PAYLOAD_ATTRIBUTES).joinToString(",", "{", "}") { "\"key-$it\":\"value-$it\"" }.toByteArray()
+        val now = System.currentTimeMillis()
+        payloads = (0 until PAYLOAD_COUNT).map { k ->
+            StoredTelemetryMetadata(
+                timestamp = now + k,
+                uuid = "drain-payload-$k",
+                processIdentifier = PROCESS_ID,
+                envelopeType = SupportedEnvelopeType.LOG,
+                payloadType = PayloadType.LOG,
+            ).also { metadata ->
+                storageService.store(metadata) { it.write(body) }
+            }
+        }
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+        storageDir.deleteRecursively()
+    }
+
+    @Test
+    fun drainWithStreams() {
+        benchmarkRule.measureRepeated {
+            payloads.forEach { metadata ->
+                val stream = checkNotNull(storageService.loadPayloadAsStream(metadata))
+                ApiRequestBody { stream }.writeTo(blackholeSink().buffer())
+            }
+        }
+    }
+
+    @Test
+    fun drainWithChannels() {
+        benchmarkRule.measureRepeated {
+            payloads.forEach { metadata ->
+                checkNotNull(storageService.loadPayloadAsChannel(metadata)).use { channel ->
+                    ChannelRequestBody(channel).writeTo(blackholeSink().buffer())
+                }
+            }
+        }
+    }
+
+    @Test
+    fun decodeWithGzipInputStream() {
+        benchmarkRule.measureRepeated {
+            payloads.forEach { metadata ->
+                GZIPInputStream(checkNotNull(storageService.loadPayloadAsStream(metadata))).use(::drain)
+            }
+        }
+    }
+
+    @Test
+    fun decodeWithPooledGzipInputStream() {
+        benchmarkRule.measureRepeated {
+            payloads.forEach { metadata ->
+                PooledGzipInputStream(checkNotNull(storageService.loadPayloadAsStream(metadata))).use(::drain)
+            }
+        }
+    }
+
+    private fun drain(stream: InputStream) {
+        while (stream.read(readBuffer) != -1) {
+            // discard
+        }
+    }
+
+    private companion object {
+        private const val PROCESS_ID = "benchmark-process"
+        private const val PAYLOAD_COUNT = 500
+        private const val PAYLOAD_ATTRIBUTES = 200
+    }
+}
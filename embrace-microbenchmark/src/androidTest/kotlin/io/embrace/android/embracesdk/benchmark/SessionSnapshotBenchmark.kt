@@ -0,0 +1,152 @@
+package io.embrace.android.embracesdk.benchmark
+
+import android.os.Bundle
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.SessionSnapshotJournalImpl
+import io.embrace.android.embracesdk.internal.logging.InternalLoggerImpl
+import io.embrace.android.embracesdk.internal.payload.Attribute
+import io.embrace.android.embracesdk.internal.payload.Envelope
+import io.embrace.android.embracesdk.internal.payload.EnvelopeResource
+import io.embrace.android.embracesdk.internal.payload.SessionPartPayload
+import io.embrace.android.embracesdk.internal.payload.Span
+import io.embrace.android.embracesdk.internal.serialization.EmbraceSerializer
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.io.OutputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Measures how many bytes periodic session part snapshots write to disk per minute over a 30 minute session that
+ * steadily accumulates spans, comparing full snapshots against the incremental snapshot journal.
+ */
+@RunWith(AndroidJUnit4::class)
+class SessionSnapshotBenchmark {
+
+    private val serializer = EmbraceSerializer()
+    private lateinit var journalDir: File
+
+    @Before
+    fun setup() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        journalDir = File(context.cacheDir, "snapshot_benchmark").apply {
+            deleteRecursively()
+            mkdirs()
+        }
+    }
+
+    @Test
+    fun fullSnapshots() {
+        var bytesWritten = 0L
+        forEachSnapshot { _, envelope ->
+            val stream = CountingOutputStream()
+            serializer.toJson(envelope, Envelope.sessionEnvelopeSerializer, GZIPOutputStream(stream))
+            bytesWritten += stream.count
+        }
+        report("full_snapshots", bytesWritten / SESSION_MINUTES)
+    }
+
+    @Test
+    fun journaledSnapshots() {
+        val journal = SessionSnapshotJournalImpl(lazy { journalDir }, serializer, { PROCESS_ID }, InternalLoggerImpl())
+        var bytesWritten = 0L
+        var lastSize = 0L
+        forEachSnapshot { metadata, envelope ->
+            journal.append(metadata, envelope)
+            val size = journalDir.listFiles()?.sumOf(File::length) ?: 0L
+            // a compacted journal is rewritten from scratch, so all of its bytes were written
+            bytesWritten += if (size >= lastSize) size - lastSize else size
+            lastSize = size
+        }
+        report("journaled_snapshots", bytesWritten / SESSION_MINUTES)
+    }
+
+    /**
+     * Simulates the snapshots taken during a session where a span completes every few seconds, a handful of spans are
+     * in progress at any time, and the session span's heartbeat is updated before every snapshot.
+     */
+    private fun forEachSnapshot(action: (StoredTelemetryMetadata, Envelope<SessionPartPayload>) -> Unit) {
+        val completedSpans = mutableListOf<Span>()
+        repeat(SNAPSHOT_COUNT) { k ->
+            val elapsedMs = k * SNAPSHOT_INTERVAL_MS
+            if (k % SNAPSHOTS_PER_COMPLETED_SPAN == 0) {
+                completedSpans.add(createSpan("completed-$k", elapsedMs, ended = true))
+            }
+            val sessionSpan = createSpan("session", 0, ended = false).copy(
+                attributes = createAttributes("session") + Attribute("emb.heartbeat_time_unix_nano", "$elapsedMs"),
+            )
+            val activeSpans = (0 until ACTIVE_SPAN_COUNT).map { createSpan("active-${(k / 10) + it}", elapsedMs, ended = false) }
+            val envelope = Envelope(
+                resource = EnvelopeResource(appVersion = "1.0.0", sdkVersion = "7.0.0"),
+                version = "1.0.0",
+                type = "spans",
+                data = SessionPartPayload(
+                    spans = completedSpans.toList(),
+                    spanSnapshots = activeSpans + sessionSpan,
+                ),
+            )
+            val metadata = StoredTelemetryMetadata(
+                timestamp = elapsedMs,
+                uuid = "snapshot-$k",
+                processIdentifier = PROCESS_ID,
+                envelopeType = SupportedEnvelopeType.SESSION,
+                complete = false,
+                payloadType = PayloadType.SESSION,
+                userSessionId = "user-session",
+                sessionPartId = "session-part",
+            )
+            action(metadata, envelope)
+        }
+    }
+
+    private fun createSpan(id: String, timeMs: Long, ended: Boolean) = Span(
+        traceId = "0123456789abcdef0123456789abcdef",
+        spanId = id,
+        name = "span-$id",
+        startTimeNanos = timeMs * 1_000_000,
+        endTimeNanos = if (ended) (timeMs + 500) * 1_000_000 else null,
+        status = if (ended) Span.Status.OK else Span.Status.UNSET,
+        attributes = createAttributes(id),
+    )
+
+    private fun createAttributes(id: String) = (1..SPAN_ATTRIBUTES).map { Attribute("key-$it", "$id-value-$it") }
+
+    private fun report(label: String, bytesPerMinute: Long) {
+        Log.i(TAG, "$label wrote $bytesPerMinute bytes per minute")
+        InstrumentationRegistry.getInstrumentation().sendStatus(
+            0,
+            Bundle().apply { putLong("${label}_$RESULT_KEY", bytesPerMinute) },
+        )
+    }
+
+    private class CountingOutputStream : OutputStream() {
+        var count = 0L
+
+        override fun write(b: Int) {
+            count++
+        }
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            count += len
+        }
+    }
+
+    companion object {
+        private const val TAG = "SessionSnapshotBenchmark"
+        private const val RESULT_KEY = "bytes_written_per_minute"
+        private const val PROCESS_ID = "benchmark-process"
+
+        private const val SESSION_MINUTES = 30L
+        private const val SNAPSHOT_INTERVAL_MS = 2000L
+        private const val SNAPSHOT_COUNT = 900 // 30 minutes of snapshots taken every 2 seconds
+        private const val SNAPSHOTS_PER_COMPLETED_SPAN = 2
+        private const val ACTIVE_SPAN_COUNT = 3
+        private const val SPAN_ATTRIBUTES = 6
+    }
+}
@@ -0,0 +1,106 @@
+package io.embrace.android.embracesdk.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import io.embrace.android.embracesdk.internal.clock.NormalizedIntervalClock
+import io.embrace.android.embracesdk.internal.delivery.PayloadType
+import io.embrace.android.embracesdk.internal.delivery.StoredTelemetryMetadata
+import io.embrace.android.embracesdk.internal.delivery.SupportedEnvelopeType
+import io.embrace.android.embracesdk.internal.delivery.storage.FileStorageService
+import io.embrace.android.embracesdk.internal.delivery.storage.FileStorageServiceImpl
+import io.embrace.android.embracesdk.internal.logging.InternalLoggerImpl
+import io.embrace.android.embracesdk.internal.worker.PriorityWorker
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.util.concurrent.Executors
+
+/**
+ * Measures store and delete throughput of [FileStorageServiceImpl] once its index holds 500 and 5,000 payloads. Each
+ * store happens at the storage limit, so it also evicts the oldest payload.
+ */
+@RunWith(AndroidJUnit4::class)
+class StoredPayloadIndexBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val body = ByteArray(64)
+    private val baseTimestamp = System.currentTimeMillis()
+    private var storageDir: File? = null
+
+    @After
+    fun tearDown() {
+        storageDir?.deleteRecursively()
+    }
+
+    @Test
+    fun storeAtLimit500() = measureStore(500)
+
+    @Test
+    fun storeAtLimit5000() = measureStore(5000)
+
+    @Test
+    fun storeAndDelete500() = measureStoreAndDelete(500)
+
+    @Test
+    fun storeAndDelete5000() = measureStoreAndDelete(5000)
+
+    private fun measureStore(payloadCount: Int) {
+        val service = createService(payloadCount)
+        var next = payloadCount
+        benchmarkRule.measureRepeated {
+            service.store(createMetadata(next++)) { it.write(body) }
+        }
+    }
+
+    private fun measureStoreAndDelete(payloadCount: Int) {
+        // the limit leaves room for one payload, so only the explicit delete removes it
+        val service = createService(payloadCount, storageLimit = payloadCount + 1)
+        var next = payloadCount
+        benchmarkRule.measureRepeated {
+            val metadata = createMetadata(next++)
+            service.store(metadata) { it.write(body) }
+            service.delete(metadata)
+        }
+    }
+
+    private fun createService(payloadCount: Int, storageLimit: Int = payloadCount): FileStorageService {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        val dir = File(context.cacheDir, "stored_payload_index_benchmark").apply {
+            deleteRecursively()
+            mkdirs()
+        }
+        storageDir = dir
+        // a shut down executor rejects deletes, which then run inline on the calling thread. That way the benchmark
+        // measures the delete itself rather than handing it to another thread.
+        val executor = Executors.newSingleThreadExecutor().apply { shutdown() }
+        return FileStorageServiceImpl(
+            lazy { dir },
+            PriorityWorker(executor),
+            InternalLoggerImpl(),
+            NormalizedIntervalClock(),
+            storageLimit = storageLimit,
+        ).apply {
+            repeat(payloadCount) { k ->
+                store(createMetadata(k)) { it.write(body) }
+            }
+        }
+    }
+
+    private fun createMetadata(k: Int) = StoredTelemetryMetadata(
+        timestamp = baseTimestamp + k,
+        uuid = "index-payload-$k",
+        processIdentifier = PROCESS_ID,
+        envelopeType = if (k % 10 == 0) SupportedEnvelopeType.SESSION else SupportedEnvelopeType.LOG,
+        payloadType = if (k % 10 == 0) PayloadType.SESSION else PayloadType.LOG,
+    )
+
+    private companion object {
+        private const val PROCESS_ID = "benchmark-process"
+    }
+}
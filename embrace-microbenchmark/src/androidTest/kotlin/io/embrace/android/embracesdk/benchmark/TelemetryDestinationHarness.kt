@@ -22,6 +22,7 @@ import io.embrace.android.embracesdk.internal.otel.spans.SpanServiceImpl
 import io.embrace.android.embracesdk.internal.serialization.EmbraceSerializer
 import io.embrace.android.embracesdk.internal.serialization.PlatformSerializer
 import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.StorageTelemetrySource
 import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 import io.embrace.android.embracesdk.internal.utils.UuidSource
 import io.embrace.android.embracesdk.internal.utils.UuidSourceImpl
@@ -88,7 +89,10 @@ internal class TelemetryDestinationHarness {
         override fun logStorageTelemetry(storageTelemetry: Map<String, String>) {
         }
 
-        override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType) {
+        override fun registerStorageTelemetrySource(source: StorageTelemetrySource) {
+        }
+
+        override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int) {
         }
 
         override fun getAndClearTelemetryAttributes(): Map<String, String> = emptyMap()
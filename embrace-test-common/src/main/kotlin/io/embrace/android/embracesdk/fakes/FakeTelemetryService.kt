@@ -1,11 +1,13 @@
 package io.embrace.android.embracesdk.fakes
 
 import io.embrace.android.embracesdk.internal.telemetry.AppliedLimitType
+import io.embrace.android.embracesdk.internal.telemetry.StorageTelemetrySource
 import io.embrace.android.embracesdk.internal.telemetry.TelemetryService
 
 class FakeTelemetryService : TelemetryService {
 
     val storageTelemetryMap: MutableMap<String, String> = mutableMapOf()
+    val storageTelemetrySources: MutableList<StorageTelemetrySource> = mutableListOf()
     val apiCalls: MutableList<String> = mutableListOf()
     val appliedLimits: MutableList<Pair<String, AppliedLimitType>> = mutableListOf()
 
@@ -17,8 +19,19 @@ class FakeTelemetryService : TelemetryService {
         storageTelemetryMap.putAll(storageTelemetry)
     }
 
-    override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType) {
-        appliedLimits.add(telemetryType to limitType)
+    override fun registerStorageTelemetrySource(source: StorageTelemetrySource) {
+        storageTelemetrySources.add(source)
+    }
+
+    /**
+     * Returns the logged storage telemetry along with the current values of every registered source.
+     */
+    fun collectStorageTelemetry(): Map<String, String> = storageTelemetryMap.toMutableMap().apply {
+        storageTelemetrySources.forEach { it.collectStorageTelemetry(this) }
+    }
+
+    override fun trackAppliedLimit(telemetryType: String, limitType: AppliedLimitType, count: Int) {
+        repeat(count) { appliedLimits.add(telemetryType to limitType) }
     }
 
     override fun getAndClearTelemetryAttributes(): Map<String, String> {
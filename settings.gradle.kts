@@ -48,6 +48,7 @@ include(
     ":embrace-bytecode-instrumentation-tests",
     ":embrace-gradle-plugin-integration-tests",
     ":embrace-microbenchmark",
+    ":embrace-jvm-benchmark",
 )
 
 pluginManagement {